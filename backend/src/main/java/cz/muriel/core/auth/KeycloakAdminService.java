@@ -2,6 +2,10 @@ package cz.muriel.core.auth;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,9 +18,11 @@ import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 import cz.muriel.core.dto.*;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * 🔐 BEZPEČNÁ implementace Keycloak Admin API
@@ -53,11 +59,97 @@ public class KeycloakAdminService {
 
   private final Map<String, TokenCache> tokenCache = new ConcurrentHashMap<>();
 
-  public KeycloakAdminService(ObjectMapper objectMapper) {
+  /**
+   * 🗃️ Cache čtecích dotazů (CDC projection) - krátké TTL, souběžné stejné
+   * dotazy sdílí jedno REST volání (Caffeine load per klíč). Chyby se necachují.
+   * Invaliduje se CDC eventy ({@link #invalidate}) a zápisy přes tuto službu.
+   */
+  private final Cache<LookupKey, Object> lookups;
+
+  private enum Lookup {
+    USER, USER_ROLES, USER_GROUPS, USER_EFFECTIVE_ROLES, ROLE, ROLE_COMPOSITES,
+    ROLE_COMPOSITES_BY_NAME, GROUP, GROUP_CHILDREN
+  }
+
+  private record LookupKey(Lookup lookup, String id) {
+  }
+
+  public KeycloakAdminService(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+      @Value("${keycloak.admin.cache.ttl-seconds:30}") long cacheTtlSeconds,
+      @Value("${keycloak.admin.cache.max-size:10000}") long cacheMaxSize) {
     this.objectMapper = objectMapper;
+    this.lookups = Caffeine.newBuilder().maximumSize(cacheMaxSize)
+        .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds)).recordStats().build();
+    CaffeineCacheMetrics.monitor(meterRegistry, lookups, "keycloak-admin");
     log.info("🔐 SECURITY: KeycloakAdminService initialized with secure configuration");
   }
 
+  /**
+   * Načte přes cache - výsledek loaderu se sdílí, výjimka propadne volajícímu
+   */
+  @SuppressWarnings("unchecked")
+  private <T> T cached(Lookup lookup, String id, Supplier<T> loader) {
+    return (T) lookups.get(new LookupKey(lookup, id), key -> loader.get());
+  }
+
+  /**
+   * Cachovaný JSON - volající dostane vlastní kopii
+   */
+  private JsonNode cachedJson(Lookup lookup, String id, String path) {
+    JsonNode node = cached(lookup, id, () -> fetchJson(path));
+    return node.deepCopy();
+  }
+
+  private JsonNode fetchJson(String path) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setBearerAuth(getSecureAdminToken());
+
+    ResponseEntity<String> response = restTemplate.exchange(
+        keycloakBaseUrl + "/admin/realms/" + targetRealm + path, HttpMethod.GET,
+        new HttpEntity<>(headers), String.class);
+    try {
+      return objectMapper.readTree(response.getBody());
+    } catch (Exception ex) {
+      throw new IllegalStateException("Invalid Keycloak response for " + path, ex);
+    }
+  }
+
+  /**
+   * 🔄 Invalidace podle CDC eventu - volá se před projekcí eventu. Záznamy
+   * entity se mažou přesně; odvozené seznamy (composites, effective roles,
+   * children), kde se entita může objevit u jiného klíče, se mažou celé.
+   */
+  public void invalidate(String eventType, String entityId) {
+    if (eventType == null || entityId == null) {
+      return;
+    }
+    if (eventType.startsWith("USER")) {
+      evictUser(entityId);
+    } else if (eventType.startsWith("ROLE")) {
+      lookups.invalidate(new LookupKey(Lookup.ROLE, entityId));
+      evictRoleListings();
+    } else if (eventType.startsWith("GROUP")) {
+      lookups.invalidate(new LookupKey(Lookup.GROUP, entityId));
+      evictAll(Lookup.GROUP_CHILDREN, Lookup.USER_GROUPS);
+    }
+  }
+
+  private void evictUser(String userId) {
+    lookups.invalidateAll(List.of(new LookupKey(Lookup.USER, userId),
+        new LookupKey(Lookup.USER_ROLES, userId), new LookupKey(Lookup.USER_GROUPS, userId),
+        new LookupKey(Lookup.USER_EFFECTIVE_ROLES, userId)));
+  }
+
+  private void evictRoleListings() {
+    evictAll(Lookup.ROLE_COMPOSITES, Lookup.ROLE_COMPOSITES_BY_NAME, Lookup.USER_ROLES,
+        Lookup.USER_EFFECTIVE_ROLES);
+  }
+
+  private void evictAll(Lookup... kinds) {
+    Set<Lookup> evicted = EnumSet.copyOf(List.of(kinds));
+    lookups.asMap().keySet().removeIf(key -> evicted.contains(key.lookup()));
+  }
+
   private String getSecureAdminToken() {
     final String cacheKey = "admin_token";
     TokenCache cached = tokenCache.get(cacheKey);
@@ -163,16 +255,7 @@ public class KeycloakAdminService {
 
   public UserDto getUserById(String id) {
     try {
-      String adminToken = getSecureAdminToken();
-      String url = keycloakBaseUrl + "/admin/realms/" + targetRealm + "/users/" + id;
-
-      HttpHeaders headers = new HttpHeaders();
-      headers.setBearerAuth(adminToken);
-
-      ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET,
-          new HttpEntity<>(headers), String.class);
-
-      JsonNode user = objectMapper.readTree(response.getBody());
+      JsonNode user = cachedJson(Lookup.USER, id, "/users/" + id);
 
       UserDto userDto = buildUserDtoFromJson(user);
 
@@ -425,6 +508,7 @@ public class KeycloakAdminService {
           Void.class);
 
       log.info("User updated successfully: {}", userId);
+      evictUser(userId);
 
       return getUserById(userId);
 
@@ -445,6 +529,7 @@ public class KeycloakAdminService {
       restTemplate.exchange(url, HttpMethod.DELETE, new HttpEntity<>(headers), Void.class);
 
       log.info("User deleted successfully: {}", userId);
+      evictUser(userId);
 
     } catch (Exception ex) {
       log.error("Failed to delete user", ex);
@@ -616,6 +701,8 @@ public class KeycloakAdminService {
       restTemplate.exchange(url, HttpMethod.DELETE, new HttpEntity<>(headers), Void.class);
 
       log.info("Role deleted successfully: {}", roleName);
+      evictAll(Lookup.ROLE);
+      evictRoleListings();
 
     } catch (Exception ex) {
       log.error("Failed to delete role", ex);
@@ -626,24 +713,15 @@ public class KeycloakAdminService {
   // User-Role assignments
   public List<String> getUserRoles(String userId) {
     try {
-      String adminToken = getSecureAdminToken();
-      String url = keycloakBaseUrl + "/admin/realms/" + targetRealm + "/users/" + userId
-          + "/role-mappings/realm";
-
-      HttpHeaders headers = new HttpHeaders();
-      headers.setBearerAuth(adminToken);
-
-      ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET,
-          new HttpEntity<>(headers), String.class);
-
-      JsonNode roles = objectMapper.readTree(response.getBody());
-      List<String> roleNames = new ArrayList<>();
-
-      for (JsonNode role : roles) {
-        roleNames.add(role.path("name").asText());
-      }
+      List<String> roleNames = cached(Lookup.USER_ROLES, userId, () -> {
+        List<String> names = new ArrayList<>();
+        for (JsonNode role : fetchJson("/users/" + userId + "/role-mappings/realm")) {
+          names.add(role.path("name").asText());
+        }
+        return List.copyOf(names);
+      });
 
-      return roleNames;
+      return new ArrayList<>(roleNames);
 
     } catch (Exception ex) {
       log.error("Failed to get user roles", ex);
@@ -670,6 +748,7 @@ public class KeycloakAdminService {
       restTemplate.exchange(url, HttpMethod.POST, new HttpEntity<>(roles, headers), Void.class);
 
       log.info("Role {} assigned to user {}", role.getName(), userId);
+      evictUser(userId);
 
     } catch (Exception ex) {
       log.error("Failed to assign role", ex);
@@ -701,6 +780,7 @@ public class KeycloakAdminService {
       restTemplate.exchange(url, HttpMethod.DELETE, new HttpEntity<>(roles, headers), Void.class);
 
       log.info("Role {} removed from user {}", role.getName(), userId);
+      evictUser(userId);
 
     } catch (Exception ex) {
       log.error("Failed to remove role", ex);
@@ -1382,16 +1462,7 @@ public class KeycloakAdminService {
    */
   public JsonNode getRoleById(String roleId) {
     try {
-      String adminToken = getSecureAdminToken();
-      String url = keycloakBaseUrl + "/admin/realms/" + targetRealm + "/roles-by-id/" + roleId;
-
-      HttpHeaders headers = new HttpHeaders();
-      headers.setBearerAuth(adminToken);
-
-      ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET,
-          new HttpEntity<>(headers), String.class);
-
-      return objectMapper.readTree(response.getBody());
+      return cachedJson(Lookup.ROLE, roleId, "/roles-by-id/" + roleId);
 
     } catch (Exception ex) {
       log.error("Failed to get role by ID: {}", roleId, ex);
@@ -1405,17 +1476,8 @@ public class KeycloakAdminService {
    */
   public JsonNode getRoleComposites(String roleId) {
     try {
-      String adminToken = getSecureAdminToken();
-      String url = keycloakBaseUrl + "/admin/realms/" + targetRealm + "/roles-by-id/" + roleId
-          + "/composites";
-
-      HttpHeaders headers = new HttpHeaders();
-      headers.setBearerAuth(adminToken);
-
-      ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET,
-          new HttpEntity<>(headers), String.class);
-
-      JsonNode composites = objectMapper.readTree(response.getBody());
+      JsonNode composites = cachedJson(Lookup.ROLE_COMPOSITES, roleId,
+          "/roles-by-id/" + roleId + "/composites");
       log.debug("✅ Retrieved {} composite roles for roleId: {}", composites.size(), roleId);
       return composites;
 
@@ -1431,17 +1493,8 @@ public class KeycloakAdminService {
    */
   public JsonNode getRoleCompositesByName(String roleName) {
     try {
-      String adminToken = getSecureAdminToken();
-      String url = keycloakBaseUrl + "/admin/realms/" + targetRealm + "/roles/" + roleName
-          + "/composites";
-
-      HttpHeaders headers = new HttpHeaders();
-      headers.setBearerAuth(adminToken);
-
-      ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET,
-          new HttpEntity<>(headers), String.class);
-
-      JsonNode composites = objectMapper.readTree(response.getBody());
+      JsonNode composites = cachedJson(Lookup.ROLE_COMPOSITES_BY_NAME, roleName,
+          "/roles/" + roleName + "/composites");
       log.debug("✅ Retrieved {} composite roles for role: {}", composites.size(), roleName);
       return composites;
 
@@ -1456,16 +1509,7 @@ public class KeycloakAdminService {
    */
   public JsonNode getGroupById(String groupId) {
     try {
-      String adminToken = getSecureAdminToken();
-      String url = keycloakBaseUrl + "/admin/realms/" + targetRealm + "/groups/" + groupId;
-
-      HttpHeaders headers = new HttpHeaders();
-      headers.setBearerAuth(adminToken);
-
-      ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET,
-          new HttpEntity<>(headers), String.class);
-
-      return objectMapper.readTree(response.getBody());
+      return cachedJson(Lookup.GROUP, groupId, "/groups/" + groupId);
 
     } catch (Exception ex) {
       log.error("Failed to get group by ID: {}", groupId, ex);
@@ -1479,17 +1523,8 @@ public class KeycloakAdminService {
    */
   public JsonNode getGroupChildren(String groupId) {
     try {
-      String adminToken = getSecureAdminToken();
-      String url = keycloakBaseUrl + "/admin/realms/" + targetRealm + "/groups/" + groupId
-          + "/children";
-
-      HttpHeaders headers = new HttpHeaders();
-      headers.setBearerAuth(adminToken);
-
-      ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET,
-          new HttpEntity<>(headers), String.class);
-
-      JsonNode children = objectMapper.readTree(response.getBody());
+      JsonNode children = cachedJson(Lookup.GROUP_CHILDREN, groupId,
+          "/groups/" + groupId + "/children");
       log.debug("✅ Retrieved {} child groups for groupId: {}", children.size(), groupId);
       return children;
 
@@ -1532,17 +1567,8 @@ public class KeycloakAdminService {
    */
   public JsonNode getUserEffectiveRoles(String userId) {
     try {
-      String adminToken = getSecureAdminToken();
-      String url = keycloakBaseUrl + "/admin/realms/" + targetRealm + "/users/" + userId
-          + "/role-mappings/realm/composite";
-
-      HttpHeaders headers = new HttpHeaders();
-      headers.setBearerAuth(adminToken);
-
-      ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET,
-          new HttpEntity<>(headers), String.class);
-
-      JsonNode effectiveRoles = objectMapper.readTree(response.getBody());
+      JsonNode effectiveRoles = cachedJson(Lookup.USER_EFFECTIVE_ROLES, userId,
+          "/users/" + userId + "/role-mappings/realm/composite");
       log.debug("✅ Retrieved {} effective roles for userId: {}", effectiveRoles.size(), userId);
       return effectiveRoles;
 
@@ -1557,17 +1583,7 @@ public class KeycloakAdminService {
    */
   public JsonNode getUserGroups(String userId) {
     try {
-      String adminToken = getSecureAdminToken();
-      String url = keycloakBaseUrl + "/admin/realms/" + targetRealm + "/users/" + userId
-          + "/groups";
-
-      HttpHeaders headers = new HttpHeaders();
-      headers.setBearerAuth(adminToken);
-
-      ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET,
-          new HttpEntity<>(headers), String.class);
-
-      return objectMapper.readTree(response.getBody());
+      return cachedJson(Lookup.USER_GROUPS, userId, "/users/" + userId + "/groups");
 
     } catch (Exception ex) {
       log.error("Failed to get user groups for userId: {}", userId, ex);
@@ -1603,6 +1619,8 @@ public class KeycloakAdminService {
       restTemplate.exchange(url, HttpMethod.PUT, new HttpEntity<>(roleUpdate, headers), Void.class);
 
       log.info("✅ Role updated: {} → {}", roleName, request.getName());
+      evictAll(Lookup.ROLE);
+      evictRoleListings();
 
       // Return updated role
       return getRoleByName(request.getName());
@@ -1673,6 +1691,7 @@ public class KeycloakAdminService {
       restTemplate.exchange(url, HttpMethod.POST, new HttpEntity<>(roles, headers), Void.class);
 
       log.info("✅ Added composite role: {} → {}", parentRoleName, childRoleName);
+      evictRoleListings();
 
     } catch (Exception ex) {
       log.error("❌ Failed to add composite role {} to {}", childRoleName, parentRoleName, ex);
@@ -1710,6 +1729,7 @@ public class KeycloakAdminService {
       restTemplate.exchange(url, HttpMethod.DELETE, requestEntity, Void.class);
 
       log.info("✅ Removed composite role: {} ← {}", parentRoleName, childRoleName);
+      evictRoleListings();
 
     } catch (Exception ex) {
       log.error("❌ Failed to remove composite role {} from {}", childRoleName, parentRoleName, ex);
@@ -1907,6 +1927,7 @@ public class KeycloakAdminService {
           Void.class);
 
       log.info("✅ Added role {} to user {} in tenant {}", roleName, userId, tenantKey);
+      evictUser(userId);
 
     } catch (Exception ex) {
       log.error("❌ Failed to add role {} to user {} in tenant {}", roleName, userId, tenantKey, ex);
@@ -1945,6 +1966,7 @@ public class KeycloakAdminService {
           Void.class);
 
       log.info("✅ Removed role {} from user {} in tenant {}", roleName, userId, tenantKey);
+      evictUser(userId);
 
     } catch (Exception ex) {
       log.error("❌ Failed to remove role {} from user {} in tenant {}", roleName, userId, tenantKey,
@@ -101,6 +101,19 @@ public class StreamingConfig {
     return factory;
   }
 
+  /**
+   * Batch listeners - one List&lt;ConsumerRecord&gt; per poll, acknowledged as a
+   * whole
+   */
+  @Bean
+  public ConcurrentKafkaListenerContainerFactory<String, String> batchKafkaListenerContainerFactory() {
+    ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+    factory.setConsumerFactory(consumerFactory());
+    factory.setBatchListener(true);
+    factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+    return factory;
+  }
+
   // Getters and Setters
   public boolean isEnabled() {
     return enabled;
@@ -1,5 +1,6 @@
 package cz.muriel.core.entities;
 
+import cz.muriel.core.metamodel.pagination.KeysetPagination;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -7,8 +8,10 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Generic CRUD REST controller for metamodel entities
@@ -16,13 +19,18 @@ import java.util.Map;
 @Slf4j @RestController @RequestMapping("/api/entities") @RequiredArgsConstructor
 public class MetamodelCrudController {
 
+  private static final Set<String> RESERVED_PARAMS = Set.of("sort", "page", "size");
+  private static final Set<String> RESERVED_KEYSET_PARAMS = Set.of("sort", "cursor",
+      "cursorPrev", "limit", "withTotal");
+
   private final MetamodelCrudService crudService;
 
   /**
    * List entities with filtering, sorting and pagination
    * 
    * GET
-   * /api/entities/UserProfile?filter=department=Engineering&sort=-created_at&page=0&size=20
+   * /api/entities/UserProfile?department=Engineering&sort=-created_at&page=0&size=20
+   * GET /api/entities/UserProfile?filter=(age gte 18) and status eq 'active'
    */
   @GetMapping("/{type}")
   public ResponseEntity<List<Map<String, Object>>> list(@PathVariable String type,
@@ -31,12 +39,47 @@ public class MetamodelCrudController {
       @RequestParam(defaultValue = "20") int size, Authentication auth) {
     log.debug("List {}: filter={}, sort={}, page={}, size={}", type, filter, sort, page, size);
 
-    Map<String, String> filters = filter != null ? filter : Map.of();
+    // @RequestParam Map also captures sort/page/size - they are not filters
+    Map<String, String> filters = new HashMap<>(filter != null ? filter : Map.of());
+    filters.keySet().removeAll(RESERVED_PARAMS);
     List<Map<String, Object>> entities = crudService.list(type, filters, sort, page, size, auth);
 
     return ResponseEntity.ok(entities);
   }
 
+  /**
+   * List entities with keyset (cursor) pagination - constant cost per page
+   * regardless of depth
+   * 
+   * GET
+   * /api/entities/User/cursor?sort=-created_at&limit=50&cursor=2024-10-09T10:30:00Z,uuid-123
+   * Backward: &cursorPrev=... instead of cursor. Total count only with
+   * withTotal=true.
+   */
+  @GetMapping("/{type}/cursor")
+  public ResponseEntity<KeysetPagination.Response<Map<String, Object>>> listKeyset(
+      @PathVariable String type, @RequestParam(required = false) Map<String, String> filter,
+      @RequestParam(required = false) String sort,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) String cursorPrev,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(defaultValue = "false") boolean withTotal, Authentication auth) {
+    log.debug("List {} (keyset): filter={}, sort={}, cursor={}, cursorPrev={}, limit={}", type,
+        filter, sort, cursor, cursorPrev, limit);
+
+    Map<String, String> filters = new HashMap<>(filter != null ? filter : Map.of());
+    filters.keySet().removeAll(RESERVED_KEYSET_PARAMS);
+
+    boolean descending = sort != null && sort.startsWith("-");
+    KeysetPagination.Request request = KeysetPagination.Request.builder().cursorNext(cursor)
+        .cursorPrev(cursorPrev).limit(limit)
+        .sortBy(sort != null && !sort.isBlank() ? (descending ? sort.substring(1) : sort) : null)
+        .sortOrder(sort != null && !sort.isBlank() ? (descending ? "desc" : "asc") : null)
+        .withTotal(withTotal).build();
+
+    return ResponseEntity.ok(crudService.listKeyset(type, filters, request, auth));
+  }
+
   /**
    * Get entity by ID
    * 
@@ -1,15 +1,24 @@
 package cz.muriel.core.entities;
 
 import cz.muriel.core.metamodel.MetamodelRegistry;
+import cz.muriel.core.metamodel.filter.CompiledFilterCache;
+import cz.muriel.core.metamodel.filter.FilterParser;
 import cz.muriel.core.metamodel.lifecycle.LifecycleHookExecutor;
+import cz.muriel.core.metamodel.pagination.KeysetPagination;
 import cz.muriel.core.metamodel.relationship.RelationshipResolver;
 import cz.muriel.core.metamodel.schema.EntitySchema;
 import cz.muriel.core.metamodel.schema.FieldSchema;
+import cz.muriel.core.presence.kafka.EntityLifecycleProducer;
+import cz.muriel.core.reporting.support.CacheInvalidationService;
 import cz.muriel.core.security.policy.PolicyEngine;
+import cz.muriel.core.security.policy.RowFilter;
 import cz.muriel.core.util.UUIDv7Generator;
-import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlParameterValue;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -17,21 +26,46 @@ import org.springframework.security.oauth2.server.resource.authentication.JwtAut
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.sql.Types;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
  * Generic CRUD service for metamodel entities
+ * 
+ * All statements are bind-parameterised and compiled once per shape by
+ * {@link MetamodelSqlCache}. Values are bound with {@link Types#OTHER} so
+ * PostgreSQL infers the column type exactly as it did for quoted literals.
+ *
+ * Every committed write evicts cached reports of the entity and publishes
+ * {@code core.entities.lifecycle.mutated} (when Kafka is enabled) for the
+ * other consumers, e.g. pre-aggregation refresh.
  */
 @Slf4j @Service @RequiredArgsConstructor
 public class MetamodelCrudService {
 
+  /** Request filter key carrying a FilterParser expression */
+  public static final String FILTER_EXPRESSION_PARAM = "filter";
+
   private final MetamodelRegistry registry;
   private final PolicyEngine policyEngine;
-  private final EntityManager entityManager;
+  private final JdbcTemplate jdbcTemplate;
+  private final MetamodelSqlCache sqlCache;
+  private final CompiledFilterCache filterCache;
   private final LifecycleHookExecutor lifecycleExecutor;
   private final RelationshipResolver relationshipResolver;
+  private final CacheInvalidationService cacheInvalidationService;
+  private final ObjectProvider<EntityLifecycleProducer> lifecycleProducer;
+
+  /** Column names per entity, rebuilt when the registry generation changes */
+  private final Map<String, ColumnSet> columnSets = new ConcurrentHashMap<>();
+
+  private record ColumnSet(long generation, Set<String> columns, Set<String> relationships) {
+  }
 
   /**
    * List entities with filtering, sorting and pagination
@@ -41,66 +75,146 @@ public class MetamodelCrudService {
       int page, int size, Authentication auth) {
     EntitySchema schema = registry.getSchemaOrThrow(entityType);
 
-    // Check read permission (entity-level, no specific instance)
-    if (!policyEngine.check(auth, entityType, "read", null)) {
-      throw new AccessDeniedException("No permission to read " + entityType);
-    }
+    RowFilter rowFilter = readRowFilter(schema, auth);
+    List<String> columnList = readableColumns(schema, auth);
+    List<String> selectColumns = rowFilter.hasResidual() ? columnNames(schema) : columnList;
 
-    // Get allowed columns
-    Set<String> allowedColumns = policyEngine.projectColumns(auth, entityType, "read");
-    if (allowedColumns.isEmpty()) {
-      // Empty set means all columns for backward compatibility
-      allowedColumns = schema.getFields().stream().map(FieldSchema::getName)
-          .collect(Collectors.toSet());
-    }
-
-    // Build SQL query
-    String columns = String.join(", ", allowedColumns);
-    StringBuilder sql = new StringBuilder("SELECT " + columns + " FROM " + schema.getTable());
-
-    // Apply filters
-    List<String> whereClauses = new ArrayList<>();
-    for (var entry : filters.entrySet()) {
-      String key = entry.getKey();
-      String value = entry.getValue();
-
-      if (key.endsWith("__like")) {
-        String field = key.substring(0, key.length() - 6);
-        whereClauses.add(field + " LIKE '%" + sanitize(value) + "%'");
-      } else if (key.endsWith("__in")) {
-        String field = key.substring(0, key.length() - 4);
-        String[] values = value.split(",");
-        String inList = Arrays.stream(values).map(v -> "'" + sanitize(v) + "'")
-            .collect(Collectors.joining(", "));
-        whereClauses.add(field + " IN (" + inList + ")");
-      } else {
-        whereClauses.add(key + " = '" + sanitize(value) + "'");
-      }
-    }
-
-    if (!whereClauses.isEmpty()) {
-      sql.append(" WHERE ").append(String.join(" AND ", whereClauses));
-    }
+    // Apply filters (request filters + row-level policy predicate)
+    List<MetamodelSqlCache.FilterShape> filterShape = new ArrayList<>();
+    List<Object> params = new ArrayList<>();
+    applyFilters(schema, filters, filterShape, params);
+    applyRowFilter(rowFilter, filterShape, params);
 
     // Apply sorting
+    String sortColumn = null;
+    boolean sortDesc = false;
     if (sort != null && !sort.isBlank()) {
-      if (sort.startsWith("-")) {
-        sql.append(" ORDER BY ").append(sort.substring(1)).append(" DESC");
-      } else {
-        sql.append(" ORDER BY ").append(sort).append(" ASC");
-      }
+      sortDesc = sort.startsWith("-");
+      sortColumn = requireColumn(schema, sortDesc ? sort.substring(1) : sort);
     }
 
     // Apply pagination
-    sql.append(" LIMIT ").append(size).append(" OFFSET ").append(page * size);
+    params.add(size);
+    params.add((long) page * size);
 
     // Execute query
-    @SuppressWarnings("unchecked")
-    List<Object[]> results = entityManager.createNativeQuery(sql.toString()).getResultList();
+    String sql = sqlCache.list(schema, selectColumns, filterShape, sortColumn, sortDesc);
+    List<Object[]> results = jdbcTemplate.query(sql, rowMapper(selectColumns.size()),
+        params.toArray());
 
     // Map to response
-    List<String> columnList = new ArrayList<>(allowedColumns);
-    return results.stream().map(row -> mapRowToMap(row, columnList)).collect(Collectors.toList());
+    if (!rowFilter.hasResidual()) {
+      return results.stream().map(row -> mapRowToMap(row, columnList))
+          .collect(Collectors.toList());
+    }
+    return results.stream().map(row -> mapRowToMap(row, selectColumns))
+        .filter(rowFilter.residual()).map(row -> retainColumns(row, columnList))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * List entities using keyset (cursor) pagination
+   * 
+   * Seeks on (sort field, id) instead of OFFSET, so every page costs O(page
+   * size) regardless of depth. Sort field: request sortBy, else schema
+   * ui.list.sort.defaultField, else created_at (if present), else id only. Rows
+   * with a NULL sort key sort last ascending and first descending; a cursor on
+   * such a row seeks by id within the NULL group.
+   * 
+   * With withTotal the total counts rows matching the filters and the SQL part
+   * of the read policy; rows dropped by a residual (in-memory) policy check are
+   * still counted.
+   */
+  @Transactional(readOnly = true)
+  public KeysetPagination.Response<Map<String, Object>> listKeyset(String entityType,
+      Map<String, String> filters, KeysetPagination.Request request, Authentication auth) {
+    EntitySchema schema = registry.getSchemaOrThrow(entityType);
+    RowFilter rowFilter = readRowFilter(schema, auth);
+    List<String> columnList = readableColumns(schema, auth);
+
+    String idField = schema.getIdField();
+    String sortColumn = resolveKeysetSortColumn(schema, request.getSortBy());
+    boolean seekById = sortColumn.equals(idField);
+    boolean descending = "desc".equalsIgnoreCase(request.getEffectiveSortOrder());
+    int limit = request.getEffectiveLimit();
+
+    // Backward paging scans in reverse order and flips the page afterwards
+    boolean backward = request.getCursorPrev() != null && !request.getCursorPrev().isBlank();
+    KeysetPagination.Cursor cursor = KeysetPagination.Cursor
+        .decode(backward ? request.getCursorPrev() : request.getCursorNext());
+
+    // Key columns are always fetched (cursor), even if not readable; residual
+    // policy check needs all columns
+    List<String> selectColumns = new ArrayList<>(
+        rowFilter.hasResidual() ? columnNames(schema) : columnList);
+    for (String keyColumn : seekById ? List.of(idField) : List.of(sortColumn, idField)) {
+      if (!selectColumns.contains(keyColumn)) {
+        selectColumns.add(keyColumn);
+      }
+    }
+
+    List<MetamodelSqlCache.FilterShape> filterShape = new ArrayList<>();
+    List<Object> filterParams = new ArrayList<>();
+    applyFilters(schema, filters, filterShape, filterParams);
+    applyRowFilter(rowFilter, filterShape, filterParams);
+
+    // NULL can't be bound into a row comparison - a cursor on a NULL sort key
+    // seeks by id only
+    MetamodelSqlCache.Seek seek = cursor == null ? MetamodelSqlCache.Seek.NONE
+        : !seekById && cursor.getSortKey() == null ? MetamodelSqlCache.Seek.AFTER_NULL
+            : MetamodelSqlCache.Seek.AFTER_VALUE;
+    List<Object> params = new ArrayList<>(filterParams);
+    if (seek == MetamodelSqlCache.Seek.AFTER_VALUE && !seekById) {
+      params.add(bind(cursor.getSortKey()));
+    }
+    if (seek != MetamodelSqlCache.Seek.NONE) {
+      params.add(bind(cursor.getId()));
+    }
+    params.add(limit + 1); // one extra row tells us whether there is more
+
+    String sql = sqlCache.keyset(schema, selectColumns, filterShape, sortColumn,
+        descending != backward, seek);
+    List<Map<String, Object>> rows = new ArrayList<>(jdbcTemplate
+        .query(sql, rowMapper(selectColumns.size()), params.toArray()).stream()
+        .map(row -> mapRowToMap(row, selectColumns)).toList());
+
+    boolean more = rows.size() > limit;
+    if (more) {
+      rows.remove(rows.size() - 1);
+    }
+    if (backward) {
+      Collections.reverse(rows);
+    }
+
+    boolean hasNext = backward ? cursor != null : more;
+    boolean hasPrev = backward ? more : cursor != null;
+    String cursorNext = hasNext && !rows.isEmpty()
+        ? toCursor(rows.get(rows.size() - 1), sortColumn, idField).encode()
+        : null;
+    String cursorPrev = hasPrev && !rows.isEmpty()
+        ? toCursor(rows.get(0), sortColumn, idField).encode()
+        : null;
+
+    // Total is computed lazily - only on request and only if the page can't
+    // answer it by itself. The COUNT only applies the SQL part of the policy:
+    // with a residual (in-memory) policy filter it is an upper bound of the
+    // rows the pages will return.
+    Integer total = null;
+    if (Boolean.TRUE.equals(request.getWithTotal())) {
+      total = cursor == null && !more ? rows.size()
+          : jdbcTemplate.queryForObject(sqlCache.count(schema, filterShape), Integer.class,
+              filterParams.toArray());
+    }
+
+    // Cursors come from the fetched rows, so in-memory policy fallback never
+    // skips rows on the next page
+    List<Map<String, Object>> data = rows.stream()
+        .filter(rowFilter.hasResidual() ? rowFilter.residual() : row -> true)
+        .map(row -> retainColumns(row, columnList)).toList();
+
+    return KeysetPagination.Response.<Map<String, Object>> builder().data(data)
+        .cursorNext(cursorNext).cursorPrev(cursorPrev).total(total).pageSize(data.size())
+        .hasNext(hasNext).hasPrev(hasPrev).build();
   }
 
   /**
@@ -126,7 +240,7 @@ public class MetamodelCrudService {
     }
 
     // Get allowed columns
-    Set<String> allowedColumns = policyEngine.projectColumns(auth, entityType, "read");
+    Set<String> allowedColumns = policyEngine.projectColumns(auth, entityType, "read", entity);
 
     // Project to map
     return projectEntityToMap(entity, allowedColumns, schema);
@@ -174,9 +288,13 @@ public class MetamodelCrudService {
       throw new AccessDeniedException("No permission to create " + entityType);
     }
 
-    // Execute native INSERT
-    String insertSql = buildInsertSql(schema, data);
-    int affected = entityManager.createNativeQuery(insertSql).executeUpdate();
+    // Execute INSERT (column names come from the request body - schema columns only)
+    Set<String> relationshipFields = relationshipFieldNames(schema);
+    List<String> insertColumns = data.keySet().stream()
+        .filter(c -> !relationshipFields.contains(c)).map(c -> requireColumn(schema, c)).sorted()
+        .collect(Collectors.toList());
+    Object[] insertParams = insertColumns.stream().map(c -> bind(data.get(c))).toArray();
+    int affected = jdbcTemplate.update(sqlCache.insert(schema, insertColumns), insertParams);
 
     if (affected == 0) {
       throw new RuntimeException("Failed to create entity");
@@ -190,6 +308,7 @@ public class MetamodelCrudService {
 
     // ✨ LIFECYCLE: Execute afterCreate hooks
     lifecycleExecutor.executeAfterCreate(schema, data);
+    afterCommitMutated(schema, id, mutationTenant(schema, data, auth), auth, 0L);
 
     // Return created entity
     return getById(entityType, id.toString(), auth);
@@ -222,15 +341,16 @@ public class MetamodelCrudService {
     if (currentVersion == null || currentVersion != expectedVersion) {
       throw new VersionMismatchException("Version mismatch",
           currentVersion != null ? currentVersion : 0L, projectEntityToMap(entity,
-              policyEngine.projectColumns(auth, entityType, "read"), schema));
+              policyEngine.projectColumns(auth, entityType, "read", entity), schema));
     }
 
     // 🔒 Filter out system/protected fields
     Map<String, Object> safeData = filterSystemFields(data, schema);
+    requireFields(schema, safeData.keySet());
 
     // 🔍 Detect actual changes by comparing with current entity
     Map<String, Object> currentData = projectEntityToMap(entity,
-        policyEngine.projectColumns(auth, entityType, "read"), schema);
+        policyEngine.projectColumns(auth, entityType, "read", entity), schema);
     Map<String, Object> changedFields = detectChanges(currentData, safeData);
 
     // ⚡ Skip update if no changes
@@ -246,8 +366,18 @@ public class MetamodelCrudService {
     lifecycleExecutor.executeBeforeUpdate(schema, changedFields);
 
     // Build UPDATE with version check (only changed fields)
-    String updateSql = buildUpdateSql(schema, id, changedFields, expectedVersion);
-    int affected = entityManager.createNativeQuery(updateSql).executeUpdate();
+    // Version itself is incremented by trigger, we only check the current one
+    Set<String> relationshipFields = relationshipFieldNames(schema);
+    List<String> setColumns = changedFields.keySet().stream()
+        .filter(c -> !relationshipFields.contains(c)).sorted().collect(Collectors.toList());
+    List<Object> updateParams = new ArrayList<>();
+    setColumns.forEach(c -> updateParams.add(bind(changedFields.get(c))));
+    updateParams.add(bind(id));
+    if (schema.getVersionField() != null) {
+      updateParams.add(expectedVersion);
+    }
+    int affected = setColumns.isEmpty() ? 1
+        : jdbcTemplate.update(sqlCache.update(schema, setColumns), updateParams.toArray());
 
     if (affected == 0) {
       // Version mismatch or entity deleted
@@ -260,6 +390,8 @@ public class MetamodelCrudService {
 
     // ✨ LIFECYCLE: Execute afterUpdate hooks
     lifecycleExecutor.executeAfterUpdate(schema, changedFields);
+    afterCommitMutated(schema, id, mutationTenant(schema, (Map<?, ?>) entity, auth), auth,
+        expectedVersion + 1);
 
     // Return updated entity
     return getById(entityType, id, auth);
@@ -285,7 +417,7 @@ public class MetamodelCrudService {
 
     // Convert entity to map for lifecycle hooks
     Map<String, Object> entityMap = projectEntityToMap(entity,
-        policyEngine.projectColumns(auth, entityType, "read"), schema);
+        policyEngine.projectColumns(auth, entityType, "read", entity), schema);
 
     // ✨ LIFECYCLE: Execute beforeDelete hooks
     lifecycleExecutor.executeBeforeDelete(schema, entityMap);
@@ -294,43 +426,233 @@ public class MetamodelCrudService {
     relationshipResolver.deleteRelationships(schema, id);
 
     // Execute DELETE
-    String deleteSql = String.format("DELETE FROM %s WHERE %s = '%s'", schema.getTable(),
-        schema.getIdField(), id);
-
-    entityManager.createNativeQuery(deleteSql).executeUpdate();
+    jdbcTemplate.update(sqlCache.delete(schema), bind(id));
     log.info("Deleted entity: {} id={}", entityType, id);
 
     // ✨ LIFECYCLE: Execute afterDelete hooks
     lifecycleExecutor.executeAfterDelete(schema, entityMap);
+    Long version = extractVersion(entity, schema);
+    afterCommitMutated(schema, id, mutationTenant(schema, (Map<?, ?>) entity, auth), auth,
+        version != null ? version : 0L);
   }
 
   // Helper methods
 
-  private String sanitize(String value) {
-    if (value == null)
-      return "";
-    // Basic SQL injection prevention
-    return value.replace("'", "''").replace(";", "");
-  }
-
   private Object findEntityById(EntitySchema schema, String id) {
     // ✅ Filter out relationship fields (manyToOne, oneToMany, manyToMany)
     // as they are not actual database columns
-    List<String> columns = schema.getFields().stream().filter(f -> !isRelationshipField(f))
-        .map(FieldSchema::getName).collect(Collectors.toList());
-
-    String columnList = String.join(", ", columns);
-    String sql = String.format("SELECT %s FROM %s WHERE %s = :id", columnList, schema.getTable(),
-        schema.getIdField());
+    List<String> columns = columnNames(schema);
 
     try {
-      return entityManager.createNativeQuery(sql).setParameter("id", UUID.fromString(id))
-          .getSingleResult();
+      // Validate before hitting the DB - a failed statement would abort the
+      // surrounding transaction
+      UUID uuid = UUID.fromString(id);
+      List<Object[]> rows = jdbcTemplate.query(sqlCache.getById(schema, columns),
+          rowMapper(columns.size()), bind(uuid));
+      return rows.isEmpty() ? null : mapRowToMap(rows.get(0), columns);
     } catch (Exception e) {
       return null;
     }
   }
 
+  /**
+   * Database columns of the schema (relationship fields excluded), in schema
+   * order
+   */
+  private List<String> columnNames(EntitySchema schema) {
+    return schema.getFields().stream().filter(f -> !isRelationshipField(f))
+        .map(FieldSchema::getName).collect(Collectors.toList());
+  }
+
+  private Set<String> relationshipFieldNames(EntitySchema schema) {
+    return columnSet(schema).relationships();
+  }
+
+  private ColumnSet columnSet(EntitySchema schema) {
+    long generation = registry.getGeneration();
+    ColumnSet cached = columnSets.get(schema.getEntity());
+    if (cached != null && cached.generation() == generation) {
+      return cached;
+    }
+    ColumnSet fresh = new ColumnSet(generation, Set.copyOf(columnNames(schema)),
+        schema.getFields().stream().filter(this::isRelationshipField).map(FieldSchema::getName)
+            .collect(Collectors.toUnmodifiableSet()));
+    columnSets.put(schema.getEntity(), fresh);
+    return fresh;
+  }
+
+  /**
+   * Only schema columns may appear in SQL (WHERE/ORDER BY, INSERT/UPDATE
+   * columns) - also keeps the statement cache bounded by schema shape rather
+   * than by arbitrary request input
+   */
+  private String requireColumn(EntitySchema schema, String column) {
+    if (!columnSet(schema).columns().contains(column)) {
+      throw new IllegalArgumentException("Unknown field: " + column);
+    }
+    return column;
+  }
+
+  /**
+   * Request body keys must be schema columns or relationship fields
+   */
+  private void requireFields(EntitySchema schema, Collection<String> fields) {
+    Set<String> relationships = columnSet(schema).relationships();
+    for (String field : fields) {
+      if (!relationships.contains(field)) {
+        requireColumn(schema, field);
+      }
+    }
+  }
+
+  /**
+   * Row-level read policy for list queries - denied only if no row can be
+   * visible (ABAC rules are pushed down instead of denying the whole list)
+   */
+  private RowFilter readRowFilter(EntitySchema schema, Authentication auth) {
+    RowFilter rowFilter = policyEngine.rowFilter(auth, schema.getEntity(), "read");
+    if (rowFilter.denied()) {
+      throw new AccessDeniedException("No permission to read " + schema.getEntity());
+    }
+    return rowFilter;
+  }
+
+  /**
+   * Readable columns in schema order (equal column sets share one compiled
+   * statement)
+   */
+  private List<String> readableColumns(EntitySchema schema, Authentication auth) {
+    String entityType = schema.getEntity();
+
+    // Get allowed columns - empty set means all columns for backward
+    // compatibility
+    Set<String> allowedColumns = policyEngine.projectColumns(auth, entityType, "read");
+    return columnNames(schema).stream()
+        .filter(c -> allowedColumns.isEmpty() || allowedColumns.contains(c))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Translate request filters (field, field__like, field__in) to statement
+   * shape + bind parameters. Keys are sorted for a stable statement shape.
+   * 
+   * The special key {@code filter} holds a {@link FilterParser} expression (e.g.
+   * "(age gte 18) and status in ('active', 'pending')"), compiled and cached by
+   * {@link CompiledFilterCache}.
+   */
+  private void applyFilters(EntitySchema schema, Map<String, String> filters,
+      List<MetamodelSqlCache.FilterShape> shape, List<Object> params) {
+    for (var entry : new TreeMap<>(filters).entrySet()) {
+      String key = entry.getKey();
+      String value = entry.getValue();
+
+      if (FILTER_EXPRESSION_PARAM.equals(key)) {
+        if (value == null || value.isBlank()) {
+          continue;
+        }
+        CompiledFilterCache.CompiledFilter compiled = filterCache.compile(schema,
+            columnNames(schema), value);
+        shape.add(MetamodelSqlCache.FilterShape.expression(compiled.sql()));
+        compiled.bindValues().forEach(v -> params.add(bind(v)));
+      } else if (key.endsWith("__like")) {
+        String field = requireColumn(schema, key.substring(0, key.length() - 6));
+        shape.add(new MetamodelSqlCache.FilterShape(field, MetamodelSqlCache.OP_LIKE));
+        params.add(bind("%" + value + "%"));
+      } else if (key.endsWith("__in")) {
+        String field = requireColumn(schema, key.substring(0, key.length() - 4));
+        shape.add(new MetamodelSqlCache.FilterShape(field, MetamodelSqlCache.OP_IN));
+        params.add(bind(toArrayLiteral(value.split(","))));
+      } else {
+        String field = requireColumn(schema, key);
+        shape.add(new MetamodelSqlCache.FilterShape(field, MetamodelSqlCache.OP_EQ));
+        params.add(bind(value));
+      }
+    }
+  }
+
+  /**
+   * Append row-level policy predicate (column names + placeholders only, so
+   * the statement shape stays cacheable)
+   */
+  private void applyRowFilter(RowFilter rowFilter, List<MetamodelSqlCache.FilterShape> shape,
+      List<Object> params) {
+    if (rowFilter.hasPredicate()) {
+      shape.add(MetamodelSqlCache.FilterShape.expression(rowFilter.sql()));
+      rowFilter.params().forEach(v -> params.add(bind(v)));
+    }
+  }
+
+  private Map<String, Object> retainColumns(Map<String, Object> row, List<String> columns) {
+    Map<String, Object> projected = new LinkedHashMap<>(row);
+    projected.keySet().retainAll(columns);
+    return projected;
+  }
+
+  private String resolveKeysetSortColumn(EntitySchema schema, String requested) {
+    if (requested != null && !requested.isBlank()) {
+      return requireColumn(schema, requested);
+    }
+
+    if (schema.getUi() != null && schema.getUi().getList() != null
+        && schema.getUi().getList().getSort() != null
+        && schema.getUi().getList().getSort().getDefaultField() != null) {
+      return requireColumn(schema, schema.getUi().getList().getSort().getDefaultField());
+    }
+
+    List<String> columns = columnNames(schema);
+    return columns.contains("created_at") ? "created_at" : schema.getIdField();
+  }
+
+  private KeysetPagination.Cursor toCursor(Map<String, Object> row, String sortColumn,
+      String idField) {
+    return KeysetPagination.Cursor.builder().sortKey(cursorValue(row.get(sortColumn)))
+        .id(String.valueOf(row.get(idField))).build();
+  }
+
+  /**
+   * Sort key as text PostgreSQL parses back to the same value - timestamps as
+   * ISO-8601 with offset (Timestamp.toString is in the JVM zone), null stays
+   * null
+   */
+  private String cursorValue(Object value) {
+    if (value == null) {
+      return null;
+    }
+    if (value instanceof java.sql.Timestamp timestamp) {
+      return timestamp.toInstant().toString();
+    }
+    if (value instanceof java.time.OffsetDateTime offsetDateTime) {
+      return offsetDateTime.toInstant().toString();
+    }
+    return value.toString();
+  }
+
+  /**
+   * Bind value as untyped parameter (PostgreSQL resolves type from context)
+   */
+  private SqlParameterValue bind(Object value) {
+    return new SqlParameterValue(Types.OTHER, value);
+  }
+
+  /**
+   * Build PostgreSQL array literal ({"a","b"}) for = ANY(?) filters
+   */
+  private String toArrayLiteral(String[] values) {
+    return Arrays.stream(values)
+        .map(v -> "\"" + v.replace("\\", "\\\\").replace("\"", "\\\"") + "\"")
+        .collect(Collectors.joining(",", "{", "}"));
+  }
+
+  private RowMapper<Object[]> rowMapper(int columnCount) {
+    return (rs, rowNum) -> {
+      Object[] row = new Object[columnCount];
+      for (int i = 0; i < columnCount; i++) {
+        row[i] = rs.getObject(i + 1);
+      }
+      return row;
+    };
+  }
+
   /**
    * Check if field represents a JPA relationship (not a database column)
    */
@@ -355,6 +677,49 @@ public class MetamodelCrudService {
     return null;
   }
 
+  /**
+   * Tenant of a written row - its tenant column, else the caller's tenant
+   */
+  private String mutationTenant(EntitySchema schema, Map<?, ?> row, Authentication auth) {
+    Object tenant = schema.getTenantField() != null ? row.get(schema.getTenantField()) : null;
+    return tenant != null ? tenant.toString() : getTenantId(auth);
+  }
+
+  /**
+   * Evicts cached reports of the entity and publishes the MUTATED lifecycle
+   * event once the write commits - a rolled back write changes nothing
+   */
+  private void afterCommitMutated(EntitySchema schema, Object id, String tenantId,
+      Authentication auth, long version) {
+    Runnable mutated = () -> {
+      try {
+        if (tenantId != null) {
+          cacheInvalidationService.invalidateByEntity(tenantId, schema.getEntity());
+        } else {
+          cacheInvalidationService.invalidateByEntity(schema.getEntity());
+        }
+        lifecycleProducer.ifAvailable(producer -> producer.publishMutated(tenantId,
+            schema.getEntity(), String.valueOf(id), auth != null ? auth.getName() : null,
+            version));
+      } catch (Exception e) {
+        // The write is committed, cached reports still expire by TTL
+        log.warn("Failed to propagate mutation of {} {}: {}", schema.getEntity(), id,
+            e.getMessage());
+      }
+    };
+
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          mutated.run();
+        }
+      });
+    } else {
+      mutated.run();
+    }
+  }
+
   private String getTenantId(Authentication auth) {
     if (auth instanceof JwtAuthenticationToken jwtAuth) {
       Jwt jwt = jwtAuth.getToken();
@@ -383,8 +748,7 @@ public class MetamodelCrudService {
 
     if (entity instanceof Object[] row) {
       // From native query result
-      List<String> allColumns = schema.getFields().stream().map(FieldSchema::getName)
-          .collect(Collectors.toList());
+      List<String> allColumns = columnNames(schema);
 
       for (int i = 0; i < allColumns.size() && i < row.length; i++) {
         String col = allColumns.get(i);
@@ -405,72 +769,6 @@ public class MetamodelCrudService {
     return result;
   }
 
-  /**
-   * Build INSERT SQL statement
-   */
-  private String buildInsertSql(EntitySchema schema, Map<String, Object> data) {
-    List<String> columns = new ArrayList<>();
-    List<String> values = new ArrayList<>();
-
-    for (var entry : data.entrySet()) {
-      columns.add(entry.getKey());
-      values.add(formatValue(entry.getValue()));
-    }
-
-    return String.format("INSERT INTO %s (%s) VALUES (%s)", schema.getTable(),
-        String.join(", ", columns), String.join(", ", values));
-  }
-
-  /**
-   * Build UPDATE SQL statement with version check
-   */
-  private String buildUpdateSql(EntitySchema schema, String id, Map<String, Object> data,
-      long expectedVersion) {
-    List<String> sets = new ArrayList<>();
-
-    for (var entry : data.entrySet()) {
-      // Skip ID field and version field (version is managed by trigger)
-      if (!entry.getKey().equals(schema.getIdField())
-          && !entry.getKey().equals(schema.getVersionField())) {
-        sets.add(entry.getKey() + " = " + formatValue(entry.getValue()));
-      }
-    }
-
-    // Increment version via trigger, just check current version
-    String sql = String.format("UPDATE %s SET %s WHERE %s = '%s'", schema.getTable(),
-        String.join(", ", sets), schema.getIdField(), id);
-
-    if (schema.getVersionField() != null) {
-      sql += " AND " + schema.getVersionField() + " = " + expectedVersion;
-    }
-
-    return sql;
-  }
-
-  /**
-   * Format value for SQL statement
-   */
-  private String formatValue(Object value) {
-    if (value == null) {
-      return "NULL";
-    }
-
-    if (value instanceof String) {
-      return "'" + sanitize(value.toString()) + "'";
-    }
-
-    if (value instanceof Number || value instanceof Boolean) {
-      return value.toString();
-    }
-
-    if (value instanceof UUID) {
-      return "'" + value.toString() + "'";
-    }
-
-    // Default: convert to string
-    return "'" + sanitize(value.toString()) + "'";
-  }
-
   /**
    * 🔒 Filter out system/protected fields that should not be updated from
    * external input
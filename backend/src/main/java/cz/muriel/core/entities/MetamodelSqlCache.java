@@ -0,0 +1,261 @@
+package cz.muriel.core.entities;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import cz.muriel.core.metamodel.MetamodelRegistry;
+import cz.muriel.core.metamodel.schema.EntitySchema;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 🗂️ Metamodel SQL statement cache
+ *
+ * Compiles bind-parameterised SQL for generic CRUD once per (entityType,
+ * statement kind, shape) and reuses the exact same SQL text afterwards. Stable
+ * SQL text lets the PostgreSQL driver keep server-side prepared statements and
+ * reuse query plans instead of hard-parsing inlined literals on every call.
+ *
+ * Shape = column projection, filter fields/operators and sort - never values.
+ * Entries are keyed by {@link MetamodelRegistry#getGeneration()}, so a schema
+ * reload makes old statements unreachable (they age out via the size bound).
+ *
+ * Metrics: cache_gets{cache="metamodel-sql",result=hit|miss}, cache_size, ...
+ */
+@Slf4j @Component
+public class MetamodelSqlCache {
+
+  public static final String OP_EQ = "eq";
+  public static final String OP_LIKE = "like";
+  public static final String OP_IN = "in";
+  public static final String OP_EXPR = "expr";
+
+  private static final int MAX_STATEMENTS = 2_000;
+
+  private final MetamodelRegistry registry;
+  private final Cache<Key, String> statements;
+
+  public MetamodelSqlCache(MetamodelRegistry registry, MeterRegistry meterRegistry) {
+    this.registry = registry;
+    this.statements = Caffeine.newBuilder().maximumSize(MAX_STATEMENTS).recordStats().build();
+    CaffeineCacheMetrics.monitor(meterRegistry, statements, "metamodel-sql");
+  }
+
+  /**
+   * Filter shape element: column + operator (eq, like, in). For {@link #OP_EXPR}
+   * the column carries a pre-rendered SQL fragment with ? placeholders (see
+   * CompiledFilterCache).
+   */
+  public record FilterShape(String column, String operator) {
+
+    public static FilterShape expression(String sql) {
+      return new FilterShape(sql, OP_EXPR);
+    }
+  }
+
+  private enum Kind {
+    LIST, KEYSET, COUNT, GET_BY_ID, INSERT, UPDATE, DELETE
+  }
+
+  private record Key(long generation, String entityType, Kind kind, List<String> shape) {
+  }
+
+  /**
+   * SELECT ... WHERE <filters> ORDER BY <sort> LIMIT ? OFFSET ?
+   *
+   * Parameters: one per filter (in given order), then limit, offset. IN filters
+   * take a single array literal parameter so the SQL does not depend on list
+   * size.
+   */
+  public String list(EntitySchema schema, List<String> columns, List<FilterShape> filters,
+      String sortColumn, boolean sortDesc) {
+    List<String> shape = new ArrayList<>(columns.size() + filters.size() + 1);
+    shape.add(String.join(",", columns));
+    filters.forEach(f -> shape.add(f.column() + ":" + f.operator()));
+    shape.add(sortColumn == null ? "" : sortColumn + (sortDesc ? ":desc" : ":asc"));
+
+    return get(schema, Kind.LIST, shape, () -> {
+      StringBuilder sql = new StringBuilder("SELECT ").append(String.join(", ", columns))
+          .append(" FROM ").append(schema.getTable());
+
+      appendWhere(sql, filters.stream().map(MetamodelSqlCache::predicate).toList());
+
+      if (sortColumn != null) {
+        sql.append(" ORDER BY ").append(sortColumn).append(sortDesc ? " DESC" : " ASC");
+      }
+
+      return sql.append(" LIMIT ? OFFSET ?").toString();
+    });
+  }
+
+  /**
+   * Seek position of a keyset page: first page, after a row with a sort key
+   * value, or after a row whose sort key is NULL.
+   */
+  public enum Seek {
+    NONE, AFTER_VALUE, AFTER_NULL
+  }
+
+  /**
+   * Keyset (seek) page: SELECT ... WHERE <filters> AND (sort, id) > (?, ?) ORDER
+   * BY sort, id LIMIT ?
+   *
+   * NULL sort keys follow PostgreSQL default ordering (NULLS LAST ascending,
+   * NULLS FIRST descending), so the predicate is NULL-aware: ascending seeks
+   * after a value also take the NULL tail, seeks after a NULL key continue by id
+   * within the NULL group (descending then also takes all non-NULL rows).
+   *
+   * Parameters: one per filter, then seek values - sort key + id for
+   * {@link Seek#AFTER_VALUE}, id only for {@link Seek#AFTER_NULL} or when
+   * sortColumn is null or the id itself - then limit. {@code descending} is the
+   * scan direction (already flipped for backward paging).
+   */
+  public String keyset(EntitySchema schema, List<String> columns, List<FilterShape> filters,
+      String sortColumn, boolean descending, Seek seek) {
+    String idField = schema.getIdField();
+    String sortKey = sortColumn == null || sortColumn.equals(idField) ? null : sortColumn;
+
+    List<String> shape = new ArrayList<>(columns.size() + filters.size() + 1);
+    shape.add(String.join(",", columns));
+    filters.forEach(f -> shape.add(f.column() + ":" + f.operator()));
+    shape.add((sortKey == null ? "" : sortKey) + (descending ? ":desc" : ":asc")
+        + ":" + seek);
+
+    return get(schema, Kind.KEYSET, shape, () -> {
+      StringBuilder sql = new StringBuilder("SELECT ").append(String.join(", ", columns))
+          .append(" FROM ").append(schema.getTable());
+
+      List<String> where = new ArrayList<>(
+          filters.stream().map(MetamodelSqlCache::predicate).toList());
+      if (seek != Seek.NONE) {
+        where.add(seekPredicate(sortKey, idField, descending, seek));
+      }
+      appendWhere(sql, where);
+
+      String direction = descending ? " DESC" : " ASC";
+      sql.append(" ORDER BY ");
+      if (sortKey != null) {
+        sql.append(sortKey).append(direction).append(", ");
+      }
+      sql.append(idField).append(direction);
+
+      return sql.append(" LIMIT ?").toString();
+    });
+  }
+
+  private static String seekPredicate(String sortKey, String idField, boolean descending,
+      Seek seek) {
+    String op = descending ? " < " : " > ";
+    if (sortKey == null) {
+      return idField + op + "?";
+    }
+    if (seek == Seek.AFTER_NULL) {
+      String nullGroup = "(" + sortKey + " IS NULL AND " + idField + op + "?)";
+      return descending ? "(" + nullGroup + " OR " + sortKey + " IS NOT NULL)" : nullGroup;
+    }
+    String rowValue = "(" + sortKey + ", " + idField + ")" + op + "(?, ?)";
+    return descending ? rowValue : "(" + rowValue + " OR " + sortKey + " IS NULL)";
+  }
+
+  /**
+   * SELECT COUNT(*) ... WHERE <filters>
+   */
+  public String count(EntitySchema schema, List<FilterShape> filters) {
+    List<String> shape = filters.stream().map(f -> f.column() + ":" + f.operator()).toList();
+
+    return get(schema, Kind.COUNT, shape, () -> {
+      StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM ").append(schema.getTable());
+      appendWhere(sql, filters.stream().map(MetamodelSqlCache::predicate).toList());
+      return sql.toString();
+    });
+  }
+
+  /**
+   * SELECT ... WHERE id = ?
+   */
+  public String getById(EntitySchema schema, List<String> columns) {
+    return get(schema, Kind.GET_BY_ID, List.of(String.join(",", columns)),
+        () -> String.format("SELECT %s FROM %s WHERE %s = ?", String.join(", ", columns),
+            schema.getTable(), schema.getIdField()));
+  }
+
+  /**
+   * INSERT INTO ... (columns) VALUES (?, ...)
+   */
+  public String insert(EntitySchema schema, List<String> columns) {
+    return get(schema, Kind.INSERT, List.copyOf(columns),
+        () -> String.format("INSERT INTO %s (%s) VALUES (%s)", schema.getTable(),
+            String.join(", ", columns), String.join(", ", placeholders(columns.size()))));
+  }
+
+  /**
+   * UPDATE ... SET a = ?, ... WHERE id = ? [AND version = ?]
+   *
+   * Parameters: set values (in given order), id, expected version (only when
+   * schema has a version field).
+   */
+  public String update(EntitySchema schema, List<String> columns) {
+    return get(schema, Kind.UPDATE, List.copyOf(columns), () -> {
+      List<String> sets = columns.stream().map(c -> c + " = ?").toList();
+      String sql = String.format("UPDATE %s SET %s WHERE %s = ?", schema.getTable(),
+          String.join(", ", sets), schema.getIdField());
+
+      if (schema.getVersionField() != null) {
+        sql += " AND " + schema.getVersionField() + " = ?";
+      }
+      return sql;
+    });
+  }
+
+  /**
+   * DELETE FROM ... WHERE id = ?
+   */
+  public String delete(EntitySchema schema) {
+    return get(schema, Kind.DELETE, List.of(), () -> String.format("DELETE FROM %s WHERE %s = ?",
+        schema.getTable(), schema.getIdField()));
+  }
+
+  /**
+   * Number of compiled statements currently cached
+   */
+  public long size() {
+    return statements.estimatedSize();
+  }
+
+  private String get(EntitySchema schema, Kind kind, List<String> shape, Supplier<String> compiler) {
+    Key key = new Key(registry.getGeneration(), schema.getEntity(), kind, shape);
+    return statements.get(key, k -> {
+      String sql = compiler.get();
+      log.debug("Compiled {} statement for {}: {}", kind, schema.getEntity(), sql);
+      return sql;
+    });
+  }
+
+  private static void appendWhere(StringBuilder sql, List<String> predicates) {
+    if (!predicates.isEmpty()) {
+      sql.append(" WHERE ").append(String.join(" AND ", predicates));
+    }
+  }
+
+  private static String predicate(FilterShape filter) {
+    return switch (filter.operator()) {
+    case OP_LIKE -> filter.column() + " LIKE ?";
+    case OP_IN -> filter.column() + " = ANY(?)";
+    case OP_EXPR -> "(" + filter.column() + ")";
+    default -> filter.column() + " = ?";
+    };
+  }
+
+  private static List<String> placeholders(int count) {
+    List<String> result = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      result.add("?");
+    }
+    return result;
+  }
+}
@@ -6,16 +6,24 @@ import cz.muriel.core.kafka.repository.DlqMessageRepository;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.handler.annotation.Header;
-import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.kafka.support.KafkaUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 💀 Centralized Dead Letter Topic (DLT) Manager
@@ -35,6 +43,8 @@ import java.util.Map;
 @Slf4j @Service @ConditionalOnProperty(name = "app.kafka.enabled", havingValue = "true", matchIfMissing = false)
 public class DltManager {
 
+  private static final Duration NACK_SLEEP = Duration.ofSeconds(5);
+
   private final DlqMessageRepository dlqMessageRepository;
   private final ObjectMapper objectMapper;
   private final MeterRegistry meterRegistry;
@@ -57,46 +67,47 @@ public class DltManager {
   }
 
   /**
-   * Handle DLT messages from all consumers
+   * Handle DLT messages from all consumers - one poll per call
    * 
    * Listens to all *.dlt topics (legacy format) and core.platform.dlq.all (new S7
-   * format)
+   * format). The poll is parsed record by record and stored with a single
+   * saveAll in one transaction. The poll is acknowledged once that transaction
+   * committed; if storing fails the whole poll is redelivered after a pause.
+   * Unparseable records are logged and skipped.
    */
-  @KafkaListener(topicPattern = ".*\\.dlt", groupId = "core-platform.dlt-manager", containerFactory = "kafkaListenerContainerFactory") @Transactional
-  public void handleDlt(@Payload String payload, @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
-      @Header(value = KafkaHeaders.RECEIVED_PARTITION, required = false) Integer partition,
-      @Header(value = KafkaHeaders.OFFSET, required = false) Long offset,
-      @Header(value = KafkaHeaders.RECEIVED_KEY, required = false) String key,
-      @Header(value = KafkaHeaders.EXCEPTION_MESSAGE, required = false) String errorMessage,
-      @Header(value = KafkaHeaders.EXCEPTION_STACKTRACE, required = false) String stackTrace,
-      @Header(value = KafkaHeaders.GROUP_ID, required = false) String consumerGroup) {
+  @KafkaListener(topicPattern = ".*\\.dlt", groupId = "core-platform.dlt-manager", containerFactory = "kafkaListenerContainerFactory", batch = "true", concurrency = "${app.kafka.dlt.concurrency:1}")
+  public void handleDlt(List<ConsumerRecord<String, String>> records, Acknowledgment ack) {
+    List<DlqMessage> messages = new ArrayList<>(records.size());
+
+    for (ConsumerRecord<String, String> record : records) {
+      try {
+        messages.add(toDlqMessage(record));
+      } catch (Exception e) {
+        log.error("Failed to parse DLT message: topic={}, offset={}, error={}", record.topic(),
+            record.offset(), e.getMessage(), e);
+      }
+    }
+
+    if (messages.isEmpty()) {
+      ack.acknowledge();
+      return;
+    }
 
     try {
-      // Parse payload to Map
-      @SuppressWarnings("unchecked")
-      Map<String, Object> payloadMap = objectMapper.readValue(payload, Map.class);
-
-      // Extract original topic (remove .dlt suffix)
-      String originalTopic = topic.endsWith(".dlt") ? topic.substring(0, topic.length() - 4)
-          : topic;
-
-      // Extract exception type from stack trace (first line)
-      String exceptionType = extractExceptionType(stackTrace);
-
-      // Create DLQ message entity
-      DlqMessage dlqMessage = new DlqMessage();
-      dlqMessage.setOriginalTopic(originalTopic);
-      dlqMessage.setPartition(partition);
-      dlqMessage.setOffsetValue(offset);
-      dlqMessage.setMessageKey(key);
-      dlqMessage.setPayload(payloadMap);
-      dlqMessage.setErrorMessage(errorMessage);
-      dlqMessage.setStackTrace(stackTrace);
-      dlqMessage.setConsumerGroup(consumerGroup);
-      dlqMessage.setExceptionType(exceptionType);
-
-      // Save to DB
-      dlqMessageRepository.save(dlqMessage);
+      // Save to DB - saveAll runs in one transaction
+      dlqMessageRepository.saveAll(messages);
+    } catch (Exception e) {
+      log.error("Failed to store {} DLT messages: {}", messages.size(), e.getMessage(), e);
+      // Don't throw - we don't want to DLT the DLT handler itself! Redeliver later.
+      ack.nack(0, NACK_SLEEP);
+      return;
+    }
+    ack.acknowledge();
+
+    Set<String> alerted = new HashSet<>();
+    for (DlqMessage dlqMessage : messages) {
+      String originalTopic = dlqMessage.getOriginalTopic();
+      String exceptionType = dlqMessage.getExceptionType();
 
       // Emit metrics
       dltMessagesTotal.increment();
@@ -106,19 +117,63 @@ public class DltManager {
 
       log.error(
           "Message sent to DLT: topic={}, partition={}, offset={}, error={}, exceptionType={}, messageId={}",
-          originalTopic, partition, offset, errorMessage, exceptionType, dlqMessage.getId());
+          originalTopic, dlqMessage.getPartition(), dlqMessage.getOffsetValue(),
+          dlqMessage.getErrorMessage(), exceptionType, dlqMessage.getId());
 
       // Alert on critical topics (requires ALERT_WEBHOOK_URL env var for
-      // Slack/PagerDuty)
-      if (isCriticalTopic(originalTopic)) {
+      // Slack/PagerDuty) - once per topic and poll
+      if (isCriticalTopic(originalTopic) && alerted.add(originalTopic)) {
         log.warn("⚠️ CRITICAL topic failed: {} - Consider manual intervention!", originalTopic);
-        publishAlert(originalTopic, errorMessage);
+        publishAlert(originalTopic, dlqMessage.getErrorMessage());
       }
+    }
+  }
 
-    } catch (Exception e) {
-      log.error("Failed to store DLT message: topic={}, error={}", topic, e.getMessage(), e);
-      // Don't throw - we don't want to DLT the DLT handler itself!
+  /**
+   * Build DLQ message entity from a DLT record and its headers
+   */
+  private DlqMessage toDlqMessage(ConsumerRecord<String, String> record) throws Exception {
+    // Parse payload to Map
+    @SuppressWarnings("unchecked")
+    Map<String, Object> payloadMap = objectMapper.readValue(record.value(), Map.class);
+
+    // Extract original topic (remove .dlt suffix)
+    String topic = record.topic();
+    String originalTopic = topic.endsWith(".dlt") ? topic.substring(0, topic.length() - 4)
+        : topic;
+
+    String stackTrace = header(record, KafkaHeaders.EXCEPTION_STACKTRACE,
+        KafkaHeaders.DLT_EXCEPTION_STACKTRACE);
+    String consumerGroup = header(record, KafkaHeaders.DLT_ORIGINAL_CONSUMER_GROUP, null);
+
+    DlqMessage dlqMessage = new DlqMessage();
+    dlqMessage.setOriginalTopic(originalTopic);
+    dlqMessage.setPartition(record.partition());
+    dlqMessage.setOffsetValue(record.offset());
+    dlqMessage.setMessageKey(record.key());
+    dlqMessage.setPayload(payloadMap);
+    dlqMessage.setErrorMessage(header(record, KafkaHeaders.EXCEPTION_MESSAGE,
+        KafkaHeaders.DLT_EXCEPTION_MESSAGE));
+    dlqMessage.setStackTrace(stackTrace);
+    dlqMessage.setConsumerGroup(
+        consumerGroup != null ? consumerGroup : KafkaUtils.getConsumerGroupId());
+    // Extract exception type from stack trace (first line)
+    dlqMessage.setExceptionType(extractExceptionType(stackTrace));
+    return dlqMessage;
+  }
+
+  /**
+   * Last value of a record header, falling back to a second header name
+   */
+  private static String header(ConsumerRecord<String, String> record, String name,
+      String fallback) {
+    Header header = record.headers().lastHeader(name);
+    if (header == null && fallback != null) {
+      header = record.headers().lastHeader(fallback);
     }
+    return header != null && header.value() != null
+        ? new String(header.value(), StandardCharsets.UTF_8)
+        : null;
   }
 
   /**
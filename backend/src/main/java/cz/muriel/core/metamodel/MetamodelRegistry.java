@@ -6,19 +6,42 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
-import java.util.Map;
-import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.*;
 
 /**
  * Central registry for metamodel schemas Thread-safe and supports runtime
  * reload
+ *
+ * All lookups read one immutable {@link Snapshot} (schemas + secondary index
+ * by table) that {@link #reload()} builds and swaps atomically -
+ * readers never lock, never allocate and never see a half-reloaded registry.
  */
 @Slf4j @Component @RequiredArgsConstructor
 public class MetamodelRegistry {
 
   private final MetamodelLoader loader;
-  private final Map<String, EntitySchema> schemas = new ConcurrentHashMap<>();
+  private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+  /**
+   * Immutable registry state of one generation
+   */
+  private record Snapshot(long generation, Map<String, EntitySchema> byType,
+      Map<String, EntitySchema> byTable) {
+
+    static final Snapshot EMPTY = new Snapshot(0, Map.of(), Map.of());
+
+    static Snapshot of(long generation, Map<String, EntitySchema> schemas) {
+      Map<String, EntitySchema> byTable = new HashMap<>();
+      for (EntitySchema schema : schemas.values()) {
+        if (schema.getTable() != null) {
+          // First schema wins, same as the former linear scan
+          byTable.putIfAbsent(schema.getTable(), schema);
+        }
+      }
+
+      return new Snapshot(generation, Map.copyOf(schemas), Map.copyOf(byTable));
+    }
+  }
 
   @PostConstruct
   public void init() {
@@ -32,17 +55,25 @@ public class MetamodelRegistry {
     log.info("Reloading metamodel registry...");
     Map<String, EntitySchema> newSchemas = loader.loadSchemas();
 
-    schemas.clear();
-    schemas.putAll(newSchemas);
+    Snapshot next = Snapshot.of(snapshot.generation() + 1, newSchemas);
+    snapshot = next;
+
+    log.info("Metamodel registry reloaded with {} schemas", next.byType().size());
+  }
 
-    log.info("Metamodel registry reloaded with {} schemas", schemas.size());
+  /**
+   * Monotonic counter bumped on every reload - lets derived caches detect stale
+   * entries without explicit invalidation hooks
+   */
+  public long getGeneration() {
+    return snapshot.generation();
   }
 
   /**
    * Get schema by entity type
    */
   public Optional<EntitySchema> getSchema(String entityType) {
-    return Optional.ofNullable(schemas.get(entityType));
+    return Optional.ofNullable(snapshot.byType().get(entityType));
   }
 
   /**
@@ -57,20 +88,20 @@ public class MetamodelRegistry {
    * Check if entity type exists
    */
   public boolean hasSchema(String entityType) {
-    return schemas.containsKey(entityType);
+    return snapshot.byType().containsKey(entityType);
   }
 
   /**
-   * Get all registered entity types
+   * Get all registered entity types (immutable, shared - no copy per call)
    */
   public Map<String, EntitySchema> getAllSchemas() {
-    return Map.copyOf(schemas);
+    return snapshot.byType();
   }
 
   /**
    * Get schema by table name (reverse lookup)
    */
   public Optional<EntitySchema> getSchemaByTable(String tableName) {
-    return schemas.values().stream().filter(s -> s.getTable().equals(tableName)).findFirst();
+    return Optional.ofNullable(snapshot.byTable().get(tableName));
   }
 }
@@ -4,6 +4,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.jooq.Condition;
 import org.jooq.Field;
 import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
 
 import java.util.*;
 import java.util.regex.Matcher;
@@ -23,6 +24,10 @@ import java.util.regex.Pattern;
  * Examples: - status eq 'active' - (age gt 18) and (status eq 'active') - name
  * like '%Smith%' or email like '%@example.com' - status in ('active',
  * 'pending', 'approved') - (age gte 18 and age lte 65) and status ne 'inactive'
+ * 
+ * Values are emitted as bind parameters (DSL.val), never inlined - render with
+ * DEFAULT dialect and use extractBindValues() to execute as prepared
+ * statement. See {@link CompiledFilterCache} for the cached execution path.
  */
 @Slf4j
 public class FilterParser {
@@ -34,16 +39,32 @@ public class FilterParser {
   private static final Pattern IN_PATTERN = Pattern
       .compile("(\\w+)\\s+(in|notIn)\\s+\\(([^)]+)\\)");
 
+  /**
+   * Parsed filter: condition tree + all referenced field names (for schema
+   * validation)
+   */
+  public record ParsedFilter(Condition condition, Set<String> fields) {
+  }
+
   /**
    * Parse filter string to jOOQ Condition
    */
   public static Condition parse(String filterString) {
+    return parseFilter(filterString).condition();
+  }
+
+  /**
+   * Parse filter string to jOOQ Condition and collect referenced fields
+   */
+  public static ParsedFilter parseFilter(String filterString) {
     if (filterString == null || filterString.isBlank()) {
-      return DSL.trueCondition();
+      return new ParsedFilter(DSL.trueCondition(), Set.of());
     }
 
     try {
-      return parseExpression(filterString.trim());
+      Set<String> fields = new LinkedHashSet<>();
+      Condition condition = parseExpression(filterString.trim(), fields);
+      return new ParsedFilter(condition, Collections.unmodifiableSet(fields));
     } catch (Exception e) {
       log.error("Failed to parse filter: {}", filterString, e);
       throw new IllegalArgumentException("Invalid filter syntax: " + e.getMessage(), e);
@@ -53,48 +74,48 @@ public class FilterParser {
   /**
    * Parse expression with AND/OR operators
    */
-  private static Condition parseExpression(String expr) {
+  private static Condition parseExpression(String expr, Set<String> fields) {
     // Handle parentheses first
     expr = expr.trim();
 
     // Split by OR (lowest precedence)
     List<String> orParts = splitByOperator(expr, "or");
     if (orParts.size() > 1) {
-      Condition result = parseAndExpression(orParts.get(0));
+      Condition result = parseAndExpression(orParts.get(0), fields);
       for (int i = 1; i < orParts.size(); i++) {
-        result = result.or(parseAndExpression(orParts.get(i)));
+        result = result.or(parseAndExpression(orParts.get(i), fields));
       }
       return result;
     }
 
-    return parseAndExpression(expr);
+    return parseAndExpression(expr, fields);
   }
 
   /**
    * Parse AND expressions
    */
-  private static Condition parseAndExpression(String expr) {
+  private static Condition parseAndExpression(String expr, Set<String> fields) {
     List<String> andParts = splitByOperator(expr, "and");
     if (andParts.size() > 1) {
-      Condition result = parseCondition(andParts.get(0));
+      Condition result = parseCondition(andParts.get(0), fields);
       for (int i = 1; i < andParts.size(); i++) {
-        result = result.and(parseCondition(andParts.get(i)));
+        result = result.and(parseCondition(andParts.get(i), fields));
       }
       return result;
     }
 
-    return parseCondition(expr);
+    return parseCondition(expr, fields);
   }
 
   /**
    * Parse single condition (with parentheses handling)
    */
-  private static Condition parseCondition(String expr) {
+  private static Condition parseCondition(String expr, Set<String> fields) {
     expr = expr.trim();
 
     // Remove outer parentheses
     if (expr.startsWith("(") && expr.endsWith(")")) {
-      return parseExpression(expr.substring(1, expr.length() - 1));
+      return parseExpression(expr.substring(1, expr.length() - 1), fields);
     }
 
     // Try IN/NOT IN pattern
@@ -105,10 +126,11 @@ public class FilterParser {
       String values = inMatcher.group(3);
 
       List<Object> valueList = parseValueList(values);
-      Field<Object> fieldRef = DSL.field(DSL.name(field));
+      Field<Object> fieldRef = DSL.field(DSL.name(field), SQLDataType.OTHER);
+      fields.add(field);
 
-      // Convert to DSL.inline() for proper type handling in DEFAULT dialect
-      Object[] typedValues = valueList.stream().map(DSL::inline).toArray();
+      // Bind values - never inline literals into SQL
+      Object[] typedValues = valueList.stream().map(DSL::val).toArray();
 
       if ("in".equals(operator)) {
         return fieldRef.in(typedValues);
@@ -123,6 +145,7 @@ public class FilterParser {
       String field = compMatcher.group(1);
       String operator = compMatcher.group(2);
       String value = compMatcher.group(3);
+      fields.add(field);
 
       return createComparison(field, operator, parseValue(value));
     }
@@ -134,16 +157,19 @@ public class FilterParser {
    * Create comparison condition
    */
   private static Condition createComparison(String fieldName, String operator, Object value) {
-    Field<Object> field = DSL.field(DSL.name(fieldName));
+    // Column type is unknown here - OTHER keeps the placeholder free of casts and
+    // the parsed value untouched; the caller binds it as Types.OTHER, so
+    // PostgreSQL infers uuid, jsonb or timestamptz from the column
+    Field<Object> field = DSL.field(DSL.name(fieldName), SQLDataType.OTHER);
 
-    // Use DSL.inline() for proper type handling in DEFAULT dialect
+    // Bind values - never inline literals into SQL
     return switch (operator) {
-    case "eq" -> field.eq(DSL.inline(value));
-    case "ne" -> field.ne(DSL.inline(value));
-    case "lt" -> field.lt(DSL.inline(value));
-    case "lte" -> field.le(DSL.inline(value));
-    case "gt" -> field.gt(DSL.inline(value));
-    case "gte" -> field.ge(DSL.inline(value));
+    case "eq" -> field.eq(DSL.val(value));
+    case "ne" -> field.ne(DSL.val(value));
+    case "lt" -> field.lt(DSL.val(value));
+    case "lte" -> field.le(DSL.val(value));
+    case "gt" -> field.gt(DSL.val(value));
+    case "gte" -> field.ge(DSL.val(value));
     case "like" -> field.like(value.toString());
     default -> throw new IllegalArgumentException("Unknown operator: " + operator);
     };
@@ -3,13 +3,16 @@ package cz.muriel.core.metamodel.pagination;
 import lombok.Builder;
 import lombok.Data;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
 
 /**
  * 📄 Keyset Pagination - Cursor-based pagination for large datasets
  * 
  * Instead of OFFSET/LIMIT, uses cursor (last seen value) for efficient paging.
- * Cursor format: "sortKey,id" (e.g., "2024-10-09T10:30:00Z,uuid-123")
+ * Cursor format: base64url of "v" + sortKey + "," + id (e.g.
+ * "v2024-10-09T10:30:00Z,uuid-123"), "n," + id for a NULL sort key
  * 
  * Benefits: - No performance degradation with large offsets - Consistent
  * results even when data changes - Efficient for infinite scrolling
@@ -69,10 +72,13 @@ public class KeysetPagination {
     private String id; // Entity ID (tie-breaker)
 
     /**
-     * Encode cursor to string: "sortKey,id"
+     * Encode cursor to an opaque URL-safe string - NULL sort key is marked
+     * explicitly so it does not decode as the text "null"
      */
     public String encode() {
-      return sortKey + "," + id;
+      String raw = (sortKey == null ? "n" : "v" + sortKey) + "," + id;
+      return Base64.getUrlEncoder().withoutPadding()
+          .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
     }
 
     /**
@@ -83,12 +89,22 @@ public class KeysetPagination {
         return null;
       }
 
-      String[] parts = encoded.split(",", 2);
-      if (parts.length != 2) {
+      String raw;
+      try {
+        raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+      } catch (IllegalArgumentException e) {
         throw new IllegalArgumentException("Invalid cursor format: " + encoded);
       }
 
-      return Cursor.builder().sortKey(parts[0]).id(parts[1]).build();
+      // Split on the last comma - sort key values may contain commas, ids don't
+      int separator = raw.lastIndexOf(',');
+      if (separator < 1 || (raw.charAt(0) != 'n' && raw.charAt(0) != 'v')
+          || (raw.charAt(0) == 'n' && separator != 1)) {
+        throw new IllegalArgumentException("Invalid cursor format: " + encoded);
+      }
+
+      String sortKey = raw.charAt(0) == 'n' ? null : raw.substring(1, separator);
+      return Cursor.builder().sortKey(sortKey).id(raw.substring(separator + 1)).build();
     }
   }
 }
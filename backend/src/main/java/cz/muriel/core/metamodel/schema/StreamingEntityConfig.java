@@ -82,16 +82,59 @@ public class StreamingEntityConfig {
    */
   private Integer workerConcurrency = 2;
 
+  /**
+   * Kafka listener concurrency for this entity's event topic (null = global
+   * default)
+   */
+  private Integer consumerConcurrency;
+
   /**
    * Priority weights for command queues
    */
   private PriorityWeights priorityWeights = new PriorityWeights();
 
+  /**
+   * Max commands per second per priority for this entity (override global,
+   * null = inherit)
+   */
+  private PriorityQuotas priorityQuotas = new PriorityQuotas();
+
   @Data
   public static class PriorityWeights {
     private int critical = 40;
     private int high = 30;
     private int normal = 20;
     private int bulk = 10;
+
+    public int forPriority(String priority) {
+      return switch (priority) {
+      case "critical" -> critical;
+      case "high" -> high;
+      case "normal" -> normal;
+      case "bulk" -> bulk;
+      default -> 0;
+      };
+    }
+  }
+
+  /**
+   * Commands per second per priority - null inherits, 0 or less is unlimited
+   */
+  @Data
+  public static class PriorityQuotas {
+    private Integer critical;
+    private Integer high;
+    private Integer normal;
+    private Integer bulk;
+
+    public Integer forPriority(String priority) {
+      return switch (priority) {
+      case "critical" -> critical;
+      case "high" -> high;
+      case "normal" -> normal;
+      case "bulk" -> bulk;
+      default -> null;
+      };
+    }
   }
 }
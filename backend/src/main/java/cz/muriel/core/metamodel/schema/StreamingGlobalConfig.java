@@ -82,6 +82,22 @@ public class StreamingGlobalConfig {
    */
   private int defaultWorkerConcurrency = 2;
 
+  /**
+   * Default Kafka listener concurrency for entity event topics
+   */
+  private int defaultConsumerConcurrency = 2;
+
+  /**
+   * Fair share of a worker batch per priority lane
+   */
+  private StreamingEntityConfig.PriorityWeights defaultPriorityWeights = new StreamingEntityConfig.PriorityWeights();
+
+  /**
+   * Default max commands per second per entity and priority (unset =
+   * unlimited)
+   */
+  private StreamingEntityConfig.PriorityQuotas defaultPriorityQuotas = new StreamingEntityConfig.PriorityQuotas();
+
   /**
    * DLQ topic name
    */
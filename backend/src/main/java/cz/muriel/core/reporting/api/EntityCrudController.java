@@ -3,6 +3,7 @@ package cz.muriel.core.reporting.api;
 import cz.muriel.core.reporting.support.MetamodelSpecService;
 import cz.muriel.core.reporting.support.EntitySpec;
 import cz.muriel.core.reporting.cube.CubeSecurityContext;
+import cz.muriel.core.reporting.support.CacheInvalidationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jooq.DSLContext;
@@ -36,6 +37,7 @@ public class EntityCrudController {
   private final DSLContext dsl;
   private final MetamodelSpecService specService;
   private final CubeSecurityContext cubeSecurityContext;
+  private final CacheInvalidationService cacheInvalidationService;
 
   /**
    * PATCH /api/entities/{entity}/{id}
@@ -133,6 +135,7 @@ public class EntityCrudController {
         .and(DSL.field("tenant_id").eq(tenantId)).fetchOne();
 
     Map<String, Object> result = updatedRecord.intoMap();
+    cacheInvalidationService.invalidateByEntity(tenantIdStr, entity);
 
     // 10. Audit log
     log.info("Updated {}/{}: {} fields changed by {}", entity, id, patch.keySet(), auth.getName());
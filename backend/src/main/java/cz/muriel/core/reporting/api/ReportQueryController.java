@@ -1,17 +1,22 @@
 package cz.muriel.core.reporting.api;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import cz.muriel.core.reporting.app.ReportQueryService;
 import cz.muriel.core.reporting.dsl.QueryRequest;
 import cz.muriel.core.reporting.dsl.QueryResponse;
 import cz.muriel.core.reporting.support.EntitySpec;
 import cz.muriel.core.reporting.support.MetamodelSpecService;
+import cz.muriel.core.reporting.support.ReportRowWriter;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * REST API for report queries.
@@ -21,6 +26,10 @@ public class ReportQueryController {
 
   private final ReportQueryService reportQueryService;
   private final MetamodelSpecService metamodelSpecService;
+  private final ObjectMapper objectMapper;
+
+  @Value("${reporting.stream.buffer-bytes:65536}")
+  private int streamBufferBytes;
 
   /**
    * Execute report query.
@@ -52,6 +61,47 @@ public class ReportQueryController {
     return ResponseEntity.ok().headers(headers).body(response);
   }
 
+  /**
+   * Execute report query and stream rows as they arrive from Cube.js.
+   * 
+   * POST /api/reports/query/stream?format=ndjson|csv
+   * 
+   * Meant for large exports - rows are written through a fixed-size buffer
+   * instead of being collected into one QueryResponse. Access and complexity
+   * are validated before the response is committed.
+   * 
+   * @param request Query request
+   * @param format Output format (ndjson or csv)
+   * @param authentication Current user authentication
+   * @return Streamed rows
+   */
+  @PostMapping("/query/stream")
+  public ResponseEntity<StreamingResponseBody> streamQuery(@Valid @RequestBody QueryRequest request,
+      @RequestParam(defaultValue = "ndjson") String format, Authentication authentication) {
+
+    ReportRowWriter.Format outputFormat = ReportRowWriter.Format.parse(format);
+    log.debug("Streaming report query: entity={}, format={}", request.getEntity(), outputFormat);
+
+    ReportQueryService.PreparedQuery prepared = reportQueryService.prepareQuery(request,
+        authentication);
+
+    StreamingResponseBody body = out -> {
+      long rows = reportQueryService.streamQuery(prepared,
+          ReportRowWriter.of(outputFormat, out, objectMapper, streamBufferBytes));
+      log.debug("Streamed {} rows for fingerprint {}", rows, prepared.fingerprint());
+    };
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.add("X-Query-Fingerprint", prepared.fingerprint());
+    if (outputFormat == ReportRowWriter.Format.CSV) {
+      headers.add(HttpHeaders.CONTENT_DISPOSITION,
+          "attachment; filename=\"" + request.getEntity() + ".csv\"");
+    }
+
+    return ResponseEntity.ok().headers(headers)
+        .contentType(MediaType.parseMediaType(outputFormat.getContentType())).body(body);
+  }
+
   /**
    * Get entity metadata.
    * 
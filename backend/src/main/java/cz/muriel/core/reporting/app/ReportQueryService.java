@@ -11,14 +11,18 @@ import cz.muriel.core.reporting.support.MetamodelSpecService;
 import cz.muriel.core.reporting.support.EntitySpec;
 import cz.muriel.core.reporting.support.ReportingMetrics;
 import cz.muriel.core.reporting.support.LoggingContextFilter;
+import cz.muriel.core.reporting.support.ReportResultCache;
+import cz.muriel.core.reporting.support.ReportRowWriter;
 import cz.muriel.core.reporting.security.ReportingSecurityService;
+import cz.muriel.core.reporting.service.QueryDeduplicator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,14 +37,17 @@ public class ReportQueryService {
   private final CubeClient cubeClient;
   private final CubeSecurityContext cubeSecurityContext;
   private final MetamodelSpecService metamodelSpecService;
-  private final CacheManager cacheManager;
+  private final ReportResultCache resultCache;
   private final QueryFingerprint queryFingerprint;
   private final ReportingMetrics metrics;
   private final ReportingSecurityService securityService;
+  private final QueryDeduplicator queryDeduplicator;
 
-  private static final String CACHE_NAME = "reportQueryCache";
   private static final String SPEC_VERSION = "1.0";
 
+  @Value("${reporting.stream.cache-max-rows:10000}")
+  private int streamCacheMaxRows;
+
   /**
    * Execute report query with caching.
    * 
@@ -50,6 +57,49 @@ public class ReportQueryService {
    */
   public QueryResponse executeQuery(QueryRequest request, Authentication authentication) {
     long startTime = System.currentTimeMillis();
+    PreparedQuery prepared = prepareQuery(request, authentication);
+    String tenantId = prepared.tenantId();
+    String fingerprint = prepared.fingerprint();
+
+    // Check cache (node-local near-cache, then shared Redis)
+    QueryResponse cached = resultCache.get(fingerprint, tenantId, request.getEntity());
+    if (cached != null) {
+      log.debug("Cache HIT for fingerprint: {}", fingerprint);
+      metrics.recordCacheHit();
+      long duration = System.currentTimeMillis() - startTime;
+      metrics.recordQueryExecution(duration, request.getEntity(), true);
+      return cached;
+    }
+
+    log.debug("Cache MISS for fingerprint: {}", fingerprint);
+    metrics.recordCacheMiss();
+
+    // Execute query - identical concurrent misses share one Cube.js load, each
+    // waiting caller gets its own copy
+    QueryResponse response = queryDeduplicator.execute(fingerprint,
+        () -> loadAndCache(request, tenantId, fingerprint, startTime), ReportQueryService::shareOf);
+
+    long executionTime = System.currentTimeMillis() - startTime;
+    metrics.recordQueryExecution(executionTime, request.getEntity(), false);
+
+    return response;
+  }
+
+  /**
+   * Authorized and fingerprinted query, ready for execution.
+   */
+  public record PreparedQuery(QueryRequest request, String tenantId, String fingerprint) {
+  }
+
+  /**
+   * Validate access and query complexity and compute the cache key. Runs on the
+   * request thread, before any response bytes are written.
+   * 
+   * @param request Query request
+   * @param authentication User authentication
+   * @return Prepared query
+   */
+  public PreparedQuery prepareQuery(QueryRequest request, Authentication authentication) {
     metrics.recordQueryRequest();
 
     String tenantId = cubeSecurityContext.extractTenantId(authentication);
@@ -81,25 +131,85 @@ public class ReportQueryService {
 
     // Generate cache key
     String fingerprint = queryFingerprint.generate(tenantId, request, SPEC_VERSION);
+    return new PreparedQuery(request, tenantId, fingerprint);
+  }
 
-    // Check cache
-    Cache cache = cacheManager.getCache(CACHE_NAME);
-    if (cache != null) {
-      QueryResponse cached = cache.get(fingerprint, QueryResponse.class);
-      if (cached != null) {
-        log.debug("Cache HIT for fingerprint: {}", fingerprint);
-        metrics.recordCacheHit();
-        long duration = System.currentTimeMillis() - startTime;
-        metrics.recordQueryExecution(duration, request.getEntity(), true);
-        cached.setCacheHit(true);
-        return cached;
-      }
+  /**
+   * Stream query rows to the writer without materializing the whole result.
+   * 
+   * Rows are forwarded as Cube.js returns them. Results up to
+   * {@code reporting.stream.cache-max-rows} rows are cached as usual; once a
+   * result crosses the threshold its buffer is dropped and it is not cached.
+   * 
+   * @param prepared Query from {@link #prepareQuery}
+   * @param writer Row writer (NDJSON / CSV)
+   * @return Number of rows written
+   */
+  public long streamQuery(PreparedQuery prepared, ReportRowWriter writer) {
+    long startTime = System.currentTimeMillis();
+    QueryRequest request = prepared.request();
+    String fingerprint = prepared.fingerprint();
+
+    QueryResponse cached = resultCache.get(fingerprint, prepared.tenantId(), request.getEntity());
+    if (cached != null) {
+      log.debug("Cache HIT for streamed fingerprint: {}", fingerprint);
+      metrics.recordCacheHit();
+      cached.getData().forEach(writer::write);
+      writer.finish();
+      metrics.recordQueryExecution(System.currentTimeMillis() - startTime, request.getEntity(),
+          true);
+      return cached.getData().size();
     }
 
-    log.debug("Cache MISS for fingerprint: {}", fingerprint);
+    log.debug("Cache MISS for streamed fingerprint: {}", fingerprint);
     metrics.recordCacheMiss();
 
-    // Execute query
+    List<Map<String, Object>> buffer = new ArrayList<>();
+    boolean[] cacheable = { streamCacheMaxRows > 0 };
+    long cubeStartTime = System.currentTimeMillis();
+
+    CubeQueryRequest cubeQuery = cubeMapper.toCubeQuery(request, prepared.tenantId());
+    long rows = cubeClient.streamQuery(cubeQuery, row -> {
+      writer.write(row);
+      if (cacheable[0]) {
+        if (buffer.size() < streamCacheMaxRows) {
+          buffer.add(row);
+        } else {
+          // Too large to cache - stop buffering
+          cacheable[0] = false;
+          buffer.clear();
+        }
+      }
+    });
+    writer.finish();
+
+    metrics.recordCubeApiCall(System.currentTimeMillis() - cubeStartTime, true);
+    long executionTime = System.currentTimeMillis() - startTime;
+
+    if (cacheable[0]) {
+      QueryResponse response = QueryResponse.builder().data(buffer).totalRows(rows)
+          .returnedRows(buffer.size()).fingerprint(fingerprint).cacheHit(false)
+          .executionTimeMs(executionTime).metadata(buildMetadata(request)).build();
+      resultCache.put(fingerprint, prepared.tenantId(), request.getEntity(), response);
+    } else {
+      log.debug("Streamed {} rows for {} - above cache threshold, not cached", rows, fingerprint);
+    }
+
+    metrics.recordQueryExecution(executionTime, request.getEntity(), false);
+    return rows;
+  }
+
+  /**
+   * Single-flight leader: load from Cube.js and cache the result.
+   */
+  private QueryResponse loadAndCache(QueryRequest request, String tenantId, String fingerprint,
+      long startTime) {
+    // A previous leader may have cached the result right after our miss
+    QueryResponse cached = resultCache.get(fingerprint, tenantId, request.getEntity());
+    if (cached != null) {
+      return cached;
+    }
+
     long cubeStartTime = System.currentTimeMillis();
 
     CubeQueryRequest cubeQuery = cubeMapper.toCubeQuery(request, tenantId);
@@ -110,25 +220,32 @@ public class ReportQueryService {
 
     long executionTime = System.currentTimeMillis() - startTime;
 
-    // Build response
-    QueryResponse response = QueryResponse.builder().data(data).totalRows((long) data.size()) // Cube.js
-                                                                                              // doesn't
-                                                                                              // return
-                                                                                              // total
-                                                                                              // count
+    // Build response (Cube.js doesn't return total count)
+    QueryResponse response = QueryResponse.builder().data(data).totalRows((long) data.size())
         .returnedRows(data.size()).fingerprint(fingerprint).cacheHit(false)
         .executionTimeMs(executionTime).metadata(buildMetadata(request)).build();
 
-    // Cache result
-    if (cache != null) {
-      cache.put(fingerprint, response);
-    }
-
-    metrics.recordQueryExecution(executionTime, request.getEntity(), false);
+    // Cache result, tagged by tenant and entity for invalidation
+    resultCache.put(fingerprint, tenantId, request.getEntity(), response);
 
     return response;
   }
 
+  /**
+   * Single-flight follower: own response object over read-only rows, so callers
+   * sharing one load cannot change each other's result.
+   */
+  private static QueryResponse shareOf(QueryResponse response) {
+    List<Map<String, Object>> data = response.getData() == null ? null
+        : response.getData().stream().map(Collections::unmodifiableMap).toList();
+    Map<String, Object> metadata = response.getMetadata() == null ? null
+        : new HashMap<>(response.getMetadata());
+    return QueryResponse.builder().data(data).totalRows(response.getTotalRows())
+        .returnedRows(response.getReturnedRows()).fingerprint(response.getFingerprint())
+        .cacheHit(response.getCacheHit()).executionTimeMs(response.getExecutionTimeMs())
+        .metadata(metadata).build();
+  }
+
   /**
    * Get entity metadata.
    * 
@@ -63,6 +63,18 @@ public class ReportingProperties {
      */
     @NotBlank
     private String keyPrefix = "rpt:";
+
+    /**
+     * TTL of the node-local near-cache in front of Redis (seconds).
+     */
+    @Min(1)
+    private int localTtlSeconds = 15;
+
+    /**
+     * Maximum entries of the node-local near-cache.
+     */
+    @Min(1)
+    private int localMaxEntries = 2000;
   }
 
   @Data
@@ -103,11 +115,36 @@ public class ReportingProperties {
   @Data
   public static class BulkConfig {
     /**
-     * Number of rows to process per chunk in bulk operations.
+     * Upper bound of the adaptive chunk size in bulk operations.
      */
     @Min(1)
     private int chunkSize = 1000;
 
+    /**
+     * Lower bound of the adaptive chunk size.
+     */
+    @Min(1)
+    private int minChunkSize = 10;
+
+    /**
+     * Target duration of one chunk UPDATE in milliseconds (drives chunk size).
+     */
+    @Min(1)
+    private long targetChunkMs = 250;
+
+    /**
+     * Job lease in seconds - renewed per chunk, expired jobs are resumed by
+     * another instance.
+     */
+    @Min(1)
+    private int leaseSeconds = 60;
+
+    /**
+     * Interval of polling for queued and abandoned jobs in milliseconds.
+     */
+    @Min(100)
+    private long pollIntervalMs = 5000;
+
     /**
      * Maximum total rows that can be affected by a bulk operation.
      */
@@ -121,7 +158,7 @@ public class ReportingProperties {
     private int queueConcurrency = 2;
 
     /**
-     * Timeout for bulk operations in seconds.
+     * Statement timeout of one chunk in seconds (capped to half the lease).
      */
     @Min(1)
     private int timeoutSeconds = 300;
@@ -1,16 +1,26 @@
 package cz.muriel.core.reporting.cube;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import cz.muriel.core.reporting.support.ReportingMetrics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestClient;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Client for Cube.js REST API.
@@ -20,6 +30,22 @@ public class CubeClient {
 
   private final RestClient cubeRestClient;
   private final ReportingMetrics metrics;
+  private final ObjectMapper objectMapper;
+
+  private static final TypeReference<Map<String, Object>> ROW_TYPE = new TypeReference<>() {
+  };
+
+  /** Cube.js answers a query that is still being processed with this error */
+  private static final String CONTINUE_WAIT = "Continue wait";
+
+  /** readRows result for a "Continue wait" response - no rows were read */
+  private static final long PENDING = -1;
+
+  @Value("${reporting.stream.continue-wait-max-attempts:20}")
+  private int continueWaitMaxAttempts;
+
+  @Value("${reporting.stream.continue-wait-delay-ms:500}")
+  private long continueWaitDelayMs;
 
   /**
    * Execute query against Cube.js API.
@@ -76,6 +102,137 @@ public class CubeClient {
     }
   }
 
+  /**
+   * Execute query and hand rows to the consumer one by one while the response
+   * is being read - the {@code data} array is never materialized. While
+   * Cube.js answers "Continue wait" the query is polled again.
+   *
+   * @param request Cube.js query request
+   * @param rowConsumer Receives each row (may throw UncheckedIOException to
+   * abort)
+   * @return Number of rows read
+   * @throws IllegalArgumentException if query is invalid (4xx or Cube.js error)
+   * @throws RuntimeException if Cube.js server error (5xx)
+   */
+  public long streamQuery(CubeQueryRequest request, Consumer<Map<String, Object>> rowConsumer) {
+    log.debug("Streaming Cube.js query: entity={}, measures={}, dimensions={}",
+        extractEntityFromMeasures(request), request.getMeasures(), request.getDimensions());
+
+    try {
+      // The query is re-sent while Cube.js is still processing it
+      long rows = exchangeRows(request, rowConsumer);
+      for (int attempt = 1; rows == PENDING; attempt++) {
+        if (attempt >= continueWaitMaxAttempts) {
+          throw new IllegalStateException(
+              "Cube.js query still in progress after " + attempt + " attempts");
+        }
+        log.debug("Cube.js query in progress, polling again (attempt {})", attempt + 1);
+        Thread.sleep(continueWaitDelayMs);
+        rows = exchangeRows(request, rowConsumer);
+      }
+
+      log.debug("Cube.js streaming query successful: {} rows", rows);
+      return rows;
+
+    } catch (HttpClientErrorException e) {
+      log.error("Cube.js client error (4xx): {}", e.getMessage());
+      metrics.recordQueryError("client_error");
+      throw new IllegalArgumentException("Invalid query: " + e.getResponseBodyAsString(), e);
+
+    } catch (HttpServerErrorException e) {
+      log.error("Cube.js server error (5xx): {}", e.getMessage());
+      metrics.recordQueryError("server_error");
+      throw new RuntimeException(
+          "Cube.js server error - please retry later: " + e.getResponseBodyAsString(), e);
+
+    } catch (IllegalArgumentException | UncheckedIOException e) {
+      // Cube.js query error or the client went away while writing rows
+      throw e;
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Query execution interrupted", e);
+
+    } catch (Exception e) {
+      log.error("Unexpected error during Cube.js streaming query", e);
+      metrics.recordQueryError("unexpected_error");
+      throw new RuntimeException("Query execution failed: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * One load request, rows go straight to the consumer
+   *
+   * @return Number of rows read, {@link #PENDING} for "Continue wait"
+   */
+  private long exchangeRows(CubeQueryRequest request,
+      Consumer<Map<String, Object>> rowConsumer) {
+    Long rows = cubeRestClient.post().uri("/cubejs-api/v1/load")
+        .contentType(MediaType.APPLICATION_JSON).body(request)
+        .exchange((clientRequest, clientResponse) -> {
+          if (clientResponse.getStatusCode().is4xxClientError()) {
+            throw new HttpClientErrorException(clientResponse.getStatusCode(),
+                clientResponse.getStatusText(), readBody(clientResponse.getBody()),
+                StandardCharsets.UTF_8);
+          }
+          if (clientResponse.getStatusCode().isError()) {
+            throw new HttpServerErrorException(clientResponse.getStatusCode(),
+                clientResponse.getStatusText(), readBody(clientResponse.getBody()),
+                StandardCharsets.UTF_8);
+          }
+          try (JsonParser parser = objectMapper.getFactory()
+              .createParser(clientResponse.getBody())) {
+            return readRows(parser, rowConsumer);
+          }
+        });
+    return rows != null ? rows : 0;
+  }
+
+  /**
+   * Walk the top-level response object, stream the {@code data} array
+   */
+  private long readRows(JsonParser parser, Consumer<Map<String, Object>> rowConsumer)
+      throws IOException {
+    long rows = 0;
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      throw new IllegalStateException("Unexpected Cube.js response");
+    }
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken value = parser.nextToken();
+
+      if ("data".equals(field) && value == JsonToken.START_ARRAY) {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+          rowConsumer.accept(objectMapper.readValue(parser, ROW_TYPE));
+          rows++;
+        }
+      } else if ("error".equals(field)) {
+        String errorMsg = parser.getValueAsString();
+        if (CONTINUE_WAIT.equals(errorMsg) && rows == 0) {
+          return PENDING;
+        }
+        log.error("Cube.js query error: {}", errorMsg);
+        throw new IllegalArgumentException("Query execution failed: " + errorMsg);
+      } else if ("annotation".equals(field) && value == JsonToken.START_OBJECT) {
+        Map<String, Object> annotation = objectMapper.readValue(parser, ROW_TYPE);
+        if (annotation.containsKey("error")) {
+          throw new IllegalArgumentException(
+              "Query execution failed: " + annotation.get("error"));
+        }
+      } else if ("slowQuery".equals(field) && value == JsonToken.VALUE_TRUE) {
+        log.warn("Slow query detected (streaming)");
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return rows;
+  }
+
+  private static byte[] readBody(InputStream body) throws IOException {
+    return body.readNBytes(4096);
+  }
+
   /**
    * Extract entity name from measures for logging.
    */
@@ -9,6 +9,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.HttpStatusCodeException;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -53,21 +57,27 @@ public class CubePreAggService {
    * entity
    */
   public boolean refreshForEntityType(String entityType, String tenantId) {
-    String cubeSchema = ENTITY_TO_CUBE_SCHEMA.get(entityType);
+    String cubeSchema = cubeSchemaOf(entityType);
 
     if (cubeSchema == null) {
-      log.debug("No Cube.js schema mapping for entityType={}", entityType);
-      return false;
-    }
-
-    if (!SCHEMAS_WITH_PREAGG.contains(cubeSchema)) {
-      log.debug("Schema {} has no pre-aggregations configured", cubeSchema);
+      log.debug("No pre-aggregated Cube.js schema for entityType={}", entityType);
       return false;
     }
 
     return refreshSchema(cubeSchema, tenantId);
   }
 
+  /**
+   * Cube.js schema with pre-aggregations for entity type.
+   * 
+   * @param entityType Entity type (e.g., "User")
+   * @return Schema name, or null if the entity has no pre-aggregations
+   */
+  public static String cubeSchemaOf(String entityType) {
+    String cubeSchema = entityType != null ? ENTITY_TO_CUBE_SCHEMA.get(entityType) : null;
+    return cubeSchema != null && SCHEMAS_WITH_PREAGG.contains(cubeSchema) ? cubeSchema : null;
+  }
+
   /**
    * Trigger pre-aggregation refresh for Cube.js schema.
    * 
@@ -93,24 +103,42 @@ public class CubePreAggService {
    * @return true if refresh job created successfully
    */
   public boolean refreshSchema(String cubeSchema, String tenantId) {
-    log.debug("Triggering pre-aggregation refresh: schema={}, tenant={}", cubeSchema, tenantId);
+    List<String> tenantIds = new ArrayList<>(1);
+    tenantIds.add(tenantId);
+    return refreshSchema(cubeSchema, tenantIds);
+  }
+
+  /**
+   * Trigger pre-aggregation refresh of one Cube.js schema for several tenants
+   * in a single jobs call (one security context per tenant).
+   * 
+   * @param cubeSchema Cube.js schema name (e.g., "Users")
+   * @param tenantIds Tenant IDs for security contexts (null = no tenant)
+   * @return true if refresh jobs were created successfully
+   */
+  public boolean refreshSchema(String cubeSchema, Collection<String> tenantIds) {
+    log.debug("Triggering pre-aggregation refresh: schema={}, tenants={}", cubeSchema, tenantIds);
 
     try {
-      // Build request body
-      Map<String, Object> securityContext = tenantId != null ? Map.of("tenantId", tenantId)
-          : Map.of();
+      // Build request body - one security context per tenant
+      List<Map<String, Object>> contexts = new ArrayList<>(tenantIds.size());
+      for (String tenantId : new LinkedHashSet<>(tenantIds)) {
+        Map<String, Object> securityContext = tenantId != null ? Map.of("tenantId", tenantId)
+            : Map.of();
+        contexts.add(Map.of("securityContext", securityContext));
+      }
 
       Map<String, Object> requestBody = Map.of("action", "post", "selector",
-          Map.of("contexts", new Object[] { Map.of("securityContext", securityContext) },
-              "timezones", new String[] { "UTC" }, "cubes", new String[] { cubeSchema }));
+          Map.of("contexts", contexts, "timezones", new String[] { "UTC" }, "cubes",
+              new String[] { cubeSchema }));
 
       // Call Cube.js API
       var response = cubeRestClient.post().uri("/cubejs-api/v1/pre-aggregations/jobs")
           .contentType(MediaType.APPLICATION_JSON).body(requestBody).retrieve().toEntity(Map.class);
 
       if (response.getStatusCode() == HttpStatus.OK) {
-        log.info("Pre-aggregation refresh job created: schema={}, tenant={}, response={}",
-            cubeSchema, tenantId, response.getBody());
+        log.info("Pre-aggregation refresh job created: schema={}, tenants={}, response={}",
+            cubeSchema, tenantIds, response.getBody());
         return true;
       } else {
         log.warn("Pre-aggregation refresh returned non-OK status: {}", response.getStatusCode());
@@ -1,12 +1,20 @@
 package cz.muriel.core.reporting.preagg;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import cz.muriel.core.kafka.annotation.HighPriorityRetry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -16,13 +24,31 @@ import java.util.concurrent.ConcurrentHashMap;
  * 
  * <p>
  * Listens to entity lifecycle events and triggers pre-aggregation refresh for
- * affected Cube.js schemas. Uses debouncing to avoid excessive refreshes.
+ * affected Cube.js schemas. Mutations are coalesced per (tenant, cube schema):
+ * the first mutation after a quiet period refreshes immediately, mutations
+ * inside the window mark the key pending and get exactly one trailing refresh
+ * when the window closes. Due trailing refreshes of the same schema are sent
+ * as one jobs call for up to {@code batchSize} tenants.
+ * 
+ * <p>
+ * The window adapts to the mutation rate: every window that ends with a
+ * trailing refresh doubles it (up to maxDebounceMs), a leading refresh after a
+ * quiet window halves it back towards debounceMs. Keys idle for longer than
+ * maxDebounceMs are dropped.
+ * 
+ * <p>
+ * Pending refreshes live in memory only - after a restart the next mutation of
+ * the key triggers the refresh again.
  * 
  * <p>
  * Configuration:
  * <ul>
- * <li>app.cube.preagg.debounceMs - Debounce window (default: 30000ms =
- * 30s)</li>
+ * <li>app.cube.preagg.debounceMs - Base window (default: 30000ms = 30s)</li>
+ * <li>app.cube.preagg.maxDebounceMs - Upper bound of the adaptive window
+ * (default: 300000ms = 5min)</li>
+ * <li>app.cube.preagg.batchSize - Max tenants per jobs call (default: 50)</li>
+ * <li>app.cube.preagg.flushIntervalMs - Trailing refresh check interval
+ * (default: 1000ms)</li>
  * <li>app.cube.preagg.enabled - Enable/disable worker (default: true)</li>
  * </ul>
  * 
@@ -35,42 +61,77 @@ import java.util.concurrent.ConcurrentHashMap;
 @Slf4j @Service
 public class PreAggRefreshWorker {
 
+  private record Key(String tenantId, String cubeSchema) {
+  }
+
+  /**
+   * Coalescing state of one (tenant, cube schema), guarded by its monitor
+   */
+  private static final class Window {
+    private final String entityType;
+    private long windowMs;
+    private long lastRefreshAt;
+    private boolean pending;
+    private boolean retired;
+
+    private Window(String entityType, long windowMs) {
+      this.entityType = entityType;
+      this.windowMs = windowMs;
+    }
+
+    private boolean isOpen(long now) {
+      return lastRefreshAt > 0 && now - lastRefreshAt < windowMs;
+    }
+  }
+
   private final CubePreAggService cubePreAggService;
+  private final ObjectMapper objectMapper;
   private final boolean enabled;
   private final long debounceMs;
+  private final long maxDebounceMs;
+  private final int batchSize;
+
+  private final Map<Key, Window> windows = new ConcurrentHashMap<>();
 
-  // Debounce tracking: entityType -> lastRefreshTimestamp
+  // Monitoring: entityType -> lastRefreshTimestamp (any tenant)
   private final Map<String, Long> lastRefreshTimes = new ConcurrentHashMap<>();
 
-  public PreAggRefreshWorker(CubePreAggService cubePreAggService,
+  public PreAggRefreshWorker(CubePreAggService cubePreAggService, ObjectMapper objectMapper,
       @Value("${app.cube.preagg.enabled:true}") boolean enabled,
-      @Value("${app.cube.preagg.debounceMs:30000}") long debounceMs) {
+      @Value("${app.cube.preagg.debounceMs:30000}") long debounceMs,
+      @Value("${app.cube.preagg.maxDebounceMs:300000}") long maxDebounceMs,
+      @Value("${app.cube.preagg.batchSize:50}") int batchSize) {
     this.cubePreAggService = cubePreAggService;
+    this.objectMapper = objectMapper;
     this.enabled = enabled;
     this.debounceMs = debounceMs;
+    this.maxDebounceMs = Math.max(debounceMs, maxDebounceMs);
+    this.batchSize = Math.max(1, batchSize);
 
-    log.info("PreAggRefreshWorker initialized: enabled={}, debounceMs={}", enabled, debounceMs);
+    log.info("PreAggRefreshWorker initialized: enabled={}, debounceMs={}, maxDebounceMs={}, "
+        + "batchSize={}", enabled, debounceMs, this.maxDebounceMs, this.batchSize);
   }
 
   /**
    * Handle entity mutation events.
    * 
    * <p>
-   * Kafka message format:
+   * Kafka message format (JSON published by EntityLifecycleProducer):
    * 
    * <pre>
    * {
-   *   "eventType": "ENTITY_CREATED" | "ENTITY_UPDATED" | "ENTITY_DELETED",
-   *   "entityType": "User",
-   *   "entityId": "123",
+   *   "eventType": "MUTATED",
    *   "tenantId": "tenant-1",
+   *   "entity": "User",
+   *   "id": "123",
+   *   "userId": "user-456",
    *   "timestamp": 1234567890,
-   *   "metadata": { ... }
+   *   "version": 5
    * }
    * </pre>
    */
   @HighPriorityRetry @KafkaListener(topics = "core.entities.lifecycle.mutated", groupId = "core-platform.reporting-preagg", containerFactory = "kafkaListenerContainerFactory")
-  public void handleEntityMutation(Map<String, Object> event, Acknowledgment ack) {
+  public void handleEntityMutation(@Payload String payload, Acknowledgment ack) {
     if (!enabled) {
       log.debug("PreAggRefreshWorker disabled, skipping event");
       ack.acknowledge();
@@ -78,55 +139,153 @@ public class PreAggRefreshWorker {
     }
 
     try {
-      String eventType = (String) event.get("eventType");
-      String entityType = (String) event.get("entityType");
-      String entityId = String.valueOf(event.get("entityId"));
-      String tenantId = (String) event.get("tenantId");
+      JsonNode event = readEvent(payload);
+      if (event == null) {
+        ack.acknowledge();
+        return;
+      }
+      String eventType = event.path("eventType").asText(null);
+      String entityType = event.path("entity").asText(null);
+      String entityId = event.path("id").asText(null);
+      String tenantId = event.path("tenantId").asText(null);
 
       log.debug("Received entity mutation: type={}, entity={}/{}, tenant={}", eventType, entityType,
           entityId, tenantId);
 
-      // Check debounce window
-      if (shouldDebounce(entityType)) {
-        log.debug("Debouncing pre-agg refresh for entityType={} (last refresh was <{}ms ago)",
-            entityType, debounceMs);
+      String cubeSchema = CubePreAggService.cubeSchemaOf(entityType);
+      if (cubeSchema == null) {
+        log.debug("No pre-aggregation refresh needed for entityType={}", entityType);
         ack.acknowledge();
         return;
       }
 
-      // Trigger pre-aggregation refresh for affected cube schema
-      boolean refreshed = cubePreAggService.refreshForEntityType(entityType, tenantId);
+      Key key = new Key(tenantId, cubeSchema);
+      if (!openWindow(key, entityType, System.currentTimeMillis())) {
+        log.debug("Coalescing pre-agg refresh for {}/{} into trailing refresh", tenantId,
+            cubeSchema);
+        ack.acknowledge();
+        return;
+      }
 
-      if (refreshed) {
+      // Leading refresh - first mutation after a quiet window
+      if (cubePreAggService.refreshForEntityType(entityType, tenantId)) {
         lastRefreshTimes.put(entityType, System.currentTimeMillis());
         log.info("Pre-aggregation refresh triggered: entityType={}, tenant={}", entityType,
             tenantId);
       } else {
-        log.debug("No pre-aggregation refresh needed for entityType={}", entityType);
+        markPending(key);
+        log.warn("Pre-aggregation refresh failed for {}/{}, retrying as trailing refresh",
+            tenantId, cubeSchema);
       }
 
       ack.acknowledge();
 
     } catch (Exception e) {
-      log.error("Failed to process entity mutation event: {}", event, e);
+      log.error("Failed to process entity mutation event: {}", payload, e);
       throw e; // Trigger retry via @HighPriorityRetry
     }
   }
 
   /**
-   * Check if entity type should be debounced.
+   * Parses the event JSON - an unreadable payload would fail every retry, so it
+   * is logged and skipped.
+   */
+  private JsonNode readEvent(String payload) {
+    try {
+      return objectMapper.readTree(payload);
+    } catch (JsonProcessingException e) {
+      log.warn("Skipping unreadable entity mutation event: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Sends trailing refreshes whose window has closed, batched per schema.
+   */
+  @Scheduled(fixedDelayString = "${app.cube.preagg.flushIntervalMs:1000}")
+  public void flushPending() {
+    if (!enabled || windows.isEmpty()) {
+      return;
+    }
+
+    long now = System.currentTimeMillis();
+    Map<String, List<Key>> dueBySchema = new HashMap<>();
+    Map<Key, String> entityTypes = new HashMap<>();
+
+    for (Map.Entry<Key, Window> entry : windows.entrySet()) {
+      Key key = entry.getKey();
+      Window window = entry.getValue();
+      synchronized (window) {
+        if (window.isOpen(now)) {
+          continue;
+        }
+        if (!window.pending) {
+          if (now - window.lastRefreshAt >= window.windowMs + maxDebounceMs) {
+            // Idle key - the next mutation starts with the base window
+            window.retired = true;
+            windows.remove(key, window);
+          }
+          continue;
+        }
+        window.pending = false;
+        window.lastRefreshAt = now;
+        window.windowMs = Math.min(window.windowMs * 2, maxDebounceMs);
+        dueBySchema.computeIfAbsent(key.cubeSchema(), k -> new ArrayList<>()).add(key);
+        entityTypes.put(key, window.entityType);
+      }
+    }
+
+    dueBySchema.forEach((cubeSchema, keys) -> {
+      for (int from = 0; from < keys.size(); from += batchSize) {
+        List<Key> batch = keys.subList(from, Math.min(from + batchSize, keys.size()));
+        List<String> tenantIds = batch.stream().map(Key::tenantId).toList();
+        if (cubePreAggService.refreshSchema(cubeSchema, tenantIds)) {
+          batch.forEach(key -> lastRefreshTimes.put(entityTypes.get(key), now));
+          log.info("Trailing pre-aggregation refresh: schema={}, tenants={}", cubeSchema,
+              tenantIds.size());
+        } else {
+          batch.forEach(this::markPending);
+        }
+      }
+    });
+  }
+
+  /**
+   * Records a mutation of the key.
    * 
-   * @param entityType Entity type (e.g., "User", "Tenant")
-   * @return true if last refresh was within debounce window
+   * @return true if the caller should refresh now (leading edge), false if the
+   * mutation was coalesced into the pending trailing refresh
    */
-  private boolean shouldDebounce(String entityType) {
-    Long lastRefresh = lastRefreshTimes.get(entityType);
-    if (lastRefresh == null) {
-      return false;
+  private boolean openWindow(Key key, String entityType, long now) {
+    while (true) {
+      Window window = windows.computeIfAbsent(key, k -> new Window(entityType, debounceMs));
+      synchronized (window) {
+        if (window.retired) {
+          continue;
+        }
+        if (window.isOpen(now) || window.pending) {
+          window.pending = true;
+          return false;
+        }
+        if (window.lastRefreshAt > 0) {
+          // Previous window stayed quiet - shrink towards the base window
+          window.windowMs = Math.max(debounceMs, window.windowMs / 2);
+        }
+        window.lastRefreshAt = now;
+        return true;
+      }
     }
+  }
 
-    long timeSinceLastRefresh = System.currentTimeMillis() - lastRefresh;
-    return timeSinceLastRefresh < debounceMs;
+  private void markPending(Key key) {
+    Window window = windows.get(key);
+    if (window != null) {
+      synchronized (window) {
+        if (!window.retired) {
+          window.pending = true;
+        }
+      }
+    }
   }
 
   /**
@@ -147,10 +306,27 @@ public class PreAggRefreshWorker {
     return Map.copyOf(lastRefreshTimes);
   }
 
+  /**
+   * Number of (tenant, schema) keys waiting for a trailing refresh.
+   */
+  public long getPendingCount() {
+    return windows.values().stream().filter(window -> {
+      synchronized (window) {
+        return window.pending;
+      }
+    }).count();
+  }
+
   /**
    * Clear debounce cache (for testing/manual override).
    */
   public void clearDebounceCache() {
+    windows.values().forEach(window -> {
+      synchronized (window) {
+        window.retired = true;
+      }
+    });
+    windows.clear();
     lastRefreshTimes.clear();
     log.info("Debounce cache cleared");
   }
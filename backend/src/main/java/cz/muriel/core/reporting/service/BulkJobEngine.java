@@ -0,0 +1,535 @@
+package cz.muriel.core.reporting.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.muriel.core.reporting.support.CacheInvalidationService;
+import lombok.extern.slf4j.Slf4j;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Durable engine for bulk update jobs.
+ *
+ * Jobs and their row ids are stored in bulk_job / bulk_job_item, so every
+ * instance can report status and cancel a job. Jobs run on a dedicated pool of
+ * {@code reporting.bulk.queue-concurrency} threads. A thread claims the oldest
+ * PENDING job, or a RUNNING job whose lease expired (SKIP LOCKED).
+ *
+ * Each chunk commits the row UPDATE together with the job cursor and lease
+ * renewal. A job resumed after a restart continues at the first unprocessed
+ * row. The cursor update is fenced by owner and status, so a cancelled job or
+ * a job taken over by another instance rolls its in-flight chunk back. The row
+ * ids of a job are deleted once it completes, fails or is cancelled.
+ *
+ * Status and cancel are scoped to the tenant of the job.
+ *
+ * Chunk size adapts to statement latency. It doubles while a chunk takes less
+ * than half of {@code reporting.bulk.target-chunk-ms}, and shrinks
+ * proportionally when a chunk takes longer than the target.
+ */
+@Slf4j @Service
+public class BulkJobEngine {
+
+  private static final String COMPLETED = "COMPLETED";
+  private static final String FAILED = "FAILED";
+
+  private static final int INITIAL_CHUNK_SIZE = 100;
+  private static final int MAX_STORED_ERRORS = 100;
+  private static final TypeReference<Map<String, Object>> UPDATES_TYPE = new TypeReference<>() {
+  };
+  private static final TypeReference<List<String>> ERRORS_TYPE = new TypeReference<>() {
+  };
+
+  private static final String INSERT_JOB_SQL = """
+      INSERT INTO bulk_job (id, tenant_id, entity, table_name, updates, status, total_rows,
+                            chunk_size, created_by)
+      VALUES (?, ?, ?, ?, ?::jsonb, 'PENDING', ?, ?, ?)
+      """;
+
+  private static final String INSERT_ITEM_SQL = """
+      INSERT INTO bulk_job_item (job_id, seq, entity_id) VALUES (?, ?, ?)
+      """;
+
+  private static final String CLAIM_SQL = """
+      UPDATE bulk_job
+         SET status = 'RUNNING', owner = ?, lease_until = now() + make_interval(secs => ?),
+             started_at = COALESCE(started_at, now())
+       WHERE id = (SELECT id FROM bulk_job
+                    WHERE status = 'PENDING'
+                       OR (status = 'RUNNING' AND lease_until < now())
+                    ORDER BY created_at
+                    LIMIT 1
+                    FOR UPDATE SKIP LOCKED)
+      RETURNING id, tenant_id, entity, table_name, updates::text AS updates, next_seq,
+                chunk_size, created_by
+      """;
+
+  private static final String NEXT_ITEMS_SQL = """
+      SELECT entity_id FROM bulk_job_item
+       WHERE job_id = ? AND seq >= ?
+       ORDER BY seq
+       LIMIT ?
+      """;
+
+  private static final String ADVANCE_SQL = """
+      UPDATE bulk_job
+         SET next_seq = ?, success_count = success_count + ?, error_count = error_count + ?,
+             errors = CASE WHEN ?::text IS NOT NULL AND jsonb_array_length(errors) < ?
+                           THEN errors || to_jsonb(?::text) ELSE errors END,
+             chunk_size = ?, lease_until = now() + make_interval(secs => ?)
+       WHERE id = ? AND owner = ? AND status = 'RUNNING'
+      """;
+
+  private static final String FINISH_SQL = """
+      UPDATE bulk_job
+         SET status = ?, message = ?, completed_at = now(), owner = NULL, lease_until = NULL,
+             errors = CASE WHEN ?::text IS NOT NULL AND jsonb_array_length(errors) < ?
+                           THEN errors || to_jsonb(?::text) ELSE errors END
+       WHERE id = ? AND owner = ? AND status = 'RUNNING'
+      RETURNING success_count
+      """;
+
+  private static final String CANCEL_SQL = """
+      UPDATE bulk_job
+         SET status = 'CANCELLED', message = 'Job cancelled by user', completed_at = now(),
+             owner = NULL, lease_until = NULL
+       WHERE id = ? AND tenant_id = ? AND status IN ('PENDING', 'RUNNING')
+      RETURNING entity, success_count
+      """;
+
+  private static final String DELETE_ITEMS_SQL = """
+      DELETE FROM bulk_job_item WHERE job_id = ?
+      """;
+
+  private static final String FIND_SQL = """
+      SELECT id, entity, status, total_rows, next_seq, success_count, error_count,
+             errors::text AS errors, message
+        FROM bulk_job WHERE id = ? AND tenant_id = ?
+      """;
+
+  /**
+   * Job status snapshot (processedRows = rows the cursor has passed)
+   */
+  public record JobState(UUID jobId, String entity, String status, int totalRows,
+      int processedRows, int successCount, int errorCount, List<String> errors, String message) {
+  }
+
+  private record ClaimedJob(UUID jobId, UUID tenantId, String entity, String tableName,
+      Map<String, Object> updates, int nextSeq, int chunkSize, String createdBy) {
+  }
+
+  private record CancelledJob(String entity, int successCount) {
+  }
+
+  /**
+   * The job was cancelled or taken over - the running chunk must roll back
+   */
+  private static final class JobReleasedException extends RuntimeException {
+    private JobReleasedException() {
+      super(null, null, false, false);
+    }
+  }
+
+  private final DSLContext dsl;
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final CacheInvalidationService cacheInvalidationService;
+  private final ObjectMapper objectMapper;
+
+  private final String instanceId = "bulk-" + UUID.randomUUID().toString().substring(0, 8);
+  private final int minChunkSize;
+  private final int maxChunkSize;
+  private final long targetChunkMs;
+  private final int leaseSeconds;
+  private final int statementTimeoutSeconds;
+  private final ExecutorService executor;
+  private final Semaphore slots;
+  private volatile boolean running = true;
+
+  public BulkJobEngine(DSLContext dsl, JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      CacheInvalidationService cacheInvalidationService, ObjectMapper objectMapper,
+      @Value("${reporting.bulk.queue-concurrency:2}") int concurrency,
+      @Value("${reporting.bulk.chunk-size:1000}") int maxChunkSize,
+      @Value("${reporting.bulk.min-chunk-size:10}") int minChunkSize,
+      @Value("${reporting.bulk.target-chunk-ms:250}") long targetChunkMs,
+      @Value("${reporting.bulk.lease-seconds:60}") int leaseSeconds,
+      @Value("${reporting.bulk.timeout-seconds:300}") int statementTimeoutSeconds) {
+    this.dsl = dsl;
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.cacheInvalidationService = cacheInvalidationService;
+    this.objectMapper = objectMapper;
+    this.maxChunkSize = Math.max(1, maxChunkSize);
+    this.minChunkSize = Math.max(1, Math.min(minChunkSize, this.maxChunkSize));
+    this.targetChunkMs = Math.max(1, targetChunkMs);
+    this.leaseSeconds = Math.max(1, leaseSeconds);
+    // A chunk statement must not outlive the lease, or another instance takes over
+    this.statementTimeoutSeconds = Math.max(1,
+        Math.min(statementTimeoutSeconds, this.leaseSeconds / 2));
+
+    int threads = Math.max(1, concurrency);
+    AtomicInteger threadCounter = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, instanceId + "-" + threadCounter.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.slots = new Semaphore(threads);
+  }
+
+  /**
+   * Persist a new job with its row ids. Runs in the caller's transaction, if any.
+   *
+   * @return Job ID
+   */
+  public UUID submit(UUID tenantId, String entity, String tableName, List<UUID> ids,
+      Map<String, Object> updates, String createdBy) {
+    UUID jobId = UUID.randomUUID();
+    String updatesJson;
+    try {
+      updatesJson = objectMapper.writeValueAsString(updates);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Updates are not serializable: " + e.getMessage(), e);
+    }
+
+    transactionTemplate.executeWithoutResult(status -> {
+      jdbcTemplate.update(INSERT_JOB_SQL, jobId, tenantId, entity, tableName, updatesJson,
+          ids.size(), Math.min(INITIAL_CHUNK_SIZE, maxChunkSize), createdBy);
+
+      List<Object[]> items = new ArrayList<>(ids.size());
+      for (int seq = 0; seq < ids.size(); seq++) {
+        items.add(new Object[] { jobId, seq, ids.get(seq) });
+      }
+      jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, items);
+    });
+
+    log.info("Bulk job {} queued: entity={}, rows={}", jobId, entity, ids.size());
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      // Other connections see the job only after the caller commits
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          dispatch();
+        }
+      });
+    } else {
+      dispatch();
+    }
+    return jobId;
+  }
+
+  /**
+   * @return Job of the tenant, null if it does not exist or belongs to another
+   *         tenant
+   */
+  public JobState find(UUID jobId, UUID tenantId) {
+    List<JobState> states = jdbcTemplate.query(FIND_SQL,
+        (rs, rowNum) -> new JobState(rs.getObject("id", UUID.class), rs.getString("entity"),
+            rs.getString("status"), rs.getInt("total_rows"), rs.getInt("next_seq"),
+            rs.getInt("success_count"), rs.getInt("error_count"),
+            readErrors(rs.getString("errors")), rs.getString("message")),
+        jobId, tenantId);
+    return states.isEmpty() ? null : states.get(0);
+  }
+
+  /**
+   * Cancel a pending or running job of the tenant on any instance - its owner
+   * notices on the next chunk commit.
+   *
+   * @return true if the job was still active
+   */
+  public boolean cancel(UUID jobId, UUID tenantId) {
+    // Chunks committed before the cancel stay applied
+    CancelledJob cancelled = transactionTemplate.execute(status -> {
+      List<CancelledJob> jobs = jdbcTemplate.query(CANCEL_SQL,
+          (rs, rowNum) -> new CancelledJob(rs.getString("entity"), rs.getInt("success_count")),
+          jobId, tenantId);
+      if (jobs.isEmpty()) {
+        return null;
+      }
+      jdbcTemplate.update(DELETE_ITEMS_SQL, jobId);
+      return jobs.get(0);
+    });
+    if (cancelled == null) {
+      return false;
+    }
+    invalidateReports(tenantId, cancelled.entity(), cancelled.successCount());
+    log.info("Bulk job {} cancelled", jobId);
+    return true;
+  }
+
+  /**
+   * Picks up queued jobs and jobs of instances that stopped renewing the lease
+   */
+  @Scheduled(fixedDelayString = "${reporting.bulk.poll-interval-ms:5000}")
+  public void poll() {
+    dispatch();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    running = false;
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+        // Unfinished jobs are resumed from their cursor once the lease expires
+        log.warn("Bulk jobs of {} did not finish in time", instanceId);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Start a claim on every free slot - a slot that finds no job is released
+   */
+  private void dispatch() {
+    while (running && slots.tryAcquire()) {
+      try {
+        executor.execute(this::claimAndRun);
+      } catch (RejectedExecutionException e) {
+        slots.release();
+        return; // shutting down
+      }
+    }
+  }
+
+  private void claimAndRun() {
+    ClaimedJob job = null;
+    try {
+      job = claim();
+      if (job != null) {
+        run(job);
+      }
+    } catch (Exception e) {
+      log.error("Bulk job worker {} failed: {}", instanceId, e.getMessage(), e);
+    } finally {
+      slots.release();
+    }
+    if (job != null) {
+      dispatch();
+    }
+  }
+
+  private ClaimedJob claim() {
+    List<ClaimedJob> claimed = jdbcTemplate.query(CLAIM_SQL,
+        (rs, rowNum) -> new ClaimedJob(rs.getObject("id", UUID.class),
+            rs.getObject("tenant_id", UUID.class), rs.getString("entity"),
+            rs.getString("table_name"), readUpdates(rs.getString("updates")),
+            rs.getInt("next_seq"), rs.getInt("chunk_size"), rs.getString("created_by")),
+        instanceId, leaseSeconds);
+    return claimed.isEmpty() ? null : claimed.get(0);
+  }
+
+  private void run(ClaimedJob job) {
+    log.info("Bulk job {} {} at row {} on {}", job.jobId(), job.nextSeq() > 0 ? "resumed"
+        : "started", job.nextSeq(), instanceId);
+
+    Table<?> table = DSL.table(DSL.name(job.tableName()));
+    int cursor = job.nextSeq();
+    int chunkSize = Math.max(minChunkSize, Math.min(job.chunkSize(), maxChunkSize));
+
+    try {
+      while (running) {
+        int from = cursor;
+        int size = chunkSize;
+        ChunkResult result;
+        try {
+          result = transactionTemplate
+              .execute(status -> processChunk(job, table, from, size));
+        } catch (JobReleasedException e) {
+          log.info("Bulk job {} was cancelled or taken over, stopping", job.jobId());
+          return;
+        } catch (Exception e) {
+          // The chunk rolled back - record the error and move past it
+          log.error("Bulk job {}: chunk at row {} failed: {}", job.jobId(), from,
+              e.getMessage());
+          int skipped = skipChunk(job, from, size, e.getMessage());
+          if (skipped < 0) {
+            return;
+          }
+          cursor = from + skipped;
+          chunkSize = Math.max(minChunkSize, size / 2);
+          if (skipped == 0) {
+            break;
+          }
+          continue;
+        }
+
+        if (result.rows() == 0) {
+          break;
+        }
+        cursor = from + result.rows();
+        chunkSize = result.nextChunkSize();
+        log.debug("Bulk job {}: {} rows in {} ms, next chunk {}", job.jobId(), result.rows(),
+            result.elapsedMs(), chunkSize);
+      }
+
+      if (running) {
+        complete(job);
+      }
+    } catch (Exception e) {
+      log.error("Bulk job {} failed: {}", job.jobId(), e.getMessage(), e);
+      finish(job, FAILED, "Bulk update failed: " + e.getMessage(), e.getMessage());
+    }
+  }
+
+  private record ChunkResult(int rows, long elapsedMs, int nextChunkSize) {
+  }
+
+  private ChunkResult processChunk(ClaimedJob job, Table<?> table, int from, int size) {
+    List<UUID> ids = jdbcTemplate.queryForList(NEXT_ITEMS_SQL, UUID.class, job.jobId(), from,
+        size);
+    if (ids.isEmpty()) {
+      return new ChunkResult(0, 0, size);
+    }
+
+    Map<String, Object> updates = new HashMap<>(job.updates());
+    updates.put("updated_at", OffsetDateTime.now());
+    updates.put("updated_by", job.createdBy());
+
+    long startedAt = System.nanoTime();
+    int updated = dsl.update(table).set(buildFieldMap(updates)).where(DSL.field("id").in(ids))
+        .and(DSL.field("tenant_id").eq(job.tenantId())).queryTimeout(statementTimeoutSeconds)
+        .execute();
+    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+    // A resumed job continues with the adapted size, not the one just used
+    int next = nextChunkSize(size, elapsedMs, minChunkSize, maxChunkSize, targetChunkMs);
+    int advanced = jdbcTemplate.update(ADVANCE_SQL, from + ids.size(), updated, 0, null,
+        MAX_STORED_ERRORS, null, next, leaseSeconds, job.jobId(), instanceId);
+    if (advanced == 0) {
+      throw new JobReleasedException();
+    }
+    return new ChunkResult(ids.size(), elapsedMs, next);
+  }
+
+  /**
+   * Count a failed chunk as errors and move the cursor past it
+   *
+   * @return Rows skipped, -1 if the job was released meanwhile
+   */
+  private int skipChunk(ClaimedJob job, int from, int size, String error) {
+    Integer rows = jdbcTemplate.queryForObject(
+        "SELECT count(*) FROM (SELECT 1 FROM bulk_job_item WHERE job_id = ? AND seq >= ? "
+            + "ORDER BY seq LIMIT ?) chunk",
+        Integer.class, job.jobId(), from, size);
+    int skipped = rows != null ? rows : 0;
+    String message = "Rows " + (from + 1) + "-" + (from + skipped) + ": " + error;
+    int advanced = jdbcTemplate.update(ADVANCE_SQL, from + skipped, 0, skipped, message,
+        MAX_STORED_ERRORS, message, Math.max(minChunkSize, size / 2), leaseSeconds,
+        job.jobId(), instanceId);
+    return advanced == 0 ? -1 : skipped;
+  }
+
+  private void complete(ClaimedJob job) {
+    JobState state = find(job.jobId(), job.tenantId());
+    if (state == null) {
+      return;
+    }
+    String message = "Bulk update completed: " + state.successCount() + " rows updated, "
+        + state.errorCount() + " errors";
+    if (!finish(job, COMPLETED, message, null)) {
+      return;
+    }
+    log.info("Bulk job {} completed: {} success, {} errors", job.jobId(), state.successCount(),
+        state.errorCount());
+  }
+
+  /**
+   * Final status of an owned job - its row ids are not needed any more
+   *
+   * @return false if the job was released meanwhile
+   */
+  private boolean finish(ClaimedJob job, String status, String message, String error) {
+    Integer successCount = transactionTemplate.execute(tx -> {
+      List<Integer> finished = jdbcTemplate.queryForList(FINISH_SQL, Integer.class, status,
+          message, error, MAX_STORED_ERRORS, error, job.jobId(), instanceId);
+      if (finished.isEmpty()) {
+        return null;
+      }
+      jdbcTemplate.update(DELETE_ITEMS_SQL, job.jobId());
+      return finished.get(0);
+    });
+    if (successCount == null) {
+      return false;
+    }
+    invalidateReports(job.tenantId(), job.entity(), successCount);
+    return true;
+  }
+
+  /**
+   * Rows updated by committed chunks change reports whatever the final status
+   * (completed, failed or cancelled)
+   */
+  private void invalidateReports(UUID tenantId, String entity, int successCount) {
+    if (successCount > 0) {
+      cacheInvalidationService.invalidateByEntity(tenantId.toString(), entity);
+    }
+  }
+
+  /**
+   * Next chunk size from the latency of the last chunk
+   */
+  static int nextChunkSize(int current, long elapsedMs, int min, int max, long targetMs) {
+    long next;
+    if (elapsedMs * 2 < targetMs) {
+      next = (long) current * 2;
+    } else if (elapsedMs > targetMs) {
+      next = current * targetMs / elapsedMs;
+    } else {
+      next = current;
+    }
+    return (int) Math.max(min, Math.min(max, next));
+  }
+
+  private Map<Field<?>, Object> buildFieldMap(Map<String, Object> updates) {
+    Map<Field<?>, Object> fieldMap = new HashMap<>();
+    for (Map.Entry<String, Object> entry : updates.entrySet()) {
+      fieldMap.put(DSL.field(DSL.name(entry.getKey())), entry.getValue());
+    }
+    return fieldMap;
+  }
+
+  private Map<String, Object> readUpdates(String json) {
+    try {
+      return objectMapper.readValue(json, UPDATES_TYPE);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Corrupted bulk job updates: " + e.getMessage(), e);
+    }
+  }
+
+  private List<String> readErrors(String json) {
+    try {
+      return json != null ? objectMapper.readValue(json, ERRORS_TYPE) : List.of();
+    } catch (JsonProcessingException e) {
+      return List.of(json);
+    }
+  }
+}
@@ -1,6 +1,13 @@
 package cz.muriel.core.reporting.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.security.MessageDigest;
@@ -8,20 +15,57 @@ import java.security.NoSuchAlgorithmException;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 /**
  * Deduplicates identical concurrent queries using Single-Flight pattern.
- * 
+ *
  * When multiple requests for the same query arrive simultaneously, only ONE
  * query is executed against Cube.js. Other requests wait for the result and
  * share the same response.
- * 
+ *
  * This prevents thundering herd problems and reduces load on Cube.js.
+ *
+ * The first caller (leader) runs the query on its own thread; followers wait at
+ * most {@code reporting.singleflight.max-wait-ms} and then run the query
+ * themselves instead of hanging on a stuck leader. Metrics:
+ * reporting.singleflight.leaders / coalesced / timeouts / inflight.
  */
 @Component @Slf4j
 public class QueryDeduplicator {
 
-  private final Map<String, CompletableFuture<Map<String, Object>>> inflightQueries = new ConcurrentHashMap<>();
+  /**
+   * Canonical JSON for fingerprints - map entries sorted by key
+   */
+  private static final ObjectMapper CANONICAL_MAPPER = new ObjectMapper()
+      .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+  private final Map<String, CompletableFuture<Object>> inflightQueries = new ConcurrentHashMap<>();
+  private final long maxWaitMs;
+  private final Counter leaders;
+  private final Counter coalesced;
+  private final Counter timeouts;
+
+  public QueryDeduplicator(MeterRegistry meterRegistry,
+      @Value("${reporting.singleflight.max-wait-ms:30000}") long maxWaitMs) {
+    this.maxWaitMs = maxWaitMs;
+    this.leaders = Counter.builder("reporting.singleflight.leaders")
+        .description("Queries executed by a single-flight leader").tag("module", "reporting")
+        .register(meterRegistry);
+    this.coalesced = Counter.builder("reporting.singleflight.coalesced")
+        .description("Requests served by an identical in-flight query")
+        .tag("module", "reporting").register(meterRegistry);
+    this.timeouts = Counter.builder("reporting.singleflight.timeouts")
+        .description("Followers that stopped waiting and executed the query themselves")
+        .tag("module", "reporting").register(meterRegistry);
+    Gauge.builder("reporting.singleflight.inflight", inflightQueries, Map::size)
+        .description("Distinct queries currently in flight").tag("module", "reporting")
+        .register(meterRegistry);
+  }
 
   /**
    * Executes a query with deduplication. If an identical query is already in
@@ -34,38 +78,75 @@ public class QueryDeduplicator {
    * @return Query result
    */
   public Map<String, Object> executeWithDeduplication(Map<String, Object> query, String tenantId,
-      java.util.function.Supplier<Map<String, Object>> executor) {
-    String fingerprint = computeFingerprint(query, tenantId);
+      Supplier<Map<String, Object>> executor) {
+    return execute(computeFingerprint(query, tenantId), executor);
+  }
 
-    CompletableFuture<Map<String, Object>> future = inflightQueries.computeIfAbsent(fingerprint,
-        key -> {
-          log.debug("Executing new query with fingerprint: {}", fingerprint);
-          return CompletableFuture.supplyAsync(() -> {
-            try {
-              return executor.get();
-            } finally {
-              // Remove from inflight map after completion
-              inflightQueries.remove(fingerprint);
-            }
-          });
-        });
+  /**
+   * Executes a loader once per key among concurrent callers.
+   *
+   * @param key Canonical fingerprint of the work (must include the tenant)
+   * @param loader Work to execute by the leader
+   * @return Result of the leader (or of own execution after a wait timeout)
+   */
+  public <T> T execute(String key, Supplier<T> loader) {
+    return execute(key, loader, UnaryOperator.identity());
+  }
+
+  /**
+   * Executes a loader once per key among concurrent callers, each follower
+   * gets its own copy of a mutable result.
+   *
+   * @param key Canonical fingerprint of the work (must include the tenant)
+   * @param loader Work to execute by the leader
+   * @param share Copy of the leader's result handed to a follower
+   * @return Result of the leader (a copy for followers, or own execution after a
+   *         wait timeout)
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T execute(String key, Supplier<T> loader, UnaryOperator<T> share) {
+    CompletableFuture<Object> own = new CompletableFuture<>();
+    CompletableFuture<Object> inflight = inflightQueries.putIfAbsent(key, own);
+
+    if (inflight == null) {
+      leaders.increment();
+      log.debug("Executing new query with fingerprint: {}", key);
+      try {
+        T result = loader.get();
+        own.complete(result);
+        return result;
+      } catch (RuntimeException | Error e) {
+        own.completeExceptionally(e);
+        throw e;
+      } finally {
+        inflightQueries.remove(key, own);
+      }
+    }
 
+    coalesced.increment();
+    log.debug("Deduplicating query - waiting for in-flight result (fingerprint: {})", key);
     try {
-      if (inflightQueries.containsKey(fingerprint) && future != inflightQueries.get(fingerprint)) {
-        log.info("Deduplicating query - waiting for in-flight result (fingerprint: {})",
-            fingerprint);
+      return share.apply((T) inflight.get(maxWaitMs, TimeUnit.MILLISECONDS));
+    } catch (TimeoutException e) {
+      timeouts.increment();
+      log.warn("In-flight query {} not finished within {} ms, executing directly", key,
+          maxWaitMs);
+      return loader.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
       }
-      return future.join(); // Wait for result
-    } catch (Exception e) {
-      // If execution failed, remove from inflight
-      inflightQueries.remove(fingerprint);
-      throw e;
+      throw new IllegalStateException("In-flight query failed", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for in-flight query", e);
     }
   }
 
   /**
    * Computes SHA-256 fingerprint of query + tenant for deduplication. Identical
-   * queries (same dimensions, filters, tenant) get same fingerprint.
+   * queries (same dimensions, filters, tenant) get same fingerprint regardless
+   * of map ordering.
    *
    * @param query Cube.js query object
    * @param tenantId Tenant ID
@@ -73,10 +154,12 @@ public class QueryDeduplicator {
    */
   private String computeFingerprint(Map<String, Object> query, String tenantId) {
     try {
-      String queryString = query.toString() + ":" + tenantId;
+      String queryString = CANONICAL_MAPPER.writeValueAsString(query) + ":" + tenantId;
       MessageDigest digest = MessageDigest.getInstance("SHA-256");
       byte[] hash = digest.digest(queryString.getBytes(java.nio.charset.StandardCharsets.UTF_8));
       return bytesToHex(hash);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Query is not serializable: " + e.getMessage(), e);
     } catch (NoSuchAlgorithmException e) {
       throw new RuntimeException("SHA-256 algorithm not available", e);
     }
@@ -1,9 +1,12 @@
 package cz.muriel.core.reporting.support;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
@@ -11,48 +14,78 @@ import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service for cache management and invalidation.
+ *
+ * Invalidations are tag-based (see {@link ReportResultCache}) and reach the
+ * near-cache of every node.
  */
 @Slf4j @Service @RequiredArgsConstructor
 public class CacheInvalidationService {
 
-  private final CacheManager cacheManager;
+  private final ReportResultCache resultCache;
   private final ReportingMetrics metrics;
+  private final ObjectMapper objectMapper;
 
   private final AtomicLong invalidationCount = new AtomicLong(0);
 
   /**
-   * Invalidate cache by entity.
+   * Invalidate cache by entity (all tenants).
    */
   public void invalidateByEntity(String entity) {
-    Cache cache = cacheManager.getCache("reportQueryCache");
-    if (cache != null) {
-      // Cannot invalidate by pattern in Spring Cache, would need Redis directly
-      log.info("Cache invalidation requested for entity: {}", entity);
-      invalidationCount.incrementAndGet();
-    }
+    resultCache.invalidate(null, entity);
+    log.info("Cache invalidated for entity: {}", entity);
+    invalidationCount.incrementAndGet();
+  }
+
+  /**
+   * Invalidate cache by entity of one tenant (after a mutation).
+   */
+  public void invalidateByEntity(String tenantId, String entity) {
+    resultCache.invalidate(tenantId, entity);
+    log.debug("Cache invalidated for entity: {} (tenant {})", entity, tenantId);
+    invalidationCount.incrementAndGet();
   }
 
   /**
    * Invalidate cache by tenant.
    */
   public void invalidateByTenant(String tenantId) {
-    Cache cache = cacheManager.getCache("reportQueryCache");
-    if (cache != null) {
-      log.info("Cache invalidation requested for tenant: {}", tenantId);
-      invalidationCount.incrementAndGet();
+    resultCache.invalidate(tenantId, null);
+    log.info("Cache invalidated for tenant: {}", tenantId);
+    invalidationCount.incrementAndGet();
+  }
+
+  /**
+   * Entity mutations from any writer - one node consumes the event, the
+   * invalidation is broadcast to the others. The payload is the JSON of
+   * EntityLifecycleProducer ({@code tenantId}, {@code entity}, {@code id}).
+   */
+  @KafkaListener(topics = "core.entities.lifecycle.mutated", groupId = "core-platform.reporting-cache", containerFactory = "kafkaListenerContainerFactory")
+  public void handleEntityMutation(@Payload String payload, Acknowledgment ack) {
+    try {
+      JsonNode event = objectMapper.readTree(payload);
+      String entity = event.path("entity").asText(null);
+      String tenantId = event.path("tenantId").asText(null);
+      if (entity != null) {
+        if (tenantId != null) {
+          invalidateByEntity(tenantId, entity);
+        } else {
+          invalidateByEntity(entity);
+        }
+      }
+    } catch (Exception e) {
+      // Entries still expire by TTL
+      log.warn("Failed to invalidate report cache for mutation {}: {}", payload, e.getMessage());
     }
+    ack.acknowledge();
   }
 
   /**
    * Invalidate all cached reports.
    */
   public void invalidateAll() {
-    Cache cache = cacheManager.getCache("reportQueryCache");
-    if (cache != null) {
-      cache.clear();
-      log.info("All report cache cleared");
-      invalidationCount.incrementAndGet();
-    }
+    resultCache.invalidateAll();
+    log.info("All report cache cleared");
+    invalidationCount.incrementAndGet();
   }
 
   /**
@@ -2,6 +2,7 @@ package cz.muriel.core.reporting.support;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import cz.muriel.core.reporting.dsl.QueryRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -98,7 +99,9 @@ public class QueryFingerprint {
         fingerprintData.put("orderBy", orderBy);
       }
 
-      String json = objectMapper.writeValueAsString(fingerprintData);
+      // Map-valued filter values must not depend on insertion order
+      String json = objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+          .writeValueAsString(fingerprintData);
       return sha256Hex(json);
 
     } catch (JsonProcessingException e) {
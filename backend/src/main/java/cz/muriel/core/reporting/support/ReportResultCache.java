@@ -0,0 +1,269 @@
+package cz.muriel.core.reporting.support;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import cz.muriel.core.reporting.dsl.QueryResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Two-tier cache of report query results.
+ *
+ * L1 is a per-node Caffeine near-cache (short TTL), L2 the shared
+ * {@code reportQueryCache} of the primary CacheManager (Redis). Every entry is
+ * tagged by tenant, entity and tenant+entity. Redis keeps a set of fingerprints
+ * per tag, so an invalidation evicts exactly the affected L2 entries and is
+ * then broadcast on {@value #INVALIDATION_CHANNEL} to drop them from the L1 of
+ * every node. Without Redis the L2 is node-local and is cleared as a whole.
+ */
+@Slf4j @Component
+public class ReportResultCache {
+
+  public static final String CACHE_NAME = "reportQueryCache";
+  static final String INVALIDATION_CHANNEL = "rpt:invalidate";
+  private static final String ALL = "*";
+
+  private record Entry(QueryResponse response, Set<String> tags) {
+  }
+
+  private final CacheManager cacheManager;
+  private final StringRedisTemplate redisTemplate;
+  private final ObjectProvider<RedisMessageListenerContainer> listenerContainer;
+  private final String tagKeyPrefix;
+  private final Duration tagTtl;
+  private final com.github.benmanes.caffeine.cache.Cache<String, Entry> local;
+  private final Map<String, Set<String>> localTags = new ConcurrentHashMap<>();
+  private final Counter localHits;
+  private final Counter remoteHits;
+  private final Counter invalidations;
+
+  public ReportResultCache(CacheManager cacheManager,
+      ObjectProvider<StringRedisTemplate> redisTemplate,
+      ObjectProvider<RedisMessageListenerContainer> listenerContainer, MeterRegistry meterRegistry,
+      @Value("${app.redis.enabled:false}") boolean redisEnabled,
+      @Value("${reporting.cache.key-prefix:rpt:}") String keyPrefix,
+      @Value("${reporting.default-ttl-seconds:60}") long ttlSeconds,
+      @Value("${reporting.cache.local-ttl-seconds:15}") long localTtlSeconds,
+      @Value("${reporting.cache.local-max-entries:2000}") long localMaxEntries) {
+    this.cacheManager = cacheManager;
+    this.redisTemplate = redisEnabled ? redisTemplate.getIfAvailable() : null;
+    this.listenerContainer = listenerContainer;
+    this.tagKeyPrefix = keyPrefix + "tag:";
+    // Tag sets outlive the entries they point to, stale members are harmless
+    this.tagTtl = Duration.ofSeconds(Math.max(1, ttlSeconds) * 2);
+    this.local = Caffeine.newBuilder().maximumSize(localMaxEntries)
+        .expireAfterWrite(Duration.ofSeconds(Math.min(localTtlSeconds, Math.max(1, ttlSeconds))))
+        .removalListener((String fingerprint, Entry entry, RemovalCause cause) -> {
+          if (fingerprint != null && entry != null && cause != RemovalCause.REPLACED) {
+            untag(fingerprint, entry.tags());
+          }
+        }).recordStats().build();
+
+    CaffeineCacheMetrics.monitor(meterRegistry, local, "report-results-local");
+    this.localHits = Counter.builder("reporting.cache.local.hits")
+        .description("Report results served from the node-local near-cache")
+        .tag("module", "reporting").register(meterRegistry);
+    this.remoteHits = Counter.builder("reporting.cache.remote.hits")
+        .description("Report results served from the shared cache").tag("module", "reporting")
+        .register(meterRegistry);
+    this.invalidations = Counter.builder("reporting.cache.invalidations")
+        .description("Tag invalidations of cached report results").tag("module", "reporting")
+        .register(meterRegistry);
+  }
+
+  @PostConstruct
+  void subscribe() {
+    if (redisTemplate == null) {
+      return;
+    }
+    listenerContainer.ifAvailable(container -> {
+      container.addMessageListener((message, pattern) -> evictLocal(
+          new String(message.getBody(), StandardCharsets.UTF_8)),
+          new ChannelTopic(INVALIDATION_CHANNEL));
+      log.info("Report cache listens for invalidations on {}", INVALIDATION_CHANNEL);
+    });
+  }
+
+  /**
+   * Cached result - the caller gets its own copy flagged as cache hit
+   */
+  public QueryResponse get(String fingerprint, String tenantId, String entity) {
+    Entry entry = local.getIfPresent(fingerprint);
+    if (entry != null) {
+      localHits.increment();
+      return copyOf(entry.response());
+    }
+
+    Cache cache = cacheManager.getCache(CACHE_NAME);
+    if (cache == null) {
+      return null;
+    }
+    QueryResponse response = cache.get(fingerprint, QueryResponse.class);
+    if (response == null) {
+      return null;
+    }
+
+    remoteHits.increment();
+    putLocal(fingerprint, response, tagsOf(tenantId, entity));
+    return copyOf(response);
+  }
+
+  public void put(String fingerprint, String tenantId, String entity, QueryResponse response) {
+    Set<String> tags = tagsOf(tenantId, entity);
+    Cache cache = cacheManager.getCache(CACHE_NAME);
+    if (cache != null) {
+      cache.put(fingerprint, response);
+      if (redisTemplate != null) {
+        try {
+          indexRemote(fingerprint, tags);
+        } catch (Exception e) {
+          // Without the index the entry can only expire by TTL
+          log.warn("Failed to tag cached report {}: {}", fingerprint, e.getMessage());
+        }
+      }
+    }
+    putLocal(fingerprint, response, tags);
+  }
+
+  /**
+   * Evicts results of a tenant, an entity or a tenant's entity (null = any)
+   */
+  public void invalidate(String tenantId, String entity) {
+    if (tenantId == null && entity == null) {
+      invalidateAll();
+      return;
+    }
+
+    String tag = tagOf(tenantId, entity);
+    invalidations.increment();
+    Cache cache = cacheManager.getCache(CACHE_NAME);
+
+    if (redisTemplate == null) {
+      if (cache != null) {
+        cache.clear();
+      }
+      evictLocal(tag);
+      return;
+    }
+
+    String tagKey = tagKeyPrefix + tag;
+    Set<String> fingerprints = redisTemplate.opsForSet().members(tagKey);
+    if (cache != null && fingerprints != null) {
+      fingerprints.forEach(cache::evict);
+    }
+    redisTemplate.delete(tagKey);
+    evictLocal(tag);
+    redisTemplate.convertAndSend(INVALIDATION_CHANNEL, tag);
+    log.debug("Invalidated {} cached reports for tag {}",
+        fingerprints != null ? fingerprints.size() : 0, tag);
+  }
+
+  public void invalidateAll() {
+    invalidations.increment();
+    Cache cache = cacheManager.getCache(CACHE_NAME);
+    if (cache != null) {
+      cache.clear();
+    }
+    evictLocal(ALL);
+    if (redisTemplate != null) {
+      redisTemplate.convertAndSend(INVALIDATION_CHANNEL, ALL);
+    }
+  }
+
+  private void putLocal(String fingerprint, QueryResponse response, Set<String> tags) {
+    for (String tag : tags) {
+      localTags.computeIfAbsent(tag, k -> ConcurrentHashMap.newKeySet()).add(fingerprint);
+    }
+    local.put(fingerprint, new Entry(response, tags));
+  }
+
+  private void evictLocal(String tag) {
+    if (ALL.equals(tag)) {
+      local.invalidateAll();
+      return;
+    }
+    Set<String> fingerprints = localTags.remove(tag);
+    if (fingerprints != null) {
+      local.invalidateAll(new ArrayList<>(fingerprints));
+    }
+  }
+
+  private void untag(String fingerprint, Set<String> tags) {
+    if (local.asMap().containsKey(fingerprint)) {
+      return; // re-cached meanwhile, the index is still valid
+    }
+    for (String tag : tags) {
+      localTags.computeIfPresent(tag, (key, fingerprints) -> {
+        fingerprints.remove(fingerprint);
+        return fingerprints.isEmpty() ? null : fingerprints;
+      });
+    }
+  }
+
+  private void indexRemote(String fingerprint, Set<String> tags) {
+    byte[] member = fingerprint.getBytes(StandardCharsets.UTF_8);
+    long ttl = tagTtl.toSeconds();
+    redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+      for (String tag : tags) {
+        byte[] key = (tagKeyPrefix + tag).getBytes(StandardCharsets.UTF_8);
+        connection.setCommands().sAdd(key, member);
+        connection.keyCommands().expire(key, ttl);
+      }
+      return null;
+    });
+  }
+
+  static Set<String> tagsOf(String tenantId, String entity) {
+    List<String> tags = new ArrayList<>(3);
+    if (tenantId != null) {
+      tags.add(tagOf(tenantId, null));
+    }
+    if (entity != null) {
+      tags.add(tagOf(null, entity));
+    }
+    if (tenantId != null && entity != null) {
+      tags.add(tagOf(tenantId, entity));
+    }
+    return Set.copyOf(tags);
+  }
+
+  /**
+   * Tag name - entity names are case-insensitive (Kafka events use "User",
+   * reports "user")
+   */
+  static String tagOf(String tenantId, String entity) {
+    String normalized = entity != null ? entity.toLowerCase(Locale.ROOT) : null;
+    if (tenantId == null) {
+      return "e:" + normalized;
+    }
+    return normalized == null ? "t:" + tenantId : "te:" + tenantId + ":" + normalized;
+  }
+
+  private static QueryResponse copyOf(QueryResponse response) {
+    return QueryResponse.builder().data(response.getData()).totalRows(response.getTotalRows())
+        .returnedRows(response.getReturnedRows()).fingerprint(response.getFingerprint())
+        .cacheHit(true).executionTimeMs(response.getExecutionTimeMs())
+        .metadata(response.getMetadata()).build();
+  }
+}
@@ -0,0 +1,144 @@
+package cz.muriel.core.reporting.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes report rows straight to an output stream as NDJSON or CSV.
+ *
+ * Output goes through a fixed-size buffer, so memory per request does not grow
+ * with the number of rows. I/O errors (e.g. client disconnect) surface as
+ * {@link UncheckedIOException} to abort the upstream Cube.js read.
+ */
+public abstract class ReportRowWriter {
+
+  public enum Format {
+    NDJSON("application/x-ndjson"), CSV("text/csv");
+
+    private final String contentType;
+
+    Format(String contentType) {
+      this.contentType = contentType;
+    }
+
+    public String getContentType() {
+      return contentType;
+    }
+
+    public static Format parse(String value) {
+      try {
+        return Format.valueOf(value.toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Unsupported stream format: " + value);
+      }
+    }
+  }
+
+  protected final Writer out;
+
+  protected ReportRowWriter(OutputStream out, int bufferBytes) {
+    this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8),
+        Math.max(1024, bufferBytes));
+  }
+
+  public static ReportRowWriter of(Format format, OutputStream out, ObjectMapper objectMapper,
+      int bufferBytes) {
+    return format == Format.CSV ? new Csv(out, bufferBytes)
+        : new Ndjson(out, objectMapper, bufferBytes);
+  }
+
+  public void write(Map<String, Object> row) {
+    try {
+      writeRow(row);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Flush buffered output (the stream itself is closed by the container)
+   */
+  public void finish() {
+    try {
+      out.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  protected abstract void writeRow(Map<String, Object> row) throws IOException;
+
+  private static final class Ndjson extends ReportRowWriter {
+
+    private final ObjectWriter rowWriter;
+
+    private Ndjson(OutputStream out, ObjectMapper objectMapper, int bufferBytes) {
+      super(out, bufferBytes);
+      this.rowWriter = objectMapper.writer();
+    }
+
+    @Override
+    protected void writeRow(Map<String, Object> row) throws IOException {
+      out.write(rowWriter.writeValueAsString(row));
+      out.write('\n');
+    }
+  }
+
+  /**
+   * CSV with a header taken from the first row (RFC 4180 quoting)
+   */
+  private static final class Csv extends ReportRowWriter {
+
+    private List<String> columns;
+
+    private Csv(OutputStream out, int bufferBytes) {
+      super(out, bufferBytes);
+    }
+
+    @Override
+    protected void writeRow(Map<String, Object> row) throws IOException {
+      if (columns == null) {
+        columns = new ArrayList<>(row.keySet());
+        writeLine(new ArrayList<>(columns));
+      }
+      List<Object> values = new ArrayList<>(columns.size());
+      for (String column : columns) {
+        values.add(row.get(column));
+      }
+      writeLine(values);
+    }
+
+    private void writeLine(List<?> values) throws IOException {
+      for (int i = 0; i < values.size(); i++) {
+        if (i > 0) {
+          out.write(',');
+        }
+        Object value = values.get(i);
+        if (value != null) {
+          out.write(escape(String.valueOf(value)));
+        }
+      }
+      out.write("\r\n");
+    }
+
+    static String escape(String value) {
+      if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+          && value.indexOf('\r') < 0) {
+        return value;
+      }
+      return '"' + value.replace("\"", "\"\"") + '"';
+    }
+  }
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -30,6 +31,11 @@ public interface RoleEntityRepository extends JpaRepository<RoleEntity, UUID> {
      */
     Optional<RoleEntity> findByNameAndTenantId(String name, UUID tenantId);
 
+    /**
+     * Find roles by names and tenant (one query for a whole composite sync)
+     */
+    List<RoleEntity> findByNameInAndTenantId(Collection<String> names, UUID tenantId);
+
     /**
      * Find all roles for a tenant
      */
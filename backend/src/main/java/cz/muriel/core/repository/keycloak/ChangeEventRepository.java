@@ -2,9 +2,11 @@ package cz.muriel.core.repository.keycloak;
 
 import cz.muriel.core.entity.ChangeEventEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -23,9 +25,32 @@ public interface ChangeEventRepository extends JpaRepository<ChangeEventEntity,
   /**
    * Najde nezpracované eventy s limitem (pro batch processing)
    */
-  @Query("SELECT c FROM ChangeEventEntity c WHERE c.processed = false ORDER BY c.createdAt ASC")
+  @Query(value = "SELECT * FROM change_events WHERE processed = false ORDER BY id LIMIT :limit", nativeQuery = true)
   List<ChangeEventEntity> findUnprocessedEventsWithLimit(@Param("limit") int limit);
 
+  /**
+   * Další dávka nezpracovaných eventů za kurzorem (keyset podle id) - bez
+   * entit, které mají odložený retry (jejich eventy počkají na další poll)
+   */
+  @Query(value = """
+      SELECT * FROM change_events
+      WHERE processed = false AND id > :afterId
+        AND entity_id <> ALL(:deferred)
+      ORDER BY id
+      LIMIT :limit
+      """, nativeQuery = true)
+  List<ChangeEventEntity> findUnprocessedAfter(@Param("afterId") long afterId,
+      @Param("limit") int limit, @Param("deferred") String[] deferredEntityIds);
+
+  /**
+   * Označí dávku eventů jako zpracovanou jedním UPDATE
+   */
+  @Modifying @Transactional("keycloakTransactionManager") @Query(value = """
+      UPDATE change_events SET processed = true, processed_at = now()
+      WHERE id = ANY(:ids) AND processed = false
+      """, nativeQuery = true)
+  int markProcessed(@Param("ids") Long[] ids);
+
   /**
    * Spočítá nezpracované eventy
    */
@@ -0,0 +1,229 @@
+package cz.muriel.core.security.policy;
+
+import cz.muriel.core.metamodel.schema.AccessPolicy;
+import cz.muriel.core.metamodel.schema.ColumnPolicy;
+import cz.muriel.core.metamodel.schema.EntitySchema;
+import cz.muriel.core.metamodel.schema.FieldSchema;
+import cz.muriel.core.metamodel.schema.PolicyRule;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 🧩 Compiled Access Policy
+ *
+ * Immutable, pre-compiled form of an entity {@link AccessPolicy}. Built once
+ * per metamodel reload by {@link MetamodelPolicyEngine}: the YAML rule tree is
+ * flattened into {@link Rule} nodes (precedence resolved up front) and each
+ * node knows whether it depends only on the caller's roles - such decisions can
+ * be memoized per role set.
+ */
+final class CompiledAccessPolicy {
+
+  /**
+   * Compiled policy rule node
+   */
+  sealed interface Rule permits AnyOf, AllOf, HasRole, SameUser, Compare, Deny {
+
+    /**
+     * True if the result depends only on granted authorities (no ABAC)
+     */
+    boolean roleOnly();
+  }
+
+  record AnyOf(List<Rule> rules, boolean roleOnly) implements Rule {
+  }
+
+  record AllOf(List<Rule> rules, boolean roleOnly) implements Rule {
+  }
+
+  /** role or group - matched as "X" or "ROLE_X" */
+  record HasRole(String role, String prefixedRole) implements Rule {
+    public boolean roleOnly() {
+      return true;
+    }
+  }
+
+  record SameUser() implements Rule {
+    public boolean roleOnly() {
+      return false;
+    }
+  }
+
+  /** eq / ne / contains / in with ${entity.x}, ${user.x} or literal operands */
+  record Compare(Operator operator, String left, String right) implements Rule {
+    public boolean roleOnly() {
+      return false;
+    }
+  }
+
+  /** Empty / unknown rule */
+  record Deny() implements Rule {
+    public boolean roleOnly() {
+      return true;
+    }
+  }
+
+  enum Operator {
+    EQ, NE, CONTAINS, IN
+  }
+
+  private static final Rule DENY = new Deny();
+
+  private final String entityType;
+  private final String tenantField;
+  private final boolean hasAccessPolicy;
+  private final Map<String, Rule> actionRules;
+  private final Map<String, Rule> columnReadRules;
+  private final Map<String, Rule> columnWriteRules;
+  private final Set<String> allColumns;
+  private final Map<String, String> columnTypes;
+
+  private CompiledAccessPolicy(EntitySchema schema) {
+    AccessPolicy policy = schema.getAccessPolicy();
+
+    this.entityType = schema.getEntity();
+    this.tenantField = schema.getTenantField();
+    this.hasAccessPolicy = policy != null;
+    this.allColumns = schema.getFields() == null ? Set.of()
+        : schema.getFields().stream().map(FieldSchema::getName)
+            .collect(Collectors.toUnmodifiableSet());
+    this.columnTypes = schema.getFields() == null ? Map.of()
+        : schema.getFields().stream().filter(f -> !isRelationship(f.getType()))
+            .collect(Collectors.toUnmodifiableMap(FieldSchema::getName,
+                f -> f.getType() != null ? f.getType() : "string", (a, b) -> a));
+
+    Map<String, Rule> actions = new HashMap<>();
+    Map<String, Rule> columnRead = new LinkedHashMap<>();
+    Map<String, Rule> columnWrite = new LinkedHashMap<>();
+
+    if (policy != null) {
+      putIfPresent(actions, "read", policy.getRead());
+      putIfPresent(actions, "create", policy.getCreate());
+      putIfPresent(actions, "update", policy.getUpdate());
+      putIfPresent(actions, "delete", policy.getDelete());
+
+      if (policy.getColumns() != null) {
+        for (Map.Entry<String, ColumnPolicy> entry : policy.getColumns().entrySet()) {
+          ColumnPolicy colPolicy = entry.getValue();
+          if (colPolicy == null) {
+            continue;
+          }
+          putIfPresent(columnRead, entry.getKey(), colPolicy.getRead());
+          putIfPresent(columnWrite, entry.getKey(), colPolicy.getWrite());
+        }
+      }
+    }
+
+    this.actionRules = Map.copyOf(actions);
+    this.columnReadRules = Collections.unmodifiableMap(columnRead);
+    this.columnWriteRules = Collections.unmodifiableMap(columnWrite);
+  }
+
+  static CompiledAccessPolicy compile(EntitySchema schema) {
+    return new CompiledAccessPolicy(schema);
+  }
+
+  String entityType() {
+    return entityType;
+  }
+
+  String tenantField() {
+    return tenantField;
+  }
+
+  boolean hasAccessPolicy() {
+    return hasAccessPolicy;
+  }
+
+  Set<String> allColumns() {
+    return allColumns;
+  }
+
+  /**
+   * Metamodel type of a database column (relationship fields excluded) or null
+   * if the entity has no such column
+   */
+  String columnType(String column) {
+    return columnTypes.get(column);
+  }
+
+  /**
+   * Rule for action (read, create, update, delete) or null if not defined
+   */
+  Rule actionRule(String action) {
+    return actionRules.get(action.toLowerCase());
+  }
+
+  /**
+   * Column rules relevant for action: read rules for read/create, write rules
+   * otherwise
+   */
+  Map<String, Rule> columnRules(String action) {
+    return action.equals("read") || action.equals("create") ? columnReadRules : columnWriteRules;
+  }
+
+  private static boolean isRelationship(String type) {
+    return "manyToOne".equals(type) || "oneToMany".equals(type) || "manyToMany".equals(type);
+  }
+
+  private static void putIfPresent(Map<String, Rule> target, String key, PolicyRule rule) {
+    if (rule != null) {
+      target.put(key, compileRule(rule));
+    }
+  }
+
+  /**
+   * Compile YAML rule - same precedence as the interpreted engine: anyOf, allOf,
+   * role, group, sameUser, eq, ne, contains, in
+   */
+  static Rule compileRule(PolicyRule rule) {
+    if (rule == null) {
+      return DENY;
+    }
+
+    if (rule.getAnyOf() != null && !rule.getAnyOf().isEmpty()) {
+      List<Rule> children = rule.getAnyOf().stream().map(CompiledAccessPolicy::compileRule)
+          .toList();
+      return new AnyOf(children, children.stream().allMatch(Rule::roleOnly));
+    }
+
+    if (rule.getAllOf() != null && !rule.getAllOf().isEmpty()) {
+      List<Rule> children = rule.getAllOf().stream().map(CompiledAccessPolicy::compileRule)
+          .toList();
+      return new AllOf(children, children.stream().allMatch(Rule::roleOnly));
+    }
+
+    if (rule.getRole() != null) {
+      return new HasRole(rule.getRole(), "ROLE_" + rule.getRole());
+    }
+
+    if (rule.getGroup() != null) {
+      // Groups are mapped to roles for now (future: explicit group membership)
+      return new HasRole(rule.getGroup(), "ROLE_" + rule.getGroup());
+    }
+
+    if (rule.getSameUser() != null && rule.getSameUser()) {
+      return new SameUser();
+    }
+
+    if (rule.getEq() != null) {
+      return new Compare(Operator.EQ, rule.getEq().getLeft(), rule.getEq().getRight());
+    }
+
+    if (rule.getNe() != null) {
+      return new Compare(Operator.NE, rule.getNe().getLeft(), rule.getNe().getRight());
+    }
+
+    if (rule.getContains() != null) {
+      return new Compare(Operator.CONTAINS, rule.getContains().getLeft(),
+          rule.getContains().getRight());
+    }
+
+    if (rule.getIn() != null) {
+      return new Compare(Operator.IN, rule.getIn().getLeft(), rule.getIn().getRight());
+    }
+
+    return DENY;
+  }
+}
@@ -1,9 +1,14 @@
 package cz.muriel.core.security.policy;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import cz.muriel.core.entity.Tenant;
 import cz.muriel.core.metamodel.MetamodelRegistry;
 import cz.muriel.core.metamodel.schema.*;
 import cz.muriel.core.security.SystemAuthentication;
-import lombok.RequiredArgsConstructor;
+import cz.muriel.core.security.policy.CompiledAccessPolicy.Rule;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.lang.Nullable;
 import org.springframework.security.core.Authentication;
@@ -13,6 +18,7 @@ import org.springframework.security.oauth2.server.resource.authentication.JwtAut
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -22,14 +28,47 @@ import java.util.stream.Collectors;
  * policy (RBAC/ABAC) - Column policy (projekce/masking) - Tenant isolation
  * (RLS) - anyOf/allOf operators - Dot-notation (1 level deep)
  * 
- * @version 3.0 - Using MetamodelRegistry
+ * Policies are compiled into {@link CompiledAccessPolicy} once per registry
+ * generation. Role-only decisions and column sets are memoized per (role set,
+ * entityType, action) in bounded caches cleared on every recompile.
+ * 
+ * List queries get a {@link RowFilter}: ABAC rules (sameUser, ${entity.x}
+ * comparisons) are translated to a SQL predicate by
+ * {@link RowFilterTranslator}, in-memory evaluation is only the fallback.
+ * 
+ * @version 4.0 - Compiled policies + memoized role decisions
  */
-@Component @RequiredArgsConstructor @Slf4j
+@Component @Slf4j
 public class MetamodelPolicyEngine implements PolicyEngine {
 
   private final MetamodelRegistry registry;
 
   private static final String ROLE_ADMIN = "CORE_ROLE_ADMIN";
+  private static final int MAX_MEMOIZED_DECISIONS = 10_000;
+
+  private final Cache<DecisionKey, Boolean> decisions;
+  private final Cache<DecisionKey, Set<String>> columnSets;
+  private volatile CompiledPolicies compiled;
+
+  /**
+   * Policies compiled from one registry generation
+   */
+  private record CompiledPolicies(long generation, Map<String, CompiledAccessPolicy> policies) {
+  }
+
+  private record DecisionKey(long generation, String entityType, String action,
+      Set<String> authorities) {
+  }
+
+  public MetamodelPolicyEngine(MetamodelRegistry registry, MeterRegistry meterRegistry) {
+    this.registry = registry;
+    this.decisions = Caffeine.newBuilder().maximumSize(MAX_MEMOIZED_DECISIONS).recordStats()
+        .build();
+    this.columnSets = Caffeine.newBuilder().maximumSize(MAX_MEMOIZED_DECISIONS).recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, decisions, "policy-decisions");
+    CaffeineCacheMetrics.monitor(meterRegistry, columnSets, "policy-columns");
+  }
 
   @Override
   public boolean check(Authentication auth, String entityType, String action,
@@ -41,43 +80,44 @@ public class MetamodelPolicyEngine implements PolicyEngine {
       return false;
     }
 
+    Set<String> authorities = authorities(auth);
+
     // System authentication bypass (for internal operations like Keycloak sync)
-    if (hasRole(auth, "SYSTEM") || hasRole(auth, "ROLE_SYSTEM")) {
+    if (isSystem(authorities)) {
       log.debug("SYSTEM authentication detected, granting access");
       return true;
     }
 
     // Admin bypass
-    if (hasRole(auth, ROLE_ADMIN)) {
+    if (hasRole(authorities, ROLE_ADMIN)) {
       log.debug("CORE_ROLE_ADMIN detected, granting access");
       return true;
     }
 
-    // Get schema
-    Optional<EntitySchema> schemaOpt = registry.getSchema(entityType);
-    if (schemaOpt.isEmpty()) {
+    // Get compiled policy
+    CompiledPolicies current = compiledPolicies();
+    CompiledAccessPolicy policy = current.policies().get(entityType);
+    if (policy == null) {
       log.warn("No schema found for entity type: {}", entityType);
       return false;
     }
 
-    EntitySchema schema = schemaOpt.get();
-
-    if (schema.getAccessPolicy() == null) {
+    if (!policy.hasAccessPolicy()) {
       log.warn("No access policy for entity {}, denying access", entityType);
       return false;
     }
 
     // Get rule for action
-    PolicyRule rule = getActionRule(schema.getAccessPolicy(), action);
+    Rule rule = policy.actionRule(action);
     if (rule == null) {
       log.debug("No policy rule for action {} on entity {}, denying", action, entityType);
       return false;
     }
 
-    // Tenant isolation (if not admin and entity has tenantField)
-    if (!hasRole(auth, ROLE_ADMIN) && schema.getTenantField() != null && contextId != null) {
+    // Tenant isolation (not admin here) if entity has tenantField
+    if (policy.tenantField() != null && contextId != null) {
       String userTenantId = getTenantId(auth);
-      String entityTenantId = extractFieldValue(contextId, schema.getTenantField());
+      String entityTenantId = extractFieldValue(contextId, policy.tenantField());
 
       if (entityTenantId != null && !entityTenantId.equals(userTenantId)) {
         log.debug("Tenant isolation violation: user={}, entity={}", userTenantId, entityTenantId);
@@ -85,121 +125,196 @@ public class MetamodelPolicyEngine implements PolicyEngine {
       }
     }
 
-    boolean result = evaluatePolicyRule(auth, rule, contextId);
+    boolean result = rule.roleOnly()
+        ? decisions.get(new DecisionKey(current.generation(), entityType, action, authorities),
+            k -> evaluate(auth, authorities, rule, null))
+        : evaluate(auth, authorities, rule, contextId);
     log.debug("Policy check result: entity={}, action={}, result={}", entityType, action, result);
     return result;
   }
 
   @Override
   public Set<String> projectColumns(Authentication auth, String entityType, String action) {
+    return projectColumns(auth, entityType, action, null);
+  }
+
+  @Override
+  public Set<String> projectColumns(Authentication auth, String entityType, String action,
+      @Nullable Object entity) {
     log.debug("Column projection for entity={}, action={}", entityType, action);
 
-    Optional<EntitySchema> schemaOpt = registry.getSchema(entityType);
-    if (schemaOpt.isEmpty()) {
+    CompiledPolicies current = compiledPolicies();
+    CompiledAccessPolicy policy = current.policies().get(entityType);
+    if (policy == null) {
       return Collections.emptySet();
     }
 
-    EntitySchema schema = schemaOpt.get();
+    Set<String> authorities = authorities(auth);
 
-    // System authentication sees all columns
-    if (hasRole(auth, "SYSTEM") || hasRole(auth, "ROLE_SYSTEM")) {
-      return schema.getFields().stream().map(FieldSchema::getName).collect(Collectors.toSet());
+    // System authentication and admin see all columns
+    if (isSystem(authorities) || hasRole(authorities, ROLE_ADMIN)) {
+      return policy.allColumns();
     }
 
-    // Admin sees all columns
-    if (hasRole(auth, ROLE_ADMIN)) {
-      return schema.getFields().stream().map(FieldSchema::getName).collect(Collectors.toSet());
+    if (isRoleOnly(policy, action)) {
+      return columnSets.get(
+          new DecisionKey(current.generation(), entityType, action, authorities),
+          k -> computeColumns(auth, authorities, policy, action, null));
     }
+    return computeColumns(auth, authorities, policy, action, entity);
+  }
 
+  /**
+   * Columns allowed for action - entity-level rule grants all columns, column
+   * rules then remove what the caller may not see. Without entity (list) an
+   * ABAC entity-level rule grants all columns too - rows are restricted by
+   * {@link #rowFilter} - while ABAC column rules are evaluated without entity
+   * context, i.e. conservatively. Result is immutable.
+   */
+  private Set<String> computeColumns(Authentication auth, Set<String> authorities,
+      CompiledAccessPolicy policy, String action, @Nullable Object entity) {
     Set<String> allowedColumns = new HashSet<>();
 
     // Base columns from entity-level policy
-    if (schema.getAccessPolicy() != null && check(auth, entityType, action, null)) {
-      // Start with all columns
-      allowedColumns.addAll(
-          schema.getFields().stream().map(FieldSchema::getName).collect(Collectors.toSet()));
+    Rule actionRule = policy.hasAccessPolicy() ? policy.actionRule(action) : null;
+    if (auth != null && actionRule != null && ((entity == null && !actionRule.roleOnly())
+        || evaluate(auth, authorities, actionRule, entity))) {
+      allowedColumns.addAll(policy.allColumns());
     }
 
     // Filter by column-level policies
-    if (schema.getAccessPolicy() != null && schema.getAccessPolicy().getColumns() != null) {
-      for (var entry : schema.getAccessPolicy().getColumns().entrySet()) {
-        String columnName = entry.getKey();
-        ColumnPolicy colPolicy = entry.getValue();
-
-        PolicyRule colRule = action.equals("read") || action.equals("create") ? colPolicy.getRead()
-            : colPolicy.getWrite();
-
-        if (colRule != null && !evaluatePolicyRule(auth, colRule, null)) {
-          allowedColumns.remove(columnName);
-        }
+    for (var entry : policy.columnRules(action).entrySet()) {
+      if (!evaluate(auth, authorities, entry.getValue(), entity)) {
+        allowedColumns.remove(entry.getKey());
       }
     }
 
-    log.debug("Column projection result: entity={}, action={}, columns={}", entityType, action,
-        allowedColumns);
-    return allowedColumns;
+    log.debug("Column projection result: entity={}, action={}, columns={}",
+        policy.entityType(), action, allowedColumns);
+    return Set.copyOf(allowedColumns);
   }
 
-  public String getRowFilter(Authentication auth, String entityType, String action) {
-    String tenantId = getTenantId(auth);
+  private boolean isRoleOnly(CompiledAccessPolicy policy, String action) {
+    Rule actionRule = policy.actionRule(action);
+    return (actionRule == null || actionRule.roleOnly())
+        && policy.columnRules(action).values().stream().allMatch(Rule::roleOnly);
+  }
 
-    // Admin sees all
-    if (hasRole(auth, ROLE_ADMIN)) {
-      return "";
+  /**
+   * Current compiled policies - recompiled when the registry generation changes
+   * (i.e. after MetamodelRegistry.reload())
+   */
+  private CompiledPolicies compiledPolicies() {
+    CompiledPolicies current = compiled;
+    long generation = registry.getGeneration();
+    if (current == null || current.generation() != generation) {
+      current = recompile(generation);
     }
+    return current;
+  }
 
-    // Tenant isolation
-    Optional<EntitySchema> schemaOpt = registry.getSchema(entityType);
-    if (schemaOpt.isPresent() && schemaOpt.get().getTenantField() != null) {
-      return schemaOpt.get().getTenantField() + " = '" + tenantId + "'";
+  private synchronized CompiledPolicies recompile(long generation) {
+    CompiledPolicies current = compiled;
+    if (current != null && current.generation() == generation) {
+      return current;
     }
 
-    return "";
+    Map<String, CompiledAccessPolicy> policies = new HashMap<>();
+    registry.getAllSchemas()
+        .forEach((type, schema) -> policies.put(type, CompiledAccessPolicy.compile(schema)));
+
+    current = new CompiledPolicies(generation, Map.copyOf(policies));
+    compiled = current;
+    decisions.invalidateAll();
+    columnSets.invalidateAll();
+
+    log.info("Compiled access policies for {} entities (generation {})", policies.size(),
+        generation);
+    return current;
   }
 
-  /**
-   * Get policy rule for action
-   */
-  private PolicyRule getActionRule(AccessPolicy policy, String action) {
-    return switch (action.toLowerCase()) {
-    case "read" -> policy.getRead();
-    case "create" -> policy.getCreate();
-    case "update" -> policy.getUpdate();
-    case "delete" -> policy.getDelete();
-    default -> null;
-    };
+  @Override
+  public RowFilter rowFilter(Authentication auth, String entityType, String action) {
+    if (auth == null) {
+      return RowFilter.DENY;
+    }
+
+    Set<String> authorities = authorities(auth);
+
+    // System and admin see all rows
+    if (isSystem(authorities) || hasRole(authorities, ROLE_ADMIN)) {
+      return RowFilter.UNRESTRICTED;
+    }
+
+    CompiledAccessPolicy policy = compiledPolicies().policies().get(entityType);
+    Rule rule = policy != null && policy.hasAccessPolicy() ? policy.actionRule(action) : null;
+    if (rule == null) {
+      return RowFilter.DENY;
+    }
+
+    RowFilterTranslator translator = new RowFilterTranslator(policy, getUserId(auth),
+        r -> evaluate(auth, authorities, r, null), expr -> resolveValue(auth, expr, null));
+
+    // Role-only rules reuse the memoized decision
+    RowFilterTranslator.Fragment fragment = rule.roleOnly()
+        ? (check(auth, entityType, action, null) ? RowFilterTranslator.Fragment.TRUE
+            : RowFilterTranslator.Fragment.FALSE)
+        : translator.translate(rule);
+
+    // Tenant isolation - a caller without tenant gets no tenant-owned rows
+    if (policy.tenantField() != null) {
+      String tenantId = getTenantId(auth);
+      if (tenantId == null) {
+        log.warn("No tenant in authentication of {}, denying {} on {}", auth.getName(), action,
+            entityType);
+        return RowFilter.DENY;
+      }
+      fragment = translator
+          .and(List.of(fragment, translator.tenant(policy.tenantField(), tenantId)));
+    }
+
+    log.debug("Row filter: entity={}, action={}, sql={}, exact={}", entityType, action,
+        fragment.sql(), fragment.exact());
+
+    if (fragment.isFalse()) {
+      return RowFilter.DENY;
+    }
+    Predicate<Map<String, Object>> residual = fragment.exact() ? null
+        : row -> check(auth, entityType, action, row);
+    return new RowFilter(false, fragment.isTrue() ? null : fragment.sql(), fragment.params(),
+        residual);
   }
 
   /**
-   * Evaluate policy rule recursively
+   * Evaluate compiled rule recursively
    */
-  private boolean evaluatePolicyRule(Authentication auth, PolicyRule rule,
+  private boolean evaluate(Authentication auth, Set<String> authorities, Rule rule,
       @Nullable Object entity) {
-    if (rule == null) {
+    if (rule instanceof CompiledAccessPolicy.AnyOf anyOf) {
+      for (Rule child : anyOf.rules()) {
+        if (evaluate(auth, authorities, child, entity)) {
+          return true;
+        }
+      }
       return false;
     }
 
-    // Logical operators
-    if (rule.getAnyOf() != null && !rule.getAnyOf().isEmpty()) {
-      return rule.getAnyOf().stream().anyMatch(r -> evaluatePolicyRule(auth, r, entity));
-    }
-
-    if (rule.getAllOf() != null && !rule.getAllOf().isEmpty()) {
-      return rule.getAllOf().stream().allMatch(r -> evaluatePolicyRule(auth, r, entity));
+    if (rule instanceof CompiledAccessPolicy.AllOf allOf) {
+      for (Rule child : allOf.rules()) {
+        if (!evaluate(auth, authorities, child, entity)) {
+          return false;
+        }
+      }
+      return true;
     }
 
     // RBAC
-    if (rule.getRole() != null) {
-      return hasRole(auth, rule.getRole());
-    }
-
-    if (rule.getGroup() != null) {
-      // Groups are mapped to roles for now (future: explicit group membership)
-      return hasRole(auth, rule.getGroup());
+    if (rule instanceof CompiledAccessPolicy.HasRole hasRole) {
+      return authorities.contains(hasRole.role()) || authorities.contains(hasRole.prefixedRole());
     }
 
     // ABAC
-    if (rule.getSameUser() != null && rule.getSameUser()) {
+    if (rule instanceof CompiledAccessPolicy.SameUser) {
       if (entity == null)
         return false;
       String entityUserId = extractFieldValue(entity, "user_id");
@@ -207,22 +322,15 @@ public class MetamodelPolicyEngine implements PolicyEngine {
       return entityUserId != null && entityUserId.equals(currentUserId);
     }
 
-    if (rule.getEq() != null) {
-      return evaluateCondition(auth, rule.getEq(), entity, Objects::equals);
-    }
-
-    if (rule.getNe() != null) {
-      return evaluateCondition(auth, rule.getNe(), entity, (a, b) -> !Objects.equals(a, b));
-    }
-
-    if (rule.getContains() != null) {
-      return evaluateCondition(auth, rule.getContains(), entity,
+    if (rule instanceof CompiledAccessPolicy.Compare compare) {
+      return switch (compare.operator()) {
+      case EQ -> evaluateCondition(auth, compare, entity, Objects::equals);
+      case NE -> evaluateCondition(auth, compare, entity, (a, b) -> !Objects.equals(a, b));
+      case CONTAINS -> evaluateCondition(auth, compare, entity,
           (a, b) -> a != null && b != null && a.toString().contains(b.toString()));
-    }
-
-    if (rule.getIn() != null) {
-      return evaluateCondition(auth, rule.getIn(), entity, (a, b) -> b != null
+      case IN -> evaluateCondition(auth, compare, entity, (a, b) -> b != null
           && Arrays.asList(b.toString().split(",")).contains(a != null ? a.toString() : ""));
+      };
     }
 
     return false;
@@ -231,10 +339,10 @@ public class MetamodelPolicyEngine implements PolicyEngine {
   /**
    * Evaluate condition (eq, ne, contains, in)
    */
-  private boolean evaluateCondition(Authentication auth, Condition condition,
+  private boolean evaluateCondition(Authentication auth, CompiledAccessPolicy.Compare condition,
       @Nullable Object entity, java.util.function.BiPredicate<Object, Object> predicate) {
-    Object leftValue = resolveValue(auth, condition.getLeft(), entity);
-    Object rightValue = resolveValue(auth, condition.getRight(), entity);
+    Object leftValue = resolveValue(auth, condition.left(), entity);
+    Object rightValue = resolveValue(auth, condition.right(), entity);
 
     return predicate.test(leftValue, rightValue);
   }
@@ -313,10 +421,46 @@ public class MetamodelPolicyEngine implements PolicyEngine {
       return false;
     }
 
-    return auth.getAuthorities().stream().map(GrantedAuthority::getAuthority)
-        .anyMatch(a -> a.equals(role) || a.equals("ROLE_" + role));
+    for (GrantedAuthority authority : auth.getAuthorities()) {
+      String a = authority.getAuthority();
+      if (role.equals(a) || ("ROLE_" + role).equals(a)) {
+        return true;
+      }
+    }
+    return false;
   }
 
+  private static boolean hasRole(Set<String> authorities, String role) {
+    return authorities.contains(role) || authorities.contains("ROLE_" + role);
+  }
+
+  private static boolean isSystem(Set<String> authorities) {
+    return hasRole(authorities, "SYSTEM") || authorities.contains("ROLE_ROLE_SYSTEM");
+  }
+
+  /**
+   * Granted authority names - collected once per call, also the memo key
+   */
+  private static Set<String> authorities(Authentication auth) {
+    if (auth == null) {
+      return Set.of();
+    }
+
+    Set<String> result = new HashSet<>();
+    for (GrantedAuthority authority : auth.getAuthorities()) {
+      if (authority.getAuthority() != null) {
+        result.add(authority.getAuthority());
+      }
+    }
+    return Set.copyOf(result);
+  }
+
+  /**
+   * Tenant UUID of the caller - the realm issues the tenant key in the
+   * {@code tenant} claim, tenant ids are derived from it deterministically
+   * ({@link Tenant#generateUuidFromKey}). Null for system authentication and for
+   * callers without a tenant.
+   */
   @Override
   public String getTenantId(Authentication auth) {
     // SystemAuthentication: tenant_id should come from data, not auth
@@ -325,10 +469,12 @@ public class MetamodelPolicyEngine implements PolicyEngine {
     }
 
     if (auth instanceof JwtAuthenticationToken jwtAuth) {
-      Jwt jwt = jwtAuth.getToken();
-      return jwt.getClaimAsString("tenant_id");
+      String tenantKey = jwtAuth.getToken().getClaimAsString("tenant");
+      if (tenantKey != null && !tenantKey.isBlank()) {
+        return Tenant.generateUuidFromKey(tenantKey).toString();
+      }
     }
-    return "admin"; // fallback
+    return null;
   }
 
   @Override
@@ -32,6 +32,24 @@ public interface PolicyEngine {
    */
   Set<String> projectColumns(Authentication auth, String entityType, String action);
 
+  /**
+   * Get allowed column names for action on a specific entity instance (ABAC
+   * column rules are evaluated against the entity)
+   */
+  Set<String> projectColumns(Authentication auth, String entityType, String action,
+      Object entity);
+
+  /**
+   * Row-level filter for list queries - ABAC rules translated to a SQL
+   * predicate, with in-memory residual check for rules SQL can't express
+   * 
+   * @param auth Current authentication
+   * @param entityType Entity type from metamodel
+   * @param action Action: read, create, update, delete
+   * @return Row filter ({@link RowFilter#DENY} if no row is visible)
+   */
+  RowFilter rowFilter(Authentication auth, String entityType, String action);
+
   /**
    * Check if user has specific role
    */
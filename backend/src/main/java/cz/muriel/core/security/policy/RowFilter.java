@@ -0,0 +1,36 @@
+package cz.muriel.core.security.policy;
+
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 🔎 Row Filter - row-level policy for list queries
+ *
+ * Result of {@link PolicyEngine#rowFilter}: a SQL predicate (column names + ?
+ * placeholders only, values in {@link #params()}) that is pushed down into the
+ * list query. Rules that can't be expressed in SQL are returned as
+ * {@link #residual()} and evaluated in memory over the fetched rows - the SQL
+ * predicate is then a superset of the visible rows.
+ *
+ * @param denied caller can't see any row
+ * @param sql SQL predicate or null (no restriction)
+ * @param params bind values in placeholder order
+ * @param residual in-memory check for rows matched by sql, or null
+ */
+public record RowFilter(boolean denied, @Nullable String sql, List<Object> params,
+    @Nullable Predicate<Map<String, Object>> residual) {
+
+  public static final RowFilter UNRESTRICTED = new RowFilter(false, null, List.of(), null);
+  public static final RowFilter DENY = new RowFilter(true, null, List.of(), null);
+
+  public boolean hasPredicate() {
+    return sql != null;
+  }
+
+  public boolean hasResidual() {
+    return residual != null;
+  }
+}
@@ -0,0 +1,256 @@
+package cz.muriel.core.security.policy;
+
+import cz.muriel.core.security.policy.CompiledAccessPolicy.Rule;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 🔀 Row Filter Translator - compiled rule → SQL predicate
+ *
+ * Translates a {@link CompiledAccessPolicy} rule for one caller into a SQL
+ * predicate over entity columns. Role checks and operands without
+ * ${entity.x} are evaluated up front and folded into TRUE / FALSE, so only
+ * entity-dependent comparisons reach the database. Values are always bound,
+ * never inlined.
+ *
+ * Semantics follow the in-memory evaluation (string comparison of values).
+ * Comparisons that can't be expressed exactly - entity vs entity, non-string
+ * columns, ${entity.x} on the right side of "in" - become an inexact TRUE: the
+ * predicate is then a superset and the caller must re-check rows in memory.
+ */
+final class RowFilterTranslator {
+
+  /** Column types compared as strings directly */
+  private static final Set<String> STRING_TYPES = Set.of("string", "email", "select");
+  private static final String UUID_TYPE = "uuid";
+
+  /**
+   * Translated predicate; exact = no in-memory re-check needed
+   */
+  record Fragment(String sql, List<Object> params, boolean exact) {
+
+    static final Fragment TRUE = new Fragment("TRUE", List.of(), true);
+    static final Fragment FALSE = new Fragment("FALSE", List.of(), true);
+    static final Fragment UNKNOWN = new Fragment("TRUE", List.of(), false);
+
+    boolean isTrue() {
+      return "TRUE".equals(sql);
+    }
+
+    boolean isFalse() {
+      return "FALSE".equals(sql);
+    }
+  }
+
+  private final CompiledAccessPolicy policy;
+  private final String userId;
+  private final Predicate<Rule> constantEvaluator;
+  private final Function<String, Object> operandResolver;
+
+  /**
+   * @param policy compiled entity policy (column names + types)
+   * @param userId current user id (sameUser)
+   * @param constantEvaluator evaluates rules that don't depend on the entity
+   * @param operandResolver resolves ${user.x} and literal operands
+   */
+  RowFilterTranslator(CompiledAccessPolicy policy, String userId,
+      Predicate<Rule> constantEvaluator,
+      Function<String, Object> operandResolver) {
+    this.policy = policy;
+    this.userId = userId;
+    this.constantEvaluator = constantEvaluator;
+    this.operandResolver = operandResolver;
+  }
+
+  Fragment translate(Rule rule) {
+    if (rule instanceof CompiledAccessPolicy.AnyOf anyOf) {
+      return or(anyOf.rules().stream().map(this::translate).toList());
+    }
+
+    if (rule instanceof CompiledAccessPolicy.AllOf allOf) {
+      return and(allOf.rules().stream().map(this::translate).toList());
+    }
+
+    if (rule instanceof CompiledAccessPolicy.SameUser) {
+      // entity.user_id must be non-null and equal to current user
+      if (userId == null || policy.columnType("user_id") == null) {
+        return Fragment.FALSE;
+      }
+      return equal("user_id", userId);
+    }
+
+    if (rule instanceof CompiledAccessPolicy.Compare compare) {
+      return compare(compare);
+    }
+
+    // HasRole, Deny
+    return constantEvaluator.test(rule) ? Fragment.TRUE : Fragment.FALSE;
+  }
+
+  /**
+   * Tenant isolation - rows without tenant or with the caller's tenant
+   */
+  Fragment tenant(String tenantField, String tenantId) {
+    if (policy.columnType(tenantField) == null) {
+      return Fragment.TRUE;
+    }
+    return or(List.of(new Fragment(tenantField + " IS NULL", List.of(), true),
+        equal(tenantField, tenantId)));
+  }
+
+  Fragment and(List<Fragment> fragments) {
+    List<Fragment> terms = new ArrayList<>();
+    boolean exact = true;
+    for (Fragment fragment : fragments) {
+      exact &= fragment.exact();
+      if (fragment.isFalse()) {
+        return Fragment.FALSE;
+      }
+      if (!fragment.isTrue()) {
+        terms.add(fragment);
+      }
+    }
+    return join(terms, " AND ", exact ? Fragment.TRUE : Fragment.UNKNOWN, exact);
+  }
+
+  Fragment or(List<Fragment> fragments) {
+    if (fragments.stream().anyMatch(f -> f.isTrue() && f.exact())) {
+      return Fragment.TRUE;
+    }
+    if (fragments.stream().anyMatch(Fragment::isTrue)) {
+      return Fragment.UNKNOWN;
+    }
+
+    List<Fragment> terms = fragments.stream().filter(f -> !f.isFalse()).toList();
+    boolean exact = terms.stream().allMatch(Fragment::exact);
+    return join(terms, " OR ", Fragment.FALSE, exact);
+  }
+
+  private static Fragment join(List<Fragment> terms, String operator, Fragment empty,
+      boolean exact) {
+    if (terms.isEmpty()) {
+      return empty;
+    }
+    if (terms.size() == 1) {
+      Fragment only = terms.get(0);
+      return new Fragment(only.sql(), only.params(), exact);
+    }
+
+    StringJoiner sql = new StringJoiner(operator, "(", ")");
+    List<Object> params = new ArrayList<>();
+    for (Fragment term : terms) {
+      sql.add(term.sql());
+      params.addAll(term.params());
+    }
+    return new Fragment(sql.toString(), List.copyOf(params), exact);
+  }
+
+  private Fragment compare(CompiledAccessPolicy.Compare compare) {
+    String leftColumn = entityColumn(compare.left());
+    String rightColumn = entityColumn(compare.right());
+
+    if (leftColumn == null && rightColumn == null) {
+      return constantEvaluator.test(compare) ? Fragment.TRUE : Fragment.FALSE;
+    }
+    if (leftColumn != null && rightColumn != null) {
+      return Fragment.UNKNOWN;
+    }
+
+    boolean entityLeft = leftColumn != null;
+    String column = entityLeft ? leftColumn : rightColumn;
+    if (policy.columnType(column) == null) {
+      // Field is never present on rows - same result as for a null entity value
+      return constantEvaluator.test(compare) ? Fragment.TRUE : Fragment.FALSE;
+    }
+
+    Object operand = operandResolver.apply(entityLeft ? compare.right() : compare.left());
+    String value = operand != null ? operand.toString() : null;
+
+    return switch (compare.operator()) {
+    case EQ -> value == null ? new Fragment(column + " IS NULL", List.of(), true)
+        : equal(column, value);
+    case NE -> value == null ? new Fragment(column + " IS NOT NULL", List.of(), true)
+        : notEqual(column, value);
+    case CONTAINS -> contains(column, value, entityLeft);
+    case IN -> entityLeft ? in(column, value) : Fragment.UNKNOWN;
+    };
+  }
+
+  private Fragment equal(String column, String value) {
+    String type = policy.columnType(column);
+    if (UUID_TYPE.equals(type)) {
+      return isUuid(value) ? new Fragment(column + " = ?", List.of(value), true) : Fragment.FALSE;
+    }
+    if (STRING_TYPES.contains(type)) {
+      return new Fragment(column + " = ?", List.of(value), true);
+    }
+    return Fragment.UNKNOWN;
+  }
+
+  private Fragment notEqual(String column, String value) {
+    String type = policy.columnType(column);
+    if (UUID_TYPE.equals(type)) {
+      return isUuid(value) ? new Fragment(column + " IS DISTINCT FROM ?", List.of(value), true)
+          : Fragment.TRUE;
+    }
+    if (STRING_TYPES.contains(type)) {
+      return new Fragment(column + " IS DISTINCT FROM ?", List.of(value), true);
+    }
+    return Fragment.UNKNOWN;
+  }
+
+  private Fragment contains(String column, String value, boolean entityLeft) {
+    if (!isTextComparable(column)) {
+      return Fragment.UNKNOWN;
+    }
+    if (value == null) {
+      return Fragment.FALSE;
+    }
+    String sql = entityLeft ? "strpos(CAST(" + column + " AS text), ?) > 0"
+        : "strpos(?, CAST(" + column + " AS text)) > 0";
+    return new Fragment(sql, List.of(value), true);
+  }
+
+  private Fragment in(String column, String value) {
+    if (!isTextComparable(column)) {
+      return Fragment.UNKNOWN;
+    }
+    if (value == null) {
+      return Fragment.FALSE;
+    }
+    String sql = "CAST(" + column + " AS text) = ANY(string_to_array(?, ','))";
+    // null entity value is compared as "" in memory
+    if (Arrays.asList(value.split(",")).contains("")) {
+      sql = "(" + column + " IS NULL OR " + sql + ")";
+    }
+    return new Fragment(sql, List.of(value), true);
+  }
+
+  private boolean isTextComparable(String column) {
+    String type = policy.columnType(column);
+    return UUID_TYPE.equals(type) || STRING_TYPES.contains(type);
+  }
+
+  /**
+   * Column name for ${entity.x} operand, null for anything else
+   */
+  private static String entityColumn(String expression) {
+    if (expression != null && expression.startsWith("${entity.") && expression.endsWith("}")) {
+      return expression.substring(9, expression.length() - 1);
+    }
+    return null;
+  }
+
+  /**
+   * Canonical UUID text - other strings can never equal a uuid column value
+   */
+  private static boolean isUuid(String value) {
+    try {
+      return UUID.fromString(value).toString().equals(value);
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package cz.muriel.core.service;
+
+import cz.muriel.core.entity.ChangeEventEntity;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🔀 Partitioned executor pro CDC eventy
+ *
+ * Eventy se shardují podle (realm_id, entity_id) do jednovláknových lanes -
+ * eventy jedné entity jdou vždy do stejné lane, takže se zpracují v pořadí
+ * podle id. Realm má k dispozici jen {@code app.change-events.lanes-per-realm}
+ * lanes (posunutých podle hashe realmu), takže hlučný tenant nezablokuje
+ * všechny lanes a ostatní tenanti běží paralelně.
+ *
+ * Per-realm metriky: cdc.realm.lag.seconds (stáří nejstaršího rozpracovaného
+ * eventu) a cdc.realm.inflight.
+ */
+@Component @Slf4j @ConditionalOnProperty(name = "keycloak.datasource.enabled", havingValue = "true", matchIfMissing = false)
+public class CdcPartitionedExecutor {
+
+  private final ExecutorService[] lanes;
+  private final int realmLanes;
+  private final MeterRegistry meterRegistry;
+  private final Map<String, RealmProgress> realms = new ConcurrentHashMap<>();
+
+  /**
+   * Rozpracované eventy jednoho realmu (id → created_at)
+   */
+  private static final class RealmProgress {
+    private final ConcurrentSkipListMap<Long, LocalDateTime> pending = new ConcurrentSkipListMap<>();
+    private final AtomicLong processed = new AtomicLong();
+
+    double lagSeconds() {
+      Map.Entry<Long, LocalDateTime> oldest = pending.firstEntry();
+      if (oldest == null || oldest.getValue() == null) {
+        return 0.0;
+      }
+      return Math.max(0, Duration.between(oldest.getValue(), LocalDateTime.now()).toMillis())
+          / 1000.0;
+    }
+  }
+
+  public CdcPartitionedExecutor(MeterRegistry meterRegistry,
+      @Value("${app.change-events.lanes:8}") int laneCount,
+      @Value("${app.change-events.lanes-per-realm:4}") int realmLanes) {
+    this.meterRegistry = meterRegistry;
+    this.lanes = new ExecutorService[Math.max(1, laneCount)];
+    this.realmLanes = Math.max(1, Math.min(realmLanes, lanes.length));
+    for (int i = 0; i < lanes.length; i++) {
+      String name = "cdc-lane-" + i;
+      lanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    log.info("🔀 CDC executor: {} lanes, {} lanes per realm", lanes.length, this.realmLanes);
+  }
+
+  /**
+   * Naplánuje zpracování eventu do lane jeho entity
+   *
+   * @param task zpracování eventu - {@code onDone} se zavolá vždy po jeho
+   * doběhnutí (i po chybě)
+   */
+  public void submit(ChangeEventEntity event, Runnable task, Runnable onDone) {
+    String realmId = event.getRealmId() != null ? event.getRealmId() : "unknown";
+    RealmProgress progress = realms.computeIfAbsent(realmId, this::registerRealm);
+    progress.pending.put(event.getId(), event.getCreatedAt());
+
+    int lane = laneOf(realmId, event.getEntityId(), lanes.length, realmLanes);
+    lanes[lane].execute(() -> {
+      try {
+        task.run();
+      } finally {
+        progress.pending.remove(event.getId());
+        progress.processed.incrementAndGet();
+        onDone.run();
+      }
+    });
+  }
+
+  /**
+   * Lane pro (realm, entita) - realm dostane souvislý úsek lanes, entita v něm
+   * vždy stejnou lane
+   */
+  static int laneOf(String realmId, String entityId, int laneCount, int realmLanes) {
+    int base = (realmId.hashCode() & Integer.MAX_VALUE) % laneCount;
+    int offset = ((entityId != null ? entityId.hashCode() : 0) & Integer.MAX_VALUE) % realmLanes;
+    return (base + offset) % laneCount;
+  }
+
+  private RealmProgress registerRealm(String realmId) {
+    RealmProgress progress = new RealmProgress();
+    Gauge.builder("cdc.realm.lag.seconds", progress, RealmProgress::lagSeconds).tag("realm", realmId)
+        .description("Age of the oldest CDC event of the realm still in progress")
+        .register(meterRegistry);
+    Gauge.builder("cdc.realm.inflight", progress, p -> p.pending.size()).tag("realm", realmId)
+        .description("CDC events of the realm submitted and not finished")
+        .register(meterRegistry);
+    FunctionCounter.builder("cdc.realm.processed", progress, p -> p.processed.get())
+        .tag("realm", realmId).description("CDC events of the realm finished")
+        .register(meterRegistry);
+    return progress;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    for (ExecutorService lane : lanes) {
+      lane.shutdown();
+    }
+    try {
+      for (ExecutorService lane : lanes) {
+        if (!lane.awaitTermination(10, TimeUnit.SECONDS)) {
+          log.warn("⚠️ CDC lane did not finish in time");
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
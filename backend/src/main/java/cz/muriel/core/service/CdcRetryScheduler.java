@@ -0,0 +1,211 @@
+package cz.muriel.core.service;
+
+import cz.muriel.core.entity.ChangeEventEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * ⏳ Odložené opakování CDC eventů po konfliktu verzí
+ *
+ * Místo Thread.sleep v projekci se event s konfliktem odloží do in-memory
+ * timer wheel (tick {@code app.change-events.retry.tick-ms}) s exponenciálním
+ * backoffem a drain loop pokračuje dál. Event zůstává v change_events jako
+ * nezpracovaný - po restartu ho znovu načte polling. Dokud čeká na retry,
+ * polling přeskakuje i všechny pozdější eventy stejné entity
+ * ({@link #isDeferred}, {@link #deferredEntityIds}) - pořadí per entita tak
+ * zůstává zachované.
+ *
+ * Metriky: cdc.retry.scheduled{attempt}, cdc.retry.delay, cdc.retry.recovered,
+ * cdc.retry.exhausted, cdc.retry.pending.
+ */
+@Component @Slf4j @ConditionalOnProperty(name = "keycloak.datasource.enabled", havingValue = "true", matchIfMissing = false)
+public class CdcRetryScheduler {
+
+  /**
+   * Odložený event - ids zahrnují i sloučené duplicity
+   */
+  public record Retry(ChangeEventEntity event, List<Long> ids, int attempt) {
+  }
+
+  private record Slot(Retry retry, long rounds, Consumer<Retry> onDue) {
+  }
+
+  private final long tickMs;
+  private final long baseDelayMs;
+  private final long maxDelayMs;
+  private final int maxAttempts;
+  private final Queue<Slot>[] wheel;
+  private final AtomicLong currentTick = new AtomicLong();
+  private final Map<Long, String> pending = new ConcurrentHashMap<>(); // id → entity_id
+  private final ScheduledExecutorService ticker;
+  private final MeterRegistry meterRegistry;
+  private final Timer delays;
+  private final Counter recovered;
+  private final Counter exhausted;
+
+  @SuppressWarnings("unchecked")
+  public CdcRetryScheduler(MeterRegistry meterRegistry,
+      @Value("${app.change-events.retry.tick-ms:100}") long tickMs,
+      @Value("${app.change-events.retry.wheel-size:512}") int wheelSize,
+      @Value("${app.change-events.retry.base-delay-ms:200}") long baseDelayMs,
+      @Value("${app.change-events.retry.max-delay-ms:30000}") long maxDelayMs,
+      @Value("${app.change-events.retry.max-attempts:8}") int maxAttempts) {
+    this.meterRegistry = meterRegistry;
+    this.tickMs = Math.max(1, tickMs);
+    this.baseDelayMs = Math.max(this.tickMs, baseDelayMs);
+    this.maxDelayMs = Math.max(this.baseDelayMs, maxDelayMs);
+    this.maxAttempts = maxAttempts;
+    this.wheel = new Queue[Math.max(1, wheelSize)];
+    for (int i = 0; i < wheel.length; i++) {
+      wheel[i] = new ConcurrentLinkedQueue<>();
+    }
+
+    this.delays = Timer.builder("cdc.retry.delay")
+        .description("Backoff of CDC events re-enqueued after a version conflict")
+        .register(meterRegistry);
+    this.recovered = Counter.builder("cdc.retry.recovered")
+        .description("CDC events that succeeded on a delayed retry").register(meterRegistry);
+    this.exhausted = Counter.builder("cdc.retry.exhausted")
+        .description("CDC events skipped after max retry attempts").register(meterRegistry);
+    Gauge.builder("cdc.retry.pending", pending, Map::size)
+        .description("CDC event ids waiting for a delayed retry").register(meterRegistry);
+
+    this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "cdc-retry-wheel");
+      thread.setDaemon(true);
+      return thread;
+    });
+    ticker.scheduleAtFixedRate(this::tick, this.tickMs, this.tickMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Odloží event na další pokus
+   *
+   * @param attempt číslo pokusu, který se naplánuje (od 1)
+   * @return false, pokud jsou pokusy vyčerpané - volající event přeskočí
+   */
+  public boolean schedule(ChangeEventEntity event, List<Long> ids, int attempt,
+      Consumer<Retry> onDue) {
+    if (attempt > maxAttempts) {
+      exhausted.increment();
+      release(ids);
+      log.error("❌ Version conflict after {} retries for event {} ({} {}) - SKIPPING",
+          maxAttempts, event.getId(), event.getEventType(), event.getEntityId());
+      return false;
+    }
+
+    long delayMs = delayFor(attempt);
+    long ticks = Math.max(1, (delayMs + tickMs - 1) / tickMs);
+    long dueTick = currentTick.get() + ticks;
+
+    ids.forEach(id -> pending.put(id, event.getEntityId()));
+    wheel[(int) (dueTick % wheel.length)]
+        .add(new Slot(new Retry(event, List.copyOf(ids), attempt), (ticks - 1) / wheel.length,
+            onDue));
+
+    Counter.builder("cdc.retry.scheduled").tag("attempt", String.valueOf(attempt))
+        .description("CDC events re-enqueued after a version conflict").register(meterRegistry)
+        .increment();
+    delays.record(Duration.ofMillis(delayMs));
+    log.debug("⏳ Version conflict for event {} ({} {}), retry {}/{} in {} ms", event.getId(),
+        event.getEventType(), event.getEntityId(), attempt, maxAttempts, delayMs);
+    return true;
+  }
+
+  /**
+   * Event čeká na retry - polling ho nemá brát znovu
+   */
+  public boolean isPending(Long id) {
+    return pending.containsKey(id);
+  }
+
+  /**
+   * Entita má odložený event - její pozdější eventy musí počkat
+   */
+  public boolean isDeferred(String entityId) {
+    return entityId != null && pending.containsValue(entityId);
+  }
+
+  /**
+   * Entity s odloženým eventem - polling je vynechá už v dotazu
+   */
+  public Set<String> deferredEntityIds() {
+    return Set.copyOf(pending.values());
+  }
+
+  /**
+   * Retry doběhl (úspěch nebo jiná chyba) - event i entita se vrací pollingu
+   */
+  public void release(List<Long> ids) {
+    ids.forEach(pending::remove);
+  }
+
+  public void recovered(Retry retry) {
+    recovered.increment();
+    log.debug("✅ Event {} succeeded on retry {}", retry.event().getId(), retry.attempt());
+  }
+
+  /**
+   * Exponenciální backoff omezený max-delay-ms
+   */
+  long delayFor(int attempt) {
+    int shift = Math.min(Math.max(attempt - 1, 0), 30);
+    return Math.min(maxDelayMs, baseDelayMs << shift);
+  }
+
+  private void tick() {
+    try {
+      long tick = currentTick.incrementAndGet();
+      Queue<Slot> slot = wheel[(int) (tick % wheel.length)];
+
+      List<Slot> due = new ArrayList<>();
+      List<Slot> later = new ArrayList<>();
+      for (Slot entry = slot.poll(); entry != null; entry = slot.poll()) {
+        if (entry.rounds() > 0) {
+          later.add(new Slot(entry.retry(), entry.rounds() - 1, entry.onDue()));
+        } else {
+          due.add(entry);
+        }
+      }
+      slot.addAll(later);
+
+      for (Slot entry : due) {
+        try {
+          entry.onDue().accept(entry.retry());
+        } catch (Exception e) {
+          release(entry.retry().ids());
+          log.error("❌ Failed to resubmit CDC event {}: {}", entry.retry().event().getId(),
+              e.getMessage(), e);
+        }
+      }
+    } catch (Exception e) {
+      log.error("❌ CDC retry wheel tick failed: {}", e.getMessage(), e);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    ticker.shutdownNow();
+  }
+}
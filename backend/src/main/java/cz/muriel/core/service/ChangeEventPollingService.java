@@ -2,6 +2,7 @@ package cz.muriel.core.service;
 
 import cz.muriel.core.entity.ChangeEventEntity;
 import cz.muriel.core.entity.Tenant;
+import cz.muriel.core.entities.VersionMismatchException;
 import cz.muriel.core.repository.keycloak.ChangeEventRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -9,13 +10,20 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.annotation.PostConstruct;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -23,9 +31,11 @@ import java.util.concurrent.atomic.AtomicInteger;
  * 🔄 Polling služba pro zpracování CDC eventů z change_events tabulky
  * 
  * Tato služba: - Polluje change_events tabulku každých X sekund - Načítá
- * nezpracované eventy (processed = false) - Deleguje zpracování na
- * KeycloakEventProjectionService - Označuje eventy jako zpracované - Pravidelně
- * čistí staré zpracované eventy
+ * nezpracované eventy (processed = false) po dávkách batch-size podle id
+ * (keyset) - Slučuje opakované eventy stejné entity v dávce - Deleguje
+ * zpracování na KeycloakEventProjectionService paralelně přes
+ * CdcPartitionedExecutor (pořadí zachováno per entita) - Označuje dokončené
+ * eventy jako zpracované jedním UPDATE - Pravidelně čistí staré zpracované eventy
  */
 @Service @Slf4j @RequiredArgsConstructor @ConditionalOnProperty(name = "keycloak.datasource.enabled", havingValue = "true", matchIfMissing = false)
 public class ChangeEventPollingService {
@@ -33,10 +43,15 @@ public class ChangeEventPollingService {
   private final ChangeEventRepository changeEventRepository;
   private final KeycloakEventProjectionService projectionService;
   private final TenantService tenantService;
+  private final CdcPartitionedExecutor partitionedExecutor;
+  private final CdcRetryScheduler retryScheduler;
 
   @Value("${app.change-events.batch-size:100}")
   private int batchSize;
 
+  @Value("${app.change-events.max-inflight:1000}")
+  private int maxInflight;
+
   @Value("${app.change-events.flush-interval-seconds:10}")
   private int flushIntervalSeconds;
 
@@ -48,6 +63,7 @@ public class ChangeEventPollingService {
   public void init() {
     log.info("🔄 Change Event Polling Service initialized");
     log.info("   - Batch size: {}", batchSize);
+    log.info("   - Max in-flight events: {}", maxInflight);
     log.info("   - Flush interval: {} seconds", flushIntervalSeconds);
     log.info("   - Listener enabled: true");
   }
@@ -66,91 +82,173 @@ public class ChangeEventPollingService {
     }
 
     try {
-      // Načti nezpracované eventy
-      List<ChangeEventEntity> events = changeEventRepository
-          .findByProcessedFalseOrderByCreatedAtAsc();
+      long cursor = 0;
+      int duplicates = 0;
+      AtomicInteger processed = new AtomicInteger();
+      AtomicInteger failed = new AtomicInteger();
+      AtomicInteger conflicts = new AtomicInteger();
+      Queue<Long> done = new ConcurrentLinkedQueue<>();
+      int permits = Math.max(1, maxInflight);
+      Semaphore inflight = new Semaphore(permits);
+      List<ChangeEventEntity> events;
+
+      // Keyset drain - v heapu je jen okno max-inflight eventů, i po hromadném
+      // importu. Zpracování běží paralelně v lanes podle (realm, entita).
+      do {
+        events = changeEventRepository.findUnprocessedAfter(cursor, batchSize,
+            retryScheduler.deferredEntityIds().toArray(new String[0]));
+        if (events.isEmpty()) {
+          break;
+        }
+        cursor = events.get(events.size() - 1).getId();
+
+        // Opakované eventy (entity_id, event_type) v dávce se zpracují jednou -
+        // projection si stejně dotahuje aktuální stav z Keycloak API
+        Map<String, List<Long>> idsByKey = new LinkedHashMap<>();
+        Map<String, ChangeEventEntity> latestByKey = new HashMap<>();
+        for (ChangeEventEntity event : events) {
+          if (retryScheduler.isDeferred(event.getEntityId())) {
+            continue; // entita čeká na odložený retry - pořadí per entita
+          }
+          String key = event.getEntityId() + "|" + event.getEventType();
+          idsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(event.getId());
+          latestByKey.put(key, event);
+        }
+        duplicates += idsByKey.values().stream().mapToInt(List::size).sum() - latestByKey.size();
+
+        List<ChangeEventEntity> unique = new ArrayList<>(latestByKey.values());
+        unique.sort(Comparator.comparing(ChangeEventEntity::getId));
+
+        for (ChangeEventEntity event : unique) {
+          List<Long> ids = idsByKey.get(event.getEntityId() + "|" + event.getEventType());
+          inflight.acquire();
+          partitionedExecutor.submit(event, () -> {
+            if (retryScheduler.isDeferred(event.getEntityId())) {
+              // Dřívější event entity se v lane mezitím odložil - tento počká
+              // nezpracovaný na další poll
+              return;
+            }
+            try {
+              processEvent(event);
+              done.addAll(ids);
+              processed.incrementAndGet();
+              processedCount.incrementAndGet();
+            } catch (VersionMismatchException e) {
+              // Konflikt verzí - odložit, lane ani drain loop nečekají
+              conflicts.incrementAndGet();
+              if (!retryScheduler.schedule(event, ids, 1, this::retryEvent)) {
+                done.addAll(ids);
+              }
+            } catch (Exception e) {
+              // Event i jeho duplicity zůstávají nezpracované - další poll je zopakuje
+              failed.incrementAndGet();
+              errorCount.incrementAndGet();
+              log.error("❌ Failed to process event {}: {}", event.getId(), e.getMessage(), e);
+            }
+          }, inflight::release);
+        }
+
+        flushProcessed(done);
+      } while (events.size() == batchSize);
 
-      if (events.isEmpty()) {
+      // Další poll začíná od začátku - rozpracované eventy musí být dokončené
+      inflight.acquire(permits);
+      inflight.release(permits);
+      flushProcessed(done);
+
+      if (processed.get() + failed.get() + conflicts.get() == 0) {
         log.trace("📭 No unprocessed events found");
         return;
       }
 
-      log.info("📨 Found {} unprocessed change events, processing...", events.size());
+      log.info(
+          "✅ Processed {} events ({} successful, {} failed, {} conflicts deferred, {} duplicates skipped)",
+          processed.get() + failed.get() + conflicts.get(), processed.get(), failed.get(),
+          conflicts.get(), duplicates);
 
-      // Zpracuj eventy v batch
-      int processed = 0;
-      int failed = 0;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      log.error("❌ Error during event polling: {}", e.getMessage(), e);
+    } finally {
+      isProcessing.set(false);
+    }
+  }
 
-      for (ChangeEventEntity event : events) {
-        try {
-          processEvent(event);
-          processed++;
-          processedCount.incrementAndGet();
-        } catch (Exception e) {
-          failed++;
+  /**
+   * ⏳ Odložený pokus po konfliktu verzí - běží v lane entity jako běžný event
+   */
+  private void retryEvent(CdcRetryScheduler.Retry retry) {
+    ChangeEventEntity event = retry.event();
+    partitionedExecutor.submit(event, () -> {
+      boolean rescheduled = false;
+      try {
+        processEvent(event);
+        changeEventRepository.markProcessed(retry.ids().toArray(new Long[0]));
+        processedCount.incrementAndGet();
+        retryScheduler.recovered(retry);
+      } catch (VersionMismatchException e) {
+        rescheduled = retryScheduler.schedule(event, retry.ids(), retry.attempt() + 1,
+            this::retryEvent);
+        if (!rescheduled) {
+          // Vyčerpané pokusy - přeskočit, aby event neblokoval CDC
+          changeEventRepository.markProcessed(retry.ids().toArray(new Long[0]));
           errorCount.incrementAndGet();
-          log.error("❌ Failed to process event {}: {}", event.getId(), e.getMessage(), e);
-          // Pokračuj se zpracováním dalších eventů
+        }
+      } catch (Exception e) {
+        // Jiná chyba - event zůstává nezpracovaný pro další poll
+        errorCount.incrementAndGet();
+        log.error("❌ Retry of event {} failed: {}", event.getId(), e.getMessage(), e);
+      } finally {
+        if (!rescheduled) {
+          retryScheduler.release(retry.ids());
         }
       }
+    }, () -> {
+    });
+  }
 
-      log.info("✅ Processed {} events ({} successful, {} failed)", events.size(), processed,
-          failed);
-
-    } catch (Exception e) {
-      log.error("❌ Error during event polling: {}", e.getMessage(), e);
-    } finally {
-      isProcessing.set(false);
+  /**
+   * ✅ Označí dokončené eventy jako zpracované jedním UPDATE
+   */
+  private void flushProcessed(Queue<Long> done) {
+    List<Long> ids = new ArrayList<>();
+    for (Long id = done.poll(); id != null; id = done.poll()) {
+      ids.add(id);
+    }
+    if (!ids.isEmpty()) {
+      changeEventRepository.markProcessed(ids.toArray(new Long[0]));
     }
   }
 
   /**
    * 🔧 Zpracuje jednotlivý event
    * 
-   * ⚠️ NO @Transactional here! Each sub-operation (projection, save) uses its own
-   * transaction to allow retry loop with fresh DB reads
+   * ⚠️ NO @Transactional here! Each sub-operation (projection) uses its own
+   * transaction to allow retry loop with fresh DB reads. Event se označí jako
+   * zpracovaný až hromadně za celou dávku.
    */
   protected void processEvent(ChangeEventEntity event) {
     log.debug("🔄 Processing event: id={}, type={}, entity={}, realm={}", event.getId(),
         event.getEventType(), event.getEntityId(), event.getRealmId());
 
-    try {
-      // Mapuj realm_id na tenant_key
-      String tenantKey = mapRealmIdToTenantKey(event.getRealmId());
-
-      if (tenantKey == null) {
-        log.warn("⚠️ Cannot map realm_id {} to tenant_key, skipping event {}", event.getRealmId(),
-            event.getId());
-        // Označíme jako zpracovaný, aby se neopakoval
-        event.markAsProcessed();
-        changeEventRepository.save(event);
-        return;
-      }
-
-      // Deleguj zpracování na projection service (NO transaction here!)
-      projectionService.processCdcEvent(event.getEventType(), event.getEntityId(),
-          event.getRealmId(), tenantKey, null // Payload není potřeba, projection service si dotáhne
-                                              // data z Keycloak API
-      );
-
-      // Označ event jako zpracovaný (v separátní transakci)
-      markEventAsProcessed(event);
-
-      log.debug("✅ Event {} processed successfully", event.getId());
+    // Mapuj realm_id na tenant_key
+    String tenantKey = mapRealmIdToTenantKey(event.getRealmId());
 
-    } catch (Exception e) {
-      log.error("❌ Failed to process event {}: {}", event.getId(), e.getMessage());
-      throw e; // Re-throw pro statistiky
+    if (tenantKey == null) {
+      // Označí se jako zpracovaný s dávkou, aby se neopakoval
+      log.warn("⚠️ Cannot map realm_id {} to tenant_key, skipping event {}", event.getRealmId(),
+          event.getId());
+      return;
     }
-  }
 
-  /**
-   * 🔐 Mark event as processed in separate transaction
-   */
-  @Transactional(propagation = Propagation.REQUIRES_NEW)
-  protected void markEventAsProcessed(ChangeEventEntity event) {
-    event.markAsProcessed();
-    changeEventRepository.save(event);
+    // Deleguj zpracování na projection service (NO transaction here!)
+    projectionService.processCdcEvent(event.getEventType(), event.getEntityId(),
+        event.getRealmId(), tenantKey, null // Payload není potřeba, projection service si dotáhne
+                                            // data z Keycloak API
+    );
+
+    log.debug("✅ Event {} processed successfully", event.getId());
   }
 
   /**
@@ -2,23 +2,74 @@ package cz.muriel.core.service;
 
 import cz.muriel.core.entity.GroupEntity;
 import cz.muriel.core.repository.GroupEntityRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * 📁 SERVICE: Group Hierarchy Management Handles hierarchical group navigation
  * and path-based queries
+ *
+ * Parent links of a tenant are materialized in {@link TenantHierarchyCache}
+ * (one query per tenant), trees and ancestor / descendant sets are built from
+ * it instead of walking lazy {@code subGroups} collections.
  */
-@Slf4j @Service @RequiredArgsConstructor @Transactional(readOnly = true)
+@Slf4j @Service @Transactional(readOnly = true)
 public class GroupHierarchyService {
 
+  private static final String GROUP_GRAPH_SQL = """
+      SELECT id, name, parent_group_id FROM groups WHERE tenant_id = ?
+      """;
+
+  /**
+   * Rewrites the path prefix of all descendants of a moved group in one
+   * statement
+   */
+  private static final String MOVE_DESCENDANT_PATHS_SQL = """
+      UPDATE groups SET path = ? || substr(path, length(?) + 1), updated_at = now()
+      WHERE tenant_id = ? AND left(path, length(?) + 1) = ? || '/'
+      """;
+
   private final GroupEntityRepository groupRepository;
   private final TenantService tenantService;
+  private final JdbcTemplate jdbcTemplate;
+  private final TenantHierarchyCache hierarchies;
+
+  public GroupHierarchyService(GroupEntityRepository groupRepository, TenantService tenantService,
+      JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+      @Value("${app.hierarchy.cache.ttl-seconds:600}") long ttlSeconds,
+      @Value("${app.hierarchy.cache.max-tenants:500}") long maxTenants) {
+    this.groupRepository = groupRepository;
+    this.tenantService = tenantService;
+    this.jdbcTemplate = jdbcTemplate;
+    this.hierarchies = new TenantHierarchyCache("group-hierarchy", meterRegistry,
+        Duration.ofSeconds(ttlSeconds), maxTenants, this::loadGraph);
+  }
+
+  /**
+   * Loads all groups and parent links of a tenant in one query
+   */
+  private TenantHierarchyCache.Graph loadGraph(UUID tenantId) {
+    TenantHierarchyCache.Graph graph = new TenantHierarchyCache.Graph();
+    jdbcTemplate.query(GROUP_GRAPH_SQL, rs -> {
+      UUID groupId = rs.getObject("id", UUID.class);
+      graph.node(groupId, rs.getString("name"));
+      UUID parentId = rs.getObject("parent_group_id", UUID.class);
+      if (parentId != null) {
+        graph.link(parentId, groupId);
+      }
+    }, tenantId);
+    log.debug("📁 Loaded group hierarchy for tenant {}", tenantId);
+    return graph;
+  }
 
   // =====================================================
   // 🌳 HIERARCHY NAVIGATION
@@ -28,50 +79,53 @@ public class GroupHierarchyService {
    * Gets the complete group hierarchy tree for a tenant
    */
   public List<GroupHierarchyNode> getGroupHierarchyTree(String tenantKey) {
-    List<GroupEntity> rootGroups = groupRepository
-        .findRootGroups(tenantService.getTenantIdFromKey(tenantKey));
+    UUID tenantId = tenantService.getTenantIdFromKey(tenantKey);
+    Map<UUID, GroupEntity> groups = groupRepository.findByTenantId(tenantId).stream()
+        .collect(Collectors.toMap(GroupEntity::getId, Function.identity()));
+    TenantHierarchyCache.Graph graph = hierarchies.get(tenantId);
 
-    return rootGroups.stream().map(this::buildHierarchyNode)
+    return graph.roots().stream().filter(groups::containsKey)
+        .map(id -> buildHierarchyNode(groups.get(id), groups, graph, true))
         .sorted(Comparator.comparing(GroupHierarchyNode::getName)).collect(Collectors.toList());
   }
 
   /**
-   * Builds a hierarchy node with all children recursively
+   * Builds a hierarchy node with all children from the materialized graph
    */
-  private GroupHierarchyNode buildHierarchyNode(GroupEntity group) {
+  private GroupHierarchyNode buildHierarchyNode(GroupEntity group, Map<UUID, GroupEntity> groups,
+      TenantHierarchyCache.Graph graph, boolean root) {
     GroupHierarchyNode node = new GroupHierarchyNode();
     node.setId(group.getId());
     node.setName(group.getName());
     node.setPath(group.getPath());
     node.setLevel(group.getLevel());
-    node.setIsRoot(group.isRootGroup());
+    node.setIsRoot(root);
 
-    if (group.getSubGroups() != null && !group.getSubGroups().isEmpty()) {
-      List<GroupHierarchyNode> children = group.getSubGroups().stream()
-          .map(this::buildHierarchyNode).sorted(Comparator.comparing(GroupHierarchyNode::getName))
-          .collect(Collectors.toList());
-      node.setChildren(children);
-    } else {
-      node.setChildren(new ArrayList<>());
-    }
+    List<GroupHierarchyNode> children = graph.children(group.getId()).stream()
+        .filter(groups::containsKey)
+        .map(id -> buildHierarchyNode(groups.get(id), groups, graph, false))
+        .sorted(Comparator.comparing(GroupHierarchyNode::getName)).collect(Collectors.toList());
+    node.setChildren(children);
 
     return node;
   }
 
   /**
-   * Gets all ancestor groups of a group (path-based)
+   * Gets all ancestor groups of a group (materialized hierarchy, one query)
    */
   public List<GroupEntity> getAncestors(GroupEntity group) {
-    List<GroupEntity> ancestors = new ArrayList<>(group.getAllAncestors());
+    Set<UUID> ids = hierarchies.get(group.getTenantId()).ancestors(group.getId());
+    List<GroupEntity> ancestors = new ArrayList<>(groupRepository.findAllById(ids));
     ancestors.sort(Comparator.comparing(GroupEntity::getLevel));
     return ancestors;
   }
 
   /**
-   * Gets all descendant groups of a group (recursive)
+   * Gets all descendant groups of a group (materialized hierarchy, one query)
    */
   public List<GroupEntity> getDescendants(GroupEntity group) {
-    return new ArrayList<>(group.getAllDescendants());
+    Set<UUID> ids = hierarchies.get(group.getTenantId()).descendants(group.getId());
+    return new ArrayList<>(groupRepository.findAllById(ids));
   }
 
   /**
@@ -164,7 +218,10 @@ public class GroupHierarchyService {
       group.setPath(parent.getPath() + "/" + group.getName());
     }
 
-    groupRepository.save(group);
+    GroupEntity saved = groupRepository.save(group);
+    UUID parentId = parent != null ? parent.getId() : null;
+    hierarchies.update(saved.getTenantId(),
+        graph -> graph.setParent(saved.getId(), parentId, saved.getName()));
     log.info("✅ Synced group hierarchy for: {}", group.getName());
   }
 
@@ -182,41 +239,32 @@ public class GroupHierarchyService {
           "Cannot move group under its own descendant: " + newParent.getName());
     }
 
-    // Update parent relationship
-    if (group.getParentGroup() != null) {
-      group.getParentGroup().removeSubGroup(group);
-    }
+    // Update parent relationship - parentGroup owns the FK, sub-group
+    // collections are not loaded just to re-link them
+    String oldPath = group.getPath();
+    String newPath = newParent == null ? "/" + group.getName()
+        : newParent.getPath() + "/" + group.getName();
+    group.setParentGroup(newParent);
+    group.setPath(newPath);
 
-    if (newParent != null) {
-      newParent.addSubGroup(group);
-    } else {
-      group.setParentGroup(null);
-    }
+    GroupEntity saved = groupRepository.saveAndFlush(group);
 
-    // Recalculate paths for this group and all descendants
-    recalculatePaths(group, newParent);
+    // Rewrite paths of all descendants in one statement
+    int descendants = jdbcTemplate.update(MOVE_DESCENDANT_PATHS_SQL, newPath, oldPath,
+        saved.getTenantId(), oldPath, oldPath);
 
-    groupRepository.save(group);
-    log.info("✅ Group moved successfully");
+    UUID parentId = newParent != null ? newParent.getId() : null;
+    hierarchies.update(saved.getTenantId(),
+        graph -> graph.setParent(saved.getId(), parentId, saved.getName()));
+    log.info("✅ Group moved successfully ({} descendant paths updated)", descendants);
   }
 
   /**
-   * Recalculates paths for group and all descendants
+   * Drops the materialized hierarchy of a tenant after the current transaction
+   * (groups created, re-parented or deleted by the CDC projection)
    */
-  private void recalculatePaths(GroupEntity group, GroupEntity newParent) {
-    String newPath;
-    if (newParent == null) {
-      newPath = "/" + group.getName();
-    } else {
-      newPath = newParent.getPath() + "/" + group.getName();
-    }
-
-    group.setPath(newPath);
-
-    // Recursively update all descendants
-    for (GroupEntity child : group.getSubGroups()) {
-      recalculatePaths(child, group);
-    }
+  public void invalidateHierarchy(UUID tenantId) {
+    hierarchies.invalidate(tenantId);
   }
 
   /**
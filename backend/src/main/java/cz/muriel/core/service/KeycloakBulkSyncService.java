@@ -13,21 +13,36 @@ import org.keycloak.admin.client.resource.RealmResource;
 import org.keycloak.representations.idm.GroupRepresentation;
 import org.keycloak.representations.idm.RoleRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 🔄 Bulk synchronizace z Keycloak s progress tracking (Metamodel-based)
  * 
  * Asynchronní synchronizace uživatelů, rolí a skupin z Keycloak do aplikace s
  * real-time progress reporting.
+ * 
+ * Uživatelé: režim {@code keycloak.bulk-sync.mode=streaming} stránkuje přes
+ * first/max, použije už načtenou reprezentaci a stránku zapíše jedním INSERT
+ * ... ON CONFLICT (max {@code keycloak.bulk-sync.parallelism} stránek
+ * souběžně). Režim {@code per-user} synchronizuje po jednom přes
+ * KeycloakSyncService (stejná logika jako CDC).
  */
 @Service @RequiredArgsConstructor @Slf4j
 public class KeycloakBulkSyncService {
@@ -43,6 +58,73 @@ public class KeycloakBulkSyncService {
   // Progress tracking pro aktivní synchronizace
   private final Map<String, SyncProgress> activeSyncs = new ConcurrentHashMap<>();
 
+  @Value("${keycloak.bulk-sync.mode:per-user}")
+  private String userSyncMode;
+
+  @Value("${keycloak.bulk-sync.page-size:500}")
+  private int pageSize;
+
+  @Value("${keycloak.bulk-sync.parallelism:4}")
+  private int parallelism;
+
+  /**
+   * Upsert stránky uživatelů - sloupce jako pole, jeden příkaz na stránku.
+   * Nezměněné řádky se nepřepisují (verze zůstává), změněné zvýší verzi jako
+   * každý jiný zápis (optimistic locking v MetamodelCrudService) - explicitně,
+   * ne jen spoléháním na users_directory_version_trigger.
+   */
+  private static final String UPSERT_USERS_SQL = """
+      INSERT INTO users_directory (tenant_id, keycloak_user_id, username, email, first_name,
+          last_name, display_name, active, phone, department, position, location, is_federated,
+          created_at, updated_at)
+      SELECT ?, u.*, false, now(), now()
+      FROM unnest(?::text[], ?::text[], ?::text[], ?::text[], ?::text[], ?::text[], ?::boolean[],
+          ?::text[], ?::text[], ?::text[], ?::text[])
+          AS u(keycloak_user_id, username, email, first_name, last_name, display_name, active,
+               phone, department, position, location)
+      ON CONFLICT (tenant_id, keycloak_user_id) DO UPDATE SET
+          username = EXCLUDED.username,
+          email = EXCLUDED.email,
+          first_name = EXCLUDED.first_name,
+          last_name = EXCLUDED.last_name,
+          display_name = EXCLUDED.display_name,
+          active = EXCLUDED.active,
+          phone = COALESCE(EXCLUDED.phone, users_directory.phone),
+          department = COALESCE(EXCLUDED.department, users_directory.department),
+          position = COALESCE(EXCLUDED.position, users_directory.position),
+          location = COALESCE(EXCLUDED.location, users_directory.location),
+          deleted_at = CASE WHEN EXCLUDED.active THEN NULL ELSE users_directory.deleted_at END,
+          version = users_directory.version + 1,
+          updated_at = now()
+      WHERE (users_directory.username, users_directory.email, users_directory.first_name,
+             users_directory.last_name, users_directory.display_name, users_directory.active)
+          IS DISTINCT FROM (EXCLUDED.username, EXCLUDED.email, EXCLUDED.first_name,
+             EXCLUDED.last_name, EXCLUDED.display_name, EXCLUDED.active)
+         OR (EXCLUDED.active AND users_directory.deleted_at IS NOT NULL)
+         OR (EXCLUDED.phone IS NOT NULL AND EXCLUDED.phone IS DISTINCT FROM users_directory.phone)
+         OR (EXCLUDED.department IS NOT NULL
+             AND EXCLUDED.department IS DISTINCT FROM users_directory.department)
+         OR (EXCLUDED.position IS NOT NULL
+             AND EXCLUDED.position IS DISTINCT FROM users_directory.position)
+         OR (EXCLUDED.location IS NOT NULL
+             AND EXCLUDED.location IS DISTINCT FROM users_directory.location)
+      """;
+
+  /**
+   * Lokálně založení uživatelé bez keycloak_user_id se napárují podle username
+   * (stejně jako fallback v KeycloakSyncService), aby je upsert nezduplikoval
+   */
+  private static final String LINK_USERS_SQL = """
+      UPDATE users_directory d SET keycloak_user_id = u.keycloak_user_id,
+          version = d.version + 1
+      FROM unnest(?::text[], ?::text[]) AS u(keycloak_user_id, username)
+      WHERE d.tenant_id = ? AND d.keycloak_user_id IS NULL
+        AND LOWER(d.username) = LOWER(u.username)
+        AND NOT EXISTS (SELECT 1 FROM users_directory x
+                        WHERE x.tenant_id = d.tenant_id
+                          AND x.keycloak_user_id = u.keycloak_user_id)
+      """;
+
   /**
    * 🔄 Asynchronní synchronizace uživatelů
    */
@@ -67,10 +149,20 @@ public class KeycloakBulkSyncService {
           .orElseThrow(() -> new IllegalArgumentException("Tenant not found: " + tenantKey));
 
       RealmResource realm = keycloak.realm(tenant.getRealm());
-      List<UserRepresentation> users = realm.users().list();
+      progress.setStatus("running");
+
+      if (isStreamingMode()) {
+        int synced = syncUsersStreaming(realm, tenantKey, progress);
+        progress.setStatus("completed");
+        progress.setEndTime(LocalDateTime.now());
+        updateSyncExecution(progress);
+        log.info("✅ User sync completed for tenant {}: {}/{} users (streaming)", tenantKey,
+            synced, progress.getTotal());
+        return syncId;
+      }
 
+      List<UserRepresentation> users = realm.users().list();
       progress.setTotal(users.size());
-      progress.setStatus("running");
 
       int processed = 0;
       for (UserRepresentation user : users) {
@@ -279,6 +371,13 @@ public class KeycloakBulkSyncService {
           .orElseThrow(() -> new IllegalArgumentException("Tenant not found: " + tenantKey));
 
       RealmResource realm = keycloak.realm(tenant.getRealm());
+
+      if (isStreamingMode()) {
+        int synced = syncUsersStreaming(realm, tenantKey, progress);
+        log.info("✅ Users synced for tenant: {} (count: {}, streaming)", tenantKey, synced);
+        return;
+      }
+
       List<UserRepresentation> users = realm.users().list();
 
       int startTotal = progress.getTotal();
@@ -353,6 +452,153 @@ public class KeycloakBulkSyncService {
     }
   }
 
+  private boolean isStreamingMode() {
+    return "streaming".equalsIgnoreCase(userSyncMode);
+  }
+
+  /**
+   * 🌊 Streaming synchronizace uživatelů - stránky first/max se čtou postupně,
+   * zapisují se paralelně (max parallelism stránek v paměti)
+   *
+   * @return počet zapsaných uživatelů
+   */
+  private int syncUsersStreaming(RealmResource realm, String tenantKey, SyncProgress progress) {
+    UUID tenantId = tenantService.getTenantIdFromKey(tenantKey);
+    int size = Math.max(1, pageSize);
+    int workers = Math.max(1, parallelism);
+
+    Integer count = realm.users().count();
+    progress.setTotal(progress.getTotal() + (count != null ? count : 0));
+
+    AtomicInteger threadCounter = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+      Thread thread = new Thread(runnable,
+          "keycloak-sync-" + tenantKey + "-" + threadCounter.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    Semaphore pages = new Semaphore(workers);
+    AtomicInteger synced = new AtomicInteger();
+
+    try {
+      int first = 0;
+      List<UserRepresentation> page;
+      do {
+        pages.acquire();
+        try {
+          page = realm.users().list(first, size);
+        } catch (RuntimeException e) {
+          pages.release();
+          throw e;
+        }
+
+        if (page.isEmpty()) {
+          pages.release();
+          break;
+        }
+
+        List<UserRepresentation> batch = page;
+        int offset = first;
+        first += size;
+        executor.execute(() -> {
+          try {
+            upsertUserPage(batch, tenantId);
+            synced.addAndGet(batch.size());
+            progress.addProcessed(batch.size());
+          } catch (Exception e) {
+            log.error("❌ Failed to sync users {}-{} for tenant {}: {}", offset,
+                offset + batch.size(), tenantKey, e.getMessage());
+            progress.addError("Users " + offset + "-" + (offset + batch.size()) + ": "
+                + e.getMessage());
+          } finally {
+            pages.release();
+          }
+        });
+      } while (page.size() == size);
+
+      // Počkej na rozpracované stránky
+      pages.acquire(workers);
+      pages.release(workers);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("User sync interrupted", e);
+    } finally {
+      executor.shutdown();
+    }
+
+    return synced.get();
+  }
+
+  /**
+   * Zapíše stránku uživatelů: napárování podle username + jeden upsert
+   */
+  private void upsertUserPage(List<UserRepresentation> users, UUID tenantId) {
+    int n = users.size();
+    String[] ids = new String[n];
+    String[] usernames = new String[n];
+    String[] emails = new String[n];
+    String[] firstNames = new String[n];
+    String[] lastNames = new String[n];
+    String[] displayNames = new String[n];
+    Boolean[] active = new Boolean[n];
+    String[] phones = new String[n];
+    String[] departments = new String[n];
+    String[] positions = new String[n];
+    String[] locations = new String[n];
+
+    for (int i = 0; i < n; i++) {
+      UserRepresentation user = users.get(i);
+      ids[i] = user.getId();
+      usernames[i] = user.getUsername();
+      emails[i] = user.getEmail();
+      firstNames[i] = user.getFirstName();
+      lastNames[i] = user.getLastName();
+      String displayName = buildDisplayName(user.getFirstName(), user.getLastName());
+      displayNames[i] = displayName != null ? displayName : "";
+      active[i] = Boolean.TRUE.equals(user.isEnabled());
+      phones[i] = attribute(user, "phone");
+      departments[i] = attribute(user, "department");
+      positions[i] = attribute(user, "position");
+      locations[i] = attribute(user, "location");
+    }
+
+    jdbcTemplate.update(LINK_USERS_SQL, ps -> {
+      Connection connection = ps.getConnection();
+      ps.setArray(1, textArray(connection, ids));
+      ps.setArray(2, textArray(connection, usernames));
+      ps.setObject(3, tenantId);
+    });
+
+    jdbcTemplate.update(UPSERT_USERS_SQL, ps -> {
+      Connection connection = ps.getConnection();
+      ps.setObject(1, tenantId);
+      ps.setArray(2, textArray(connection, ids));
+      ps.setArray(3, textArray(connection, usernames));
+      ps.setArray(4, textArray(connection, emails));
+      ps.setArray(5, textArray(connection, firstNames));
+      ps.setArray(6, textArray(connection, lastNames));
+      ps.setArray(7, textArray(connection, displayNames));
+      ps.setArray(8, connection.createArrayOf("boolean", active));
+      ps.setArray(9, textArray(connection, phones));
+      ps.setArray(10, textArray(connection, departments));
+      ps.setArray(11, textArray(connection, positions));
+      ps.setArray(12, textArray(connection, locations));
+    });
+  }
+
+  private static Array textArray(Connection connection, String[] values) throws SQLException {
+    return connection.createArrayOf("text", values);
+  }
+
+  private static String attribute(UserRepresentation user, String name) {
+    Map<String, List<String>> attributes = user.getAttributes();
+    if (attributes == null) {
+      return null;
+    }
+    List<String> values = attributes.get(name);
+    return values == null || values.isEmpty() ? null : values.get(0);
+  }
+
   /**
    * 📊 Získá progress konkrétní synchronizace
    */
@@ -485,9 +731,9 @@ public class KeycloakBulkSyncService {
     private final LocalDateTime startTime;
     private LocalDateTime endTime;
     private String status = "pending";
-    private int total = 0;
-    private int processed = 0;
-    private final List<String> errors = new ArrayList<>();
+    private volatile int total = 0;
+    private volatile int processed = 0;
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
 
     public SyncProgress(String syncId, String type, String tenantKey) {
       this.syncId = syncId;
@@ -516,6 +762,10 @@ public class KeycloakBulkSyncService {
       return processed;
     }
 
+    public synchronized void addProcessed(int count) {
+      this.processed += count;
+    }
+
     public void setStatus(String status) {
       this.status = status;
     }
@@ -4,6 +4,7 @@ import cz.muriel.core.cdc.ChangeEvent;
 import cz.muriel.core.dto.UserDto;
 import cz.muriel.core.entity.Tenant;
 import cz.muriel.core.entities.MetamodelCrudService;
+import cz.muriel.core.entities.VersionMismatchException;
 import cz.muriel.core.repository.KeycloakEventLogRepository;
 import cz.muriel.core.entity.KeycloakEventLog;
 import cz.muriel.core.auth.KeycloakAdminService;
@@ -33,7 +34,8 @@ import java.util.*;
  * 
  * ⚠️ TRANSACTION STRATEGY: - NO class-level @Transactional to allow retry with
  * new transactions - Each retry gets REQUIRES_NEW transaction to see latest DB
- * state
+ * state - Version conflicts are not retried in place: VersionMismatchException
+ * propagates and the poller defers the event (CdcRetryScheduler)
  */
 @Service @RequiredArgsConstructor @Slf4j
 public class KeycloakEventProjectionService {
@@ -46,6 +48,8 @@ public class KeycloakEventProjectionService {
   private final KeycloakSyncService keycloakSyncService;
   private final ObjectMapper objectMapper;
   private final CdcLockService cdcLockService;
+  private final RoleExpansionService roleExpansionService;
+  private final GroupHierarchyService groupHierarchyService;
 
   /**
    * ✅ NOVÁ METODA: Process CDC event directly from change_events table
@@ -88,6 +92,9 @@ public class KeycloakEventProjectionService {
         }
       }
 
+      // Cached Keycloak lookups of the entity are stale from now on
+      keycloakAdminService.invalidate(eventType, entityId);
+
       // Process based on event type
       processCdcEventByType(eventType, entityId, tenant.get(), payload);
 
@@ -122,6 +129,14 @@ public class KeycloakEventProjectionService {
     case "GROUP_DELETED" -> deleteGroupById(entityId, tenant);
     default -> log.debug("Ignoring CDC event type: {}", eventType);
     }
+
+    // Role/skupiny a jejich vazby (role_composites, parent_group_id) se mění
+    // přímo SQL - materializovaná hierarchie tenanta se po commitu načte znovu
+    if (eventType.startsWith("ROLE_")) {
+      roleExpansionService.invalidateHierarchy(tenant.getId());
+    } else if (eventType.startsWith("GROUP_")) {
+      groupHierarchyService.invalidateHierarchy(tenant.getId());
+    }
   }
 
   // =====================================================
@@ -210,46 +225,14 @@ public class KeycloakEventProjectionService {
         createUserInNewTransaction(user);
         log.info("✅ User created: {}", username);
       } else {
-        // Retry mechanism for version conflicts with exponential backoff
-        // Each retry gets a NEW transaction to see latest DB state
-        int maxRetries = 5;
-        int attempt = 0;
-        boolean success = false;
-
-        while (!success && attempt < maxRetries) {
-          try {
-            attempt++;
-
-            // ⚡ KRITICKÉ: Volání v NOVÉ transakci pro každý pokus
-            // Tím zajistíme, že vždy čteme aktuální stav z DB
-            updateUserInNewTransaction(user, username);
-
-            success = true;
-            log.info("✅ User updated: {} (attempt {}/{})", username, attempt, maxRetries);
-
-          } catch (cz.muriel.core.entities.VersionMismatchException e) {
-            if (attempt >= maxRetries) {
-              log.error(
-                  "❌ Version conflict after {} retries for user: {} - SKIPPING this update to prevent CDC blocking.",
-                  maxRetries, username);
-              success = true; // Mark as "success" to prevent CDC retry loop
-              break;
-            }
-            log.warn("⚠️ Version conflict for user {}, retrying ({}/{})", username, attempt,
-                maxRetries);
-            try {
-              // Exponential backoff: 100ms, 200ms, 400ms, 800ms, 1600ms
-              long backoffMs = 100L * (1L << (attempt - 1));
-              Thread.sleep(backoffMs);
-            } catch (InterruptedException ie) {
-              Thread.currentThread().interrupt();
-              log.error("Interrupted during retry backoff", ie);
-              break;
-            }
-          }
-        }
+        // ⚡ KRITICKÉ: Volání v NOVÉ transakci - čte aktuální stav z DB.
+        // Konflikt verzí propadne ven a event se odloží (CdcRetryScheduler)
+        updateUserInNewTransaction(user, username);
+        log.info("✅ User updated: {}", username);
       }
 
+    } catch (VersionMismatchException e) {
+      throw e; // retry celého eventu přes CdcRetryScheduler
     } catch (Exception e) {
       // ⚠️ KRITICKÁ ZMĚNA: Zachytit všechny exceptions a jen logovat
       // Neházet dál, aby CDC processor mohl pokračovat
@@ -446,54 +429,25 @@ public class KeycloakEventProjectionService {
         role = metamodelService.create("Role", role, new SystemAuthentication());
         log.info("✅ Role created: {}", roleName);
       } else {
-        // Retry mechanism for version conflicts
-        int maxRetries = 5;
-        int attempt = 0;
-        boolean success = false;
-
-        while (!success && attempt < maxRetries) {
-          try {
-            String roleIdStr = role.get("id").toString();
-            Map<String, Object> currentRole = metamodelService.getById("Role", roleIdStr,
-                new SystemAuthentication());
-
-            if (currentRole == null) {
-              log.warn("⚠️ Role not found in metamodel during update: {}", roleIdStr);
-              break;
-            }
-
-            Long currentVersion = currentRole.get("version") != null
-                ? ((Number) currentRole.get("version")).longValue()
-                : 0L;
-
-            Map<String, Object> mergedRole = new HashMap<>(currentRole);
-            mergedRole.putAll(role);
+        // Aktuální verze těsně před update - konflikt verzí propadne ven a event
+        // se odloží (CdcRetryScheduler), vlákno nečeká
+        String roleIdStr = role.get("id").toString();
+        Map<String, Object> currentRole = metamodelService.getById("Role", roleIdStr,
+            new SystemAuthentication());
+
+        if (currentRole == null) {
+          log.warn("⚠️ Role not found in metamodel during update: {}", roleIdStr);
+        } else {
+          Long currentVersion = currentRole.get("version") != null
+              ? ((Number) currentRole.get("version")).longValue()
+              : 0L;
 
-            role = metamodelService.update("Role", roleIdStr, currentVersion, mergedRole,
-                new SystemAuthentication());
+          Map<String, Object> mergedRole = new HashMap<>(currentRole);
+          mergedRole.putAll(role);
 
-            success = true;
-            log.info("✅ Role updated: {} (attempt {}/{}, version {})", roleName, attempt + 1,
-                maxRetries, currentVersion);
-          } catch (cz.muriel.core.entities.VersionMismatchException e) {
-            attempt++;
-            if (attempt >= maxRetries) {
-              log.error("❌ Version conflict after {} retries for role: {} - SKIPPING", maxRetries,
-                  roleName);
-              success = true;
-              break;
-            }
-            log.warn("⚠️ Version conflict for role {}, retrying ({}/{})", roleName, attempt,
-                maxRetries);
-            try {
-              long backoffMs = 100L * (1L << (attempt - 1));
-              Thread.sleep(backoffMs);
-            } catch (InterruptedException ie) {
-              Thread.currentThread().interrupt();
-              log.error("Interrupted during retry backoff", ie);
-              break;
-            }
-          }
+          role = metamodelService.update("Role", roleIdStr, currentVersion, mergedRole,
+              new SystemAuthentication());
+          log.info("✅ Role updated: {} (version {})", roleName, currentVersion);
         }
       }
 
@@ -502,6 +456,8 @@ public class KeycloakEventProjectionService {
         syncRoleComposites(role, roleId, tenant);
       }
 
+    } catch (VersionMismatchException e) {
+      throw e; // retry celého eventu přes CdcRetryScheduler
     } catch (Exception e) {
       log.error("❌ Failed to sync role: {} - {}", roleId, e.getMessage(), e);
     }
@@ -625,59 +581,33 @@ public class KeycloakEventProjectionService {
         group = metamodelService.create("Group", group, new SystemAuthentication());
         log.info("✅ Group created: {} (path: {})", groupName, groupPath);
       } else {
-        // Retry mechanism for version conflicts
-        int maxRetries = 5;
-        int attempt = 0;
-        boolean success = false;
-
-        while (!success && attempt < maxRetries) {
-          try {
-            String groupIdStr = group.get("id").toString();
-            Map<String, Object> currentGroup = metamodelService.getById("Group", groupIdStr,
-                new SystemAuthentication());
-
-            if (currentGroup == null) {
-              log.warn("⚠️ Group not found in metamodel during update: {}", groupIdStr);
-              break;
-            }
-
-            Long currentVersion = currentGroup.get("version") != null
-                ? ((Number) currentGroup.get("version")).longValue()
-                : 0L;
-
-            Map<String, Object> mergedGroup = new HashMap<>(currentGroup);
-            mergedGroup.putAll(group);
+        // Aktuální verze těsně před update - konflikt verzí propadne ven a event
+        // se odloží (CdcRetryScheduler), vlákno nečeká
+        String groupIdStr = group.get("id").toString();
+        Map<String, Object> currentGroup = metamodelService.getById("Group", groupIdStr,
+            new SystemAuthentication());
+
+        if (currentGroup == null) {
+          log.warn("⚠️ Group not found in metamodel during update: {}", groupIdStr);
+        } else {
+          Long currentVersion = currentGroup.get("version") != null
+              ? ((Number) currentGroup.get("version")).longValue()
+              : 0L;
 
-            group = metamodelService.update("Group", groupIdStr, currentVersion, mergedGroup,
-                new SystemAuthentication());
+          Map<String, Object> mergedGroup = new HashMap<>(currentGroup);
+          mergedGroup.putAll(group);
 
-            success = true;
-            log.info("✅ Group updated: {} (path: {}, attempt {}/{}, version {})", groupName,
-                groupPath, attempt + 1, maxRetries, currentVersion);
-          } catch (cz.muriel.core.entities.VersionMismatchException e) {
-            attempt++;
-            if (attempt >= maxRetries) {
-              log.error("❌ Version conflict after {} retries for group: {} - SKIPPING", maxRetries,
-                  groupName);
-              success = true; // Skip to prevent blocking
-              break;
-            }
-            log.warn("⚠️ Version conflict for group {}, retrying ({}/{})", groupName, attempt,
-                maxRetries);
-            try {
-              long backoffMs = 100L * (1L << (attempt - 1));
-              Thread.sleep(backoffMs);
-            } catch (InterruptedException ie) {
-              Thread.currentThread().interrupt();
-              log.error("Interrupted during retry backoff", ie);
-              break;
-            }
-          }
+          group = metamodelService.update("Group", groupIdStr, currentVersion, mergedGroup,
+              new SystemAuthentication());
+          log.info("✅ Group updated: {} (path: {}, version {})", groupName, groupPath,
+              currentVersion);
         }
       }
 
       syncGroupChildren(group, groupId, tenant);
 
+    } catch (VersionMismatchException e) {
+      throw e; // retry celého eventu přes CdcRetryScheduler
     } catch (Exception e) {
       log.error("❌ Failed to sync group: {} - {}", groupId, e.getMessage(), e);
     }
@@ -714,54 +644,24 @@ public class KeycloakEventProjectionService {
           child = metamodelService.create("Group", child, new SystemAuthentication());
           log.debug("✅ Created child group: {}", childName);
         } else {
-          // Retry mechanism for version conflicts
-          int maxRetries = 5;
-          int attempt = 0;
-          boolean success = false;
-
-          while (!success && attempt < maxRetries) {
-            try {
-              String childIdStr = child.get("id").toString();
-              Map<String, Object> currentChild = metamodelService.getById("Group", childIdStr,
-                  new SystemAuthentication());
-
-              if (currentChild == null) {
-                log.warn("⚠️ Child group not found in metamodel during update: {}", childIdStr);
-                break;
-              }
-
-              Long currentVersion = currentChild.get("version") != null
-                  ? ((Number) currentChild.get("version")).longValue()
-                  : 0L;
-
-              Map<String, Object> mergedChild = new HashMap<>(currentChild);
-              mergedChild.putAll(child);
-
-              child = metamodelService.update("Group", childIdStr, currentVersion, mergedChild,
-                  new SystemAuthentication());
-
-              success = true;
-              log.debug("✅ Updated child group: {} (attempt {}/{}, version {})", childName,
-                  attempt + 1, maxRetries, currentVersion);
-            } catch (cz.muriel.core.entities.VersionMismatchException e) {
-              attempt++;
-              if (attempt >= maxRetries) {
-                log.error("❌ Version conflict after {} retries for child group: {} - SKIPPING",
-                    maxRetries, childName);
-                success = true;
-                break;
-              }
-              log.warn("⚠️ Version conflict for child group {}, retrying ({}/{})", childName,
-                  attempt, maxRetries);
-              try {
-                long backoffMs = 100L * (1L << (attempt - 1));
-                Thread.sleep(backoffMs);
-              } catch (InterruptedException ie) {
-                Thread.currentThread().interrupt();
-                log.error("Interrupted during retry backoff", ie);
-                break;
-              }
-            }
+          // Konflikt verzí propadne ven - odloží se celý event rodiče
+          String childIdStr = child.get("id").toString();
+          Map<String, Object> currentChild = metamodelService.getById("Group", childIdStr,
+              new SystemAuthentication());
+
+          if (currentChild == null) {
+            log.warn("⚠️ Child group not found in metamodel during update: {}", childIdStr);
+          } else {
+            Long currentVersion = currentChild.get("version") != null
+                ? ((Number) currentChild.get("version")).longValue()
+                : 0L;
+
+            Map<String, Object> mergedChild = new HashMap<>(currentChild);
+            mergedChild.putAll(child);
+
+            child = metamodelService.update("Group", childIdStr, currentVersion, mergedChild,
+                new SystemAuthentication());
+            log.debug("✅ Updated child group: {} (version {})", childName, currentVersion);
           }
         }
 
@@ -769,6 +669,8 @@ public class KeycloakEventProjectionService {
         syncGroupChildren(child, childId, tenant);
       }
 
+    } catch (VersionMismatchException e) {
+      throw e; // retry celého eventu přes CdcRetryScheduler
     } catch (Exception e) {
       log.error("❌ Failed to sync child groups: {} - {}", parentGroup.get("name"), e.getMessage(),
           e);
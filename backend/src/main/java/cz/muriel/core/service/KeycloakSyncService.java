@@ -2,6 +2,7 @@ package cz.muriel.core.service;
 
 import cz.muriel.core.auth.KeycloakAdminService;
 import cz.muriel.core.entities.MetamodelCrudService;
+import cz.muriel.core.entities.VersionMismatchException;
 import cz.muriel.core.security.SystemAuthentication;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -240,6 +241,8 @@ public class KeycloakSyncService {
 
       upsertUser(userData, tenantKey);
 
+    } catch (VersionMismatchException e) {
+      throw e; // CDC odloží event, bulk sync zaznamená chybu
     } catch (Exception e) {
       log.error("Failed to sync user from Keycloak: userId={}", keycloakUserId, e);
     }
@@ -2,25 +2,104 @@ package cz.muriel.core.service;
 
 import cz.muriel.core.entity.RoleEntity;
 import cz.muriel.core.repository.RoleEntityRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * 🎭 SERVICE: Role Expansion & Hierarchy Management Handles composite role
  * resolution and flattening
+ *
+ * Composite edges of a tenant are materialized in {@link TenantHierarchyCache}
+ * (one query per tenant) with memoized effective-role sets per role, so
+ * expansion never walks lazy {@code childRoles} collections.
  */
-@Slf4j @Service @RequiredArgsConstructor @Transactional(readOnly = true)
+@Slf4j @Service @Transactional(readOnly = true)
 public class RoleExpansionService {
 
+  private static final String ROLE_GRAPH_SQL = """
+      SELECT r.id, r.name, rc.child_role_id
+      FROM roles r
+      LEFT JOIN role_composites rc ON rc.parent_role_id = r.id
+      WHERE r.tenant_id = ?
+      """;
+
   private final RoleEntityRepository roleRepository;
   private final TenantService tenantService;
+  private final JdbcTemplate jdbcTemplate;
+  private final TenantHierarchyCache hierarchies;
+
+  public RoleExpansionService(RoleEntityRepository roleRepository, TenantService tenantService,
+      JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+      @Value("${app.hierarchy.cache.ttl-seconds:600}") long ttlSeconds,
+      @Value("${app.hierarchy.cache.max-tenants:500}") long maxTenants) {
+    this.roleRepository = roleRepository;
+    this.tenantService = tenantService;
+    this.jdbcTemplate = jdbcTemplate;
+    this.hierarchies = new TenantHierarchyCache("role-hierarchy", meterRegistry,
+        Duration.ofSeconds(ttlSeconds), maxTenants, this::loadGraph);
+  }
+
+  /**
+   * Loads all roles and composite edges of a tenant in one query
+   */
+  private TenantHierarchyCache.Graph loadGraph(UUID tenantId) {
+    TenantHierarchyCache.Graph graph = new TenantHierarchyCache.Graph();
+    jdbcTemplate.query(ROLE_GRAPH_SQL, rs -> {
+      UUID roleId = rs.getObject("id", UUID.class);
+      graph.node(roleId, rs.getString("name"));
+      UUID childId = rs.getObject("child_role_id", UUID.class);
+      if (childId != null) {
+        graph.link(roleId, childId);
+      }
+    }, tenantId);
+    log.debug("🎭 Loaded role hierarchy for tenant {}", tenantId);
+    return graph;
+  }
 
+  private TenantHierarchyCache.Graph graphOf(RoleEntity role) {
+    return hierarchies.get(role.getTenantId());
+  }
+
+  /**
+   * Effective role ids (role + all composite descendants) of a set of roles
+   */
+  private Set<UUID> effectiveRoleIds(Collection<RoleEntity> roles) {
+    Set<UUID> ids = new HashSet<>();
+    for (RoleEntity role : roles) {
+      if (role.getTenantId() == null || role.getId() == null) {
+        continue;
+      }
+      ids.addAll(graphOf(role).closure(role.getId()));
+    }
+    return ids;
+  }
 
+  /**
+   * Loads roles by id in one query, reusing entities the caller already has
+   */
+  private Set<RoleEntity> loadRoles(Set<UUID> ids, Collection<RoleEntity> known) {
+    Set<RoleEntity> result = new HashSet<>();
+    Set<UUID> missing = new HashSet<>(ids);
+    for (RoleEntity role : known) {
+      if (ids.contains(role.getId())) {
+        result.add(role);
+        missing.remove(role.getId());
+      }
+    }
+    if (!missing.isEmpty()) {
+      result.addAll(roleRepository.findAllById(missing));
+    }
+    return result;
+  }
 
   // =====================================================
   // 🔍 COMPOSITE ROLE EXPANSION
@@ -31,38 +110,32 @@ public class RoleExpansionService {
    * Example: User has [ADMIN] → returns [ADMIN, MANAGER, USER]
    */
   public Set<RoleEntity> expandRoles(Set<RoleEntity> roles) {
-    Set<RoleEntity> expandedRoles = new HashSet<>();
-
-    for (RoleEntity role : roles) {
-      expandedRoles.addAll(expandRoleRecursive(role));
-    }
+    Set<RoleEntity> expandedRoles = loadRoles(effectiveRoleIds(roles), roles);
+    expandedRoles.addAll(roles);
 
     log.debug("🎭 Expanded {} roles to {} total roles", roles.size(), expandedRoles.size());
     return expandedRoles;
   }
 
   /**
-   * Expands a single role recursively
+   * Gets all effective role names for a user (flattened) - served from the
+   * materialized hierarchy without loading role entities
    */
-  private Set<RoleEntity> expandRoleRecursive(RoleEntity role) {
-    Set<RoleEntity> result = new HashSet<>();
-    result.add(role);
-
-    if (role.getComposite() && role.getChildRoles() != null) {
-      for (RoleEntity childRole : role.getChildRoles()) {
-        result.addAll(expandRoleRecursive(childRole));
+  public Set<String> getEffectiveRoleNames(Set<RoleEntity> userRoles) {
+    Set<String> names = userRoles.stream().map(RoleEntity::getName).collect(Collectors.toSet());
+    for (RoleEntity role : userRoles) {
+      if (role.getTenantId() == null || role.getId() == null) {
+        continue;
+      }
+      TenantHierarchyCache.Graph graph = graphOf(role);
+      for (UUID id : graph.closure(role.getId())) {
+        String name = graph.name(id);
+        if (name != null) {
+          names.add(name);
+        }
       }
     }
-
-    return result;
-  }
-
-  /**
-   * Gets all effective role names for a user (flattened)
-   */
-  public Set<String> getEffectiveRoleNames(Set<RoleEntity> userRoles) {
-    Set<RoleEntity> expanded = expandRoles(userRoles);
-    return expanded.stream().map(RoleEntity::getName).collect(Collectors.toSet());
+    return names;
   }
 
   /**
@@ -81,15 +154,20 @@ public class RoleExpansionService {
    * Gets the complete role hierarchy tree for a tenant
    */
   public List<RoleHierarchyNode> getRoleHierarchyTree(String tenantKey) {
-    List<RoleEntity> rootRoles = roleRepository.findRootRoles(tenantService.getTenantIdFromKey(tenantKey));
+    UUID tenantId = tenantService.getTenantIdFromKey(tenantKey);
+    Map<UUID, RoleEntity> roles = roleRepository.findByTenantId(tenantId).stream()
+        .collect(Collectors.toMap(RoleEntity::getId, Function.identity()));
+    TenantHierarchyCache.Graph graph = hierarchies.get(tenantId);
 
-    return rootRoles.stream().map(this::buildHierarchyNode).collect(Collectors.toList());
+    return graph.roots().stream().filter(roles::containsKey)
+        .map(id -> buildHierarchyNode(roles.get(id), roles, graph)).collect(Collectors.toList());
   }
 
   /**
-   * Builds a hierarchy node with all children recursively
+   * Builds a hierarchy node with all children from the materialized graph
    */
-  private RoleHierarchyNode buildHierarchyNode(RoleEntity role) {
+  private RoleHierarchyNode buildHierarchyNode(RoleEntity role, Map<UUID, RoleEntity> roles,
+      TenantHierarchyCache.Graph graph) {
     RoleHierarchyNode node = new RoleHierarchyNode();
     node.setId(role.getId());
     node.setName(role.getName());
@@ -97,13 +175,10 @@ public class RoleExpansionService {
     node.setComposite(role.getComposite());
     node.setRoleType(role.getRoleType().name());
 
-    if (role.getComposite() && role.getChildRoles() != null) {
-      List<RoleHierarchyNode> children = role.getChildRoles().stream().map(this::buildHierarchyNode)
-          .sorted(Comparator.comparing(RoleHierarchyNode::getName)).collect(Collectors.toList());
-      node.setChildren(children);
-    } else {
-      node.setChildren(new ArrayList<>());
-    }
+    List<RoleHierarchyNode> children = graph.children(role.getId()).stream()
+        .filter(roles::containsKey).map(id -> buildHierarchyNode(roles.get(id), roles, graph))
+        .sorted(Comparator.comparing(RoleHierarchyNode::getName)).collect(Collectors.toList());
+    node.setChildren(children);
 
     return node;
   }
@@ -112,21 +187,21 @@ public class RoleExpansionService {
    * Gets all parent roles of a given role
    */
   public Set<RoleEntity> getParentRoles(RoleEntity role) {
-    return new HashSet<>(role.getParentRoles());
+    return loadRoles(graphOf(role).parents(role.getId()), List.of());
   }
 
   /**
    * Gets all child roles of a given role (direct only)
    */
   public Set<RoleEntity> getChildRoles(RoleEntity role) {
-    return new HashSet<>(role.getChildRoles());
+    return loadRoles(graphOf(role).children(role.getId()), List.of());
   }
 
   /**
    * Gets all roles that this role contains (recursively)
    */
   public Set<RoleEntity> getAllContainedRoles(RoleEntity role) {
-    return role.getAllRolesRecursive();
+    return loadRoles(graphOf(role).closure(role.getId()), List.of(role));
   }
 
   // =====================================================
@@ -141,44 +216,46 @@ public class RoleExpansionService {
       String tenantKey) {
     log.debug("🔄 Syncing composite relationships for role: {}", parentRole.getName());
 
-    // Clear existing relationships
-    Set<RoleEntity> currentChildren = new HashSet<>(parentRole.getChildRoles());
-    for (RoleEntity child : currentChildren) {
+    UUID tenantId = tenantService.getTenantIdFromKey(tenantKey);
+    List<RoleEntity> newChildren = childRoleNames.isEmpty() ? List.of()
+        : roleRepository.findByNameInAndTenantId(childRoleNames, tenantId);
+
+    // Only touch relationships that actually changed
+    Set<RoleEntity> removedChildren = new HashSet<>(parentRole.getChildRoles());
+    newChildren.forEach(removedChildren::remove);
+    for (RoleEntity child : removedChildren) {
       parentRole.removeChildRole(child);
     }
-
-    // Add new relationships
-    for (String childRoleName : childRoleNames) {
-      Optional<RoleEntity> childRole = roleRepository.findByNameAndTenantId(childRoleName,
-          tenantService.getTenantIdFromKey(tenantKey));
-      childRole.ifPresent(parentRole::addChildRole);
+    for (RoleEntity child : newChildren) {
+      if (!parentRole.containsRole(child)) {
+        parentRole.addChildRole(child);
+      }
     }
 
-    roleRepository.save(parentRole);
+    RoleEntity saved = roleRepository.save(parentRole);
+    Map<UUID, String> childNames = newChildren.stream()
+        .collect(Collectors.toMap(RoleEntity::getId, RoleEntity::getName, (a, b) -> a));
+    hierarchies.update(tenantId,
+        graph -> graph.replaceChildren(saved.getId(), saved.getName(), childNames));
     log.info("✅ Synced {} child roles for {}", childRoleNames.size(), parentRole.getName());
   }
 
   /**
-   * Detects circular dependencies in role hierarchy
+   * Drops the materialized hierarchy of a tenant after the current transaction
+   * (roles or composite edges changed by the CDC projection)
    */
-  public boolean hasCircularDependency(RoleEntity role) {
-    return detectCircular(role, new HashSet<>());
+  public void invalidateHierarchy(UUID tenantId) {
+    hierarchies.invalidate(tenantId);
   }
 
-  private boolean detectCircular(RoleEntity role, Set<UUID> visited) {
-    if (visited.contains(role.getId())) {
+  /**
+   * Detects circular dependencies in role hierarchy
+   */
+  public boolean hasCircularDependency(RoleEntity role) {
+    if (graphOf(role).hasCycleFrom(role.getId())) {
       log.warn("⚠️ Circular dependency detected in role: {}", role.getName());
       return true;
     }
-
-    visited.add(role.getId());
-
-    for (RoleEntity child : role.getChildRoles()) {
-      if (detectCircular(child, new HashSet<>(visited))) {
-        return true;
-      }
-    }
-
     return false;
   }
 
@@ -0,0 +1,248 @@
+package cz.muriel.core.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 🌳 Materialized per-tenant hierarchy (groups / composite roles)
+ *
+ * The whole edge set of a tenant is loaded by one query into an in-memory
+ * {@link Graph}; descendant closures (effective roles, sub-trees) are
+ * memoized per node. Local mutations patch the cached graph in place and only
+ * drop closures of the touched node and its ancestors; a change applied by
+ * plain SQL (CDC projection) drops the tenant's graph after commit. The TTL is
+ * a safety net for changes made by other instances.
+ */
+final class TenantHierarchyCache {
+
+  private final Cache<UUID, Graph> graphs;
+  private final Function<UUID, Graph> loader;
+
+  TenantHierarchyCache(String name, MeterRegistry meterRegistry, Duration ttl, long maxTenants,
+      Function<UUID, Graph> loader) {
+    this.loader = loader;
+    this.graphs = Caffeine.newBuilder().maximumSize(maxTenants).expireAfterWrite(ttl)
+        .recordStats().build();
+    CaffeineCacheMetrics.monitor(meterRegistry, graphs, name);
+  }
+
+  Graph get(UUID tenantId) {
+    return graphs.get(tenantId, loader);
+  }
+
+  /**
+   * Applies a change to an already loaded graph right away, so the rest of the
+   * transaction reads the new edges. On commit the change is applied again to
+   * a graph reloaded in the meantime (changes are idempotent), on rollback the
+   * graph is dropped.
+   */
+  void update(UUID tenantId, Consumer<Graph> change) {
+    Runnable apply = () -> {
+      Graph graph = graphs.getIfPresent(tenantId);
+      if (graph != null) {
+        change.accept(graph);
+      }
+    };
+    apply.run();
+
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          if (status == STATUS_COMMITTED) {
+            apply.run();
+          } else {
+            graphs.invalidate(tenantId);
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Drops the tenant's graph once the current transaction completes - a graph
+   * reloaded before the commit would keep the old edges until the TTL
+   */
+  void invalidate(UUID tenantId) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          graphs.invalidate(tenantId);
+        }
+      });
+    } else {
+      graphs.invalidate(tenantId);
+    }
+  }
+
+  /**
+   * Directed hierarchy of one tenant (parent → children), a tree for groups and
+   * a DAG for composite roles
+   */
+  static final class Graph {
+
+    private final Map<UUID, String> names = new HashMap<>();
+    private final Map<UUID, Set<UUID>> children = new HashMap<>();
+    private final Map<UUID, Set<UUID>> parents = new HashMap<>();
+    private final Map<UUID, Set<UUID>> closures = new HashMap<>();
+
+    synchronized void node(UUID id, String name) {
+      names.put(id, name);
+    }
+
+    synchronized void link(UUID parent, UUID child) {
+      children.computeIfAbsent(parent, k -> new HashSet<>()).add(child);
+      parents.computeIfAbsent(child, k -> new HashSet<>()).add(parent);
+    }
+
+    synchronized String name(UUID id) {
+      return names.get(id);
+    }
+
+    synchronized Set<UUID> children(UUID id) {
+      return Set.copyOf(children.getOrDefault(id, Set.of()));
+    }
+
+    synchronized Set<UUID> parents(UUID id) {
+      return Set.copyOf(parents.getOrDefault(id, Set.of()));
+    }
+
+    /**
+     * Nodes without a parent
+     */
+    synchronized List<UUID> roots() {
+      return names.keySet().stream().filter(id -> parents.getOrDefault(id, Set.of()).isEmpty())
+          .toList();
+    }
+
+    /**
+     * The node and everything reachable below it (memoized)
+     */
+    synchronized Set<UUID> closure(UUID id) {
+      Set<UUID> cached = closures.get(id);
+      if (cached != null) {
+        return cached;
+      }
+
+      Set<UUID> result = new HashSet<>();
+      Deque<UUID> stack = new ArrayDeque<>();
+      stack.push(id);
+      while (!stack.isEmpty()) {
+        UUID current = stack.pop();
+        if (!result.add(current)) {
+          continue;
+        }
+        Set<UUID> known = closures.get(current);
+        if (known != null) {
+          result.addAll(known);
+        } else {
+          stack.addAll(children.getOrDefault(current, Set.of()));
+        }
+      }
+
+      Set<UUID> closure = Set.copyOf(result);
+      closures.put(id, closure);
+      return closure;
+    }
+
+    synchronized Set<UUID> descendants(UUID id) {
+      Set<UUID> descendants = new HashSet<>(closure(id));
+      descendants.remove(id);
+      return descendants;
+    }
+
+    synchronized Set<UUID> ancestors(UUID id) {
+      Set<UUID> result = new HashSet<>();
+      Deque<UUID> queue = new ArrayDeque<>(parents.getOrDefault(id, Set.of()));
+      while (!queue.isEmpty()) {
+        UUID current = queue.poll();
+        if (result.add(current)) {
+          queue.addAll(parents.getOrDefault(current, Set.of()));
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Is there a cycle reachable from the node
+     */
+    synchronized boolean hasCycleFrom(UUID id) {
+      return hasCycle(id, new HashSet<>(), new HashSet<>());
+    }
+
+    private boolean hasCycle(UUID id, Set<UUID> onPath, Set<UUID> done) {
+      if (onPath.contains(id)) {
+        return true;
+      }
+      if (!done.add(id)) {
+        return false;
+      }
+      onPath.add(id);
+      for (UUID child : children.getOrDefault(id, Set.of())) {
+        if (hasCycle(child, onPath, done)) {
+          return true;
+        }
+      }
+      onPath.remove(id);
+      return false;
+    }
+
+    /**
+     * Replaces the direct children of a node (composite role sync)
+     */
+    synchronized void replaceChildren(UUID parent, String parentName,
+        Map<UUID, String> newChildren) {
+      forgetClosures(parent);
+      for (UUID child : children.getOrDefault(parent, Set.of())) {
+        parents.getOrDefault(child, new HashSet<>()).remove(parent);
+      }
+      children.remove(parent);
+      names.put(parent, parentName);
+      newChildren.forEach((child, name) -> {
+        names.put(child, name);
+        link(parent, child);
+      });
+    }
+
+    /**
+     * Re-parents a node of a tree (group sync / move)
+     */
+    synchronized void setParent(UUID child, UUID parent, String name) {
+      forgetClosures(child);
+      for (UUID previous : parents.getOrDefault(child, Set.of())) {
+        children.getOrDefault(previous, new HashSet<>()).remove(child);
+      }
+      parents.remove(child);
+      names.put(child, name);
+      if (parent != null) {
+        link(parent, child);
+        forgetClosures(parent);
+      }
+    }
+
+    /**
+     * Drops memoized closures containing the node - its own and its ancestors'
+     */
+    private void forgetClosures(UUID id) {
+      closures.remove(id);
+      ancestors(id).forEach(closures::remove);
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package cz.muriel.core.streaming.consumer;
+
+import cz.muriel.core.metamodel.MetamodelLoader;
+import cz.muriel.core.metamodel.MetamodelRegistry;
+import cz.muriel.core.metamodel.schema.EntitySchema;
+import cz.muriel.core.metamodel.schema.GlobalMetamodelConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 🎚️ Listener concurrency per entity topic
+ * 
+ * Resolves {@code consumerConcurrency} of the entity's streaming config, falling
+ * back to {@code defaultConsumerConcurrency}. Used from @KafkaListener SpEL:
+ * {@code concurrency = "#{@consumerConcurrency.forEntity('User')}"}
+ */
+@Component @ConditionalOnProperty(name = "streaming.enabled", havingValue = "true")
+public class ConsumerConcurrency {
+
+  private final MetamodelRegistry metamodelRegistry;
+  private final GlobalMetamodelConfig globalConfig;
+
+  public ConsumerConcurrency(MetamodelRegistry metamodelRegistry,
+      MetamodelLoader metamodelLoader) {
+    this.metamodelRegistry = metamodelRegistry;
+    this.globalConfig = metamodelLoader.loadGlobalConfig();
+  }
+
+  public String forEntity(String entity) {
+    EntitySchema schema = metamodelRegistry.getSchema(entity).orElse(null);
+    if (schema != null && schema.getStreaming() != null
+        && schema.getStreaming().getConsumerConcurrency() != null) {
+      return String.valueOf(Math.max(1, schema.getStreaming().getConsumerConcurrency()));
+    }
+    return String.valueOf(Math.max(1, globalConfig.getStreaming().getDefaultConsumerConcurrency()));
+  }
+}
@@ -1,16 +1,31 @@
 package cz.muriel.core.streaming.consumer;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.muriel.core.streaming.dto.InflightStateDto;
 import cz.muriel.core.streaming.metrics.StreamingMetrics;
+import cz.muriel.core.streaming.service.InflightPublisher;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
 /**
  * 📥 Event Consumer
  * 
@@ -18,10 +33,19 @@ import org.springframework.stereotype.Component;
  * with JSON parsing and metrics. Extend this for specific business logic: -
  * Real-time notifications/webhooks - Analytics/reporting pipelines - Search
  * index updates - Cache invalidation
+ * 
+ * All listeners are batch listeners (one poll per call) - per-topic concurrency
+ * comes from {@link ConsumerConcurrency} / streaming.consumer.* properties.
  */
 @Slf4j @Component @ConditionalOnProperty(name = "streaming.enabled", havingValue = "true")
 public class EventConsumer {
 
+  private static final Duration NACK_SLEEP = Duration.ofSeconds(1);
+  private static final Set<String> EVENT_FIELDS = Set.of("eventType", "entityId", "operation");
+  private static final Set<String> INFLIGHT_FIELDS = Set.of("commandId", "status", "operation");
+  private static final Set<String> DLQ_FIELDS = Set.of("commandId", "error", "retryCount",
+      "entityType");
+
   private final ObjectMapper objectMapper;
   private final StreamingMetrics metrics;
 
@@ -32,141 +56,159 @@ public class EventConsumer {
   }
 
   /**
-   * Consume User events from entity.events.user topic
+   * Consume User events from entity.events.user topic - one poll per call
    * 
-   * Processes final committed events after outbox dispatch. Parses JSON payload
-   * and extracts metadata for downstream processing.
+   * Processes final committed events after outbox dispatch. Only the metadata
+   * fields are stream-parsed (no tree). On failure the records before the
+   * failing one are committed and the rest is redelivered.
    */
-  @KafkaListener(topics = "#{@streamingConfig.getTopic().getPrefix() + '.entity.events.user'}", groupId = "core-platform-events", concurrency = "2", autoStartup = "${streaming.consumer.auto-start:false}")
-  public void consumeUserEvents(ConsumerRecord<String, String> record, Acknowledgment ack) {
+  @KafkaListener(topics = "#{@streamingConfig.getTopic().getPrefix() + '.entity.events.user'}", groupId = "core-platform-events", containerFactory = "batchKafkaListenerContainerFactory", concurrency = "#{@consumerConcurrency.forEntity('User')}", autoStartup = "${streaming.consumer.auto-start:false}")
+  public void consumeUserEvents(List<ConsumerRecord<String, String>> records, Acknowledgment ack) {
     long startTime = System.currentTimeMillis();
 
-    try {
-      log.info("📩 Received User event: key={}, partition={}, offset={}", record.key(),
-          record.partition(), record.offset());
-
-      // ✅ Parse JSON payload
-      JsonNode payload = objectMapper.readTree(record.value());
-
-      String eventType = payload.path("eventType").asText("UNKNOWN");
-      String entityId = payload.path("entityId").asText();
-      String operation = payload.path("operation").asText("UNKNOWN");
-
-      log.debug("Event details: type={}, entity={}, operation={}", eventType, entityId, operation);
-      log.debug("Payload: {}", record.value());
-
-      // ✅ Record metrics
-      metrics.recordWorkerSuccess("User", "normal");
-
-      // ✅ Apply business logic extensions
-      applyBusinessLogic(eventType, entityId, operation, record.value());
-
-      // Acknowledge message
-      ack.acknowledge();
-
-      long duration = System.currentTimeMillis() - startTime;
-      log.debug("✅ User event processed in {}ms", duration);
+    for (int i = 0; i < records.size(); i++) {
+      ConsumerRecord<String, String> record = records.get(i);
+      try {
+        log.debug("📩 Received User event: key={}, partition={}, offset={}", record.key(),
+            record.partition(), record.offset());
+
+        Map<String, String> payload = readFields(record.value(), EVENT_FIELDS);
+        String eventType = payload.getOrDefault("eventType", "UNKNOWN");
+        String entityId = payload.get("entityId");
+        String operation = payload.getOrDefault("operation", "UNKNOWN");
+
+        log.debug("Event details: type={}, entity={}, operation={}", eventType, entityId,
+            operation);
+
+        // ✅ Apply business logic extensions
+        applyBusinessLogic(eventType, entityId, operation, record.value());
+        metrics.recordWorkerSuccess("User", "normal");
+
+      } catch (Exception e) {
+        log.error("Failed to process User event at offset {}: {}", record.offset(),
+            e.getMessage(), e);
+        metrics.recordWorkerError("User", "normal", "processing_error");
+
+        // Commit what succeeded, redeliver from the failing record
+        ack.nack(i, NACK_SLEEP);
+        return;
+      }
+    }
 
-    } catch (Exception e) {
-      log.error("Failed to process User event at offset {}: {}", record.offset(), e.getMessage(),
-          e);
-      metrics.recordWorkerError("User", "normal", "processing_error");
+    ack.acknowledge();
+    log.info("✅ {} User events processed in {}ms", records.size(),
+        System.currentTimeMillis() - startTime);
+  }
 
-      // Don't acknowledge - will be retried
-      throw new RuntimeException("Failed to process User event", e);
+  /**
+   * Consume Inflight Command events from entity.events.inflight topic - one
+   * poll per call
+   * 
+   * Tracks in-progress commands for monitoring dashboards. Best-effort: broken
+   * records are skipped, the poll is acknowledged as a whole.
+   */
+  @KafkaListener(topics = "#{@streamingConfig.getTopic().getPrefix() + '.entity.events.inflight'}", groupId = "core-platform-events", containerFactory = "batchKafkaListenerContainerFactory", concurrency = "${streaming.consumer.inflight-concurrency:2}", autoStartup = "${streaming.consumer.auto-start:false}")
+  public void consumeInflightEvents(List<ConsumerRecord<String, String>> records,
+      Acknowledgment ack) {
+    for (ConsumerRecord<String, String> record : records) {
+      try {
+        Map<String, String> payload = readFields(record.value(), INFLIGHT_FIELDS);
+        String commandId = payload.get("commandId");
+        String status = payload.getOrDefault("status", "UNKNOWN");
+        String operation = payload.get("operation");
+
+        log.debug("Inflight command: id={}, status={}, operation={}", commandId, status,
+            operation);
+        metrics.recordWorkerSuccess("Inflight", "normal");
+
+        // ✅ Apply monitoring logic extensions
+        applyMonitoringLogic(commandId, status, operation, record.value());
+
+      } catch (Exception e) {
+        log.warn("Skipping Inflight event at offset {}: {}", record.offset(), e.getMessage());
+        metrics.recordWorkerError("Inflight", "normal", "processing_error");
+      }
     }
+
+    ack.acknowledge();
+    log.debug("✅ {} Inflight events processed", records.size());
   }
 
   /**
-   * Consume Inflight Command events from entity.events.inflight topic
+   * Consume inflight records of entity.inflight.{entity} topics as a batch
    * 
-   * Tracks in-progress commands for monitoring dashboards. Parses JSON to extract
-   * command status and timing information.
+   * Both coalesced batch records and per-event records are streamed (no tree)
+   * and folded to the latest state per entity before the monitoring hook runs;
+   * the whole poll is acknowledged at once.
    */
-  @KafkaListener(topics = "#{@streamingConfig.getTopic().getPrefix() + '.entity.events.inflight'}", groupId = "core-platform-events", concurrency = "2", autoStartup = "${streaming.consumer.auto-start:false}")
-  public void consumeInflightEvents(ConsumerRecord<String, String> record, Acknowledgment ack) {
+  @KafkaListener(topicPattern = "#{@streamingConfig.getTopic().getPrefix() + '\\.entity\\.inflight\\..*'}", groupId = "core-platform-inflight", containerFactory = "batchKafkaListenerContainerFactory", concurrency = "${streaming.consumer.inflight-concurrency:2}", autoStartup = "${streaming.consumer.auto-start:false}")
+  public void consumeInflightBatch(List<ConsumerRecord<String, String>> records,
+      Acknowledgment ack) {
     long startTime = System.currentTimeMillis();
+    Map<String, InflightStateDto> latest = new LinkedHashMap<>();
+
+    for (ConsumerRecord<String, String> record : records) {
+      try {
+        Header format = record.headers().lastHeader(InflightPublisher.FORMAT_HEADER);
+        if (format != null && InflightPublisher.FORMAT_BATCH
+            .equals(new String(format.value(), StandardCharsets.UTF_8))) {
+          parseInflightBatch(record.value(), latest);
+        } else {
+          InflightStateDto state = parseInflightEvent(record.value());
+          latest.put(state.getEntity() + "#" + state.getEntityId(), state);
+        }
+        metrics.recordWorkerSuccess("Inflight", "normal");
+      } catch (Exception e) {
+        // Inflight state is best-effort - a broken record must not block the poll
+        log.warn("Skipping malformed inflight record at {}-{}@{}: {}", record.topic(),
+            record.partition(), record.offset(), e.getMessage());
+        metrics.recordWorkerError("Inflight", "normal", "processing_error");
+      }
+    }
 
-    try {
-      log.info("📩 Received Inflight event: key={}, partition={}, offset={}", record.key(),
-          record.partition(), record.offset());
-
-      // ✅ Parse JSON payload
-      JsonNode payload = objectMapper.readTree(record.value());
-
-      String commandId = payload.path("commandId").asText();
-      String status = payload.path("status").asText("UNKNOWN");
-      String operation = payload.path("operation").asText();
-
-      log.debug("Inflight command: id={}, status={}, operation={}", commandId, status, operation);
-      log.debug("Payload: {}", record.value());
-
-      // ✅ Record metrics
-      metrics.recordWorkerSuccess("Inflight", "normal");
-
-      // ✅ Apply monitoring logic extensions
-      applyMonitoringLogic(commandId, status, operation, record.value());
-
-      // Acknowledge message
-      ack.acknowledge();
-
-      long duration = System.currentTimeMillis() - startTime;
-      log.debug("✅ Inflight event processed in {}ms", duration);
-
-    } catch (Exception e) {
-      log.error("Failed to process Inflight event at offset {}: {}", record.offset(),
-          e.getMessage(), e);
-      metrics.recordWorkerError("Inflight", "normal", "processing_error");
+    applyInflightStates(List.copyOf(latest.values()));
+    ack.acknowledge();
 
-      // Don't acknowledge - will be retried
-      throw new RuntimeException("Failed to process Inflight event", e);
-    }
+    log.debug("✅ {} inflight records → {} states processed in {}ms", records.size(),
+        latest.size(), System.currentTimeMillis() - startTime);
   }
 
   /**
-   * Consume DLQ (Dead Letter Queue) events from entity.events.dlq topic
+   * Consume DLQ (Dead Letter Queue) events from entity.events.dlq topic - one
+   * poll per call
    * 
    * Processes failed commands that exceeded retry limits. Parses JSON to extract
    * failure metadata for alerting and manual intervention.
    */
-  @KafkaListener(topics = "#{@streamingConfig.getTopic().getPrefix() + '.entity.events.dlq'}", groupId = "core-platform-events-dlq", concurrency = "1", autoStartup = "${streaming.consumer.auto-start:false}")
-  public void consumeDLQEvents(ConsumerRecord<String, String> record, Acknowledgment ack) {
-    long startTime = System.currentTimeMillis();
-
-    try {
-      log.warn("⚠️ Received DLQ event: key={}, partition={}, offset={}", record.key(),
-          record.partition(), record.offset());
-
-      // ✅ Parse JSON payload
-      JsonNode payload = objectMapper.readTree(record.value());
-
-      String commandId = payload.path("commandId").asText();
-      String errorMessage = payload.path("error").asText("Unknown error");
-      int retryCount = payload.path("retryCount").asInt(0);
-      String entityType = payload.path("entityType").asText("UNKNOWN");
-
-      log.error("DLQ command failed: id={}, retries={}, type={}, error={}", commandId, retryCount,
-          entityType, errorMessage);
-      log.error("Failed payload: {}", record.value());
-
-      // ✅ Record metrics
-      metrics.recordWorkerError(entityType, "dlq", "max_retries_exceeded");
-
-      // Note: DLT storage/alerting is handled by centralized DltManager
-
-      // Acknowledge message even for DLQ (prevent infinite loops)
-      ack.acknowledge();
-
-      long duration = System.currentTimeMillis() - startTime;
-      log.warn("⚠️ DLQ event logged in {}ms - manual intervention may be required", duration);
-
-    } catch (Exception e) {
-      log.error("Failed to process DLQ event at offset {}: {}", record.offset(), e.getMessage(), e);
-      metrics.recordWorkerError("DLQ", "dlq", "dlq_processing_error");
-
-      // Acknowledge even on error to prevent infinite DLQ loops
-      ack.acknowledge();
+  @KafkaListener(topics = "#{@streamingConfig.getTopic().getPrefix() + '.entity.events.dlq'}", groupId = "core-platform-events-dlq", containerFactory = "batchKafkaListenerContainerFactory", concurrency = "${streaming.consumer.dlq-concurrency:1}", autoStartup = "${streaming.consumer.auto-start:false}")
+  public void consumeDLQEvents(List<ConsumerRecord<String, String>> records, Acknowledgment ack) {
+    for (ConsumerRecord<String, String> record : records) {
+      try {
+        Map<String, String> payload = readFields(record.value(), DLQ_FIELDS);
+        String commandId = payload.get("commandId");
+        String errorMessage = payload.getOrDefault("error", "Unknown error");
+        String retryCount = payload.getOrDefault("retryCount", "0");
+        String entityType = payload.getOrDefault("entityType", "UNKNOWN");
+
+        log.error("DLQ command failed: id={}, retries={}, type={}, error={}", commandId,
+            retryCount, entityType, errorMessage);
+        log.debug("Failed payload: {}", record.value());
+
+        // ✅ Record metrics
+        metrics.recordWorkerError(entityType, "dlq", "max_retries_exceeded");
+
+        // Note: DLT storage/alerting is handled by centralized DltManager
+
+      } catch (Exception e) {
+        log.error("Failed to process DLQ event at offset {}: {}", record.offset(), e.getMessage(),
+            e);
+        metrics.recordWorkerError("DLQ", "dlq", "dlq_processing_error");
+      }
     }
+
+    // Acknowledge even on error to prevent infinite DLQ loops
+    ack.acknowledge();
+    log.warn("⚠️ {} DLQ events logged - manual intervention may be required", records.size());
   }
 
   /**
@@ -191,6 +233,19 @@ public class EventConsumer {
         entityId, operation);
   }
 
+  /**
+   * Extension point for inflight dashboards - latest state per entity of one
+   * poll. Default delegates to {@link #applyMonitoringLogic}.
+   * 
+   * @param states Latest inflight states
+   */
+  protected void applyInflightStates(List<InflightStateDto> states) {
+    for (InflightStateDto state : states) {
+      applyMonitoringLogic(String.valueOf(state.getCorrelationId()), state.getStatus(),
+          state.getOperation(), null);
+    }
+  }
+
   /**
    * Extension point for monitoring/observability logic. Override this method to
    * add custom monitoring (Grafana dashboards, custom metrics, etc.)
@@ -211,4 +266,98 @@ public class EventConsumer {
     log.trace("Monitoring logic extension point - commandId={}, status={}, operation={}", commandId,
         status, operation);
   }
+
+  /**
+   * Stream-parse a coalesced inflight batch record into {@code latest}
+   */
+  private void parseInflightBatch(String value, Map<String, InflightStateDto> latest)
+      throws IOException {
+    try (JsonParser parser = objectMapper.getFactory().createParser(value)) {
+      String entity = null;
+      expect(parser.nextToken(), JsonToken.START_OBJECT);
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.currentName();
+        JsonToken token = parser.nextToken();
+        if ("entity".equals(field)) {
+          entity = parser.getText();
+        } else if ("states".equals(field) && token == JsonToken.START_ARRAY) {
+          while (parser.nextToken() == JsonToken.START_OBJECT) {
+            InflightStateDto state = readState(parser);
+            state.setEntity(entity); // "entity" is written before "states"
+            latest.put(entity + "#" + state.getEntityId(), state);
+          }
+        } else {
+          parser.skipChildren();
+        }
+      }
+    }
+  }
+
+  /**
+   * Stream-parse a single per-event inflight record
+   */
+  private InflightStateDto parseInflightEvent(String value) throws IOException {
+    try (JsonParser parser = objectMapper.getFactory().createParser(value)) {
+      expect(parser.nextToken(), JsonToken.START_OBJECT);
+      return readState(parser);
+    }
+  }
+
+  /**
+   * Read one state object - parser positioned on its START_OBJECT. Accepts both
+   * batch (camelCase, epoch ms) and per-event (snake_case, ISO) field names.
+   */
+  private InflightStateDto readState(JsonParser parser) throws IOException {
+    InflightStateDto state = new InflightStateDto();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken token = parser.nextToken();
+      if (token.isStructStart()) {
+        parser.skipChildren();
+        continue;
+      }
+      String text = token == JsonToken.VALUE_NULL ? null : parser.getText();
+      switch (field) {
+      case "entity" -> state.setEntity(text);
+      case "entityId", "entity_id" -> state.setEntityId(text != null ? UUID.fromString(text) : null);
+      case "correlationId", "correlation_id" -> state
+          .setCorrelationId(text != null && !"null".equals(text) ? UUID.fromString(text) : null);
+      case "operation" -> state.setOperation(text);
+      case "status" -> state.setStatus(text);
+      case "timestamp" -> state.setTimestamp(token == JsonToken.VALUE_NUMBER_INT
+          ? parser.getLongValue()
+          : Instant.parse(text).toEpochMilli());
+      case "error" -> state.setError(text);
+      default -> {
+      }
+      }
+    }
+    return state;
+  }
+
+  /**
+   * Stream-parse selected top-level scalar fields, nested values are skipped
+   */
+  private Map<String, String> readFields(String value, Set<String> fields) throws IOException {
+    Map<String, String> result = new HashMap<>();
+    try (JsonParser parser = objectMapper.getFactory().createParser(value)) {
+      expect(parser.nextToken(), JsonToken.START_OBJECT);
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.currentName();
+        JsonToken token = parser.nextToken();
+        if (token.isStructStart()) {
+          parser.skipChildren();
+        } else if (token != JsonToken.VALUE_NULL && fields.contains(field)) {
+          result.put(field, parser.getText());
+        }
+      }
+    }
+    return result;
+  }
+
+  private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+    if (actual != expected) {
+      throw new IOException("Expected " + expected + " but got " + actual);
+    }
+  }
 }
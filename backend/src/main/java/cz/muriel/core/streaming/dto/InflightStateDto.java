@@ -0,0 +1,22 @@
+package cz.muriel.core.streaming.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Latest inflight state of one entity - element of a coalesced inflight batch
+ */
+@Data @Builder @NoArgsConstructor @AllArgsConstructor
+public class InflightStateDto {
+  private String entity;
+  private UUID entityId;
+  private UUID correlationId;
+  private String operation;
+  private String status;
+  private long timestamp;
+  private String error;
+}
@@ -12,7 +12,6 @@ import java.util.UUID;
  * Command Queue Entity Represents an async command waiting to be processed
  */
 @Data @Entity @Table(name = "command_queue", indexes = {
-    @Index(name = "idx_command_queue_status_priority_available", columnList = "status, priority, available_at"),
     @Index(name = "idx_command_queue_entity_entity_id", columnList = "entity, entity_id"),
     @Index(name = "idx_command_queue_operation_id", columnList = "operation_id"),
     @Index(name = "idx_command_queue_correlation_id", columnList = "correlation_id"),
@@ -28,6 +27,13 @@ public class CommandQueue {
   @Column(name = "entity_id", nullable = false)
   private UUID entityId;
 
+  /**
+   * hashtext(entity || ':' || entity_id) - generated by the database, selects
+   * worker lane and lock partition
+   */
+  @Column(name = "entity_hash", insertable = false, updatable = false)
+  private Integer entityHash;
+
   @Column(name = "tenant_id", nullable = false)
   private UUID tenantId;
 
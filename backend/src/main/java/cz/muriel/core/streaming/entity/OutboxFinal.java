@@ -2,22 +2,24 @@ package cz.muriel.core.streaming.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
-import org.hibernate.annotations.CreationTimestamp;
 
+import java.io.Serializable;
 import java.time.Instant;
 import java.util.UUID;
 
 /**
  * Outbox Final Entity Transactional outbox for publishing events to Kafka
+ * 
+ * Table is RANGE-partitioned by day on created_at (primary key is id,
+ * created_at), see {@code OutboxPartitionService}. Both key columns are
+ * assigned on persist, so every update by key names its partition.
  */
 @Data @Entity @Table(name = "outbox_final", indexes = {
-    @Index(name = "idx_outbox_final_sent_at", columnList = "sent_at"),
     @Index(name = "idx_outbox_final_entity_entity_id", columnList = "entity, entity_id"),
-    @Index(name = "idx_outbox_final_correlation_id", columnList = "correlation_id"),
-    @Index(name = "idx_outbox_final_created_at", columnList = "created_at") })
+    @Index(name = "idx_outbox_final_correlation_id", columnList = "correlation_id") }) @IdClass(OutboxFinal.OutboxFinalId.class)
 public class OutboxFinal {
 
-  @Id @GeneratedValue(strategy = GenerationType.UUID)
+  @Id
   private UUID id;
 
   @Column(nullable = false, length = 100)
@@ -47,12 +49,34 @@ public class OutboxFinal {
   @Column(name = "sent_at")
   private Instant sentAt;
 
+  @Column(name = "next_attempt_at")
+  private Instant nextAttemptAt;
+
   @Column(name = "retry_count", nullable = false)
   private Integer retryCount = 0;
 
   @Column(name = "error_message", columnDefinition = "text")
   private String errorMessage;
 
-  @CreationTimestamp @Column(name = "created_at", nullable = false, updatable = false)
+  @Id @Column(name = "created_at", nullable = false, updatable = false)
   private Instant createdAt;
+
+  @PrePersist
+  void assignKey() {
+    if (id == null) {
+      id = UUID.randomUUID();
+    }
+    if (createdAt == null) {
+      createdAt = Instant.now();
+    }
+  }
+
+  /**
+   * Composite primary key - partition key included
+   */
+  @Data
+  public static class OutboxFinalId implements Serializable {
+    private UUID id;
+    private Instant createdAt;
+  }
 }
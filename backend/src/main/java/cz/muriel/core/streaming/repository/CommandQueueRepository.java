@@ -3,6 +3,7 @@ package cz.muriel.core.streaming.repository;
 import cz.muriel.core.streaming.entity.CommandQueue;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -19,28 +20,56 @@ import java.util.UUID;
 public interface CommandQueueRepository extends JpaRepository<CommandQueue, UUID> {
 
   /**
-   * Fetch pending commands for processing with pessimistic lock and SKIP LOCKED
-   * This ensures no two workers process the same command
+   * Fetch pending commands of one priority lane and one worker lane with SKIP
+   * LOCKED. Worker lane = entity_hash modulo lane count, so all commands of an
+   * entity go to the same worker; only lock partitions (entity_hash modulo
+   * partition count) leased by this instance are fetched. Only the head command
+   * of each entity (oldest pending or processing by created_at, id) is
+   * eligible: a head claimed by another transaction is skipped by SKIP LOCKED
+   * and its successors are not heads, so no instance can overtake an
+   * uncommitted claim.
    */
   @Lock(LockModeType.PESSIMISTIC_WRITE) @Query(value = """
-      SELECT * FROM command_queue
-      WHERE status = 'pending'
-        AND available_at <= :now
-      ORDER BY
-        CASE priority
-          WHEN 'critical' THEN 1
-          WHEN 'high' THEN 2
-          WHEN 'normal' THEN 3
-          WHEN 'bulk' THEN 4
-          ELSE 5
-        END,
-        available_at
+      SELECT * FROM command_queue c
+      WHERE c.status = 'pending'
+        AND c.priority = :priority
+        AND c.available_at <= :now
+        AND (c.entity_hash & 2147483647) % :lanes = :lane
+        AND (c.entity_hash & 2147483647) % :partitions IN (:owned)
+        AND NOT EXISTS (
+          SELECT 1 FROM command_queue p
+          WHERE p.entity = c.entity
+            AND p.entity_id = c.entity_id
+            AND p.status IN ('pending', 'processing')
+            AND (p.created_at, p.id) < (c.created_at, c.id)
+        )
+      ORDER BY c.available_at, c.created_at
       LIMIT :batchSize
       FOR UPDATE SKIP LOCKED
       """, nativeQuery = true)
-  List<CommandQueue> fetchPendingCommandsForProcessing(@Param("now") Instant now,
+  List<CommandQueue> fetchPendingCommandsForLane(@Param("now") Instant now,
+      @Param("priority") String priority, @Param("lane") int lane, @Param("lanes") int lanes,
+      @Param("owned") List<Integer> owned, @Param("partitions") int partitions,
       @Param("batchSize") int batchSize);
 
+  /**
+   * Claim fetched commands - one statement instead of a save per command
+   */
+  @Modifying @Query("UPDATE CommandQueue c SET c.status = 'processing', c.updatedAt = :now WHERE c.id IN :ids")
+  int markProcessing(@Param("ids") List<UUID> ids, @Param("now") Instant now);
+
+  /**
+   * Push quota-throttled commands to the next quota window
+   */
+  @Modifying @Query("UPDATE CommandQueue c SET c.availableAt = :availableAt WHERE c.id IN :ids")
+  int deferUntil(@Param("ids") List<UUID> ids, @Param("availableAt") Instant availableAt);
+
+  /**
+   * Return claims of crashed workers to the queue
+   */
+  @Modifying @Query("UPDATE CommandQueue c SET c.status = 'pending' WHERE c.status = 'processing' AND c.updatedAt < :cutoff")
+  int releaseStaleClaims(@Param("cutoff") Instant cutoff);
+
   /**
    * Count pending commands by priority
    */
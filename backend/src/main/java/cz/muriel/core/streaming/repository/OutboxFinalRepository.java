@@ -13,16 +13,29 @@ import java.util.UUID;
  * Repository for OutboxFinal
  */
 @Repository
-public interface OutboxFinalRepository extends JpaRepository<OutboxFinal, UUID> {
+public interface OutboxFinalRepository extends JpaRepository<OutboxFinal, OutboxFinal.OutboxFinalId> {
 
   /**
    * Fetch unsent messages for publishing Using native query with FOR UPDATE SKIP
-   * LOCKED for parallel dispatchers
+   * LOCKED for parallel dispatchers. Served by the partial unsent index on each
+   * partition, so the cost does not grow with sent history.
+   * 
+   * Rows in flight or backing off (next_attempt_at in the future) are skipped,
+   * and only the oldest unsent row of each entity is eligible - later events of
+   * an entity wait until its head is sent or moved to the DLQ.
    */
   @Query(value = """
-      SELECT * FROM outbox_final
-      WHERE sent_at IS NULL
-      ORDER BY created_at
+      SELECT * FROM outbox_final m
+      WHERE m.sent_at IS NULL
+        AND (m.next_attempt_at IS NULL OR m.next_attempt_at <= now())
+        AND NOT EXISTS (
+          SELECT 1 FROM outbox_final o
+          WHERE o.entity = m.entity
+            AND o.entity_id = m.entity_id
+            AND o.sent_at IS NULL
+            AND (o.created_at, o.id) < (m.created_at, m.id)
+        )
+      ORDER BY m.created_at
       LIMIT :batchSize
       FOR UPDATE SKIP LOCKED
       """, nativeQuery = true)
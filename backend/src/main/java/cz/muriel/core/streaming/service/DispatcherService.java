@@ -1,36 +1,69 @@
 package cz.muriel.core.streaming.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import cz.muriel.core.config.StreamingConfig;
 import cz.muriel.core.metamodel.MetamodelLoader;
 import cz.muriel.core.metamodel.schema.GlobalMetamodelConfig;
+import cz.muriel.core.metamodel.schema.StreamingGlobalConfig;
 import cz.muriel.core.streaming.entity.OutboxFinal;
 import cz.muriel.core.streaming.metrics.StreamingMetrics;
 import cz.muriel.core.streaming.repository.OutboxFinalRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 📤 Dispatcher Service
  * 
  * Polls outbox_final and publishes events to Kafka. Uses transactional outbox
  * pattern for guaranteed delivery.
+ * 
+ * Each batch is pipelined: all records go to the producer at once, acks are
+ * collected, and the batch is marked sent with one UPDATE. The claim is
+ * committed before the acks are awaited - claimed rows are leased by pushing
+ * next_attempt_at past the ack timeout, so no row locks are held while Kafka
+ * answers and a crashed dispatcher's rows become due again.
+ * 
+ * Failed rows are retried with exponential backoff (next_attempt_at) and move
+ * to the DLQ after {@code streaming.dispatcher.max-retries}. Only the oldest
+ * unsent row of an entity is dispatched, so a failing head holds back the
+ * entity's later events and per-entity order survives retries.
+ * 
+ * With {@link QueueNotifyListener} active, dispatch is woken by NOTIFY on
+ * outbox_final inserts and the scheduled poll only runs every
+ * {@code streaming.notify.safety-poll-interval-ms} as a safety net.
  */
 @Slf4j @Service @ConditionalOnProperty(name = "streaming.enabled", havingValue = "true")
 public class DispatcherService {
@@ -49,98 +82,272 @@ public class DispatcherService {
   @Value("${streaming.dispatcher.max-retries:3}")
   private int maxRetries;
 
+  @Value("${streaming.dispatcher.ack-timeout-ms:30000}")
+  private long ackTimeoutMs;
+
+  @Value("${streaming.notify.safety-poll-interval-ms:5000}")
+  private long safetyPollIntervalMs;
+
+  private final TransactionTemplate transactionTemplate;
+  private final JdbcTemplate jdbcTemplate;
+  private final QueueNotifyListener notifyListener;
+  private final ExecutorService executor;
+  private final AtomicBoolean busy = new AtomicBoolean();
+  private final AtomicLong wakeSignal = new AtomicLong();
+  private volatile long lastPollAt;
+  private volatile boolean running = true;
   private GlobalMetamodelConfig globalConfig;
 
   @Autowired
   public DispatcherService(OutboxFinalRepository outboxFinalRepository,
       KafkaTemplate<String, String> kafkaTemplate, StreamingConfig streamingConfig,
-      MetamodelLoader metamodelLoader, StreamingMetrics metrics, ObjectMapper objectMapper) {
+      MetamodelLoader metamodelLoader, StreamingMetrics metrics, ObjectMapper objectMapper,
+      PlatformTransactionManager transactionManager, JdbcTemplate jdbcTemplate,
+      ObjectProvider<QueueNotifyListener> notifyListener) {
     this.outboxFinalRepository = outboxFinalRepository;
     this.kafkaTemplate = kafkaTemplate;
     this.streamingConfig = streamingConfig;
     this.metamodelLoader = metamodelLoader;
     this.metrics = metrics;
     this.objectMapper = objectMapper;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.jdbcTemplate = jdbcTemplate;
+    this.notifyListener = notifyListener.getIfAvailable();
+    this.executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "stream-dispatcher");
+      thread.setDaemon(true);
+      return thread;
+    });
 
     // Load global config
     this.globalConfig = metamodelLoader.loadGlobalConfig();
+
+    if (this.notifyListener != null) {
+      this.notifyListener.subscribe(QueueNotifyListener.OUTBOX_CHANNEL, this::wakeUp);
+    }
   }
 
   /**
-   * Main dispatcher loop - polls and publishes messages
+   * Main dispatcher loop - polls and publishes messages. Only a safety net
+   * while NOTIFY wake-ups are active.
    * 
    * ✅ Configurable batch size via streaming.dispatcher.batch-size property
    * (default: 100)
    */
-  @Scheduled(fixedDelayString = "${streaming.dispatcher.poll-interval-ms:100}") @Transactional
+  @Scheduled(fixedDelayString = "${streaming.dispatcher.poll-interval-ms:100}")
   public void dispatchMessages() {
-    if (!globalConfig.getStreaming().isEnabled()) {
+    long now = System.currentTimeMillis();
+    if (notifyListener != null && notifyListener.isListening()
+        && now - lastPollAt < safetyPollIntervalMs) {
+      return;
+    }
+    lastPollAt = now;
+    wakeUp();
+  }
+
+  /**
+   * Start a dispatch run unless one is already running - a running dispatch
+   * picks the new messages up before it stops
+   */
+  public void wakeUp() {
+    if (!running || !globalConfig.getStreaming().isEnabled()) {
       return;
     }
 
+    wakeSignal.incrementAndGet();
+    if (busy.compareAndSet(false, true)) {
+      try {
+        executor.execute(this::dispatchRun);
+      } catch (RejectedExecutionException e) {
+        busy.set(false); // shutting down
+      }
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    running = false;
+    executor.shutdown();
     try {
-      List<OutboxFinal> messages = outboxFinalRepository.fetchUnsentMessages(dispatcherBatchSize);
+      // A running batch finishes its acks, no new batch is started
+      if (!executor.awaitTermination(ackTimeoutMs, TimeUnit.MILLISECONDS)) {
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void dispatchRun() {
+    while (running) {
+      long signal = wakeSignal.get();
+      boolean more;
+      try {
+        more = dispatchBatch();
+      } catch (Exception e) {
+        log.error("Dispatcher failed to process messages", e);
+        more = false;
+      }
 
-      if (messages.isEmpty()) {
+      if (more) {
+        continue; // progress - later events of sent entities may be due
+      }
+
+      busy.set(false);
+      // Woken during the run → one more batch
+      if (wakeSignal.get() == signal || !busy.compareAndSet(false, true)) {
         return;
       }
+    }
+    busy.set(false);
+  }
+
+  /**
+   * Dispatch one batch: claim due rows in a short transaction, stream all
+   * records to the producer, wait for all acks, then mark the sent rows with one
+   * UPDATE and schedule retries of the failed ones.
+   * 
+   * @return true if anything was sent - sending a head may have released later
+   *         events of the same entity
+   */
+  private boolean dispatchBatch() {
+    List<OutboxFinal> messages = transactionTemplate.execute(status -> claimBatch());
+
+    if (messages == null || messages.isEmpty()) {
+      return false;
+    }
+
+    log.debug("Dispatcher processing {} messages", messages.size());
+
+    // 1. Pipeline - send everything, producer batches per partition
+    List<CompletableFuture<SendResult<String, String>>> futures = new ArrayList<>(
+        messages.size());
+    for (OutboxFinal message : messages) {
+      futures.add(send(message));
+    }
+
+    // 2. Collect acks
+    long deadline = System.currentTimeMillis() + ackTimeoutMs;
+    List<UUID> sentIds = new ArrayList<>(messages.size());
+    List<OutboxFinal> failed = new ArrayList<>();
+    List<Throwable> errors = new ArrayList<>();
+    Instant oldestSent = null;
+    for (int i = 0; i < messages.size(); i++) {
+      OutboxFinal message = messages.get(i);
+      try {
+        long remaining = Math.max(0, deadline - System.currentTimeMillis());
+        RecordMetadata metadata = futures.get(i).get(remaining, TimeUnit.MILLISECONDS)
+            .getRecordMetadata();
+        sentIds.add(message.getId());
+        if (oldestSent == null || message.getCreatedAt().isBefore(oldestSent)) {
+          oldestSent = message.getCreatedAt();
+        }
+        metrics.recordDispatchSuccess(message.getEntity());
+        log.debug("Published event {} to topic {} partition {} offset {}", message.getId(),
+            metadata.topic(), metadata.partition(), metadata.offset());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Dispatcher interrupted", e);
+      } catch (Exception e) {
+        Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause()
+            : e;
+        metrics.recordDispatchError(message.getEntity(), cause.getClass().getSimpleName());
+        failed.add(message);
+        errors.add(cause);
+      }
+    }
 
-      log.debug("Dispatcher processing {} messages", messages.size());
+    // 3. DLQ hand-over happens before the result transaction - no locks while
+    // waiting for its ack
+    List<Boolean> movedToDlq = new ArrayList<>(failed.size());
+    for (int i = 0; i < failed.size(); i++) {
+      movedToDlq.add(prepareRetry(failed.get(i), errors.get(i)));
+    }
 
-      for (OutboxFinal message : messages) {
-        publishMessage(message);
+    // 4. Bulk mark as sent, schedule retries
+    Instant oldest = oldestSent;
+    transactionTemplate.executeWithoutResult(status -> {
+      if (!sentIds.isEmpty()) {
+        markAsSent(sentIds, oldest);
+      }
+      for (int i = 0; i < failed.size(); i++) {
+        saveRetry(failed.get(i), movedToDlq.get(i));
       }
+    });
 
-    } catch (Exception e) {
-      log.error("Dispatcher failed to process messages", e);
+    if (!sentIds.isEmpty()) {
+      log.info("✅ Published {} of {} events", sentIds.size(), messages.size());
     }
+
+    return !sentIds.isEmpty();
   }
 
   /**
-   * Publish a single message to Kafka
+   * Fetch due heads and lease them for the ack timeout - committed right away,
+   * the row locks are released before anything is sent
    */
-  private void publishMessage(OutboxFinal message) {
+  private List<OutboxFinal> claimBatch() {
+    List<OutboxFinal> messages = outboxFinalRepository.fetchUnsentMessages(dispatcherBatchSize);
+    if (messages.isEmpty()) {
+      return messages;
+    }
+
+    Instant oldest = messages.stream().map(OutboxFinal::getCreatedAt).min(Instant::compareTo)
+        .orElseThrow();
+    List<UUID> ids = messages.stream().map(OutboxFinal::getId).toList();
+    jdbcTemplate.update(
+        "UPDATE outbox_final SET next_attempt_at = now() + make_interval(secs => ?) "
+            + "WHERE id = ANY(?) AND created_at >= ?",
+        ps -> {
+          ps.setDouble(1, 2 * ackTimeoutMs / 1000.0);
+          ps.setArray(2, ps.getConnection().createArrayOf("uuid", ids.toArray()));
+          ps.setTimestamp(3, Timestamp.from(oldest));
+        });
+    return messages;
+  }
+
+  /**
+   * Send a single message - failures to build the record complete the future
+   * exceptionally so they are handled with the rest of the batch
+   */
+  private CompletableFuture<SendResult<String, String>> send(OutboxFinal message) {
     try {
-      String topicName = buildTopicName(message);
-      String key = buildPartitionKey(message);
-      String payload = buildPayload(message);
-
-      // Create producer record
-      ProducerRecord<String, String> record = new ProducerRecord<>(topicName, key, payload);
-
-      // ✅ Parse and add headers from message
-      if (message.getHeadersJson() != null && !message.getHeadersJson().isEmpty()) {
-        try {
-          JsonNode headersNode = objectMapper.readTree(message.getHeadersJson());
-
-          // Iterate over all fields in JSON and add as headers
-          headersNode.fieldNames().forEachRemaining(headerKey -> {
-            String headerValue = headersNode.get(headerKey).asText();
-            record.headers().add(headerKey, headerValue.getBytes(StandardCharsets.UTF_8));
-          });
-
-        } catch (Exception e) {
-          log.warn("Failed to parse headers for message {}: {}", message.getId(), e.getMessage());
-        }
-      }
+      ProducerRecord<String, String> record = new ProducerRecord<>(buildTopicName(message),
+          buildPartitionKey(message), buildPayload(message));
+      addHeaders(record, message);
+      return kafkaTemplate.send(record);
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
 
-      // Send to Kafka (async with callback)
-      CompletableFuture<SendResult<String, String>> future = kafkaTemplate.send(record);
-
-      future.whenComplete((result, ex) -> {
-        if (ex == null) {
-          // Success - mark as sent
-          markAsSent(message, result.getRecordMetadata());
-          metrics.recordDispatchSuccess(message.getEntity());
-        } else {
-          // Failure - handle error
-          metrics.recordDispatchError(message.getEntity(), ex.getClass().getSimpleName());
-          handlePublishError(message, ex);
-        }
-      });
+  /**
+   * Copy flat headers_json object into record headers (streaming parse, no
+   * tree)
+   */
+  private void addHeaders(ProducerRecord<String, String> record, OutboxFinal message) {
+    if (message.getHeadersJson() == null || message.getHeadersJson().isEmpty()) {
+      return;
+    }
 
+    try (JsonParser parser = objectMapper.getFactory().createParser(message.getHeadersJson())) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return;
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String headerKey = parser.currentName();
+        JsonToken value = parser.nextToken();
+        if (value.isStructStart()) {
+          parser.skipChildren();
+          continue;
+        }
+        if (value != JsonToken.VALUE_NULL) {
+          record.headers().add(headerKey, parser.getText().getBytes(StandardCharsets.UTF_8));
+        }
+      }
     } catch (Exception e) {
-      handlePublishError(message, e);
+      log.warn("Failed to parse headers for message {}: {}", message.getId(), e.getMessage());
     }
   }
 
@@ -163,63 +370,89 @@ public class DispatcherService {
   /**
    * Build message payload
    * 
-   * ✅ Builds proper JSON payload with event metadata and diff/snapshot based on
-   * config
+   * ✅ Event metadata + diff/snapshot. diff_json / snapshot_json are jsonb (always
+   * valid JSON), so they are spliced in as raw values instead of being parsed
+   * into a tree and re-serialized.
    */
   private String buildPayload(OutboxFinal message) {
-    try {
-      ObjectNode payload = objectMapper.createObjectNode();
+    StringWriter out = new StringWriter(256 + length(message.getDiffJson())
+        + length(message.getSnapshotJson()));
+    try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+      json.writeStartObject();
 
       // Add event metadata
-      payload.put("eventId", message.getId().toString());
-      payload.put("entityType", message.getEntity());
-      payload.put("entityId", message.getEntityId().toString());
-      payload.put("operation", message.getOperation());
-      payload.put("timestamp", message.getCreatedAt().toString());
+      json.writeStringField("eventId", message.getId().toString());
+      json.writeStringField("entityType", message.getEntity());
+      json.writeStringField("entityId", message.getEntityId().toString());
+      json.writeStringField("operation", message.getOperation());
+      json.writeStringField("timestamp", message.getCreatedAt().toString());
 
       if (message.getTenantId() != null) {
-        payload.put("tenantId", message.getTenantId().toString());
+        json.writeStringField("tenantId", message.getTenantId().toString());
       }
 
       if (message.getCorrelationId() != null) {
-        payload.put("correlationId", message.getCorrelationId().toString());
+        json.writeStringField("correlationId", message.getCorrelationId().toString());
       }
 
       // Add diff or snapshot based on message content
       if (message.getDiffJson() != null && !message.getDiffJson().isEmpty()) {
-        JsonNode diffNode = objectMapper.readTree(message.getDiffJson());
-        payload.set("diff", diffNode);
+        json.writeFieldName("diff");
+        json.writeRawValue(message.getDiffJson());
       }
 
       if (message.getSnapshotJson() != null && !message.getSnapshotJson().isEmpty()) {
-        JsonNode snapshotNode = objectMapper.readTree(message.getSnapshotJson());
-        payload.set("snapshot", snapshotNode);
+        json.writeFieldName("snapshot");
+        json.writeRawValue(message.getSnapshotJson());
       }
 
-      return objectMapper.writeValueAsString(payload);
-
-    } catch (Exception e) {
+      json.writeEndObject();
+    } catch (IOException e) {
       log.error("Failed to build payload for message {}: {}", message.getId(), e.getMessage());
       // Fallback to diff_json
       return message.getDiffJson() != null ? message.getDiffJson() : "{}";
     }
+    return out.toString();
   }
 
   /**
-   * Mark message as sent
+   * DLQ payload - diff_json spliced in as raw value (jsonb), the error message
+   * escaped by the generator (it carries arbitrary exception text)
    */
-  @Transactional
-  public void markAsSent(OutboxFinal message, RecordMetadata metadata) {
-    try {
-      message.setSentAt(Instant.now());
-      outboxFinalRepository.save(message);
+  static String dlqPayload(ObjectMapper objectMapper, OutboxFinal message) throws IOException {
+    StringWriter out = new StringWriter(128 + length(message.getDiffJson())
+        + length(message.getErrorMessage()));
+    try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+      json.writeStartObject();
+      json.writeFieldName("original_message");
+      if (message.getDiffJson() != null && !message.getDiffJson().isEmpty()) {
+        json.writeRawValue(message.getDiffJson());
+      } else {
+        json.writeNull();
+      }
+      json.writeStringField("error", message.getErrorMessage());
+      json.writeNumberField("retry_count",
+          message.getRetryCount() != null ? message.getRetryCount() : 0);
+      json.writeEndObject();
+    }
+    return out.toString();
+  }
 
-      log.info("✅ Published event {} to topic {} partition {} offset {}", message.getId(),
-          metadata.topic(), metadata.partition(), metadata.offset());
+  private static int length(String value) {
+    return value != null ? value.length() : 0;
+  }
 
-    } catch (Exception e) {
-      log.error("Failed to mark message {} as sent", message.getId(), e);
-    }
+  /**
+   * Mark batch as sent - single UPDATE ... WHERE id = ANY(?) in the dispatch
+   * transaction. The created_at bound prunes older outbox partitions.
+   */
+  private void markAsSent(List<UUID> ids, Instant oldest) {
+    jdbcTemplate.update(
+        "UPDATE outbox_final SET sent_at = ? WHERE id = ANY(?) AND created_at >= ?", ps -> {
+          ps.setTimestamp(1, Timestamp.from(Instant.now()));
+          ps.setArray(2, ps.getConnection().createArrayOf("uuid", ids.toArray()));
+          ps.setTimestamp(3, Timestamp.from(oldest));
+        });
   }
 
   /**
@@ -227,41 +460,84 @@ public class DispatcherService {
    * 
    * ✅ Configurable max retries via streaming.dispatcher.max-retries property
    * (default: 3)
+   * 
+   * @return true if the message was handed over to the DLQ
    */
-  private void handlePublishError(OutboxFinal message, Throwable error) {
+  private boolean prepareRetry(OutboxFinal message, Throwable error) {
     log.error("Failed to publish message {}: {}", message.getId(), error.getMessage(), error);
 
     message.setRetryCount(message.getRetryCount() + 1);
     message.setErrorMessage(error.getMessage());
 
     if (message.getRetryCount() >= maxRetries) {
-      // Move to DLQ
+      // Move to DLQ - handed over, stop re-dispatching
       metrics.recordDLQ(message.getEntity(), "dispatcher");
-      publishToDLQ(message);
+      return publishToDLQ(message);
+    }
+    return false;
+  }
+
+  /**
+   * Persist retry state - a DLQ hand-over counts as sent and releases the
+   * entity's later events, otherwise the row backs off exponentially
+   */
+  private void saveRetry(OutboxFinal message, boolean movedToDlq) {
+    StreamingGlobalConfig streaming = globalConfig.getStreaming();
+    long backoffMs = backoffMs(message.getRetryCount(), streaming.getDefaultInitialBackoffMs(),
+        streaming.getDefaultBackoffMultiplier(), streaming.getDefaultMaxBackoffMs());
+    jdbcTemplate.update(
+        "UPDATE outbox_final SET retry_count = ?, error_message = ?, sent_at = ?, "
+            + "next_attempt_at = CASE WHEN ? THEN NULL ELSE now() + make_interval(secs => ?) END "
+            + "WHERE id = ? AND created_at = ?",
+        ps -> {
+          ps.setInt(1, message.getRetryCount());
+          ps.setString(2, message.getErrorMessage());
+          ps.setTimestamp(3, movedToDlq ? Timestamp.from(Instant.now()) : null);
+          ps.setBoolean(4, movedToDlq);
+          ps.setDouble(5, backoffMs / 1000.0);
+          ps.setObject(6, message.getId());
+          ps.setTimestamp(7, Timestamp.from(message.getCreatedAt()));
+        });
+    if (!movedToDlq) {
+      log.info("Message {} will retry in {}ms (attempt {}/{})", message.getId(), backoffMs,
+          message.getRetryCount(), maxRetries);
     }
+  }
 
-    outboxFinalRepository.save(message);
+  /**
+   * Exponential backoff before the next dispatch attempt
+   */
+  static long backoffMs(int retryCount, long initialMs, double multiplier, long maxMs) {
+    double backoff = initialMs * Math.pow(multiplier, Math.max(0, retryCount - 1));
+    return (long) Math.min(backoff, maxMs);
   }
 
   /**
    * Publish to DLQ topic
+   * 
+   * @return true if the DLQ acknowledged the message
    */
-  private void publishToDLQ(OutboxFinal message) {
+  private boolean publishToDLQ(OutboxFinal message) {
     try {
       String dlqTopic = streamingConfig.getTopic().getPrefix() + "."
           + globalConfig.getStreaming().getOutboxDlqTopic();
 
-      String payload = String.format(
-          "{\"original_message\":%s,\"error\":\"%s\",\"retry_count\":%d}", message.getDiffJson(),
-          message.getErrorMessage(), message.getRetryCount());
+      String payload = dlqPayload(objectMapper, message);
 
-      kafkaTemplate.send(dlqTopic, message.getId().toString(), payload);
+      kafkaTemplate.send(dlqTopic, message.getId().toString(), payload).get(ackTimeoutMs,
+          TimeUnit.MILLISECONDS);
 
       log.warn("Message {} moved to DLQ after {} retries", message.getId(),
           message.getRetryCount());
+      return true;
 
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.error("Interrupted while publishing to DLQ", e);
+      return false;
     } catch (Exception e) {
       log.error("Failed to publish to DLQ", e);
+      return false;
     }
   }
 }
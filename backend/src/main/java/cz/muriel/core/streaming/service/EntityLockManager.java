@@ -0,0 +1,346 @@
+package cz.muriel.core.streaming.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 🔐 Entity Lock Manager
+ *
+ * Entity keys are hashed into {@code streaming.lock.partitions} partitions and
+ * the partitions are spread over live worker instances by consistent hashing.
+ * An instance holds a lease with a fencing token per owned partition in
+ * work_partition_lease - that is the only persisted lock state. Per-entity
+ * locks live in a striped in-memory table, so locking a command costs no
+ * database round trip.
+ *
+ * Leases are renewed every {@code streaming.lock.renew-interval-ms}; a lease
+ * of a crashed instance expires and is taken over (new fencing token) by the
+ * instance the ring assigns it to. A lock is only valid while its partition
+ * lease is held with the same token - checked against the lease row inside the
+ * command transaction, see {@link #isValid(EntityLock)}. Lease expiry is
+ * computed by the database clock; the local copy is derived from the
+ * remaining time the database reports, so JVM clock skew cannot stretch it.
+ */
+@Slf4j @Service @ConditionalOnProperty(name = "streaming.enabled", havingValue = "true")
+public class EntityLockManager {
+
+  private static final int VIRTUAL_NODES = 32;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final String instanceId;
+  private final int partitions;
+  private final long leaseTtlMs;
+  private final Map<String, EntityLock>[] stripes;
+  private final Map<Integer, Lease> leases = new ConcurrentHashMap<>();
+  private final List<Runnable> ownershipListeners = new CopyOnWriteArrayList<>();
+  private volatile Set<Integer> claimable = Set.of();
+  private volatile boolean seeded;
+
+  /**
+   * Partition lease held by this instance
+   */
+  private record Lease(long token, long expiresAt) {
+  }
+
+  /**
+   * Lock on one entity, valid while the partition lease keeps its token
+   */
+  public record EntityLock(String key, int partition, long token) {
+  }
+
+  @SuppressWarnings("unchecked")
+  public EntityLockManager(JdbcTemplate jdbcTemplate,
+      @Value("${streaming.lock.partitions:64}") int partitions,
+      @Value("${streaming.lock.lease-ttl-ms:30000}") long leaseTtlMs,
+      @Value("${streaming.lock.stripes:64}") int stripeCount) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.instanceId = "worker-" + UUID.randomUUID().toString().substring(0, 8);
+    this.partitions = Math.max(1, partitions);
+    this.leaseTtlMs = leaseTtlMs;
+    this.stripes = new Map[Math.max(1, stripeCount)];
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new HashMap<>();
+    }
+  }
+
+  public String getInstanceId() {
+    return instanceId;
+  }
+
+  public int getPartitionCount() {
+    return partitions;
+  }
+
+  /**
+   * Partitions this instance may claim commands for
+   */
+  public List<Integer> claimablePartitions() {
+    return List.copyOf(claimable);
+  }
+
+  /**
+   * Called when this instance gains partitions
+   */
+  public void onOwnershipGained(Runnable listener) {
+    ownershipListeners.add(listener);
+  }
+
+  /**
+   * Lock an entity in memory
+   *
+   * @return lock or null if the entity is locked or its partition is not owned
+   * (or the lease is about to expire)
+   */
+  public EntityLock tryLock(String entity, UUID entityId, int entityHash) {
+    int partition = partitionOf(entityHash);
+    Lease lease = leases.get(partition);
+    if (lease == null || !claimable.contains(partition)
+        || lease.expiresAt() - System.currentTimeMillis() < leaseTtlMs / 3) {
+      return null;
+    }
+
+    EntityLock lock = new EntityLock(entity + "#" + entityId, partition, lease.token());
+    Map<String, EntityLock> stripe = stripeOf(lock.key());
+    synchronized (stripe) {
+      if (stripe.putIfAbsent(lock.key(), lock) != null) {
+        return null;
+      }
+    }
+    return lock;
+  }
+
+  /**
+   * Fencing check - the partition lease is still ours with the lock's token.
+   * Must run inside the transaction that writes the command's results: the
+   * lease row is share-locked until commit, so a takeover (which bumps the
+   * token) waits for the transaction instead of racing it.
+   */
+  public boolean isValid(EntityLock lock) {
+    Lease lease = leases.get(lock.partition());
+    if (lease == null || lease.token() != lock.token()
+        || lease.expiresAt() <= System.currentTimeMillis()) {
+      return false;
+    }
+    List<Integer> held = jdbcTemplate.queryForList("""
+        SELECT 1 FROM work_partition_lease
+        WHERE partition_no = ? AND owner = ? AND fencing_token = ? AND lease_until > now()
+        FOR SHARE
+        """, Integer.class, lock.partition(), instanceId, lock.token());
+    return !held.isEmpty();
+  }
+
+  public void unlock(EntityLock lock) {
+    Map<String, EntityLock> stripe = stripeOf(lock.key());
+    synchronized (stripe) {
+      stripe.remove(lock.key(), lock);
+    }
+  }
+
+  /**
+   * Heartbeat, compute the ring, renew / acquire assigned leases and hand
+   * back the rest once their locks are released
+   */
+  @Scheduled(fixedDelayString = "${streaming.lock.renew-interval-ms:10000}")
+  public void rebalance() {
+    try {
+      if (!seeded) {
+        jdbcTemplate.update("""
+            INSERT INTO work_partition_lease (partition_no)
+            SELECT generate_series(0, ? - 1) ON CONFLICT (partition_no) DO NOTHING
+            """, partitions);
+        seeded = true;
+      }
+
+      jdbcTemplate.update("""
+          INSERT INTO work_member (worker_id, heartbeat_at) VALUES (?, now())
+          ON CONFLICT (worker_id) DO UPDATE SET heartbeat_at = now()
+          """, instanceId);
+      List<String> members = jdbcTemplate.queryForList(
+          "SELECT worker_id FROM work_member WHERE heartbeat_at > now() - make_interval(secs => ?)",
+          String.class, leaseTtlMs / 1000.0);
+
+      Set<Integer> desired = assign(members, partitions, instanceId);
+      Set<Integer> stillClaimable = new HashSet<>(claimable);
+      stillClaimable.retainAll(desired);
+      claimable = Set.copyOf(stillClaimable); // no new locks on partitions moving away
+
+      // Partitions moving away stay leased until their in-flight locks are gone
+      Set<Integer> wanted = new HashSet<>(desired);
+      Set<Integer> released = new HashSet<>();
+      for (Integer partition : leases.keySet()) {
+        if (!desired.contains(partition)) {
+          if (hasLocks(partition)) {
+            wanted.add(partition);
+          } else {
+            released.add(partition);
+          }
+        }
+      }
+
+      Map<Integer, Lease> granted = acquire(wanted);
+      release(released);
+
+      leases.keySet().retainAll(granted.keySet());
+      leases.putAll(granted);
+
+      Set<Integer> previous = claimable;
+      Set<Integer> next = new HashSet<>(desired);
+      next.retainAll(granted.keySet());
+      claimable = Set.copyOf(next);
+
+      if (!previous.containsAll(next)) {
+        log.info("Worker {} owns {} of {} lock partitions", instanceId, next.size(), partitions);
+        ownershipListeners.forEach(Runnable::run);
+      }
+    } catch (Exception e) {
+      log.error("Worker {} failed to rebalance lock partitions", instanceId, e);
+    }
+  }
+
+  /**
+   * Crash recovery - free leases and ring members nobody renewed
+   *
+   * @return number of freed leases
+   */
+  public int reclaimExpiredLeases() {
+    jdbcTemplate.update("DELETE FROM work_member WHERE heartbeat_at < now() - make_interval(secs => ?)",
+        leaseTtlMs / 1000.0);
+    return jdbcTemplate.update(
+        "UPDATE work_partition_lease SET owner = NULL, lease_until = NULL WHERE owner IS NOT NULL AND lease_until < now()");
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    try {
+      claimable = Set.of();
+      release(Set.copyOf(leases.keySet()));
+      leases.clear();
+      jdbcTemplate.update("DELETE FROM work_member WHERE worker_id = ?", instanceId);
+    } catch (Exception e) {
+      log.warn("Worker {} failed to hand back lock partitions: {}", instanceId, e.getMessage());
+    }
+  }
+
+  /**
+   * Renew own leases and take over free or expired ones - fencing token moves
+   * on every change of owner. lease_until is set by the database clock; the
+   * local expiry is the remaining time it reports, counted from before the
+   * statement was sent (never later than the database's view).
+   */
+  private Map<Integer, Lease> acquire(Set<Integer> wanted) {
+    Map<Integer, Lease> granted = new HashMap<>();
+    if (wanted.isEmpty()) {
+      return granted;
+    }
+
+    long sentAt = System.currentTimeMillis();
+    jdbcTemplate.query("""
+        UPDATE work_partition_lease
+        SET fencing_token = CASE WHEN owner = ? THEN fencing_token ELSE fencing_token + 1 END,
+            owner = ?, lease_until = now() + make_interval(secs => ?)
+        WHERE partition_no = ANY(?)
+          AND (owner IS NULL OR owner = ? OR lease_until < now())
+        RETURNING partition_no, fencing_token,
+          (EXTRACT(EPOCH FROM lease_until - now()) * 1000)::bigint AS remaining_ms
+        """, ps -> {
+      ps.setString(1, instanceId);
+      ps.setString(2, instanceId);
+      ps.setDouble(3, leaseTtlMs / 1000.0);
+      ps.setArray(4, ps.getConnection().createArrayOf("integer", wanted.toArray()));
+      ps.setString(5, instanceId);
+    }, rs -> {
+      granted.put(rs.getInt("partition_no"),
+          new Lease(rs.getLong("fencing_token"), sentAt + rs.getLong("remaining_ms")));
+    });
+    return granted;
+  }
+
+  private void release(Set<Integer> partitionsToRelease) {
+    if (partitionsToRelease.isEmpty()) {
+      return;
+    }
+    jdbcTemplate.update(
+        "UPDATE work_partition_lease SET owner = NULL, lease_until = NULL WHERE owner = ? AND partition_no = ANY(?)",
+        ps -> {
+          ps.setString(1, instanceId);
+          ps.setArray(2,
+              ps.getConnection().createArrayOf("integer", partitionsToRelease.toArray()));
+        });
+  }
+
+  private boolean hasLocks(int partition) {
+    for (Map<String, EntityLock> stripe : stripes) {
+      synchronized (stripe) {
+        for (EntityLock lock : stripe.values()) {
+          if (lock.partition() == partition) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  private int partitionOf(int entityHash) {
+    return (entityHash & Integer.MAX_VALUE) % partitions;
+  }
+
+  private Map<String, EntityLock> stripeOf(String key) {
+    return stripes[(key.hashCode() & Integer.MAX_VALUE) % stripes.length];
+  }
+
+  /**
+   * Consistent hash ring - partitions owned by {@code self} among
+   * {@code members}
+   */
+  static Set<Integer> assign(Collection<String> members, int partitions, String self) {
+    TreeMap<Integer, String> ring = new TreeMap<>();
+    for (String member : members) {
+      for (int i = 0; i < VIRTUAL_NODES; i++) {
+        ring.put(mix((member + "#" + i).hashCode()), member);
+      }
+    }
+    if (!ring.containsValue(self)) {
+      for (int i = 0; i < VIRTUAL_NODES; i++) {
+        ring.put(mix((self + "#" + i).hashCode()), self);
+      }
+    }
+
+    Set<Integer> owned = new HashSet<>();
+    for (int partition = 0; partition < partitions; partition++) {
+      Map.Entry<Integer, String> node = ring.ceilingEntry(mix(("partition-" + partition).hashCode()));
+      if (node == null) {
+        node = ring.firstEntry();
+      }
+      if (self.equals(node.getValue())) {
+        owned.add(partition);
+      }
+    }
+    return owned;
+  }
+
+  private static int mix(int h) {
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+}
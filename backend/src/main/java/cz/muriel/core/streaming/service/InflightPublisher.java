@@ -1,30 +1,62 @@
 package cz.muriel.core.streaming.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import cz.muriel.core.config.StreamingConfig;
+import cz.muriel.core.streaming.dto.InflightStateDto;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 🚀 Inflight Publisher
  * 
  * Publishes pre-event notifications to entity.inflight.{entity} topics These
  * messages indicate that an entity is being updated (short retention)
+ * 
+ * {@code streaming.inflight.mode}: - {@code per-event} (default): one message
+ * per state transition - {@code coalesced}: transitions are folded per (entity,
+ * entityId) - only the latest state survives - and flushed every
+ * {@code streaming.inflight.coalesce-window-ms} as compact batch records
+ * (header {@value #FORMAT_HEADER}={@value #FORMAT_BATCH}), keyed by entity
  */
 @Slf4j @Service @ConditionalOnProperty(name = "streaming.enabled", havingValue = "true")
 public class InflightPublisher {
 
+  public static final String FORMAT_HEADER = "inflight-format";
+  public static final String FORMAT_BATCH = "batch";
+
   private final KafkaTemplate<String, String> kafkaTemplate;
   private final StreamingConfig streamingConfig;
+  private final ObjectMapper objectMapper;
+  private final boolean coalesced;
+  private final int maxBatchSize;
+  private final Map<String, InflightStateDto> pending = new ConcurrentHashMap<>();
 
   public InflightPublisher(KafkaTemplate<String, String> kafkaTemplate,
-      StreamingConfig streamingConfig) {
+      StreamingConfig streamingConfig, ObjectMapper objectMapper,
+      @Value("${streaming.inflight.mode:per-event}") String mode,
+      @Value("${streaming.inflight.max-batch-size:500}") int maxBatchSize) {
     this.kafkaTemplate = kafkaTemplate;
     this.streamingConfig = streamingConfig;
+    this.objectMapper = objectMapper;
+    this.coalesced = "coalesced".equalsIgnoreCase(mode);
+    this.maxBatchSize = Math.max(1, maxBatchSize);
   }
 
   /**
@@ -36,6 +68,11 @@ public class InflightPublisher {
    * @param operation Operation type (CREATE, UPDATE, DELETE)
    */
   public void publishUpdating(String entity, UUID entityId, UUID correlationId, String operation) {
+    if (coalesced) {
+      coalesce(entity, entityId, correlationId, operation, "updating", null);
+      return;
+    }
+
     try {
       String topicName = buildInflightTopicName(entity);
       String key = buildPartitionKey(entity, entityId);
@@ -62,6 +99,11 @@ public class InflightPublisher {
    * Publish inflight "completed" event when operation finishes
    */
   public void publishCompleted(String entity, UUID entityId, UUID correlationId, String operation) {
+    if (coalesced) {
+      coalesce(entity, entityId, correlationId, operation, "completed", null);
+      return;
+    }
+
     try {
       String topicName = buildInflightTopicName(entity);
       String key = buildPartitionKey(entity, entityId);
@@ -81,6 +123,11 @@ public class InflightPublisher {
    */
   public void publishFailed(String entity, UUID entityId, UUID correlationId, String operation,
       String error) {
+    if (coalesced) {
+      coalesce(entity, entityId, correlationId, operation, "failed", error);
+      return;
+    }
+
     try {
       String topicName = buildInflightTopicName(entity);
       String key = buildPartitionKey(entity, entityId);
@@ -95,6 +142,85 @@ public class InflightPublisher {
     }
   }
 
+  /**
+   * Flush coalesced states - one record per entity topic and up to
+   * {@code streaming.inflight.max-batch-size} states
+   */
+  @Scheduled(fixedDelayString = "${streaming.inflight.coalesce-window-ms:250}")
+  public void flush() {
+    if (!coalesced || pending.isEmpty()) {
+      return;
+    }
+
+    Map<String, List<InflightStateDto>> byEntity = new HashMap<>();
+    for (String key : pending.keySet()) {
+      InflightStateDto state = pending.remove(key);
+      if (state != null) {
+        byEntity.computeIfAbsent(state.getEntity(), entity -> new ArrayList<>()).add(state);
+      }
+    }
+
+    byEntity.forEach((entity, states) -> {
+      for (int from = 0; from < states.size(); from += maxBatchSize) {
+        List<InflightStateDto> chunk = states.subList(from,
+            Math.min(states.size(), from + maxBatchSize));
+        try {
+          ProducerRecord<String, String> record = new ProducerRecord<>(
+              buildInflightTopicName(entity), entity, buildBatchPayload(entity, chunk));
+          record.headers().add(FORMAT_HEADER, FORMAT_BATCH.getBytes(StandardCharsets.UTF_8));
+          kafkaTemplate.send(record).whenComplete((result, ex) -> {
+            if (ex != null) {
+              log.warn("Failed to publish inflight batch for {}: {}", entity, ex.getMessage());
+            }
+          });
+        } catch (Exception e) {
+          log.warn("Failed to publish inflight batch for {}", entity, e);
+        }
+      }
+      log.debug("📤 Published {} coalesced inflight states for {}", states.size(), entity);
+    });
+  }
+
+  /**
+   * Latest state per (entity, entityId) wins until the next flush
+   */
+  private void coalesce(String entity, UUID entityId, UUID correlationId, String operation,
+      String status, String error) {
+    pending.put(buildPartitionKey(entity, entityId),
+        InflightStateDto.builder().entity(entity).entityId(entityId)
+            .correlationId(correlationId).operation(operation).status(status)
+            .timestamp(System.currentTimeMillis()).error(error).build());
+  }
+
+  /**
+   * Compact batch payload: {"entity":..,"states":[{"entityId","correlationId",
+   * "operation","status","timestamp"(epoch ms),"error"?}]}
+   */
+  private String buildBatchPayload(String entity, List<InflightStateDto> states)
+      throws IOException {
+    StringWriter out = new StringWriter(64 + states.size() * 160);
+    try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+      json.writeStartObject();
+      json.writeStringField("entity", entity);
+      json.writeArrayFieldStart("states");
+      for (InflightStateDto state : states) {
+        json.writeStartObject();
+        json.writeStringField("entityId", String.valueOf(state.getEntityId()));
+        json.writeStringField("correlationId", String.valueOf(state.getCorrelationId()));
+        json.writeStringField("operation", state.getOperation());
+        json.writeStringField("status", state.getStatus());
+        json.writeNumberField("timestamp", state.getTimestamp());
+        if (state.getError() != null) {
+          json.writeStringField("error", state.getError());
+        }
+        json.writeEndObject();
+      }
+      json.writeEndArray();
+      json.writeEndObject();
+    }
+    return out.toString();
+  }
+
   /**
    * Build inflight topic name
    */
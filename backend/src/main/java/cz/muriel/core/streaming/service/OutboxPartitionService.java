@@ -0,0 +1,197 @@
+package cz.muriel.core.streaming.service;
+
+import cz.muriel.core.metamodel.MetamodelLoader;
+import cz.muriel.core.metamodel.schema.GlobalMetamodelConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * 🗂️ Outbox Partition Service
+ *
+ * Keeps the daily RANGE partitions of outbox_final rolling: creates partitions
+ * {@code streaming.outbox.premake-days} ahead and retires partitions older
+ * than {@code streaming.outbox.retention-days}. A retired partition is
+ * detached and dropped in one transaction; with
+ * {@code streaming.outbox.archive-enabled} its metadata is first compacted
+ * into outbox_final_archive for audit lookups by correlation_id. Partitions
+ * still holding unsent rows are never retired.
+ *
+ * A partition that cannot be created fails the maintenance run - rows of that
+ * day would otherwise pile up in the default partition. Old rows that did land
+ * in the default partition are retired by swapping the whole partition, not by
+ * deleting them row by row.
+ */
+@Slf4j @Service @ConditionalOnProperty(name = "streaming.enabled", havingValue = "true")
+public class OutboxPartitionService {
+
+  private static final String PARTITION_PREFIX = "outbox_final_p";
+  private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter
+      .ofPattern("yyyyMMdd");
+
+  /** Columns of outbox_final - the swap never relies on column order */
+  private static final String OUTBOX_COLUMNS = "id, tenant_id, entity, entity_id, operation, "
+      + "diff_json, snapshot_json, headers_json, correlation_id, sent_at, retry_count, "
+      + "error_message, created_at, next_attempt_at";
+
+  private static final String ARCHIVE_COLUMNS = "id, tenant_id, entity, entity_id, operation, "
+      + "correlation_id, retry_count, error_message, created_at, sent_at";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final GlobalMetamodelConfig globalConfig;
+  private final int retentionDays;
+  private final int premakeDays;
+  private final boolean archiveEnabled;
+
+  public OutboxPartitionService(JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager, MetamodelLoader metamodelLoader,
+      @Value("${streaming.outbox.retention-days:7}") int retentionDays,
+      @Value("${streaming.outbox.premake-days:3}") int premakeDays,
+      @Value("${streaming.outbox.archive-enabled:false}") boolean archiveEnabled) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.globalConfig = metamodelLoader.loadGlobalConfig();
+    this.retentionDays = retentionDays;
+    this.premakeDays = premakeDays;
+    this.archiveEnabled = archiveEnabled;
+  }
+
+  /**
+   * Partition maintenance (scheduled task)
+   */
+  @Scheduled(fixedDelayString = "${streaming.outbox.maintenance-interval-ms:3600000}") // 1 hour
+  public void maintainPartitions() {
+    if (!globalConfig.getStreaming().isEnabled()) {
+      return;
+    }
+
+    maintainPartitions(LocalDate.now(ZoneOffset.UTC));
+  }
+
+  /**
+   * One maintenance run relative to the given UTC day
+   */
+  void maintainPartitions(LocalDate today) {
+    createPartitions(today);
+    retirePartitions(today.minusDays(retentionDays));
+    swapDefaultPartition(today.minusDays(retentionDays));
+  }
+
+  /**
+   * Create today's and upcoming daily partitions (UTC day bounds)
+   */
+  private void createPartitions(LocalDate today) {
+    for (int i = 0; i <= premakeDays; i++) {
+      LocalDate day = today.plusDays(i);
+      String partition = PARTITION_PREFIX + day.format(PARTITION_SUFFIX);
+      try {
+        jdbcTemplate.execute(String.format(
+            "CREATE TABLE IF NOT EXISTS %s PARTITION OF outbox_final FOR VALUES FROM ('%s') TO ('%s')",
+            partition, startOf(day), startOf(day.plusDays(1))));
+      } catch (Exception e) {
+        // e.g. the default partition already holds rows of that day
+        log.error("❌ Failed to create outbox partition {}", partition, e);
+        throw new IllegalStateException("Failed to create outbox partition " + partition, e);
+      }
+    }
+  }
+
+  /**
+   * Detach and drop partitions that ended before the cutoff day
+   */
+  private void retirePartitions(LocalDate cutoff) {
+    List<String> partitions = jdbcTemplate.queryForList("""
+        SELECT c.relname FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        JOIN pg_class p ON p.oid = i.inhparent
+        WHERE p.relname = 'outbox_final' AND c.relname LIKE 'outbox\\_final\\_p%'
+        ORDER BY c.relname
+        """, String.class);
+
+    for (String partition : partitions) {
+      LocalDate day = partitionDay(partition);
+      if (day == null || day.plusDays(1).isAfter(cutoff)) {
+        continue;
+      }
+
+      Boolean unsent = jdbcTemplate.queryForObject(
+          "SELECT EXISTS (SELECT 1 FROM " + partition + " WHERE sent_at IS NULL)", Boolean.class);
+      if (Boolean.TRUE.equals(unsent)) {
+        log.warn("Outbox partition {} still has unsent messages, keeping it", partition);
+        continue;
+      }
+
+      transactionTemplate.executeWithoutResult(status -> {
+        if (archiveEnabled) {
+          jdbcTemplate.update("INSERT INTO outbox_final_archive (" + ARCHIVE_COLUMNS + ") SELECT "
+              + ARCHIVE_COLUMNS + " FROM " + partition);
+        }
+        jdbcTemplate.execute("ALTER TABLE outbox_final DETACH PARTITION " + partition);
+        jdbcTemplate.execute("DROP TABLE " + partition);
+      });
+      log.info("Retired outbox partition {} (archived: {})", partition, archiveEnabled);
+    }
+  }
+
+  /**
+   * Retire sent rows older than the cutoff that landed in the default
+   * partition: the partition is detached and replaced by an empty one, rows
+   * still needed (unsent or recent) are re-inserted and the old partition is
+   * dropped. Runs only when there is something to retire.
+   */
+  private void swapDefaultPartition(LocalDate cutoff) {
+    Timestamp before = Timestamp.from(startOf(cutoff));
+    Boolean retirable = jdbcTemplate.queryForObject(
+        "SELECT EXISTS (SELECT 1 FROM outbox_final_default WHERE sent_at IS NOT NULL AND created_at < ?)",
+        Boolean.class, before);
+    if (!Boolean.TRUE.equals(retirable)) {
+      return;
+    }
+
+    Integer kept = transactionTemplate.execute(status -> {
+      jdbcTemplate.execute("ALTER TABLE outbox_final DETACH PARTITION outbox_final_default");
+      jdbcTemplate.execute("ALTER TABLE outbox_final_default RENAME TO outbox_final_default_retired");
+      jdbcTemplate.execute("CREATE TABLE outbox_final_default PARTITION OF outbox_final DEFAULT");
+      if (archiveEnabled) {
+        jdbcTemplate.update("INSERT INTO outbox_final_archive (" + ARCHIVE_COLUMNS + ") SELECT "
+            + ARCHIVE_COLUMNS
+            + " FROM outbox_final_default_retired WHERE sent_at IS NOT NULL AND created_at < ?",
+            before);
+      }
+      int rows = jdbcTemplate.update("INSERT INTO outbox_final (" + OUTBOX_COLUMNS + ") SELECT "
+          + OUTBOX_COLUMNS
+          + " FROM outbox_final_default_retired WHERE sent_at IS NULL OR created_at >= ?",
+          before);
+      jdbcTemplate.execute("DROP TABLE outbox_final_default_retired");
+      return rows;
+    });
+    log.info("Retired old rows of outbox_final_default ({} rows kept, archived: {})", kept,
+        archiveEnabled);
+  }
+
+  private static Instant startOf(LocalDate day) {
+    return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+  }
+
+  private static LocalDate partitionDay(String partition) {
+    try {
+      return LocalDate.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+    } catch (DateTimeParseException | IndexOutOfBoundsException e) {
+      return null;
+    }
+  }
+}
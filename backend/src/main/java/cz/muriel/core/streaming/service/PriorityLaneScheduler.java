@@ -0,0 +1,108 @@
+package cz.muriel.core.streaming.service;
+
+import cz.muriel.core.metamodel.schema.EntitySchema;
+import cz.muriel.core.metamodel.schema.StreamingEntityConfig;
+import cz.muriel.core.metamodel.schema.StreamingGlobalConfig;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * ⚖️ Priority Lane Scheduler
+ *
+ * Splits a worker batch into per-priority shares by
+ * {@code defaultPriorityWeights} and enforces per-second quotas per (entity,
+ * priority). Quotas are counted per instance in fixed one-second windows;
+ * entity {@code priorityQuotas} override the global defaults.
+ */
+class PriorityLaneScheduler {
+
+  /**
+   * Priorities in claim order - critical first
+   */
+  static final List<String> PRIORITIES = List.of("critical", "high", "normal", "bulk");
+
+  private static final long WINDOW_MS = 1000L;
+
+  private final StreamingGlobalConfig globalConfig;
+  private final Function<String, EntitySchema> schemas;
+  private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+  PriorityLaneScheduler(StreamingGlobalConfig globalConfig,
+      Function<String, EntitySchema> schemas) {
+    this.globalConfig = globalConfig;
+    this.schemas = schemas;
+  }
+
+  /**
+   * Fair share of a batch for one priority - at least one slot for any
+   * priority with a positive weight, so no lane starves
+   */
+  int share(String priority, int batchSize) {
+    StreamingEntityConfig.PriorityWeights weights = globalConfig.getDefaultPriorityWeights();
+    int weight = weights.forPriority(priority);
+    if (weight <= 0) {
+      return 0;
+    }
+    int total = PRIORITIES.stream().mapToInt(weights::forPriority).filter(w -> w > 0).sum();
+    return Math.max(1, (int) Math.round((double) batchSize * weight / total));
+  }
+
+  /**
+   * Take one slot of the (entity, priority) quota
+   *
+   * @return false if the quota of the current window is used up
+   */
+  boolean tryAcquire(String entity, String priority, long nowMs) {
+    int quota = quota(entity, priority);
+    if (quota <= 0) {
+      return true;
+    }
+    Window window = windows.computeIfAbsent(entity + "#" + priority, key -> new Window());
+    return window.tryAcquire(nowMs, quota);
+  }
+
+  /**
+   * Start of the next quota window - throttled commands become available then
+   */
+  long nextWindowStart(long nowMs) {
+    return (nowMs / WINDOW_MS + 1) * WINDOW_MS;
+  }
+
+  private int quota(String entity, String priority) {
+    EntitySchema schema = schemas.apply(entity);
+    if (schema != null && schema.getStreaming() != null
+        && schema.getStreaming().getPriorityQuotas() != null) {
+      Integer entityQuota = schema.getStreaming().getPriorityQuotas().forPriority(priority);
+      if (entityQuota != null) {
+        return entityQuota;
+      }
+    }
+    StreamingEntityConfig.PriorityQuotas defaults = globalConfig.getDefaultPriorityQuotas();
+    Integer globalQuota = defaults != null ? defaults.forPriority(priority) : null;
+    return globalQuota != null ? globalQuota : 0;
+  }
+
+  /**
+   * Fixed one-second counting window
+   */
+  private static final class Window {
+    private long start;
+    private int used;
+
+    synchronized boolean tryAcquire(long nowMs, int quota) {
+      long windowStart = nowMs / WINDOW_MS * WINDOW_MS;
+      if (windowStart != start) {
+        start = windowStart;
+        used = 0;
+      }
+      if (used >= quota) {
+        return false;
+      }
+      used++;
+      return true;
+    }
+  }
+}
@@ -0,0 +1,185 @@
+package cz.muriel.core.streaming.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 🔔 Queue Notify Listener
+ *
+ * Holds one dedicated connection in LISTEN mode for the streaming queue
+ * channels (see R__streaming_notify.sql) and wakes subscribed services as soon
+ * as rows are inserted into command_queue / outbox_final. Services keep a slow
+ * safety-net poll and fall back to normal polling while
+ * {@link #isListening()} is false (connection lost, reconnecting).
+ *
+ * The connection is opened directly through the JDBC driver, not borrowed from
+ * the pool: a pooled connection would be held forever, and the pool may
+ * validate or reset it under the listener. An idle connection is probed with
+ * {@code SELECT 1}, so a silently dropped socket is detected and reopened.
+ */
+@Slf4j @Component @ConditionalOnExpression("${streaming.enabled:false} and ${streaming.notify.enabled:true}")
+public class QueueNotifyListener {
+
+  public static final String COMMAND_QUEUE_CHANNEL = "command_queue_ready";
+  public static final String OUTBOX_CHANNEL = "outbox_final_ready";
+
+  static final String APPLICATION_NAME = "stream-notify-listener";
+
+  private static final int RECEIVE_TIMEOUT_MS = 1_000;
+
+  private final DataSourceProperties dataSourceProperties;
+  private final long reconnectDelayMs;
+  private final long probeIntervalMs;
+  private final Map<String, List<Runnable>> subscribers = new ConcurrentHashMap<>();
+
+  private volatile boolean running = true;
+  private volatile boolean listening;
+  private Thread thread;
+
+  public QueueNotifyListener(DataSourceProperties dataSourceProperties,
+      @Value("${streaming.notify.reconnect-delay-ms:5000}") long reconnectDelayMs,
+      @Value("${streaming.notify.probe-interval-ms:30000}") long probeIntervalMs) {
+    this.dataSourceProperties = dataSourceProperties;
+    this.reconnectDelayMs = reconnectDelayMs;
+    this.probeIntervalMs = probeIntervalMs;
+  }
+
+  @PostConstruct
+  public void start() {
+    thread = new Thread(this::listenLoop, APPLICATION_NAME);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @PreDestroy
+  public void stop() {
+    running = false;
+    if (thread != null) {
+      thread.interrupt();
+    }
+  }
+
+  /**
+   * Register wake-up callback for channel - called on the listener thread, must
+   * not block
+   */
+  public void subscribe(String channel, Runnable callback) {
+    subscribers.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>()).add(callback);
+  }
+
+  /**
+   * True while LISTEN is active - subscribers may then poll slowly
+   */
+  public boolean isListening() {
+    return listening;
+  }
+
+  private void listenLoop() {
+    while (running) {
+      try (Connection connection = openConnection()) {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        try (Statement statement = connection.createStatement()) {
+          statement.execute("LISTEN " + COMMAND_QUEUE_CHANNEL);
+          statement.execute("LISTEN " + OUTBOX_CHANNEL);
+        }
+        listening = true;
+        log.info("🔔 Listening for streaming queue notifications");
+
+        // Rows inserted while we were not listening
+        subscribers.keySet().forEach(this::wake);
+
+        long lastActivity = System.currentTimeMillis();
+        while (running) {
+          PGNotification[] notifications = pgConnection.getNotifications(RECEIVE_TIMEOUT_MS);
+          long now = System.currentTimeMillis();
+          if (notifications == null || notifications.length == 0) {
+            if (now - lastActivity >= probeIntervalMs) {
+              probe(connection);
+              lastActivity = now;
+            }
+            continue;
+          }
+          lastActivity = now;
+
+          // Many inserts → one wake-up per channel
+          Set<String> channels = new HashSet<>();
+          for (PGNotification notification : notifications) {
+            channels.add(notification.getName());
+          }
+          channels.forEach(this::wake);
+        }
+      } catch (SQLException e) {
+        if (running) {
+          log.warn("Streaming notify connection lost, retrying in {}ms: {}", reconnectDelayMs,
+              e.getMessage());
+        }
+      } finally {
+        listening = false;
+      }
+
+      if (running) {
+        try {
+          Thread.sleep(reconnectDelayMs);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Dedicated connection outside the pool
+   */
+  private Connection openConnection() throws SQLException {
+    Properties props = new Properties();
+    String username = dataSourceProperties.determineUsername();
+    String password = dataSourceProperties.determinePassword();
+    if (username != null) {
+      props.setProperty("user", username);
+    }
+    if (password != null) {
+      props.setProperty("password", password);
+    }
+    props.setProperty("ApplicationName", APPLICATION_NAME);
+    props.setProperty("tcpKeepAlive", "true");
+    Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+        props);
+    connection.setAutoCommit(true);
+    return connection;
+  }
+
+  /**
+   * Round trip on an idle connection - throws if the socket is gone
+   */
+  private void probe(Connection connection) throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("SELECT 1");
+    }
+  }
+
+  private void wake(String channel) {
+    for (Runnable callback : subscribers.getOrDefault(channel, List.of())) {
+      try {
+        callback.run();
+      } catch (Exception e) {
+        log.warn("Wake-up callback for {} failed: {}", channel, e.getMessage());
+      }
+    }
+  }
+}
@@ -3,30 +3,69 @@ package cz.muriel.core.streaming.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import cz.muriel.core.metamodel.MetamodelLoader;
+import cz.muriel.core.metamodel.MetamodelRegistry;
 import cz.muriel.core.metamodel.schema.GlobalMetamodelConfig;
 import cz.muriel.core.streaming.entity.CommandQueue;
 import cz.muriel.core.streaming.entity.OutboxFinal;
-import cz.muriel.core.streaming.entity.WorkState;
 import cz.muriel.core.streaming.metrics.StreamingMetrics;
 import cz.muriel.core.streaming.repository.CommandQueueRepository;
 import cz.muriel.core.streaming.repository.OutboxFinalRepository;
 import cz.muriel.core.streaming.repository.WorkStateRepository;
+import cz.muriel.core.streaming.service.EntityLockManager.EntityLock;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import jakarta.annotation.PreDestroy;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 /**
  * 🔨 Worker Service
  * 
  * Polls command_queue, processes commands, updates work_state, and writes to
- * outbox_final in a single transaction.
+ * outbox_final.
+ * 
+ * Commands are spread over {@code streaming.worker.threads} worker lanes by
+ * hash of (entity, entity_id). Each lane claims its own batch (SKIP LOCKED,
+ * status → processing) and processes it sequentially, so commands of one
+ * entity stay in order while different entities run in parallel. Every
+ * command commits in its own transaction; a lane keeps draining until its
+ * queue slice is empty.
+ * 
+ * Each batch is filled per priority (critical → bulk), every priority with its
+ * own indexed fetch and a weighted fair share of the batch; unused share flows
+ * to the next priority. Commands over their (entity, priority) quota are
+ * deferred to the next quota window, see {@link PriorityLaneScheduler}.
+ * 
+ * Mutual exclusion per entity comes from {@link EntityLockManager}: a lane
+ * only claims commands of lock partitions this instance leases and locks the
+ * entity in memory, the partition's fencing token is checked against the lease
+ * row (FOR SHARE) inside the command transaction.
+ * 
+ * With {@link QueueNotifyListener} active, lanes are woken by NOTIFY on
+ * command_queue inserts and the scheduled poll only runs every
+ * {@code streaming.notify.safety-poll-interval-ms} as a safety net.
  */
 @Slf4j @Service @ConditionalOnProperty(name = "streaming.enabled", havingValue = "true")
 public class WorkerService {
@@ -39,15 +78,33 @@ public class WorkerService {
   private final InflightPublisher inflightPublisher;
   private final StreamingMetrics metrics;
   private final ObjectMapper objectMapper;
+  private final TransactionTemplate transactionTemplate;
+  private final EntityLockManager lockManager;
 
   private final String workerId;
+  private final int workerThreads;
+  private final long pollIntervalMs;
+  private final ExecutorService executor;
+  private final AtomicBoolean[] laneBusy;
+  private final AtomicLong wakeSignal = new AtomicLong();
+  private final QueueNotifyListener notifyListener;
+  private final long safetyPollIntervalMs;
+  private volatile long lastPollAt;
+  private volatile boolean running = true;
   private GlobalMetamodelConfig globalConfig;
+  private final PriorityLaneScheduler scheduler;
 
   @Autowired
   public WorkerService(CommandQueueRepository commandQueueRepository,
       WorkStateRepository workStateRepository, OutboxFinalRepository outboxFinalRepository,
-      MetamodelLoader metamodelLoader, InflightPublisher inflightPublisher,
-      StreamingMetrics metrics, ObjectMapper objectMapper) {
+      MetamodelLoader metamodelLoader, MetamodelRegistry metamodelRegistry,
+      InflightPublisher inflightPublisher,
+      StreamingMetrics metrics, ObjectMapper objectMapper,
+      PlatformTransactionManager transactionManager, EntityLockManager lockManager,
+      ObjectProvider<QueueNotifyListener> notifyListener,
+      @Value("${streaming.worker.threads:4}") int workerThreads,
+      @Value("${streaming.worker.poll-interval-ms:100}") long pollIntervalMs,
+      @Value("${streaming.notify.safety-poll-interval-ms:5000}") long safetyPollIntervalMs) {
     this.commandQueueRepository = commandQueueRepository;
     this.workStateRepository = workStateRepository;
     this.outboxFinalRepository = outboxFinalRepository;
@@ -55,43 +112,212 @@ public class WorkerService {
     this.inflightPublisher = inflightPublisher;
     this.metrics = metrics;
     this.objectMapper = objectMapper;
-    this.workerId = "worker-" + UUID.randomUUID().toString().substring(0, 8);
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.lockManager = lockManager;
+    this.workerId = lockManager.getInstanceId();
+    this.workerThreads = Math.max(1, workerThreads);
+    this.pollIntervalMs = pollIntervalMs;
+    this.safetyPollIntervalMs = safetyPollIntervalMs;
+    this.notifyListener = notifyListener.getIfAvailable();
+
+    AtomicInteger threadCounter = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(this.workerThreads, runnable -> {
+      Thread thread = new Thread(runnable,
+          workerId + "-lane-" + threadCounter.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.laneBusy = new AtomicBoolean[this.workerThreads];
+    for (int i = 0; i < this.workerThreads; i++) {
+      laneBusy[i] = new AtomicBoolean();
+    }
 
     // Load global config
     this.globalConfig = metamodelLoader.loadGlobalConfig();
+    // Entity quotas are looked up in the registry, so reloads apply without
+    // re-parsing YAML per worker
+    this.scheduler = new PriorityLaneScheduler(globalConfig.getStreaming(),
+        entity -> metamodelRegistry.getSchema(entity).orElse(null));
+
+    if (this.notifyListener != null) {
+      this.notifyListener.subscribe(QueueNotifyListener.COMMAND_QUEUE_CHANNEL, this::wakeUp);
+    }
+    lockManager.onOwnershipGained(this::wakeUp);
   }
 
   /**
-   * Main worker loop - polls and processes commands
+   * Main worker loop - starts a drain on every idle lane. Only a safety net
+   * while NOTIFY wake-ups are active.
    */
-  @Scheduled(fixedDelayString = "${streaming.worker.poll-interval-ms:100}") @Transactional
+  @Scheduled(fixedDelayString = "${streaming.worker.poll-interval-ms:100}")
   public void processCommands() {
-    if (!globalConfig.getStreaming().isEnabled()) {
+    long now = System.currentTimeMillis();
+    if (notifyListener != null && notifyListener.isListening()
+        && now - lastPollAt < safetyPollIntervalMs) {
       return;
     }
+    lastPollAt = now;
+    wakeUp();
+  }
+
+  /**
+   * Start a drain on every idle lane - busy lanes pick the new work up before
+   * they go idle
+   */
+  public void wakeUp() {
+    if (!globalConfig.getStreaming().isEnabled() || !running) {
+      return;
+    }
+
+    wakeSignal.incrementAndGet();
+    for (int lane = 0; lane < workerThreads; lane++) {
+      if (laneBusy[lane].compareAndSet(false, true)) {
+        int claimedLane = lane;
+        try {
+          executor.execute(() -> drainLane(claimedLane));
+        } catch (RejectedExecutionException e) {
+          laneBusy[lane].set(false);
+          return; // shutting down
+        }
+      }
+    }
+  }
 
+  @PreDestroy
+  public void shutdown() {
+    running = false;
+    executor.shutdown();
     try {
-      int batchSize = globalConfig.getStreaming().getDefaultWorkerBatchSize();
-      List<CommandQueue> commands = commandQueueRepository
-          .fetchPendingCommandsForProcessing(Instant.now(), batchSize);
+      if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+        log.warn("Worker {} lanes did not finish in time", workerId);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
 
-      if (commands.isEmpty()) {
-        return;
+  /**
+   * Claim and process batches of one lane until its queue slice is empty. The
+   * lane is released before the final check so a concurrent wake-up either sees
+   * it idle or is noticed here.
+   */
+  private void drainLane(int lane) {
+    try {
+      while (running) {
+        long signal = wakeSignal.get();
+        List<CommandQueue> commands = claimBatch(lane);
+        if (commands.isEmpty()) {
+          laneBusy[lane].set(false);
+          // Woken while claiming an empty batch → claim once more
+          if (wakeSignal.get() == signal || !laneBusy[lane].compareAndSet(false, true)) {
+            return;
+          }
+          continue;
+        }
+
+        log.debug("Worker {} lane {} processing {} commands", workerId, lane, commands.size());
+        for (CommandQueue command : commands) {
+          processCommand(command);
+        }
       }
+      laneBusy[lane].set(false);
+    } catch (Exception e) {
+      log.error("Worker {} lane {} failed to process commands", workerId, lane, e);
+      laneBusy[lane].set(false);
+    }
+  }
 
-      log.debug("Worker {} processing {} commands", workerId, commands.size());
+  /**
+   * Claim a batch in a short transaction: SKIP LOCKED fetch per priority + one
+   * bulk status update. Claimed commands are invisible to other workers after
+   * commit; throttled ones stay pending until the next quota window.
+   * 
+   * The first pass fetches each priority's share (unused share carries down to
+   * the next priority). Capacity still left after it is handed, critical first,
+   * to priorities that filled their share and may have more pending.
+   */
+  private List<CommandQueue> claimBatch(int lane) {
+    int batchSize = globalConfig.getStreaming().getDefaultWorkerBatchSize();
+    List<Integer> partitions = lockManager.claimablePartitions();
+    if (partitions.isEmpty()) {
+      return List.of(); // no lock partitions leased (yet)
+    }
 
-      for (CommandQueue command : commands) {
-        processCommand(command);
+    List<CommandQueue> commands = transactionTemplate.execute(status -> {
+      Instant now = Instant.now();
+      List<CommandQueue> claimed = new ArrayList<>();
+      List<UUID> throttled = new ArrayList<>();
+      Map<String, Set<UUID>> fetchedIds = new LinkedHashMap<>();
+      int remaining = batchSize;
+      int carry = 0;
+
+      for (String priority : PriorityLaneScheduler.PRIORITIES) {
+        int limit = Math.min(remaining, scheduler.share(priority, batchSize) + carry);
+        if (limit <= 0) {
+          continue;
+        }
+        List<CommandQueue> fetched = commandQueueRepository.fetchPendingCommandsForLane(now,
+            priority, lane, workerThreads, partitions, lockManager.getPartitionCount(), limit);
+        accept(fetched, priority, now, claimed, throttled);
+        if (fetched.size() == limit) {
+          fetchedIds.put(priority,
+              fetched.stream().map(CommandQueue::getId).collect(Collectors.toSet()));
+        }
+        carry = limit - fetched.size(); // unused share → next priority
+        remaining -= fetched.size();
       }
 
-    } catch (Exception e) {
-      log.error("Worker {} failed to process commands", workerId, e);
+      // Second pass - leftover capacity to saturated priorities. Rows locked by
+      // this transaction are not skipped by SKIP LOCKED, so the first pass rows
+      // are fetched again and dropped by id.
+      for (Map.Entry<String, Set<UUID>> entry : fetchedIds.entrySet()) {
+        if (remaining <= 0) {
+          break;
+        }
+        Set<UUID> seen = entry.getValue();
+        List<CommandQueue> fetched = commandQueueRepository.fetchPendingCommandsForLane(now,
+            entry.getKey(), lane, workerThreads, partitions, lockManager.getPartitionCount(),
+            seen.size() + remaining).stream().filter(command -> !seen.contains(command.getId()))
+            .limit(remaining).toList();
+        accept(fetched, entry.getKey(), now, claimed, throttled);
+        remaining -= fetched.size();
+      }
+
+      if (!claimed.isEmpty()) {
+        commandQueueRepository
+            .markProcessing(claimed.stream().map(CommandQueue::getId).toList(), now);
+      }
+      if (!throttled.isEmpty()) {
+        commandQueueRepository.deferUntil(throttled,
+            Instant.ofEpochMilli(scheduler.nextWindowStart(now.toEpochMilli())));
+      }
+      return claimed;
+    });
+
+    if (commands == null) {
+      return List.of();
+    }
+    commands.forEach(command -> command.setStatus("processing"));
+    return commands;
+  }
+
+  /**
+   * Split fetched commands into claimed and quota-throttled
+   */
+  private void accept(List<CommandQueue> fetched, String priority, Instant now,
+      List<CommandQueue> claimed, List<UUID> throttled) {
+    for (CommandQueue command : fetched) {
+      if (scheduler.tryAcquire(command.getEntity(), priority, now.toEpochMilli())) {
+        claimed.add(command);
+      } else {
+        throttled.add(command.getId());
+        metrics.recordQuotaThrottle(command.getEntity(), priority);
+      }
     }
   }
 
   /**
-   * Process a single command
+   * Process a single command in its own transaction
    */
   private void processCommand(CommandQueue command) {
     long startTime = System.currentTimeMillis();
@@ -101,36 +327,54 @@ public class WorkerService {
       inflightPublisher.publishUpdating(command.getEntity(), command.getEntityId(),
           command.getCorrelationId(), command.getOperation());
 
-      // 1. Check/acquire work_state lock
-      WorkState workState = acquireLock(command);
-      if (workState == null) {
-        // Another worker is processing this entity
-        log.debug("Entity {}/{} is locked, skipping", command.getEntity(), command.getEntityId());
+      // 1. In-memory entity lock on an owned partition
+      EntityLock lock = lockManager.tryLock(command.getEntity(), command.getEntityId(),
+          command.getEntityHash());
+      if (lock == null) {
+        // Entity busy or partition not (or no longer) ours - back to the queue
+        log.debug("Entity {}/{} is locked, postponing", command.getEntity(),
+            command.getEntityId());
+        postpone(command);
         return;
       }
 
-      // 2. Update command status to processing
-      command.setStatus("processing");
-      commandQueueRepository.save(command);
-
-      // 3. Execute business logic (STUB - will be implemented)
-      executeBusinessLogic(command);
-
-      // 4. Write to outbox_final
-      writeToOutbox(command);
-
-      // 5. Mark command as completed
-      command.setStatus("completed");
-      commandQueueRepository.save(command);
+      Boolean processed;
+      try {
+        processed = transactionTemplate.execute(status -> {
+          // 2. Fencing - lease row share-locked until commit; lost lease →
+          // another instance owns the partition
+          if (!lockManager.isValid(lock)) {
+            status.setRollbackOnly();
+            return false;
+          }
+
+          // 3. Execute business logic (STUB - will be implemented)
+          executeBusinessLogic(command);
+
+          // 4. Write to outbox_final
+          writeToOutbox(command);
+
+          // 5. Mark command as completed
+          command.setStatus("completed");
+          commandQueueRepository.save(command);
+          return true;
+        });
+      } finally {
+        lockManager.unlock(lock);
+      }
 
-      // 6. Release lock
-      releaseLock(workState);
+      if (!Boolean.TRUE.equals(processed)) {
+        log.warn("Worker {} lost lease of {}/{}, postponing command {}", workerId,
+            command.getEntity(), command.getEntityId(), command.getId());
+        postpone(command);
+        return;
+      }
 
-      // 7. Publish inflight "completed" event
+      // 6. Publish inflight "completed" event
       inflightPublisher.publishCompleted(command.getEntity(), command.getEntityId(),
           command.getCorrelationId(), command.getOperation());
 
-      // 8. Record metrics
+      // 7. Record metrics
       long latency = System.currentTimeMillis() - startTime;
       metrics.recordWorkerSuccess(command.getEntity(), command.getPriority());
       metrics.recordLatency(command.getEntity(), latency);
@@ -146,51 +390,20 @@ public class WorkerService {
       metrics.recordWorkerError(command.getEntity(), command.getPriority(),
           e.getClass().getSimpleName());
 
-      handleCommandError(command, e);
+      // Failed transaction rolled back - record retry/DLQ in a fresh one
+      transactionTemplate.executeWithoutResult(status -> handleCommandError(command, e));
     }
   }
 
   /**
-   * Acquire lock on work_state
+   * Put a command back to the queue for a later attempt
    */
-  private WorkState acquireLock(CommandQueue command) {
-    WorkState.WorkStateId id = new WorkState.WorkStateId();
-    id.setEntity(command.getEntity());
-    id.setEntityId(command.getEntityId());
-
-    WorkState workState = workStateRepository.findById(id).orElse(new WorkState());
-
-    // Check if already locked
-    if ("updating".equals(workState.getStatus())) {
-      // Check TTL
-      if (workState.getTtl() != null && workState.getTtl().isAfter(Instant.now())) {
-        return null; // Still locked
-      }
-      // Lock expired, we can acquire it
-    }
-
-    // Acquire lock
-    workState.setEntity(command.getEntity());
-    workState.setEntityId(command.getEntityId());
-    workState.setStatus("updating");
-    workState.setLockedBy(workerId);
-    workState.setStartedAt(Instant.now());
-    workState.setTtl(
-        Instant.now().plusSeconds(globalConfig.getStreaming().getWorkStateTtlMinutes() * 60L));
-    workState.setErrorMessage(null);
-
-    return workStateRepository.save(workState);
-  }
-
-  /**
-   * Release lock on work_state
-   */
-  private void releaseLock(WorkState workState) {
-    workState.setStatus("idle");
-    workState.setLockedBy(null);
-    workState.setTtl(null);
-    workState.setStartedAt(null);
-    workStateRepository.save(workState);
+  private void postpone(CommandQueue command) {
+    transactionTemplate.executeWithoutResult(status -> {
+      command.setStatus("pending");
+      command.setAvailableAt(Instant.now().plusMillis(pollIntervalMs));
+      commandQueueRepository.save(command);
+    });
   }
 
   /**
@@ -325,21 +538,6 @@ public class WorkerService {
     }
 
     commandQueueRepository.save(command);
-
-    // Release lock if held
-    WorkState.WorkStateId id = new WorkState.WorkStateId();
-    id.setEntity(command.getEntity());
-    id.setEntityId(command.getEntityId());
-
-    workStateRepository.findById(id).ifPresent(ws -> {
-      if (workerId.equals(ws.getLockedBy())) {
-        ws.setStatus("error");
-        ws.setErrorMessage(e.getMessage());
-        ws.setLockedBy(null);
-        ws.setTtl(null);
-        workStateRepository.save(ws);
-      }
-    });
   }
 
   /**
@@ -369,6 +567,19 @@ public class WorkerService {
       if (released > 0) {
         log.warn("Released {} expired locks", released);
       }
+
+      // Partition leases of instances that stopped renewing
+      int freed = lockManager.reclaimExpiredLeases();
+      if (freed > 0) {
+        log.warn("Freed {} expired lock partition leases", freed);
+      }
+
+      // Commands claimed by a worker that died before finishing them
+      int reclaimed = commandQueueRepository.releaseStaleClaims(Instant.now()
+          .minusSeconds(globalConfig.getStreaming().getWorkStateTtlMinutes() * 60L));
+      if (reclaimed > 0) {
+        log.warn("Returned {} stale command claims to the queue", reclaimed);
+      }
     } catch (Exception e) {
       log.error("Failed to cleanup expired locks", e);
     }
@@ -0,0 +1,32 @@
+-- =====================================================
+-- REPEATABLE: STREAMING QUEUE WAKE-UP NOTIFICATIONS
+-- Wake WorkerService / DispatcherService on new rows instead of tight polling
+-- =====================================================
+
+-- Function to send queue wake-up NOTIFY (channel = first trigger argument)
+-- Statement-level: one NOTIFY per INSERT statement, bulk inserts stay cheap.
+-- Payload is empty - listeners only need "there is work", PostgreSQL also
+-- folds identical notifications within one transaction.
+CREATE OR REPLACE FUNCTION notify_streaming_queue()
+RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM pg_notify(TG_ARGV[0], '');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS notify_command_queue_insert ON command_queue;
+CREATE TRIGGER notify_command_queue_insert
+    AFTER INSERT ON command_queue
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION notify_streaming_queue('command_queue_ready');
+
+-- outbox_final is recreated as a partitioned table by V10 - the trigger lives
+-- here only, so it always exists after the function it calls
+DROP TRIGGER IF EXISTS notify_outbox_final_insert ON outbox_final;
+CREATE TRIGGER notify_outbox_final_insert
+    AFTER INSERT ON outbox_final
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION notify_streaming_queue('outbox_final_ready');
+
+COMMENT ON FUNCTION notify_streaming_queue IS 'Send PostgreSQL NOTIFY to wake streaming workers / dispatchers';
@@ -0,0 +1,118 @@
+-- V10: Time-partitioned outbox_final
+-- Daily RANGE partitions on created_at. The dispatcher only touches unsent rows
+-- through a partial index, sent partitions are detached (and optionally
+-- compacted into outbox_final_archive) by OutboxPartitionService, so dispatch
+-- cost no longer grows with history.
+
+ALTER TABLE IF EXISTS outbox_final RENAME TO outbox_final_legacy;
+DROP TRIGGER IF EXISTS notify_outbox_final_insert ON outbox_final_legacy;
+
+-- Index (and primary key constraint) names are schema-wide - free them for the new table
+ALTER INDEX IF EXISTS outbox_final_pkey RENAME TO outbox_final_legacy_pkey;
+ALTER INDEX IF EXISTS idx_outbox_final_sent_at RENAME TO idx_outbox_final_legacy_sent_at;
+ALTER INDEX IF EXISTS idx_outbox_final_entity RENAME TO idx_outbox_final_legacy_entity;
+ALTER INDEX IF EXISTS idx_outbox_final_tenant_id RENAME TO idx_outbox_final_legacy_tenant_id;
+ALTER INDEX IF EXISTS idx_outbox_final_correlation_id RENAME TO idx_outbox_final_legacy_correlation_id;
+
+CREATE TABLE outbox_final (
+    id UUID NOT NULL DEFAULT gen_random_uuid(),
+    tenant_id UUID NOT NULL REFERENCES tenants(id) ON DELETE CASCADE,
+    entity VARCHAR(100) NOT NULL,
+    entity_id UUID NOT NULL,
+    operation VARCHAR(20) NOT NULL,
+    diff_json JSONB,
+    snapshot_json JSONB,
+    headers_json JSONB,
+    correlation_id UUID NOT NULL,
+    sent_at TIMESTAMPTZ,
+    retry_count INTEGER NOT NULL DEFAULT 0,
+    error_message TEXT,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Catches rows outside pre-created partitions (clock skew, missed maintenance)
+CREATE TABLE outbox_final_default PARTITION OF outbox_final DEFAULT;
+
+-- Only unsent rows are indexed - dispatcher fetch stays O(backlog), not O(history)
+CREATE INDEX idx_outbox_final_unsent
+    ON outbox_final (created_at)
+    WHERE sent_at IS NULL;
+
+CREATE INDEX idx_outbox_final_entity_entity_id
+    ON outbox_final (entity, entity_id);
+
+CREATE INDEX idx_outbox_final_correlation_id
+    ON outbox_final (correlation_id);
+
+-- Today + 3 days ahead (UTC days), OutboxPartitionService keeps creating them
+DO $$
+DECLARE
+    day DATE;
+BEGIN
+    FOR i IN 0..3 LOOP
+        day := (now() AT TIME ZONE 'UTC')::date + i;
+        EXECUTE format(
+            'CREATE TABLE IF NOT EXISTS %I PARTITION OF outbox_final FOR VALUES FROM (%L) TO (%L)',
+            'outbox_final_p' || to_char(day, 'YYYYMMDD'),
+            day::timestamp AT TIME ZONE 'UTC', (day + 1)::timestamp AT TIME ZONE 'UTC');
+    END LOOP;
+END $$;
+
+-- Compacted history of dropped partitions - metadata only, for audit by correlation_id
+CREATE TABLE IF NOT EXISTS outbox_final_archive (
+    id UUID NOT NULL,
+    tenant_id UUID NOT NULL,
+    entity VARCHAR(100) NOT NULL,
+    entity_id UUID NOT NULL,
+    operation VARCHAR(20) NOT NULL,
+    correlation_id UUID NOT NULL,
+    retry_count INTEGER NOT NULL,
+    error_message TEXT,
+    created_at TIMESTAMPTZ NOT NULL,
+    sent_at TIMESTAMPTZ
+);
+
+CREATE INDEX IF NOT EXISTS idx_outbox_final_archive_correlation_id
+    ON outbox_final_archive (correlation_id);
+
+-- Carry over the old layout: event_type VARCHAR(50) -> operation VARCHAR(20)
+-- (normalized to the command operations, the original value and the
+-- partition key are kept in headers_json), payload -> diff_json.
+-- Unsent rows go on to the dispatcher, sent rows only keep their metadata.
+INSERT INTO outbox_final (id, tenant_id, entity, entity_id, operation, diff_json,
+                          headers_json, correlation_id, created_at)
+SELECT id, tenant_id, entity, entity_id,
+       CASE
+           WHEN upper(event_type) IN ('CREATE', 'UPDATE', 'DELETE', 'BULK_UPDATE') THEN upper(event_type)
+           WHEN upper(event_type) LIKE '%CREATE%' THEN 'CREATE'
+           WHEN upper(event_type) LIKE '%DELETE%' THEN 'DELETE'
+           ELSE 'UPDATE'
+       END,
+       payload,
+       jsonb_build_object('legacyEventType', event_type, 'partitionKey', partition_key),
+       COALESCE(correlation_id, gen_random_uuid()), created_at
+FROM outbox_final_legacy
+WHERE sent_at IS NULL;
+
+INSERT INTO outbox_final_archive (id, tenant_id, entity, entity_id, operation, correlation_id,
+                                  retry_count, error_message, created_at, sent_at)
+SELECT id, tenant_id, entity, entity_id,
+       CASE
+           WHEN upper(event_type) IN ('CREATE', 'UPDATE', 'DELETE', 'BULK_UPDATE') THEN upper(event_type)
+           WHEN upper(event_type) LIKE '%CREATE%' THEN 'CREATE'
+           WHEN upper(event_type) LIKE '%DELETE%' THEN 'DELETE'
+           ELSE 'UPDATE'
+       END,
+       COALESCE(correlation_id, gen_random_uuid()), 0, NULL, created_at, sent_at
+FROM outbox_final_legacy
+WHERE sent_at IS NOT NULL;
+
+DROP TABLE outbox_final_legacy;
+
+-- The NOTIFY trigger of the new table is (re)created by R__streaming_notify.sql,
+-- which runs after the versioned scripts
+
+COMMENT ON TABLE outbox_final IS 'Transactional outbox, daily partitions on created_at';
+COMMENT ON COLUMN outbox_final.sent_at IS 'NULL = pending, NOT NULL = published to Kafka';
+COMMENT ON TABLE outbox_final_archive IS 'Compacted metadata of archived outbox_final partitions';
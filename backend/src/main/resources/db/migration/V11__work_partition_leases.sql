@@ -0,0 +1,26 @@
+-- V11: Partition leases for in-memory entity locking
+-- Worker instances own entity partitions (consistent hashing over live
+-- members). Only the lease + fencing token of a partition is persisted, the
+-- per-entity locks live in EntityLockManager's memory.
+
+-- Stored hash of the entity key - lane / partition routing without hashing per poll
+ALTER TABLE command_queue
+    ADD COLUMN IF NOT EXISTS entity_hash INTEGER
+    GENERATED ALWAYS AS (hashtext(entity || ':' || entity_id::text)) STORED;
+
+CREATE TABLE IF NOT EXISTS work_partition_lease (
+    partition_no INTEGER PRIMARY KEY,
+    owner VARCHAR(100),
+    fencing_token BIGINT NOT NULL DEFAULT 0,
+    lease_until TIMESTAMPTZ
+);
+
+CREATE TABLE IF NOT EXISTS work_member (
+    worker_id VARCHAR(100) PRIMARY KEY,
+    heartbeat_at TIMESTAMPTZ NOT NULL
+);
+
+COMMENT ON TABLE work_partition_lease IS 'Entity partition ownership of worker instances';
+COMMENT ON COLUMN work_partition_lease.fencing_token IS 'Incremented on every change of owner';
+COMMENT ON COLUMN work_partition_lease.lease_until IS 'Owner must renew before this, expired leases are taken over';
+COMMENT ON TABLE work_member IS 'Live worker instances (heartbeat) - consistent hash ring members';
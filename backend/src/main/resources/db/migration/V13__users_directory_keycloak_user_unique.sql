@@ -0,0 +1,20 @@
+-- V13: One users_directory row per (tenant, Keycloak user)
+-- Streaming bulk sync upserts whole pages with INSERT ... ON CONFLICT
+-- (tenant_id, keycloak_user_id). Older duplicates are unlinked rather than
+-- deleted - they stay referenced by memberships, audit and ownership rows.
+
+UPDATE users_directory d
+SET keycloak_user_id = NULL
+FROM (
+    SELECT id, row_number() OVER (
+        PARTITION BY tenant_id, keycloak_user_id
+        ORDER BY updated_at DESC NULLS LAST, id DESC) AS rn
+    FROM users_directory
+    WHERE keycloak_user_id IS NOT NULL
+) ranked
+WHERE d.id = ranked.id AND ranked.rn > 1;
+
+DROP INDEX IF EXISTS idx_users_directory_tenant_keycloak_user;
+
+CREATE UNIQUE INDEX uq_users_directory_tenant_keycloak_user
+    ON users_directory (tenant_id, keycloak_user_id);
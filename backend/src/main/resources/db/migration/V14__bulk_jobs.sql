@@ -0,0 +1,43 @@
+-- V14: Durable bulk update jobs
+-- Job state and progress live in the database, so any instance can report a
+-- job's status and pick up a job whose owner stopped renewing its lease.
+
+CREATE TABLE IF NOT EXISTS bulk_job (
+    id UUID PRIMARY KEY,
+    tenant_id UUID NOT NULL,
+    entity VARCHAR(100) NOT NULL,
+    table_name VARCHAR(100) NOT NULL,
+    updates JSONB NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    total_rows INTEGER NOT NULL,
+    next_seq INTEGER NOT NULL DEFAULT 0,
+    success_count INTEGER NOT NULL DEFAULT 0,
+    error_count INTEGER NOT NULL DEFAULT 0,
+    chunk_size INTEGER NOT NULL,
+    errors JSONB NOT NULL DEFAULT '[]'::jsonb,
+    message TEXT,
+    owner VARCHAR(100),
+    lease_until TIMESTAMPTZ,
+    created_by VARCHAR(255),
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    started_at TIMESTAMPTZ,
+    completed_at TIMESTAMPTZ
+);
+
+-- Claim queue - only unfinished jobs
+CREATE INDEX IF NOT EXISTS idx_bulk_job_claim
+    ON bulk_job (created_at)
+    WHERE status IN ('PENDING', 'RUNNING');
+
+CREATE TABLE IF NOT EXISTS bulk_job_item (
+    job_id UUID NOT NULL REFERENCES bulk_job(id) ON DELETE CASCADE,
+    seq INTEGER NOT NULL,
+    entity_id UUID NOT NULL,
+    PRIMARY KEY (job_id, seq)
+);
+
+COMMENT ON TABLE bulk_job IS 'Bulk update jobs - status and progress shared by all instances';
+COMMENT ON COLUMN bulk_job.next_seq IS 'Resume cursor: first bulk_job_item.seq not processed yet';
+COMMENT ON COLUMN bulk_job.chunk_size IS 'Current adaptive chunk size, kept across resumes';
+COMMENT ON COLUMN bulk_job.lease_until IS 'Owner renews with every chunk, expired RUNNING jobs are taken over';
+COMMENT ON TABLE bulk_job_item IS 'Row ids of a bulk job in processing order';
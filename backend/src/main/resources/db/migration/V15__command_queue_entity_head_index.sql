@@ -0,0 +1,7 @@
+-- V15: Head-of-entity lookup for command_queue claims
+-- WorkerService only claims the oldest pending/processing command of each
+-- entity; the NOT EXISTS probe for an older command is served by this index
+
+CREATE INDEX IF NOT EXISTS idx_command_queue_entity_head
+    ON command_queue (entity, entity_id, created_at, id)
+    WHERE status IN ('pending', 'processing');
@@ -0,0 +1,13 @@
+-- V16: Dispatch backoff and per-entity ordering for outbox_final
+-- next_attempt_at doubles as the in-flight lease: a claimed row is pushed past
+-- the ack timeout and committed before the dispatcher waits for Kafka, a failed
+-- row is pushed by the exponential backoff. Only the oldest unsent row of an
+-- entity is dispatched, so a failing head holds back the entity's later events.
+
+ALTER TABLE outbox_final ADD COLUMN IF NOT EXISTS next_attempt_at TIMESTAMPTZ;
+
+CREATE INDEX IF NOT EXISTS idx_outbox_final_unsent_entity
+    ON outbox_final (entity, entity_id, created_at, id)
+    WHERE sent_at IS NULL;
+
+COMMENT ON COLUMN outbox_final.next_attempt_at IS 'Not dispatched before this - in-flight lease or retry backoff, NULL = now';
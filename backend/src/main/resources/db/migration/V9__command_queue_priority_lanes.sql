@@ -0,0 +1,10 @@
+-- V9: Per-priority lanes for command_queue
+-- WorkerService fetches each priority separately (priority = ?), ordered by
+-- available_at, created_at - the partial index serves the fetch directly
+-- instead of sorting a CASE priority expression on every poll
+
+CREATE INDEX IF NOT EXISTS idx_command_queue_pending_priority_lane
+    ON command_queue (priority, available_at, created_at)
+    WHERE status = 'pending';
+
+DROP INDEX IF EXISTS idx_command_queue_status_priority_available;
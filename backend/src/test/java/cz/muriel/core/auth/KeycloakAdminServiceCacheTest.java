@@ -0,0 +1,151 @@
+package cz.muriel.core.auth;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ✅ Cache čtecích dotazů KeycloakAdminService - hit, single-flight souběžných
+ * missů, invalidace CDC eventem a izolace vrácených kopií
+ */
+class KeycloakAdminServiceCacheTest {
+
+  private static final String ADMIN = "/admin/realms/core";
+
+  private WireMockServer wireMock;
+  private KeycloakAdminService service;
+
+  @BeforeEach
+  void setUp() {
+    wireMock = new WireMockServer(0);
+    wireMock.start();
+    wireMock.stubFor(post("/realms/master/protocol/openid-connect/token")
+        .willReturn(okJson("{\"access_token\":\"token\",\"expires_in\":300}")));
+
+    service = new KeycloakAdminService(new ObjectMapper(), new SimpleMeterRegistry(), 30, 100);
+    ReflectionTestUtils.setField(service, "keycloakBaseUrl",
+        "http://localhost:" + wireMock.port());
+    ReflectionTestUtils.setField(service, "adminRealm", "master");
+    ReflectionTestUtils.setField(service, "adminClientId", "backend-admin");
+    ReflectionTestUtils.setField(service, "adminClientSecret", "secret");
+    ReflectionTestUtils.setField(service, "targetRealm", "core");
+  }
+
+  @AfterEach
+  void tearDown() {
+    wireMock.stop();
+  }
+
+  @Test
+  void repeatedLookupIsServedFromCache() {
+    stubRole("r1", "manager");
+
+    assertThat(service.getRoleById("r1").path("name").asText()).isEqualTo("manager");
+    assertThat(service.getRoleById("r1").path("name").asText()).isEqualTo("manager");
+
+    wireMock.verify(1, getRequestedFor(urlEqualTo(ADMIN + "/roles-by-id/r1")));
+  }
+
+  @Test
+  void concurrentMissesShareOneRequest() throws Exception {
+    wireMock.stubFor(get(ADMIN + "/groups/g1")
+        .willReturn(okJson("{\"id\":\"g1\",\"name\":\"sales\"}").withFixedDelay(300)));
+    // Token předem, ať souběžná vlákna čekají jen na lookup
+    stubRole("warmup", "warmup");
+    service.getRoleById("warmup");
+
+    int threads = 8;
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<CompletableFuture<JsonNode>> results = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        results.add(CompletableFuture.supplyAsync(() -> {
+          await(start);
+          return service.getGroupById("g1");
+        }, pool));
+      }
+      start.countDown();
+
+      for (CompletableFuture<JsonNode> result : results) {
+        assertThat(result.get(5, TimeUnit.SECONDS).path("name").asText()).isEqualTo("sales");
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+
+    wireMock.verify(1, getRequestedFor(urlEqualTo(ADMIN + "/groups/g1")));
+  }
+
+  @Test
+  void cdcEventEvictsEntityAndDerivedListings() {
+    stubRole("r1", "manager");
+    wireMock.stubFor(get(ADMIN + "/roles-by-id/r2/composites").willReturn(okJson("[]")));
+    service.getRoleById("r1");
+    service.getRoleComposites("r2");
+
+    // Event jiného typu roli nevyhodí
+    service.invalidate("USER_UPDATED", "r1");
+    service.getRoleById("r1");
+    wireMock.verify(1, getRequestedFor(urlEqualTo(ADMIN + "/roles-by-id/r1")));
+
+    stubRole("r1", "director");
+    service.invalidate("ROLE_UPDATED", "r1");
+
+    assertThat(service.getRoleById("r1").path("name").asText()).isEqualTo("director");
+    service.getRoleComposites("r2");
+    wireMock.verify(2, getRequestedFor(urlEqualTo(ADMIN + "/roles-by-id/r1")));
+    // Composites jiné role se mohou změnit také - mažou se celé
+    wireMock.verify(2, getRequestedFor(urlEqualTo(ADMIN + "/roles-by-id/r2/composites")));
+  }
+
+  @Test
+  void callersGetIsolatedCopies() {
+    stubRole("r1", "manager");
+
+    ((ObjectNode) service.getRoleById("r1")).put("name", "changed by caller");
+
+    assertThat(service.getRoleById("r1").path("name").asText()).isEqualTo("manager");
+    wireMock.verify(1, getRequestedFor(urlEqualTo(ADMIN + "/roles-by-id/r1")));
+  }
+
+  @Test
+  void failedLookupIsNotCached() {
+    wireMock.stubFor(get(ADMIN + "/roles-by-id/r1").willReturn(serverError()));
+    assertThat(service.getRoleById("r1")).isNull();
+
+    stubRole("r1", "manager");
+    assertThat(service.getRoleById("r1").path("name").asText()).isEqualTo("manager");
+    wireMock.verify(2, getRequestedFor(urlEqualTo(ADMIN + "/roles-by-id/r1")));
+  }
+
+  private void stubRole(String id, String name) {
+    wireMock.stubFor(get(ADMIN + "/roles-by-id/" + id)
+        .willReturn(okJson("{\"id\":\"" + id + "\",\"name\":\"" + name + "\"}")));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
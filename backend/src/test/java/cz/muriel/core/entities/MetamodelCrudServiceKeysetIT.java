@@ -0,0 +1,163 @@
+package cz.muriel.core.entities;
+
+import cz.muriel.core.metamodel.MetamodelRegistry;
+import cz.muriel.core.metamodel.filter.CompiledFilterCache;
+import cz.muriel.core.metamodel.lifecycle.LifecycleHookExecutor;
+import cz.muriel.core.metamodel.pagination.KeysetPagination;
+import cz.muriel.core.metamodel.relationship.RelationshipResolver;
+import cz.muriel.core.metamodel.schema.EntitySchema;
+import cz.muriel.core.metamodel.schema.FieldSchema;
+import cz.muriel.core.reporting.support.CacheInvalidationService;
+import cz.muriel.core.security.policy.PolicyEngine;
+import cz.muriel.core.security.policy.RowFilter;
+import cz.muriel.core.test.AbstractIntegrationTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Integration tests for keyset pagination of MetamodelCrudService - pages
+ * across rows with a NULL sort key in both directions.
+ */
+@SpringBootTest
+class MetamodelCrudServiceKeysetIT extends AbstractIntegrationTest {
+
+  private static final String TABLE = "keyset_it_rows";
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  private final Authentication auth = mock(Authentication.class);
+
+  private MetamodelCrudService service;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    jdbcTemplate.execute("""
+        CREATE TABLE IF NOT EXISTS keyset_it_rows (
+            id UUID PRIMARY KEY,
+            name VARCHAR(50) NOT NULL,
+            created_at TIMESTAMPTZ
+        )
+        """);
+
+    EntitySchema schema = new EntitySchema();
+    schema.setEntity("KeysetItRow");
+    schema.setTable(TABLE);
+    schema.setIdField("id");
+    schema.setFields(List.of(field("id", "uuid"), field("name", "string"),
+        field("created_at", "timestamp")));
+
+    MetamodelRegistry registry = mock(MetamodelRegistry.class);
+    when(registry.getGeneration()).thenReturn(1L);
+    when(registry.getSchemaOrThrow("KeysetItRow")).thenReturn(schema);
+
+    PolicyEngine policyEngine = mock(PolicyEngine.class);
+    when(policyEngine.rowFilter(any(), anyString(), anyString()))
+        .thenReturn(RowFilter.UNRESTRICTED);
+    when(policyEngine.projectColumns(any(), anyString(), anyString())).thenReturn(Set.of());
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    service = new MetamodelCrudService(registry, policyEngine, jdbcTemplate,
+        new MetamodelSqlCache(registry, meterRegistry),
+        new CompiledFilterCache(registry, meterRegistry), mock(LifecycleHookExecutor.class),
+        mock(RelationshipResolver.class), mock(CacheInvalidationService.class),
+        mock(ObjectProvider.class));
+
+    // Three dated rows, four without created_at
+    for (int i = 0; i < 3; i++) {
+      jdbcTemplate.update("INSERT INTO " + TABLE + " (id, name, created_at) VALUES (?, ?, "
+          + "now() - make_interval(days => ?))", UUID.randomUUID(), "dated-" + i, i);
+    }
+    for (int i = 0; i < 4; i++) {
+      jdbcTemplate.update("INSERT INTO " + TABLE + " (id, name) VALUES (?, ?)",
+          UUID.randomUUID(), "undated-" + i);
+    }
+  }
+
+  @Test
+  void shouldPageAscendingIntoNullSortKeys() {
+    List<Object> expected = jdbcTemplate.queryForList(
+        "SELECT id FROM " + TABLE + " ORDER BY created_at ASC, id ASC", Object.class);
+
+    assertThat(pageForward("asc")).containsExactlyElementsOf(expected);
+  }
+
+  @Test
+  void shouldPageDescendingOutOfNullSortKeys() {
+    List<Object> expected = jdbcTemplate.queryForList(
+        "SELECT id FROM " + TABLE + " ORDER BY created_at DESC, id DESC", Object.class);
+
+    assertThat(pageForward("desc")).containsExactlyElementsOf(expected);
+  }
+
+  @Test
+  void shouldPageBackwardAcrossNullSortKeys() {
+    List<Object> expected = jdbcTemplate.queryForList(
+        "SELECT id FROM " + TABLE + " ORDER BY created_at ASC, id ASC", Object.class);
+
+    // Walk to the last page, then back to the first one
+    KeysetPagination.Response<Map<String, Object>> page = list("asc", null, null);
+    while (Boolean.TRUE.equals(page.getHasNext())) {
+      page = list("asc", page.getCursorNext(), null);
+    }
+    List<Object> ids = new ArrayList<>(ids(page));
+    while (Boolean.TRUE.equals(page.getHasPrev())) {
+      page = list("asc", null, page.getCursorPrev());
+      List<Object> before = new ArrayList<>(ids(page));
+      Collections.reverse(before);
+      before.forEach(id -> ids.add(0, id));
+    }
+
+    assertThat(ids).containsExactlyElementsOf(expected);
+  }
+
+  private List<Object> pageForward(String sortOrder) {
+    List<Object> ids = new ArrayList<>();
+    KeysetPagination.Response<Map<String, Object>> page = list(sortOrder, null, null);
+    ids.addAll(ids(page));
+    while (Boolean.TRUE.equals(page.getHasNext())) {
+      page = list(sortOrder, page.getCursorNext(), null);
+      ids.addAll(ids(page));
+    }
+    return ids;
+  }
+
+  private KeysetPagination.Response<Map<String, Object>> list(String sortOrder,
+      String cursorNext, String cursorPrev) {
+    KeysetPagination.Request request = KeysetPagination.Request.builder().limit(2)
+        .sortBy("created_at").sortOrder(sortOrder).cursorNext(cursorNext).cursorPrev(cursorPrev)
+        .build();
+    return service.listKeyset("KeysetItRow", Map.of(), request, auth);
+  }
+
+  private static List<Object> ids(KeysetPagination.Response<Map<String, Object>> page) {
+    return page.getData().stream().map(row -> row.get("id")).toList();
+  }
+
+  private static FieldSchema field(String name, String type) {
+    FieldSchema field = new FieldSchema();
+    field.setName(name);
+    field.setType(type);
+    return field;
+  }
+}
@@ -0,0 +1,190 @@
+package cz.muriel.core.entities;
+
+import cz.muriel.core.metamodel.MetamodelRegistry;
+import cz.muriel.core.metamodel.filter.CompiledFilterCache;
+import cz.muriel.core.metamodel.lifecycle.LifecycleHookExecutor;
+import cz.muriel.core.metamodel.relationship.RelationshipResolver;
+import cz.muriel.core.metamodel.schema.EntitySchema;
+import cz.muriel.core.metamodel.schema.FieldSchema;
+import cz.muriel.core.presence.kafka.EntityLifecycleProducer;
+import cz.muriel.core.reporting.dsl.QueryResponse;
+import cz.muriel.core.reporting.support.CacheInvalidationService;
+import cz.muriel.core.reporting.support.ReportResultCache;
+import cz.muriel.core.security.policy.PolicyEngine;
+import cz.muriel.core.test.AbstractIntegrationTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Integration tests for write propagation of MetamodelCrudService - a committed
+ * create / update / delete evicts cached reports of the entity and publishes
+ * the MUTATED lifecycle event, a rolled back one does neither.
+ */
+@SpringBootTest
+class MetamodelCrudServiceMutationIT extends AbstractIntegrationTest {
+
+  private static final String TABLE = "mutation_it_rows";
+  private static final String ENTITY = "MutationItRow";
+  private static final String TENANT = "tenant-mutation-it";
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  private ReportResultCache resultCache;
+
+  @Autowired
+  private CacheInvalidationService cacheInvalidationService;
+
+  private final Authentication auth = new TestingAuthenticationToken("it-user", null);
+  private final EntityLifecycleProducer producer = mock(EntityLifecycleProducer.class);
+
+  private MetamodelCrudService service;
+  private TransactionTemplate transactionTemplate;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    jdbcTemplate.execute("""
+        CREATE TABLE IF NOT EXISTS mutation_it_rows (
+            id UUID PRIMARY KEY,
+            tenant_id TEXT NOT NULL,
+            name VARCHAR(50) NOT NULL,
+            version BIGINT NOT NULL DEFAULT 0
+        )
+        """);
+
+    EntitySchema schema = new EntitySchema();
+    schema.setEntity(ENTITY);
+    schema.setTable(TABLE);
+    schema.setIdField("id");
+    schema.setTenantField("tenant_id");
+    schema.setVersionField("version");
+    schema.setFields(List.of(field("id", "uuid"), field("tenant_id", "string"),
+        field("name", "string"), field("version", "long")));
+
+    MetamodelRegistry registry = mock(MetamodelRegistry.class);
+    when(registry.getGeneration()).thenReturn(1L);
+    when(registry.getSchemaOrThrow(ENTITY)).thenReturn(schema);
+
+    PolicyEngine policyEngine = mock(PolicyEngine.class);
+    when(policyEngine.check(any(), anyString(), anyString(), any())).thenReturn(true);
+    when(policyEngine.projectColumns(any(), anyString(), anyString(), any()))
+        .thenReturn(Set.of());
+
+    // Kafka is disabled in tests - the provider hands out a mocked producer
+    ObjectProvider<EntityLifecycleProducer> producerProvider = mock(ObjectProvider.class);
+    doAnswer(invocation -> {
+      ((Consumer<EntityLifecycleProducer>) invocation.getArgument(0)).accept(producer);
+      return null;
+    }).when(producerProvider).ifAvailable(any());
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    service = new MetamodelCrudService(registry, policyEngine, jdbcTemplate,
+        new MetamodelSqlCache(registry, meterRegistry),
+        new CompiledFilterCache(registry, meterRegistry), mock(LifecycleHookExecutor.class),
+        mock(RelationshipResolver.class), cacheInvalidationService, producerProvider);
+    transactionTemplate = new TransactionTemplate(transactionManager);
+
+    cacheReport("fp-own", TENANT, ENTITY);
+    cacheReport("fp-other-tenant", "tenant-other", ENTITY);
+    cacheReport("fp-other-entity", TENANT, "Order");
+  }
+
+  @Test
+  void committedCreateEvictsCachedReportsOfEntity() {
+    Map<String, Object> created = transactionTemplate.execute(status -> {
+      Map<String, Object> row = service.create(ENTITY, newRow("alpha"), auth);
+      // Not before the commit - other transactions still read the old state
+      assertThat(resultCache.get("fp-own", TENANT, ENTITY)).isNotNull();
+      return row;
+    });
+
+    assertThat(resultCache.get("fp-own", TENANT, ENTITY)).isNull();
+    assertThat(resultCache.get("fp-other-tenant", "tenant-other", ENTITY)).isNotNull();
+    assertThat(resultCache.get("fp-other-entity", TENANT, "Order")).isNotNull();
+    verify(producer).publishMutated(TENANT, ENTITY, created.get("id").toString(), "it-user", 0L);
+  }
+
+  @Test
+  void rolledBackCreateKeepsCachedReports() {
+    transactionTemplate.executeWithoutResult(status -> {
+      service.create(ENTITY, newRow("beta"), auth);
+      status.setRollbackOnly();
+    });
+
+    assertThat(resultCache.get("fp-own", TENANT, ENTITY)).isNotNull();
+    verify(producer, never()).publishMutated(anyString(), anyString(), anyString(), anyString(),
+        anyLong());
+  }
+
+  @Test
+  void updateAndDeleteEvictCachedReports() {
+    UUID id = UUID.randomUUID();
+    jdbcTemplate.update("INSERT INTO " + TABLE + " (id, tenant_id, name) VALUES (?, ?, 'gamma')",
+        id, TENANT);
+
+    transactionTemplate.executeWithoutResult(
+        status -> service.update(ENTITY, id.toString(), 0L, Map.of("name", "delta"), auth));
+
+    assertThat(resultCache.get("fp-own", TENANT, ENTITY)).isNull();
+    verify(producer).publishMutated(TENANT, ENTITY, id.toString(), "it-user", 1L);
+
+    cacheReport("fp-own", TENANT, ENTITY);
+    transactionTemplate
+        .executeWithoutResult(status -> service.delete(ENTITY, id.toString(), auth));
+
+    assertThat(resultCache.get("fp-own", TENANT, ENTITY)).isNull();
+    // The test table has no version trigger, the deleted row is still at 0
+    verify(producer).publishMutated(TENANT, ENTITY, id.toString(), "it-user", 0L);
+  }
+
+  private void cacheReport(String fingerprint, String tenantId, String entity) {
+    resultCache.put(fingerprint, tenantId, entity,
+        QueryResponse.builder().data(List.of(Map.of("count", 1))).totalRows(1L).returnedRows(1)
+            .fingerprint(fingerprint).cacheHit(false).executionTimeMs(5L).build());
+  }
+
+  private static Map<String, Object> newRow(String name) {
+    Map<String, Object> row = new HashMap<>();
+    row.put("tenant_id", TENANT);
+    row.put("name", name);
+    return row;
+  }
+
+  private static FieldSchema field(String name, String type) {
+    FieldSchema field = new FieldSchema();
+    field.setName(name);
+    field.setType(type);
+    return field;
+  }
+}
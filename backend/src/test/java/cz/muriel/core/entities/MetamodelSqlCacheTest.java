@@ -0,0 +1,120 @@
+package cz.muriel.core.entities;
+
+import cz.muriel.core.metamodel.MetamodelRegistry;
+import cz.muriel.core.metamodel.schema.EntitySchema;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * ✅ Metamodel SQL statement cache tests
+ */
+class MetamodelSqlCacheTest {
+
+  private MetamodelRegistry registry;
+  private SimpleMeterRegistry meterRegistry;
+  private MetamodelSqlCache cache;
+  private EntitySchema schema;
+
+  @BeforeEach
+  void setUp() {
+    registry = mock(MetamodelRegistry.class);
+    when(registry.getGeneration()).thenReturn(1L);
+    meterRegistry = new SimpleMeterRegistry();
+    cache = new MetamodelSqlCache(registry, meterRegistry);
+
+    schema = new EntitySchema();
+    schema.setEntity("User");
+    schema.setTable("users_directory");
+    schema.setIdField("id");
+    schema.setVersionField("version");
+  }
+
+  @Test
+  void listProducesBindParametersOnly() {
+    String sql = cache.list(schema, List.of("id", "username"),
+        List.of(new MetamodelSqlCache.FilterShape("status", MetamodelSqlCache.OP_EQ),
+            new MetamodelSqlCache.FilterShape("username", MetamodelSqlCache.OP_LIKE),
+            new MetamodelSqlCache.FilterShape("id", MetamodelSqlCache.OP_IN)),
+        "username", true);
+
+    assertThat(sql).isEqualTo("SELECT id, username FROM users_directory"
+        + " WHERE status = ? AND username LIKE ? AND id = ANY(?)"
+        + " ORDER BY username DESC LIMIT ? OFFSET ?");
+  }
+
+  @Test
+  void keysetSeeksOnSortKeyAndId() {
+    List<MetamodelSqlCache.FilterShape> filters = List
+        .of(new MetamodelSqlCache.FilterShape("status", MetamodelSqlCache.OP_EQ));
+
+    assertThat(cache.keyset(schema, List.of("id", "created_at"), filters, "created_at", true,
+        MetamodelSqlCache.Seek.AFTER_VALUE))
+        .isEqualTo("SELECT id, created_at FROM users_directory"
+            + " WHERE status = ? AND (created_at, id) < (?, ?)"
+            + " ORDER BY created_at DESC, id DESC LIMIT ?");
+    assertThat(cache.keyset(schema, List.of("id"), List.of(), "id", false,
+        MetamodelSqlCache.Seek.NONE))
+        .isEqualTo("SELECT id FROM users_directory ORDER BY id ASC LIMIT ?");
+    assertThat(cache.count(schema, filters))
+        .isEqualTo("SELECT COUNT(*) FROM users_directory WHERE status = ?");
+  }
+
+  @Test
+  void keysetSeekIsNullAware() {
+    List<String> columns = List.of("id", "created_at");
+
+    // NULLS LAST ascending - seek after a value also takes the NULL tail
+    assertThat(cache.keyset(schema, columns, List.of(), "created_at", false,
+        MetamodelSqlCache.Seek.AFTER_VALUE))
+        .isEqualTo("SELECT id, created_at FROM users_directory"
+            + " WHERE ((created_at, id) > (?, ?) OR created_at IS NULL)"
+            + " ORDER BY created_at ASC, id ASC LIMIT ?");
+    assertThat(cache.keyset(schema, columns, List.of(), "created_at", false,
+        MetamodelSqlCache.Seek.AFTER_NULL))
+        .isEqualTo("SELECT id, created_at FROM users_directory"
+            + " WHERE (created_at IS NULL AND id > ?)"
+            + " ORDER BY created_at ASC, id ASC LIMIT ?");
+    // NULLS FIRST descending - after the NULL group come all non-NULL keys
+    assertThat(cache.keyset(schema, columns, List.of(), "created_at", true,
+        MetamodelSqlCache.Seek.AFTER_NULL))
+        .isEqualTo("SELECT id, created_at FROM users_directory"
+            + " WHERE ((created_at IS NULL AND id < ?) OR created_at IS NOT NULL)"
+            + " ORDER BY created_at DESC, id DESC LIMIT ?");
+  }
+
+  @Test
+  void sameShapeIsCompiledOnce() {
+    String first = cache.getById(schema, List.of("id", "username"));
+    String second = cache.getById(schema, List.of("id", "username"));
+
+    assertThat(second).isSameAs(first);
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count())
+        .isEqualTo(1.0);
+    assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count())
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  void updateAddsVersionCheck() {
+    assertThat(cache.update(schema, List.of("email", "username"))).isEqualTo(
+        "UPDATE users_directory SET email = ?, username = ? WHERE id = ? AND version = ?");
+  }
+
+  @Test
+  void registryReloadRecompiles() {
+    String before = cache.insert(schema, List.of("id", "username"));
+    when(registry.getGeneration()).thenReturn(2L);
+    String after = cache.insert(schema, List.of("id", "username"));
+
+    assertThat(after).isEqualTo(before).isNotSameAs(before);
+    assertThat(after).isEqualTo("INSERT INTO users_directory (id, username) VALUES (?, ?)");
+  }
+}
@@ -0,0 +1,78 @@
+package cz.muriel.core.kafka.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.muriel.core.kafka.entity.DlqMessage;
+import cz.muriel.core.kafka.repository.DlqMessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * ✅ Batch DLT listener - store the poll, then acknowledge
+ */
+class DltManagerTest {
+
+  private DlqMessageRepository repository;
+  private Acknowledgment ack;
+  private DltManager manager;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    repository = mock(DlqMessageRepository.class);
+    ack = mock(Acknowledgment.class);
+    manager = new DltManager(repository, new ObjectMapper(), new SimpleMeterRegistry(),
+        mock(KafkaTemplate.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void storesPollAndAcknowledges() {
+    manager.handleDlt(List.of(record(0, "{\"a\":1}"), record(1, "{\"b\":2}")), ack);
+
+    ArgumentCaptor<List<DlqMessage>> stored = ArgumentCaptor.forClass(List.class);
+    verify(repository).saveAll(stored.capture());
+    assertThat(stored.getValue()).extracting(DlqMessage::getOriginalTopic)
+        .containsOnly("core.entities.lifecycle.mutated");
+    assertThat(stored.getValue()).extracting(DlqMessage::getOffsetValue).containsExactly(0L, 1L);
+    verify(ack).acknowledge();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void unparseableRecordsAreSkipped() {
+    manager.handleDlt(List.of(record(0, "not json"), record(1, "{\"b\":2}")), ack);
+
+    ArgumentCaptor<List<DlqMessage>> stored = ArgumentCaptor.forClass(List.class);
+    verify(repository).saveAll(stored.capture());
+    assertThat(stored.getValue()).hasSize(1);
+    verify(ack).acknowledge();
+  }
+
+  @Test
+  void storeFailureRedeliversPoll() {
+    when(repository.saveAll(anyList())).thenThrow(new IllegalStateException("db down"));
+
+    manager.handleDlt(List.of(record(0, "{\"a\":1}")), ack);
+
+    verify(ack).nack(eq(0), any(Duration.class));
+    verify(ack, never()).acknowledge();
+  }
+
+  private static ConsumerRecord<String, String> record(long offset, String value) {
+    return new ConsumerRecord<>("core.entities.lifecycle.mutated.dlt", 0, offset, "key", value);
+  }
+}
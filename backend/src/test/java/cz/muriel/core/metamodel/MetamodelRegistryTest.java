@@ -0,0 +1,65 @@
+package cz.muriel.core.metamodel;
+
+import cz.muriel.core.metamodel.schema.EntitySchema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * ✅ Metamodel Registry Tests - snapshot indexes
+ */
+class MetamodelRegistryTest {
+
+  private MetamodelLoader loader;
+  private MetamodelRegistry registry;
+
+  @BeforeEach
+  void setUp() {
+    loader = mock(MetamodelLoader.class);
+    when(loader.loadSchemas()).thenReturn(Map.of("User", user(), "Group", group()));
+    registry = new MetamodelRegistry(loader);
+    registry.reload();
+  }
+
+  @Test
+  void tableLookupUsesIndex() {
+    assertThat(registry.getSchemaByTable("users_directory")).map(EntitySchema::getEntity)
+        .contains("User");
+    assertThat(registry.getSchemaByTable("unknown")).isEmpty();
+  }
+
+  @Test
+  void readersShareSnapshotUntilReload() {
+    Map<String, EntitySchema> first = registry.getAllSchemas();
+    assertThat(registry.getAllSchemas()).isSameAs(first);
+
+    when(loader.loadSchemas()).thenReturn(Map.of("User", user()));
+    registry.reload();
+
+    assertThat(registry.getGeneration()).isEqualTo(2);
+    assertThat(registry.getAllSchemas()).isNotSameAs(first).containsOnlyKeys("User");
+    assertThat(registry.getSchemaByTable("groups")).isEmpty();
+    assertThat(first).containsOnlyKeys("User", "Group");
+  }
+
+  private static EntitySchema user() {
+    EntitySchema schema = new EntitySchema();
+    schema.setEntity("User");
+    schema.setTable("users_directory");
+    schema.setTenantField("tenant_id");
+    return schema;
+  }
+
+  private static EntitySchema group() {
+    EntitySchema schema = new EntitySchema();
+    schema.setEntity("Group");
+    schema.setTable("groups");
+    schema.setTenantField("tenant_id");
+    return schema;
+  }
+}
@@ -0,0 +1,80 @@
+package cz.muriel.core.metamodel.filter;
+
+import cz.muriel.core.metamodel.MetamodelRegistry;
+import cz.muriel.core.metamodel.schema.EntitySchema;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * ✅ Compiled Filter Cache Tests
+ */
+class CompiledFilterCacheTest {
+
+  private static final List<String> COLUMNS = List.of("id", "age", "status", "name");
+
+  private CompiledFilterCache cache;
+  private EntitySchema schema;
+
+  @BeforeEach
+  void setUp() {
+    MetamodelRegistry registry = mock(MetamodelRegistry.class);
+    when(registry.getGeneration()).thenReturn(1L);
+    cache = new CompiledFilterCache(registry, new SimpleMeterRegistry());
+
+    schema = new EntitySchema();
+    schema.setEntity("Person");
+    schema.setTable("person");
+  }
+
+  @Test
+  void testRendersBindParameters() {
+    CompiledFilterCache.CompiledFilter filter = cache.compile(schema, COLUMNS,
+        "(age gte 18) and status in ('active', 'pending')");
+
+    assertThat(filter.sql()).doesNotContain("active").doesNotContain("18");
+    assertThat(filter.sql()).contains("\"age\" >= ?").contains("\"status\" in (?, ?)");
+    assertThat(filter.bindValues()).containsExactly(18L, "active", "pending");
+  }
+
+  @Test
+  void testRendersUntypedPlaceholderForUuidValue() {
+    String id = "7c9e6679-7425-40de-944b-e07fc1f90ae7";
+    CompiledFilterCache.CompiledFilter filter = cache.compile(schema, COLUMNS,
+        "id eq '" + id + "'");
+
+    // No cast to varchar - PostgreSQL has to infer uuid from the column
+    assertThat(filter.sql()).isEqualTo("\"id\" = ?");
+    assertThat(filter.bindValues()).containsExactly(id);
+  }
+
+  @Test
+  void testSameFilterTextIsCompiledOnce() {
+    CompiledFilterCache.CompiledFilter first = cache.compile(schema, COLUMNS, "name like '%J%'");
+    CompiledFilterCache.CompiledFilter second = cache.compile(schema, COLUMNS, "name like '%J%'");
+
+    assertThat(second).isSameAs(first);
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  void testUnknownFieldIsRejectedAndNotCached() {
+    assertThatThrownBy(() -> cache.compile(schema, COLUMNS, "password eq 'x'"))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("password");
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void testParserCollectsFields() {
+    FilterParser.ParsedFilter parsed = FilterParser
+        .parseFilter("(age gt 18 or name like '%x%') and status notIn ('deleted')");
+
+    assertThat(parsed.fields()).containsExactly("age", "name", "status");
+  }
+}
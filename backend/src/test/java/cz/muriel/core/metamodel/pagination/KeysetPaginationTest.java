@@ -0,0 +1,40 @@
+package cz.muriel.core.metamodel.pagination;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Cursor encoding round trips (null sort key, commas, URL safety)
+ */
+class KeysetPaginationTest {
+
+  @Test
+  void shouldRoundTripSortKeyWithComma() {
+    KeysetPagination.Cursor cursor = KeysetPagination.Cursor.builder().sortKey("Doe, John")
+        .id("0190a6f0-0000-7000-8000-000000000001").build();
+
+    String encoded = cursor.encode();
+
+    assertThat(encoded).doesNotContain(",", "+", "/", "=");
+    assertThat(KeysetPagination.Cursor.decode(encoded)).isEqualTo(cursor);
+  }
+
+  @Test
+  void shouldKeepNullSortKeyDistinctFromText() {
+    KeysetPagination.Cursor nullKey = KeysetPagination.Cursor.builder().sortKey(null).id("id-1")
+        .build();
+    KeysetPagination.Cursor textKey = KeysetPagination.Cursor.builder().sortKey("null")
+        .id("id-1").build();
+
+    assertThat(KeysetPagination.Cursor.decode(nullKey.encode()).getSortKey()).isNull();
+    assertThat(KeysetPagination.Cursor.decode(textKey.encode()).getSortKey()).isEqualTo("null");
+  }
+
+  @Test
+  void shouldRejectMalformedCursor() {
+    assertThatThrownBy(() -> KeysetPagination.Cursor.decode("not a cursor!"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -6,6 +6,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -27,7 +28,7 @@ import static org.hamcrest.Matchers.*;
  * status (should return PENDING → RUNNING → COMPLETED) - POST cancel job
  * (should cancel running job) - Bulk update with >1000 rows (should return 400)
  */
-@SpringBootTest @AutoConfigureMockMvc @Transactional
+@SpringBootTest @AutoConfigureMockMvc @Transactional @TestPropertySource(properties = "reporting.bulk.max-affect-rows=1000")
 class BulkUpdateControllerIT extends AbstractIntegrationTest {
 
     @Autowired
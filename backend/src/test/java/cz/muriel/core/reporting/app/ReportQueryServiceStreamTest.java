@@ -0,0 +1,125 @@
+package cz.muriel.core.reporting.app;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.muriel.core.reporting.cube.CubeClient;
+import cz.muriel.core.reporting.cube.CubeMapper;
+import cz.muriel.core.reporting.cube.CubeQueryRequest;
+import cz.muriel.core.reporting.cube.CubeSecurityContext;
+import cz.muriel.core.reporting.dsl.QueryRequest;
+import cz.muriel.core.reporting.dsl.QueryResponse;
+import cz.muriel.core.reporting.security.ReportingSecurityService;
+import cz.muriel.core.reporting.service.QueryDeduplicator;
+import cz.muriel.core.reporting.support.MetamodelSpecService;
+import cz.muriel.core.reporting.support.QueryFingerprint;
+import cz.muriel.core.reporting.support.ReportResultCache;
+import cz.muriel.core.reporting.support.ReportRowWriter;
+import cz.muriel.core.reporting.support.ReportingMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for ReportQueryService.streamQuery - results up to
+ * reporting.stream.cache-max-rows are cached, larger ones are only streamed.
+ */
+class ReportQueryServiceStreamTest {
+
+  private static final String TENANT = "tenant-1";
+  private static final int CACHE_MAX_ROWS = 3;
+
+  private CubeClient cubeClient;
+  private ReportResultCache resultCache;
+  private ReportQueryService service;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    cubeClient = mock(CubeClient.class);
+    CubeMapper cubeMapper = mock(CubeMapper.class);
+    when(cubeMapper.toCubeQuery(any(), anyString())).thenReturn(new CubeQueryRequest());
+
+    resultCache = new ReportResultCache(
+        new ConcurrentMapCacheManager(ReportResultCache.CACHE_NAME), mock(ObjectProvider.class),
+        mock(ObjectProvider.class), new SimpleMeterRegistry(), false, "rpt:", 60, 15, 100);
+
+    service = new ReportQueryService(cubeMapper, cubeClient, mock(CubeSecurityContext.class),
+        mock(MetamodelSpecService.class), resultCache, mock(QueryFingerprint.class),
+        new ReportingMetrics(new SimpleMeterRegistry()), mock(ReportingSecurityService.class),
+        mock(QueryDeduplicator.class));
+    ReflectionTestUtils.setField(service, "streamCacheMaxRows", CACHE_MAX_ROWS);
+  }
+
+  @Test
+  void shouldCacheResultUpToThreshold() {
+    cubeReturnsRows(CACHE_MAX_ROWS);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long rows = service.streamQuery(prepared("fp-small"), writer(out));
+
+    assertThat(rows).isEqualTo(CACHE_MAX_ROWS);
+    assertThat(lines(out)).isEqualTo(CACHE_MAX_ROWS);
+    QueryResponse cached = resultCache.get("fp-small", TENANT, "orders");
+    assertThat(cached).isNotNull();
+    assertThat(cached.getData()).hasSize(CACHE_MAX_ROWS);
+    assertThat(cached.getTotalRows()).isEqualTo((long) CACHE_MAX_ROWS);
+
+    // Second stream is served from the cache
+    ByteArrayOutputStream again = new ByteArrayOutputStream();
+    assertThat(service.streamQuery(prepared("fp-small"), writer(again))).isEqualTo(CACHE_MAX_ROWS);
+    assertThat(again.toString(StandardCharsets.UTF_8))
+        .isEqualTo(out.toString(StandardCharsets.UTF_8));
+    verify(cubeClient, times(1)).streamQuery(any(), any());
+  }
+
+  @Test
+  void shouldStreamButNotCacheResultAboveThreshold() {
+    cubeReturnsRows(CACHE_MAX_ROWS + 1);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long rows = service.streamQuery(prepared("fp-large"), writer(out));
+
+    assertThat(rows).isEqualTo(CACHE_MAX_ROWS + 1);
+    // Every row reaches the client even though buffering stopped
+    assertThat(lines(out)).isEqualTo(CACHE_MAX_ROWS + 1);
+    assertThat(resultCache.get("fp-large", TENANT, "orders")).isNull();
+  }
+
+  private void cubeReturnsRows(int count) {
+    when(cubeClient.streamQuery(any(), any())).thenAnswer(invocation -> {
+      Consumer<Map<String, Object>> consumer = invocation.getArgument(1);
+      for (int i = 0; i < count; i++) {
+        consumer.accept(Map.of("id", i));
+      }
+      return (long) count;
+    });
+  }
+
+  private static ReportQueryService.PreparedQuery prepared(String fingerprint) {
+    return new ReportQueryService.PreparedQuery(QueryRequest.builder().entity("orders").build(),
+        TENANT, fingerprint);
+  }
+
+  private static ReportRowWriter writer(ByteArrayOutputStream out) {
+    return ReportRowWriter.of(ReportRowWriter.Format.NDJSON, out, new ObjectMapper(), 1024);
+  }
+
+  private static long lines(ByteArrayOutputStream out) {
+    return out.toString(StandardCharsets.UTF_8).lines().count();
+  }
+}
@@ -0,0 +1,134 @@
+package cz.muriel.core.reporting.cube;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import cz.muriel.core.reporting.support.ReportingMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for CubeClient.streamQuery against a WireMock Cube.js - rows are
+ * read incrementally, other top-level members are skipped, errors and
+ * "Continue wait" are recognized.
+ */
+class CubeClientStreamTest {
+
+  private static final String LOAD = "/cubejs-api/v1/load";
+
+  private WireMockServer wireMock;
+  private CubeClient client;
+  private final List<Map<String, Object>> rows = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    wireMock = new WireMockServer(0);
+    wireMock.start();
+
+    RestClient restClient = RestClient.builder().baseUrl("http://localhost:" + wireMock.port())
+        .build();
+    client = new CubeClient(restClient, new ReportingMetrics(new SimpleMeterRegistry()),
+        new ObjectMapper());
+    ReflectionTestUtils.setField(client, "continueWaitMaxAttempts", 3);
+    ReflectionTestUtils.setField(client, "continueWaitDelayMs", 10L);
+  }
+
+  @AfterEach
+  void tearDown() {
+    wireMock.stop();
+  }
+
+  @Test
+  void streamsDataRowsAndSkipsOtherMembers() {
+    wireMock.stubFor(post(LOAD).willReturn(okJson("""
+        {
+          "query": {"measures": ["Orders.count"], "filters": [{"member": "Orders.status"}]},
+          "annotation": {
+            "measures": {"Orders.count": {"title": "Count", "meta": {"data": [{"x": 1}]}}},
+            "dimensions": {}
+          },
+          "lastRefreshTime": "2026-10-16T10:00:00.000Z",
+          "slowQuery": true,
+          "data": [
+            {"Orders.status": "PAID", "Orders.count": "3"},
+            {"Orders.status": "NEW", "Orders.count": "5"}
+          ],
+          "refreshKeyValues": [[{"refresh_key": "1"}]]
+        }
+        """)));
+
+    long count = client.streamQuery(request(), rows::add);
+
+    assertThat(count).isEqualTo(2);
+    // The annotation's nested "data" array is not mistaken for rows
+    assertThat(rows).extracting(row -> row.get("Orders.status")).containsExactly("PAID", "NEW");
+    assertThat(rows.get(1)).containsEntry("Orders.count", "5");
+  }
+
+  @Test
+  void errorPayloadFailsTheQuery() {
+    wireMock.stubFor(post(LOAD).willReturn(okJson("{\"error\":\"Cube 'Foo' not found\"}")));
+
+    assertThatThrownBy(() -> client.streamQuery(request(), rows::add))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("Cube 'Foo' not found");
+    assertThat(rows).isEmpty();
+  }
+
+  @Test
+  void annotationErrorFailsTheQuery() {
+    wireMock.stubFor(post(LOAD)
+        .willReturn(okJson("{\"annotation\":{\"error\":\"bad member\"},\"data\":[]}")));
+
+    assertThatThrownBy(() -> client.streamQuery(request(), rows::add))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("bad member");
+  }
+
+  @Test
+  void clientErrorIsInvalidQuery() {
+    wireMock.stubFor(post(LOAD).willReturn(badRequest().withBody("unknown member")));
+
+    assertThatThrownBy(() -> client.streamQuery(request(), rows::add))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("unknown member");
+  }
+
+  @Test
+  void continueWaitPollsUntilDataArrives() {
+    wireMock.stubFor(post(LOAD).inScenario("load").whenScenarioStateIs(STARTED)
+        .willReturn(okJson("{\"error\":\"Continue wait\"}")).willSetStateTo("ready"));
+    wireMock.stubFor(post(LOAD).inScenario("load").whenScenarioStateIs("ready")
+        .willReturn(okJson("{\"data\":[{\"Orders.count\":\"7\"}]}")));
+
+    long count = client.streamQuery(request(), rows::add);
+
+    assertThat(count).isEqualTo(1);
+    assertThat(rows).containsExactly(Map.of("Orders.count", "7"));
+    wireMock.verify(2, postRequestedFor(urlEqualTo(LOAD)));
+  }
+
+  @Test
+  void continueWaitGivesUpAfterMaxAttempts() {
+    wireMock.stubFor(post(LOAD).willReturn(okJson("{\"error\":\"Continue wait\"}")));
+
+    assertThatThrownBy(() -> client.streamQuery(request(), rows::add))
+        .isInstanceOf(RuntimeException.class).hasMessageContaining("still in progress");
+    wireMock.verify(3, postRequestedFor(urlEqualTo(LOAD)));
+  }
+
+  private static CubeQueryRequest request() {
+    return CubeQueryRequest.builder().measures(List.of("Orders.count"))
+        .dimensions(List.of("Orders.status")).build();
+  }
+}
@@ -34,8 +34,9 @@ class PreAggRefreshWorkerIT extends AbstractIntegrationTest {
   @Test
   void shouldConsumeEntityMutationEventAndTriggerRefresh() {
     // Given
-    Map<String, Object> event = Map.of("eventType", "ENTITY_UPDATED", "entityType", "User",
-        "entityId", "user-123", "tenantId", "test-tenant", "timestamp", System.currentTimeMillis());
+    Map<String, Object> event = Map.of("eventType", "MUTATED", "tenantId", "test-tenant",
+        "entity", "User", "id", "user-123", "userId", "user-1", "timestamp",
+        System.currentTimeMillis(), "version", 1L);
 
     // When - send Kafka event
     kafkaTemplate.send("core.entities.lifecycle.mutated", "user-123", event);
@@ -53,11 +54,13 @@ class PreAggRefreshWorkerIT extends AbstractIntegrationTest {
     // Given
     worker.clearDebounceCache();
 
-    Map<String, Object> event1 = Map.of("eventType", "ENTITY_UPDATED", "entityType", "Tenant",
-        "entityId", "tenant-1", "tenantId", "test-tenant");
+    Map<String, Object> event1 = Map.of("eventType", "MUTATED", "tenantId", "test-tenant",
+        "entity", "Tenant", "id", "tenant-1", "userId", "user-1", "timestamp",
+        System.currentTimeMillis(), "version", 1L);
 
-    Map<String, Object> event2 = Map.of("eventType", "ENTITY_UPDATED", "entityType", "Tenant",
-        "entityId", "tenant-2", "tenantId", "test-tenant");
+    Map<String, Object> event2 = Map.of("eventType", "MUTATED", "tenantId", "test-tenant",
+        "entity", "Tenant", "id", "tenant-2", "userId", "user-1", "timestamp",
+        System.currentTimeMillis(), "version", 1L);
 
     // When - send 2 events rapidly
     kafkaTemplate.send("core.entities.lifecycle.mutated", "tenant-1", event1);
@@ -75,8 +78,9 @@ class PreAggRefreshWorkerIT extends AbstractIntegrationTest {
     TimeUnit.MILLISECONDS.sleep(600);
 
     // Send another event - should trigger new refresh
-    Map<String, Object> event3 = Map.of("eventType", "ENTITY_UPDATED", "entityType", "Tenant",
-        "entityId", "tenant-3", "tenantId", "test-tenant");
+    Map<String, Object> event3 = Map.of("eventType", "MUTATED", "tenantId", "test-tenant",
+        "entity", "Tenant", "id", "tenant-3", "userId", "user-1", "timestamp",
+        System.currentTimeMillis(), "version", 1L);
 
     kafkaTemplate.send("core.entities.lifecycle.mutated", "tenant-3", event3);
 
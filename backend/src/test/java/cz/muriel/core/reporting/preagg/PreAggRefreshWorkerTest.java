@@ -1,17 +1,25 @@
 package cz.muriel.core.reporting.preagg;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.muriel.core.presence.kafka.EntityLifecycleProducer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.Acknowledgment;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -26,12 +34,14 @@ class PreAggRefreshWorkerTest {
   @Mock
   private Acknowledgment ack;
 
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
   private PreAggRefreshWorker worker;
 
   @BeforeEach
   void setUp() {
     // Worker with 1s debounce window for testing
-    worker = new PreAggRefreshWorker(cubePreAggService, true, 1000);
+    worker = worker(true, 1000);
   }
 
   @Test
@@ -39,8 +49,7 @@ class PreAggRefreshWorkerTest {
     // Given
     when(cubePreAggService.refreshForEntityType("User", "tenant-1")).thenReturn(true);
 
-    Map<String, Object> event = Map.of("eventType", "ENTITY_UPDATED", "entityType", "User",
-        "entityId", "user-123", "tenantId", "tenant-1", "timestamp", System.currentTimeMillis());
+    String event = event("User", "tenant-1");
 
     // When
     worker.handleEntityMutation(event, ack);
@@ -55,11 +64,9 @@ class PreAggRefreshWorkerTest {
     // Given
     when(cubePreAggService.refreshForEntityType(anyString(), anyString())).thenReturn(true);
 
-    Map<String, Object> event1 = Map.of("eventType", "ENTITY_UPDATED", "entityType", "User",
-        "entityId", "user-1", "tenantId", "tenant-1");
+    String event1 = event("User", "tenant-1");
 
-    Map<String, Object> event2 = Map.of("eventType", "ENTITY_UPDATED", "entityType", "User",
-        "entityId", "user-2", "tenantId", "tenant-1");
+    String event2 = event("User", "tenant-1");
 
     // When
     worker.handleEntityMutation(event1, ack);
@@ -75,8 +82,7 @@ class PreAggRefreshWorkerTest {
     // Given
     when(cubePreAggService.refreshForEntityType(anyString(), anyString())).thenReturn(true);
 
-    Map<String, Object> event = Map.of("eventType", "ENTITY_UPDATED", "entityType", "User",
-        "entityId", "user-1", "tenantId", "tenant-1");
+    String event = event("User", "tenant-1");
 
     // When
     worker.handleEntityMutation(event, ack);
@@ -93,11 +99,9 @@ class PreAggRefreshWorkerTest {
     // Given
     when(cubePreAggService.refreshForEntityType(anyString(), anyString())).thenReturn(true);
 
-    Map<String, Object> userEvent = Map.of("eventType", "ENTITY_UPDATED", "entityType", "User",
-        "entityId", "user-1", "tenantId", "tenant-1");
+    String userEvent = event("User", "tenant-1");
 
-    Map<String, Object> tenantEvent = Map.of("eventType", "ENTITY_UPDATED", "entityType", "Tenant",
-        "entityId", "tenant-2", "tenantId", "tenant-1");
+    String tenantEvent = event("Tenant", "tenant-1");
 
     // When
     worker.handleEntityMutation(userEvent, ack);
@@ -109,13 +113,52 @@ class PreAggRefreshWorkerTest {
     verify(ack, times(2)).acknowledge();
   }
 
+  @Test
+  void shouldHandleDifferentTenantsIndependently() {
+    // Given
+    when(cubePreAggService.refreshForEntityType(anyString(), anyString())).thenReturn(true);
+
+    // When
+    worker.handleEntityMutation(event("User", "tenant-1"), ack);
+    worker.handleEntityMutation(event("User", "tenant-2"), ack);
+
+    // Then
+    verify(cubePreAggService).refreshForEntityType("User", "tenant-1");
+    verify(cubePreAggService).refreshForEntityType("User", "tenant-2");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void shouldBatchTrailingRefreshesOfCoalescedTenants() throws InterruptedException {
+    // Given
+    PreAggRefreshWorker fastWorker = worker(true, 50);
+    when(cubePreAggService.refreshForEntityType(anyString(), anyString())).thenReturn(true);
+    when(cubePreAggService.refreshSchema(eq("Users"), anyCollection())).thenReturn(true);
+
+    // When - second mutation of each tenant lands inside the window
+    fastWorker.handleEntityMutation(event("User", "tenant-1"), ack);
+    fastWorker.handleEntityMutation(event("User", "tenant-2"), ack);
+    fastWorker.handleEntityMutation(event("User", "tenant-1"), ack);
+    fastWorker.handleEntityMutation(event("User", "tenant-2"), ack);
+    fastWorker.flushPending(); // window still open
+    assertThat(fastWorker.getPendingCount()).isEqualTo(2);
+
+    TimeUnit.MILLISECONDS.sleep(80);
+    fastWorker.flushPending();
+
+    // Then - one jobs call for both tenants
+    ArgumentCaptor<Collection<String>> tenants = ArgumentCaptor.forClass(Collection.class);
+    verify(cubePreAggService, times(1)).refreshSchema(eq("Users"), tenants.capture());
+    assertThat(tenants.getValue()).containsExactlyInAnyOrder("tenant-1", "tenant-2");
+    assertThat(fastWorker.getPendingCount()).isZero();
+  }
+
   @Test
   void shouldSkipEventsWhenDisabled() {
     // Given
-    PreAggRefreshWorker disabledWorker = new PreAggRefreshWorker(cubePreAggService, false, 1000);
+    PreAggRefreshWorker disabledWorker = worker(false, 1000);
 
-    Map<String, Object> event = Map.of("eventType", "ENTITY_UPDATED", "entityType", "User",
-        "entityId", "user-1", "tenantId", "tenant-1");
+    String event = event("User", "tenant-1");
 
     // When
     disabledWorker.handleEntityMutation(event, ack);
@@ -142,8 +185,7 @@ class PreAggRefreshWorkerTest {
     // Given
     when(cubePreAggService.refreshForEntityType(anyString(), anyString())).thenReturn(true);
 
-    Map<String, Object> event = Map.of("eventType", "ENTITY_UPDATED", "entityType", "User",
-        "entityId", "user-1", "tenantId", "tenant-1");
+    String event = event("User", "tenant-1");
 
     // When
     worker.handleEntityMutation(event, ack); // First event
@@ -159,11 +201,9 @@ class PreAggRefreshWorkerTest {
     // Given
     when(cubePreAggService.refreshForEntityType(anyString(), anyString())).thenReturn(true);
 
-    Map<String, Object> userEvent = Map.of("eventType", "ENTITY_UPDATED", "entityType", "User",
-        "entityId", "user-1", "tenantId", "tenant-1");
+    String userEvent = event("User", "tenant-1");
 
-    Map<String, Object> tenantEvent = Map.of("eventType", "ENTITY_UPDATED", "entityType", "Tenant",
-        "entityId", "tenant-2", "tenantId", "tenant-1");
+    String tenantEvent = event("Tenant", "tenant-1");
 
     // When
     worker.handleEntityMutation(userEvent, ack);
@@ -176,4 +216,28 @@ class PreAggRefreshWorkerTest {
     assertThat(stats.get("User")).isNotNull();
     assertThat(stats.get("Tenant")).isNotNull();
   }
+
+  private PreAggRefreshWorker worker(boolean enabled, long debounceMs) {
+    return new PreAggRefreshWorker(cubePreAggService, objectMapper, enabled, debounceMs, 300000,
+        50);
+  }
+
+  /**
+   * JSON of the MUTATED event exactly as EntityLifecycleProducer publishes it
+   */
+  @SuppressWarnings("unchecked")
+  private String event(String entity, String tenantId) {
+    KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+    new EntityLifecycleProducer(kafkaTemplate).publishMutated(tenantId, entity, "id-1", "user-1",
+        1);
+
+    ArgumentCaptor<Object> event = ArgumentCaptor.forClass(Object.class);
+    verify(kafkaTemplate).send(eq("core.entities.lifecycle.mutated"), anyString(),
+        event.capture());
+    try {
+      return objectMapper.writeValueAsString(event.getValue());
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
 }
@@ -0,0 +1,272 @@
+package cz.muriel.core.reporting.service;
+
+import cz.muriel.core.reporting.dsl.QueryResponse;
+import cz.muriel.core.reporting.support.ReportResultCache;
+import cz.muriel.core.test.AbstractIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Integration tests for BulkJobEngine against committed data - lease takeover,
+ * SKIP LOCKED claims, cancel of an in-flight chunk, skipped failed chunks and
+ * report cache invalidation on every final status.
+ */
+@SpringBootTest @TestPropertySource(properties = { "reporting.bulk.chunk-size=10",
+    "reporting.bulk.min-chunk-size=10", "reporting.bulk.poll-interval-ms=600000" })
+class BulkJobEngineIT extends AbstractIntegrationTest {
+
+  private static final String TABLE = "bulk_job_it_rows";
+
+  private final UUID tenantId = UUID.randomUUID();
+
+  @Autowired
+  private BulkJobEngine engine;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  private ReportResultCache resultCache;
+
+  private TransactionTemplate tx;
+
+  @BeforeEach
+  void setUp() {
+    tx = new TransactionTemplate(transactionManager);
+    jdbcTemplate.execute("""
+        CREATE TABLE IF NOT EXISTS bulk_job_it_rows (
+            id UUID PRIMARY KEY,
+            tenant_id UUID NOT NULL,
+            status VARCHAR(20) NOT NULL,
+            note VARCHAR(20),
+            updated_at TIMESTAMPTZ,
+            updated_by VARCHAR(255),
+            CONSTRAINT bulk_job_it_rows_pinned CHECK (status = 'ACTIVE' OR note IS NULL)
+        )
+        """);
+  }
+
+  @Test
+  void shouldResumeJobWhoseLeaseExpired() {
+    List<UUID> ids = rows(30);
+    UUID jobId = insertJob(ids);
+    // Previous owner processed the first chunk and stopped renewing the lease
+    jdbcTemplate.update("UPDATE bulk_job SET status = 'RUNNING', owner = 'bulk-gone', "
+        + "lease_until = now() - interval '1 minute', started_at = now() - interval "
+        + "'5 minutes', next_seq = 10, success_count = 10 WHERE id = ?", jobId);
+
+    engine.poll();
+    awaitStatus(jobId, "COMPLETED");
+
+    BulkJobEngine.JobState state = engine.find(jobId, tenantId);
+    assertThat(state.processedRows()).isEqualTo(30);
+    assertThat(state.successCount()).isEqualTo(30);
+    assertThat(statuses(ids.subList(0, 10))).containsOnly("ACTIVE");
+    assertThat(statuses(ids.subList(10, 30))).containsOnly("INACTIVE");
+    assertThat(itemCount(jobId)).isZero();
+  }
+
+  @Test
+  void shouldSkipJobLockedByAnotherClaim() {
+    UUID lockedJob = insertJob(rows(5));
+    UUID freeJob = insertJob(rows(5));
+
+    tx.executeWithoutResult(claim -> {
+      jdbcTemplate.queryForList("SELECT id FROM bulk_job WHERE id = ? FOR UPDATE", lockedJob);
+
+      engine.poll();
+      awaitStatus(freeJob, "COMPLETED");
+      assertThat(status(lockedJob)).isEqualTo("PENDING");
+    });
+
+    engine.poll();
+    awaitStatus(lockedJob, "COMPLETED");
+  }
+
+  @Test
+  void shouldRollBackInFlightChunkOfCancelledJob() throws Exception {
+    List<UUID> ids = rows(5);
+    UUID jobId = insertJob(ids);
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    // Row lock keeps the chunk UPDATE waiting until the job is cancelled
+    CompletableFuture<Void> holder = CompletableFuture
+        .runAsync(() -> tx.executeWithoutResult(status -> {
+          jdbcTemplate.queryForList("SELECT id FROM " + TABLE + " WHERE id = ? FOR UPDATE",
+              ids.get(0));
+          locked.countDown();
+          try {
+            release.await(10, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }));
+    assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+
+    engine.poll();
+    await().atMost(10, TimeUnit.SECONDS).until(() -> sessions(
+        "wait_event_type = 'Lock' AND query ILIKE 'update%" + TABLE + "%'") > 0);
+
+    assertThat(engine.cancel(jobId, tenantId)).isTrue();
+    release.countDown();
+    holder.get(10, TimeUnit.SECONDS);
+
+    // Chunk finished and rolled back
+    await().atMost(10, TimeUnit.SECONDS).until(() -> sessions("state <> 'idle' AND (query "
+        + "ILIKE 'update%" + TABLE + "%' OR query ILIKE 'update bulk_job%next_seq%')") == 0);
+
+    BulkJobEngine.JobState state = engine.find(jobId, tenantId);
+    assertThat(state.status()).isEqualTo("CANCELLED");
+    assertThat(state.successCount()).isZero();
+    assertThat(statuses(ids)).containsOnly("ACTIVE");
+    assertThat(itemCount(jobId)).isZero();
+  }
+
+  @Test
+  void shouldSkipFailedChunkAndContinue() {
+    List<UUID> ids = rows(30);
+    // Violates the CHECK once set INACTIVE - fails the second chunk (rows 11-20)
+    jdbcTemplate.update("UPDATE " + TABLE + " SET note = 'pinned' WHERE id = ?", ids.get(15));
+    UUID jobId = insertJob(ids);
+
+    engine.poll();
+    awaitStatus(jobId, "COMPLETED");
+
+    BulkJobEngine.JobState state = engine.find(jobId, tenantId);
+    assertThat(state.successCount()).isEqualTo(20);
+    assertThat(state.errorCount()).isEqualTo(10);
+    assertThat(state.errors()).anyMatch(error -> error.startsWith("Rows 11-20:"));
+    assertThat(statuses(ids.subList(10, 20))).containsOnly("ACTIVE");
+    assertThat(statuses(ids.subList(20, 30))).containsOnly("INACTIVE");
+  }
+
+  @Test
+  void shouldInvalidateReportsWhenCompleted() {
+    UUID jobId = insertJob(rows(5));
+    cacheReport("fp-completed");
+
+    engine.poll();
+    awaitStatus(jobId, "COMPLETED");
+
+    assertThat(cachedReport("fp-completed")).isNull();
+  }
+
+  @Test
+  void shouldInvalidateReportsWhenCancellingPartlyAppliedJob() {
+    UUID jobId = insertJob(rows(30));
+    // Owner committed the first chunk and is still working on the job
+    jdbcTemplate.update("UPDATE bulk_job SET status = 'RUNNING', owner = 'bulk-busy', "
+        + "lease_until = now() + interval '1 minute', next_seq = 10, success_count = 10 "
+        + "WHERE id = ?", jobId);
+    cacheReport("fp-cancelled");
+
+    assertThat(engine.cancel(jobId, tenantId)).isTrue();
+
+    assertThat(cachedReport("fp-cancelled")).isNull();
+  }
+
+  @Test
+  void shouldKeepReportsWhenCancelledJobChangedNothing() {
+    UUID jobId = insertJob(rows(5));
+    cacheReport("fp-untouched");
+
+    assertThat(engine.cancel(jobId, tenantId)).isTrue();
+
+    assertThat(cachedReport("fp-untouched")).isNotNull();
+  }
+
+  @Test
+  void shouldHideJobsOfOtherTenants() {
+    UUID jobId = insertJob(rows(1));
+    UUID otherTenant = UUID.randomUUID();
+
+    assertThat(engine.find(jobId, otherTenant)).isNull();
+    assertThat(engine.cancel(jobId, otherTenant)).isFalse();
+    assertThat(engine.find(jobId, tenantId)).isNotNull();
+  }
+
+  private void cacheReport(String fingerprint) {
+    resultCache.put(fingerprint, tenantId.toString(), "BulkJobItRow",
+        QueryResponse.builder().data(List.of(Map.of("count", 1))).totalRows(1L).returnedRows(1)
+            .fingerprint(fingerprint).cacheHit(false).executionTimeMs(5L).build());
+  }
+
+  private QueryResponse cachedReport(String fingerprint) {
+    return resultCache.get(fingerprint, tenantId.toString(), "BulkJobItRow");
+  }
+
+  private List<UUID> rows(int count) {
+    List<UUID> ids = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      UUID id = UUID.randomUUID();
+      jdbcTemplate.update(
+          "INSERT INTO " + TABLE + " (id, tenant_id, status) VALUES (?, ?, 'ACTIVE')", id,
+          tenantId);
+      ids.add(id);
+    }
+    return ids;
+  }
+
+  /**
+   * Queued job inserted directly - unlike submit() it is not dispatched, the
+   * test decides when poll() runs
+   */
+  private UUID insertJob(List<UUID> ids) {
+    UUID jobId = UUID.randomUUID();
+    jdbcTemplate.update("INSERT INTO bulk_job (id, tenant_id, entity, table_name, updates, "
+        + "status, total_rows, chunk_size, created_by) VALUES (?, ?, 'BulkJobItRow', ?, "
+        + "'{\"status\":\"INACTIVE\"}'::jsonb, 'PENDING', ?, 10, 'it')", jobId, tenantId, TABLE,
+        ids.size());
+    for (int seq = 0; seq < ids.size(); seq++) {
+      jdbcTemplate.update("INSERT INTO bulk_job_item (job_id, seq, entity_id) VALUES (?, ?, ?)",
+          jobId, seq, ids.get(seq));
+    }
+    return jobId;
+  }
+
+  private void awaitStatus(UUID jobId, String expected) {
+    await().atMost(15, TimeUnit.SECONDS).pollInterval(100, TimeUnit.MILLISECONDS)
+        .until(() -> expected.equals(status(jobId)));
+  }
+
+  private String status(UUID jobId) {
+    return jdbcTemplate.queryForObject("SELECT status FROM bulk_job WHERE id = ?", String.class,
+        jobId);
+  }
+
+  private List<String> statuses(List<UUID> ids) {
+    return ids.stream().map(id -> jdbcTemplate.queryForObject(
+        "SELECT status FROM " + TABLE + " WHERE id = ?", String.class, id)).toList();
+  }
+
+  private int itemCount(UUID jobId) {
+    return jdbcTemplate.queryForObject("SELECT count(*) FROM bulk_job_item WHERE job_id = ?",
+        Integer.class, jobId);
+  }
+
+  private int sessions(String condition) {
+    return jdbcTemplate.queryForObject("SELECT count(*) FROM pg_stat_activity WHERE pid <> "
+        + "pg_backend_pid() AND " + condition, Integer.class);
+  }
+}
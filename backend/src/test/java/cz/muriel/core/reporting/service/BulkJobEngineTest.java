@@ -0,0 +1,28 @@
+package cz.muriel.core.reporting.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for adaptive chunk sizing of BulkJobEngine.
+ */
+class BulkJobEngineTest {
+
+  @Test
+  void shouldGrowChunkWhileStatementsAreFast() {
+    assertThat(BulkJobEngine.nextChunkSize(100, 50, 10, 1000, 250)).isEqualTo(200);
+    assertThat(BulkJobEngine.nextChunkSize(800, 10, 10, 1000, 250)).isEqualTo(1000);
+  }
+
+  @Test
+  void shouldShrinkChunkProportionallyWhenSlow() {
+    assertThat(BulkJobEngine.nextChunkSize(400, 1000, 10, 1000, 250)).isEqualTo(100);
+    assertThat(BulkJobEngine.nextChunkSize(20, 60000, 10, 1000, 250)).isEqualTo(10);
+  }
+
+  @Test
+  void shouldKeepChunkNearTarget() {
+    assertThat(BulkJobEngine.nextChunkSize(300, 200, 10, 1000, 250)).isEqualTo(300);
+  }
+}
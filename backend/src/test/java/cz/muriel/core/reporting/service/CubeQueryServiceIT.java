@@ -6,6 +6,7 @@ import com.github.tomakehurst.wiremock.client.WireMock;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -68,7 +69,7 @@ class CubeQueryServiceIT extends AbstractIntegrationTest {
     circuitBreakerRegistry = CircuitBreakerRegistry.of(config);
 
     // Create QueryDeduplicator (pass-through for these tests)
-    queryDeduplicator = new QueryDeduplicator() {
+    queryDeduplicator = new QueryDeduplicator(new SimpleMeterRegistry(), 30000) {
       @Override
       public Map<String, Object> executeWithDeduplication(Map<String, Object> query,
           String tenantId, java.util.function.Supplier<Map<String, Object>> executor) {
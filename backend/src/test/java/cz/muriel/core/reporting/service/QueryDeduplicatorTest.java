@@ -1,5 +1,6 @@
 package cz.muriel.core.reporting.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.parallel.Execution;
@@ -7,6 +8,7 @@ import org.junit.jupiter.api.parallel.ExecutionMode;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -31,7 +33,7 @@ class QueryDeduplicatorTest {
 
   @BeforeEach
   void setUp() {
-    queryDeduplicator = new QueryDeduplicator();
+    queryDeduplicator = new QueryDeduplicator(new SimpleMeterRegistry(), 30000);
     executionCount = new AtomicInteger(0);
   }
 
@@ -244,4 +246,93 @@ class QueryDeduplicatorTest {
     // Assert
     assertEquals(0, queryDeduplicator.getInflightCount());
   }
+
+  @Test
+  void shouldDeduplicateQueriesRegardlessOfMapOrder() throws Exception {
+    // Arrange - same query, different key insertion order
+    Map<String, Object> query1 = new LinkedHashMap<>();
+    query1.put("dimensions", List.of("User.id"));
+    query1.put("limit", 10);
+    Map<String, Object> query2 = new LinkedHashMap<>();
+    query2.put("limit", 10);
+    query2.put("dimensions", List.of("User.id"));
+
+    CompletableFuture<Map<String, Object>> leader = CompletableFuture
+        .supplyAsync(() -> queryDeduplicator.executeWithDeduplication(query1, "tenant-1", () -> {
+          executionCount.incrementAndGet();
+          try {
+            Thread.sleep(200);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return Map.of("data", List.of());
+        }));
+    Thread.sleep(50);
+
+    // Act
+    queryDeduplicator.executeWithDeduplication(query2, "tenant-1", () -> {
+      executionCount.incrementAndGet();
+      return Map.of("data", List.of());
+    });
+    leader.join();
+
+    // Assert
+    assertEquals(1, executionCount.get(), "Key order must not change the fingerprint");
+  }
+
+  @Test
+  void shouldExecuteDirectlyWhenLeaderExceedsMaxWait() throws Exception {
+    // Arrange - followers wait at most 50 ms
+    QueryDeduplicator deduplicator = new QueryDeduplicator(new SimpleMeterRegistry(), 50);
+    CountDownLatch release = new CountDownLatch(1);
+
+    CompletableFuture<String> leader = CompletableFuture
+        .supplyAsync(() -> deduplicator.execute("fp", () -> {
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return "leader";
+        }));
+    Thread.sleep(20);
+
+    // Act
+    String result = deduplicator.execute("fp", () -> "follower");
+    release.countDown();
+
+    // Assert
+    assertEquals("follower", result);
+    assertEquals("leader", leader.get());
+  }
+
+  @Test
+  void shouldHandFollowersTheirOwnCopy() throws Exception {
+    // Arrange
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> shared = new ArrayList<>(List.of("row"));
+
+    CompletableFuture<List<String>> leader = CompletableFuture
+        .supplyAsync(() -> queryDeduplicator.execute("fp", () -> {
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return shared;
+        }, ArrayList::new));
+    Thread.sleep(50);
+
+    // Act
+    CompletableFuture<List<String>> follower = CompletableFuture
+        .supplyAsync(() -> queryDeduplicator.execute("fp", () -> List.of("own"), ArrayList::new));
+    Thread.sleep(50);
+    release.countDown();
+    follower.get().add("follower-only");
+
+    // Assert
+    assertSame(shared, leader.get());
+    assertEquals(List.of("row"), shared);
+    assertEquals(List.of("row", "follower-only"), follower.get());
+  }
 }
@@ -0,0 +1,68 @@
+package cz.muriel.core.reporting.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.muriel.core.presence.kafka.EntityLifecycleProducer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for CacheInvalidationService - mutation events in the shape
+ * EntityLifecycleProducer publishes them.
+ */
+class CacheInvalidationServiceTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private ReportResultCache resultCache;
+  private CacheInvalidationService service;
+  private Acknowledgment ack;
+
+  @BeforeEach
+  void setUp() {
+    resultCache = mock(ReportResultCache.class);
+    ack = mock(Acknowledgment.class);
+    service = new CacheInvalidationService(resultCache, mock(ReportingMetrics.class),
+        objectMapper);
+  }
+
+  @Test
+  void shouldInvalidateEntityOfTenantFromProducedEvent() throws Exception {
+    service.handleEntityMutation(mutatedEvent("tenant-1", "Order", "42"), ack);
+
+    verify(resultCache).invalidate("tenant-1", "Order");
+    verify(ack).acknowledge();
+    assertThat(service.getInvalidationCount()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldAcknowledgeUnreadablePayload() {
+    service.handleEntityMutation("not-json", ack);
+
+    verify(resultCache, never()).invalidate(any(), any());
+    verify(ack).acknowledge();
+  }
+
+  /**
+   * JSON of the MUTATED event exactly as EntityLifecycleProducer builds it
+   */
+  @SuppressWarnings("unchecked")
+  private String mutatedEvent(String tenantId, String entity, String id) throws Exception {
+    KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+    new EntityLifecycleProducer(kafkaTemplate).publishMutated(tenantId, entity, id, "user-1", 3);
+
+    ArgumentCaptor<Object> event = ArgumentCaptor.forClass(Object.class);
+    verify(kafkaTemplate).send(eq("core.entities.lifecycle.mutated"), anyString(),
+        event.capture());
+    return objectMapper.writeValueAsString(event.getValue());
+  }
+}
@@ -0,0 +1,77 @@
+package cz.muriel.core.reporting.support;
+
+import cz.muriel.core.reporting.dsl.QueryResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for ReportResultCache (without Redis).
+ */
+class ReportResultCacheTest {
+
+  private ConcurrentMapCacheManager cacheManager;
+  private ReportResultCache cache;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    cacheManager = new ConcurrentMapCacheManager(ReportResultCache.CACHE_NAME);
+    cache = new ReportResultCache(cacheManager, mock(ObjectProvider.class),
+        mock(ObjectProvider.class), new SimpleMeterRegistry(), false, "rpt:", 60, 15, 100);
+  }
+
+  @Test
+  void shouldServeCopiesFlaggedAsCacheHit() {
+    QueryResponse response = response("fp-1");
+    cache.put("fp-1", "tenant-1", "User", response);
+
+    QueryResponse first = cache.get("fp-1", "tenant-1", "User");
+    first.setExecutionTimeMs(999L);
+
+    assertThat(first.getCacheHit()).isTrue();
+    assertThat(cache.get("fp-1", "tenant-1", "User").getExecutionTimeMs()).isEqualTo(5L);
+    assertThat(response.getCacheHit()).isFalse();
+  }
+
+  @Test
+  void shouldPromoteSharedEntriesToNearCache() {
+    cacheManager.getCache(ReportResultCache.CACHE_NAME).put("fp-1", response("fp-1"));
+
+    assertThat(cache.get("fp-1", "tenant-1", "User")).isNotNull();
+    cacheManager.getCache(ReportResultCache.CACHE_NAME).clear();
+    assertThat(cache.get("fp-1", "tenant-1", "User")).isNotNull();
+  }
+
+  @Test
+  void shouldEvictOnlyTaggedNearCacheEntries() {
+    cache.put("fp-1", "tenant-1", "User", response("fp-1"));
+    cache.put("fp-2", "tenant-2", "User", response("fp-2"));
+    cache.put("fp-3", "tenant-1", "Tenant", response("fp-3"));
+
+    cache.invalidate("tenant-1", "user");
+
+    assertThat(cache.get("fp-1", "tenant-1", "User")).isNull();
+    assertThat(cache.get("fp-2", "tenant-2", "User")).isNotNull();
+    assertThat(cache.get("fp-3", "tenant-1", "Tenant")).isNotNull();
+  }
+
+  @Test
+  void shouldTagByTenantAndEntity() {
+    assertThat(ReportResultCache.tagsOf("tenant-1", "User")).containsExactlyInAnyOrder(
+        "t:tenant-1", "e:user", "te:tenant-1:user");
+  }
+
+  private QueryResponse response(String fingerprint) {
+    return QueryResponse.builder().data(List.of(Map.of("id", 1))).totalRows(1L).returnedRows(1)
+        .fingerprint(fingerprint).cacheHit(false).executionTimeMs(5L).build();
+  }
+}
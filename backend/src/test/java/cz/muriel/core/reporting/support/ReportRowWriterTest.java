@@ -0,0 +1,60 @@
+package cz.muriel.core.reporting.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for ReportRowWriter output formats.
+ */
+class ReportRowWriterTest {
+
+  @Test
+  void shouldWriteOneJsonObjectPerLine() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ReportRowWriter writer = ReportRowWriter.of(ReportRowWriter.Format.NDJSON, out,
+        new ObjectMapper(), 1024);
+
+    writer.write(row("u1", "Alice"));
+    writer.write(row("u2", "Bob"));
+    writer.finish();
+
+    assertThat(out.toString(StandardCharsets.UTF_8))
+        .isEqualTo("{\"id\":\"u1\",\"name\":\"Alice\"}\n{\"id\":\"u2\",\"name\":\"Bob\"}\n");
+  }
+
+  @Test
+  void shouldWriteCsvHeaderAndQuoteSpecialValues() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ReportRowWriter writer = ReportRowWriter.of(ReportRowWriter.Format.CSV, out,
+        new ObjectMapper(), 1024);
+
+    writer.write(row("u1", "Doe, \"John\""));
+    writer.write(row("u2", null));
+    writer.finish();
+
+    assertThat(out.toString(StandardCharsets.UTF_8))
+        .isEqualTo("id,name\r\nu1,\"Doe, \"\"John\"\"\"\r\nu2,\r\n");
+  }
+
+  @Test
+  void shouldRejectUnknownFormat() {
+    assertThat(ReportRowWriter.Format.parse("csv")).isEqualTo(ReportRowWriter.Format.CSV);
+    assertThatThrownBy(() -> ReportRowWriter.Format.parse("xlsx"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private Map<String, Object> row(String id, String name) {
+    Map<String, Object> row = new LinkedHashMap<>();
+    row.put("id", id);
+    row.put("name", name);
+    return row;
+  }
+}
@@ -0,0 +1,232 @@
+package cz.muriel.core.security.policy;
+
+import cz.muriel.core.entity.Tenant;
+import cz.muriel.core.metamodel.MetamodelRegistry;
+import cz.muriel.core.metamodel.schema.AccessPolicy;
+import cz.muriel.core.metamodel.schema.ColumnPolicy;
+import cz.muriel.core.metamodel.schema.Condition;
+import cz.muriel.core.metamodel.schema.EntitySchema;
+import cz.muriel.core.metamodel.schema.FieldSchema;
+import cz.muriel.core.metamodel.schema.PolicyRule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * ✅ Metamodel Policy Engine Tests - compiled + memoized evaluation
+ */
+class MetamodelPolicyEngineTest {
+
+  private MetamodelRegistry registry;
+  private MetamodelPolicyEngine engine;
+
+  @BeforeEach
+  void setUp() {
+    registry = mock(MetamodelRegistry.class);
+    when(registry.getGeneration()).thenReturn(1L);
+    when(registry.getAllSchemas())
+        .thenReturn(Map.of("Note", noteSchema(), "Task", taskSchema()));
+    engine = new MetamodelPolicyEngine(registry, new SimpleMeterRegistry());
+  }
+
+  @Test
+  void roleRuleIsEvaluatedFromCompiledPolicy() {
+    assertThat(engine.check(auth("alice", "CORE_ROLE_USER"), "Note", "read", null)).isTrue();
+    assertThat(engine.check(auth("bob", "CORE_ROLE_GUEST"), "Note", "read", null)).isFalse();
+    assertThat(engine.check(auth("admin", "CORE_ROLE_ADMIN"), "Note", "delete", null)).isTrue();
+    assertThat(engine.check(auth("alice", "CORE_ROLE_USER"), "Unknown", "read", null)).isFalse();
+  }
+
+  @Test
+  void policiesAreCompiledOncePerGeneration() {
+    for (int i = 0; i < 10; i++) {
+      engine.check(auth("alice", "CORE_ROLE_USER"), "Note", "read", null);
+      engine.projectColumns(auth("alice", "CORE_ROLE_USER"), "Note", "read");
+    }
+    verify(registry, times(1)).getAllSchemas();
+
+    when(registry.getGeneration()).thenReturn(2L);
+    engine.check(auth("alice", "CORE_ROLE_USER"), "Note", "read", null);
+    verify(registry, times(2)).getAllSchemas();
+  }
+
+  @Test
+  void columnRulesRemoveHiddenColumns() {
+    assertThat(engine.projectColumns(auth("alice", "CORE_ROLE_USER"), "Note", "read"))
+        .containsExactlyInAnyOrder("id", "user_id", "title");
+    assertThat(engine.projectColumns(auth("hr", "CORE_ROLE_USER", "CORE_ROLE_HR"), "Note", "read"))
+        .containsExactlyInAnyOrder("id", "user_id", "title", "salary");
+  }
+
+  @Test
+  void abacRuleUsesEntityContext() {
+    Map<String, Object> own = Map.of("id", "1", "user_id", "alice");
+    Map<String, Object> foreign = Map.of("id", "2", "user_id", "bob");
+
+    assertThat(engine.check(auth("alice", "CORE_ROLE_USER"), "Note", "update", own)).isTrue();
+    assertThat(engine.check(auth("alice", "CORE_ROLE_USER"), "Note", "update", foreign))
+        .isFalse();
+  }
+
+  @Test
+  void rowFilterPushesAbacRuleIntoSql() {
+    RowFilter own = engine.rowFilter(auth("alice", "CORE_ROLE_USER"), "Note", "update");
+    assertThat(own.denied()).isFalse();
+    assertThat(own.sql()).isEqualTo("user_id = ?");
+    assertThat(own.params()).containsExactly("alice");
+    assertThat(own.hasResidual()).isFalse();
+
+    assertThat(engine.rowFilter(auth("bob", "CORE_ROLE_GUEST"), "Note", "update").denied())
+        .isTrue();
+    assertThat(engine.rowFilter(auth("alice", "CORE_ROLE_USER"), "Note", "read"))
+        .isEqualTo(RowFilter.UNRESTRICTED);
+    assertThat(engine.rowFilter(auth("admin", "CORE_ROLE_ADMIN"), "Note", "update"))
+        .isEqualTo(RowFilter.UNRESTRICTED);
+  }
+
+  @Test
+  void rowFilterFoldsRolesAndAddsTenantPredicate() {
+    String tenantId = Tenant.generateUuidFromKey("acme").toString();
+
+    RowFilter member = engine.rowFilter(jwtAuth("alice", "acme", "CORE_ROLE_USER"), "Task",
+        "read");
+    assertThat(member.sql())
+        .isEqualTo("((status = ? OR owner = ?) AND (tenant_id IS NULL OR tenant_id = ?))");
+    assertThat(member.params()).containsExactly("open", "alice", tenantId);
+
+    // Manager role makes the ABAC branch irrelevant
+    RowFilter manager = engine.rowFilter(jwtAuth("carol", "acme", "CORE_ROLE_MANAGER"), "Task",
+        "read");
+    assertThat(manager.sql()).isEqualTo("(tenant_id IS NULL OR tenant_id = ?)");
+    assertThat(manager.params()).containsExactly(tenantId);
+  }
+
+  @Test
+  void tenantIdIsResolvedFromTenantClaim() {
+    assertThat(engine.getTenantId(jwtAuth("alice", "acme", "CORE_ROLE_USER")))
+        .isEqualTo(Tenant.generateUuidFromKey("acme").toString());
+    assertThat(engine.getTenantId(jwtAuth("alice", null, "CORE_ROLE_USER"))).isNull();
+    assertThat(engine.getTenantId(auth("alice", "CORE_ROLE_USER"))).isNull();
+  }
+
+  @Test
+  void callerWithoutTenantGetsNoTenantOwnedRows() {
+    assertThat(engine.rowFilter(jwtAuth("alice", null, "CORE_ROLE_MANAGER"), "Task", "read"))
+        .isEqualTo(RowFilter.DENY);
+    assertThat(engine.rowFilter(auth("alice", "CORE_ROLE_MANAGER"), "Task", "read"))
+        .isEqualTo(RowFilter.DENY);
+    // Entities without tenant field are not affected
+    assertThat(engine.rowFilter(auth("alice", "CORE_ROLE_USER"), "Note", "read"))
+        .isEqualTo(RowFilter.UNRESTRICTED);
+  }
+
+  @Test
+  void untranslatableRuleFallsBackToInMemoryCheck() {
+    RowFilter filter = engine.rowFilter(jwtAuth("alice", "acme", "CORE_ROLE_USER"), "Task",
+        "update");
+
+    assertThat(filter.denied()).isFalse();
+    assertThat(filter.sql()).isEqualTo("(tenant_id IS NULL OR tenant_id = ?)");
+    assertThat(filter.hasResidual()).isTrue();
+    assertThat(filter.residual().test(Map.of("id", "1", "priority", 3))).isTrue();
+    assertThat(filter.residual().test(Map.of("id", "2", "priority", 1))).isFalse();
+  }
+
+  private static Authentication auth(String user, String... roles) {
+    return new UsernamePasswordAuthenticationToken(user, "n/a",
+        Arrays.stream(roles).map(SimpleGrantedAuthority::new).toList());
+  }
+
+  /**
+   * Token as issued by the realm - tenant key in the {@code tenant} claim
+   */
+  private static Authentication jwtAuth(String user, String tenant, String... roles) {
+    Jwt.Builder jwt = Jwt.withTokenValue("token").header("alg", "none").subject(user);
+    if (tenant != null) {
+      jwt.claim("tenant", tenant);
+    }
+    return new JwtAuthenticationToken(jwt.build(),
+        Arrays.stream(roles).map(SimpleGrantedAuthority::new).toList());
+  }
+
+  private static EntitySchema noteSchema() {
+    EntitySchema schema = new EntitySchema();
+    schema.setEntity("Note");
+    schema.setTable("note");
+    schema.setIdField("id");
+    schema.setFields(List.of(field("id"), field("user_id"), field("title"), field("salary")));
+
+    AccessPolicy policy = new AccessPolicy();
+    policy.setRead(role("CORE_ROLE_USER"));
+
+    PolicyRule sameUser = new PolicyRule();
+    sameUser.setSameUser(true);
+    PolicyRule update = new PolicyRule();
+    update.setAllOf(List.of(role("CORE_ROLE_USER"), sameUser));
+    policy.setUpdate(update);
+
+    ColumnPolicy salary = new ColumnPolicy();
+    salary.setRead(role("CORE_ROLE_HR"));
+    policy.setColumns(Map.of("salary", salary));
+
+    schema.setAccessPolicy(policy);
+    return schema;
+  }
+
+  private static EntitySchema taskSchema() {
+    EntitySchema schema = new EntitySchema();
+    schema.setEntity("Task");
+    schema.setTable("task");
+    schema.setIdField("id");
+    schema.setTenantField("tenant_id");
+    FieldSchema tenantId = field("tenant_id");
+    tenantId.setType("uuid");
+    FieldSchema priority = field("priority");
+    priority.setType("long");
+    schema.setFields(List.of(field("id"), tenantId, field("status"), field("owner"), priority));
+
+    AccessPolicy policy = new AccessPolicy();
+    PolicyRule read = new PolicyRule();
+    read.setAnyOf(List.of(role("CORE_ROLE_MANAGER"), compare("${entity.status}", "open"),
+        compare("${entity.owner}", "${user.id}")));
+    policy.setRead(read);
+    policy.setUpdate(compare("${entity.priority}", "3"));
+
+    schema.setAccessPolicy(policy);
+    return schema;
+  }
+
+  private static PolicyRule compare(String left, String right) {
+    Condition condition = new Condition();
+    condition.setLeft(left);
+    condition.setRight(right);
+    PolicyRule rule = new PolicyRule();
+    rule.setEq(condition);
+    return rule;
+  }
+
+  private static PolicyRule role(String role) {
+    PolicyRule rule = new PolicyRule();
+    rule.setRole(role);
+    return rule;
+  }
+
+  private static FieldSchema field(String name) {
+    FieldSchema field = new FieldSchema();
+    field.setName(name);
+    field.setType("string");
+    return field;
+  }
+}
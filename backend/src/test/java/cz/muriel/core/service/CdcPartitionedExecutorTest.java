@@ -0,0 +1,80 @@
+package cz.muriel.core.service;
+
+import cz.muriel.core.entity.ChangeEventEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ✅ CDC lanes - pořadí per entita, realm omezený na své lanes
+ */
+class CdcPartitionedExecutorTest {
+
+  private SimpleMeterRegistry meterRegistry;
+  private CdcPartitionedExecutor executor;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    executor = new CdcPartitionedExecutor(meterRegistry, 8, 2);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdown();
+  }
+
+  @Test
+  void realmUsesOnlyItsLanes() {
+    Set<Integer> lanes = new HashSet<>();
+    for (int i = 0; i < 1000; i++) {
+      lanes.add(CdcPartitionedExecutor.laneOf("noisy-realm", "user-" + i, 8, 2));
+    }
+    assertThat(lanes).hasSize(2);
+  }
+
+  @Test
+  void entityAlwaysMapsToSameLane() {
+    int lane = CdcPartitionedExecutor.laneOf("realm", "user-1", 8, 4);
+    for (int i = 0; i < 10; i++) {
+      assertThat(CdcPartitionedExecutor.laneOf("realm", "user-1", 8, 4)).isEqualTo(lane);
+    }
+  }
+
+  @Test
+  void eventsOfOneEntityRunInOrder() throws InterruptedException {
+    List<Long> order = new CopyOnWriteArrayList<>();
+    CountDownLatch finished = new CountDownLatch(50);
+    for (long id = 1; id <= 50; id++) {
+      long eventId = id;
+      executor.submit(event(eventId, "realm", "user-1"), () -> order.add(eventId),
+          finished::countDown);
+    }
+
+    assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(order).isSorted().hasSize(50);
+    assertThat(meterRegistry.get("cdc.realm.inflight").tag("realm", "realm").gauge().value())
+        .isZero();
+  }
+
+  private ChangeEventEntity event(long id, String realmId, String entityId) {
+    ChangeEventEntity event = new ChangeEventEntity();
+    event.setId(id);
+    event.setEventType("USER_UPDATED");
+    event.setEntityId(entityId);
+    event.setRealmId(realmId);
+    event.setCreatedAt(LocalDateTime.now());
+    return event;
+  }
+}
@@ -0,0 +1,86 @@
+package cz.muriel.core.service;
+
+import cz.muriel.core.entity.ChangeEventEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ✅ Odložený retry CDC eventů - backoff, pending stav, vyčerpání pokusů
+ */
+class CdcRetrySchedulerTest {
+
+  private SimpleMeterRegistry meterRegistry;
+  private CdcRetryScheduler scheduler;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    scheduler = new CdcRetryScheduler(meterRegistry, 10, 4, 20, 1000, 3);
+  }
+
+  @AfterEach
+  void tearDown() {
+    scheduler.shutdown();
+  }
+
+  @Test
+  void backoffDoublesUpToMax() {
+    assertThat(scheduler.delayFor(1)).isEqualTo(20);
+    assertThat(scheduler.delayFor(2)).isEqualTo(40);
+    assertThat(scheduler.delayFor(3)).isEqualTo(80);
+    assertThat(scheduler.delayFor(20)).isEqualTo(1000);
+  }
+
+  @Test
+  void retryFiresAfterDelayAndStaysPending() throws Exception {
+    CompletableFuture<CdcRetryScheduler.Retry> fired = new CompletableFuture<>();
+
+    // 80 ms = 8 ticků na kole o 4 slotech - musí přečkat celou otočku
+    assertThat(scheduler.schedule(event(7L), List.of(5L, 7L), 3, fired::complete)).isTrue();
+    assertThat(scheduler.isPending(5L)).isTrue();
+    // Pozdější eventy entity čekají, až retry doběhne
+    assertThat(scheduler.isDeferred("role-7")).isTrue();
+    assertThat(scheduler.deferredEntityIds()).containsExactly("role-7");
+    assertThat(scheduler.isDeferred("role-8")).isFalse();
+
+    CdcRetryScheduler.Retry retry = fired.get(2, TimeUnit.SECONDS);
+    assertThat(retry.attempt()).isEqualTo(3);
+    assertThat(retry.ids()).containsExactly(5L, 7L);
+    // Pending až do dokončení retry
+    assertThat(scheduler.isPending(7L)).isTrue();
+
+    scheduler.release(retry.ids());
+    assertThat(scheduler.isPending(7L)).isFalse();
+    assertThat(scheduler.isDeferred("role-7")).isFalse();
+    assertThat(meterRegistry.get("cdc.retry.scheduled").tag("attempt", "3").counter().count())
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  void exhaustedRetryIsRejected() {
+    assertThat(scheduler.schedule(event(9L), List.of(9L), 4, retry -> {
+    })).isFalse();
+    assertThat(scheduler.isPending(9L)).isFalse();
+    assertThat(scheduler.isDeferred("role-9")).isFalse();
+    assertThat(meterRegistry.get("cdc.retry.exhausted").counter().count()).isEqualTo(1.0);
+  }
+
+  private ChangeEventEntity event(long id) {
+    ChangeEventEntity event = new ChangeEventEntity();
+    event.setId(id);
+    event.setEventType("ROLE_UPDATED");
+    event.setEntityId("role-" + id);
+    event.setRealmId("realm");
+    event.setCreatedAt(LocalDateTime.now());
+    return event;
+  }
+}
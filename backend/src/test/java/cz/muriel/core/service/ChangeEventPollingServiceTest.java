@@ -0,0 +1,159 @@
+package cz.muriel.core.service;
+
+import cz.muriel.core.entity.ChangeEventEntity;
+import cz.muriel.core.entity.Tenant;
+import cz.muriel.core.repository.keycloak.ChangeEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * ✅ Keyset drain change_events - více dávek, vynechané odložené entity,
+ * hromadné markProcessed
+ */
+class ChangeEventPollingServiceTest {
+
+  private static final String REALM = "realm-1";
+
+  private final List<ChangeEventEntity> table = Collections.synchronizedList(new ArrayList<>());
+  private final List<Long> afterIds = Collections.synchronizedList(new ArrayList<>());
+  private final List<Set<String>> deferredArgs = Collections.synchronizedList(new ArrayList<>());
+
+  private ChangeEventRepository repository;
+  private KeycloakEventProjectionService projectionService;
+  private CdcPartitionedExecutor executor;
+  private CdcRetryScheduler retryScheduler;
+  private ChangeEventPollingService service;
+
+  @BeforeEach
+  void setUp() {
+    repository = mock(ChangeEventRepository.class);
+    projectionService = mock(KeycloakEventProjectionService.class);
+    TenantService tenantService = mock(TenantService.class);
+    when(tenantService.findTenantByRealmId(REALM))
+        .thenReturn(Optional.of(Tenant.builder().key("acme").build()));
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    executor = new CdcPartitionedExecutor(meterRegistry, 4, 2);
+    // Retry se během testu nespustí - entita zůstává odložená
+    retryScheduler = new CdcRetryScheduler(meterRegistry, 10, 4, 60_000, 60_000, 3);
+
+    service = new ChangeEventPollingService(repository, projectionService, tenantService,
+        executor, retryScheduler);
+    ReflectionTestUtils.setField(service, "batchSize", 2);
+    ReflectionTestUtils.setField(service, "maxInflight", 10);
+
+    // Repository se chová jako dotazy nad change_events
+    when(repository.findUnprocessedAfter(anyLong(), anyInt(), any())).thenAnswer(invocation -> {
+      long afterId = invocation.getArgument(0);
+      int limit = invocation.getArgument(1);
+      Set<String> deferred = Set.of((String[]) invocation.getArgument(2));
+      afterIds.add(afterId);
+      deferredArgs.add(deferred);
+      synchronized (table) {
+        return table.stream().filter(e -> !e.getProcessed() && e.getId() > afterId)
+            .filter(e -> !deferred.contains(e.getEntityId())).limit(limit).toList();
+      }
+    });
+    when(repository.markProcessed(any())).thenAnswer(invocation -> {
+      List<Long> ids = Arrays.asList((Long[]) invocation.getArgument(0));
+      synchronized (table) {
+        table.stream().filter(e -> ids.contains(e.getId())).forEach(e -> e.setProcessed(true));
+      }
+      return ids.size();
+    });
+  }
+
+  @AfterEach
+  void tearDown() {
+    retryScheduler.shutdown();
+    executor.shutdown();
+  }
+
+  @Test
+  void drainsAllBatchesAndSkipsDeferredEntity() {
+    insert(1, "user-a", "USER_UPDATED");
+    insert(2, "user-a", "USER_UPDATED");
+    insert(3, "user-b", "USER_CREATED");
+    insert(4, "user-deferred", "USER_UPDATED");
+    insert(5, "user-c", "USER_UPDATED");
+    retryScheduler.schedule(event(99, "user-deferred", "USER_UPDATED"), List.of(99L), 1,
+        retry -> {
+        });
+
+    service.pollAndProcessEvents();
+
+    // Dávky [1, 2], [3, 5] a prázdná - kurzor za poslední id dávky
+    assertThat(afterIds).containsExactly(0L, 2L, 5L);
+    assertThat(deferredArgs).allMatch(deferred -> deferred.equals(Set.of("user-deferred")));
+    assertThat(processedIds()).containsExactlyInAnyOrder(1L, 2L, 3L, 5L);
+
+    // Duplicitní event user-a se zpracuje jednou
+    verify(projectionService, times(1)).processCdcEvent(eq("USER_UPDATED"), eq("user-a"),
+        eq(REALM), eq("acme"), isNull());
+    verify(projectionService).processCdcEvent(eq("USER_CREATED"), eq("user-b"), eq(REALM),
+        eq("acme"), isNull());
+    verify(projectionService).processCdcEvent(eq("USER_UPDATED"), eq("user-c"), eq(REALM),
+        eq("acme"), isNull());
+    verify(projectionService, never()).processCdcEvent(any(), eq("user-deferred"), any(), any(),
+        any());
+  }
+
+  @Test
+  void deferredEntityIsPickedUpByNextPollAfterRelease() {
+    insert(1, "user-deferred", "USER_UPDATED");
+    insert(2, "user-a", "USER_UPDATED");
+    retryScheduler.schedule(event(99, "user-deferred", "USER_UPDATED"), List.of(99L), 1,
+        retry -> {
+        });
+
+    service.pollAndProcessEvents();
+    assertThat(processedIds()).containsExactly(2L);
+
+    retryScheduler.release(List.of(99L));
+    service.pollAndProcessEvents();
+
+    assertThat(processedIds()).containsExactlyInAnyOrder(1L, 2L);
+    assertThat(deferredArgs.get(deferredArgs.size() - 1)).isEmpty();
+    verify(projectionService).processCdcEvent(eq("USER_UPDATED"), eq("user-deferred"),
+        eq(REALM), eq("acme"), isNull());
+  }
+
+  private void insert(long id, String entityId, String eventType) {
+    table.add(event(id, entityId, eventType));
+  }
+
+  private static ChangeEventEntity event(long id, String entityId, String eventType) {
+    return new ChangeEventEntity(id, eventType, entityId, REALM, LocalDateTime.now(), false,
+        null);
+  }
+
+  private List<Long> processedIds() {
+    synchronized (table) {
+      return table.stream().filter(ChangeEventEntity::getProcessed)
+          .map(ChangeEventEntity::getId).toList();
+    }
+  }
+}
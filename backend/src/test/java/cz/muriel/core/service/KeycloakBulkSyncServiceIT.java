@@ -0,0 +1,155 @@
+package cz.muriel.core.service;
+
+import cz.muriel.core.entities.MetamodelCrudService;
+import cz.muriel.core.entity.Tenant;
+import cz.muriel.core.repository.SyncExecutionRepository;
+import cz.muriel.core.repository.TenantRepository;
+import cz.muriel.core.test.AbstractIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 🧪 Streaming bulk sync uživatelů do users_directory - insert, update se
+ * zvýšením verze a přeskočený nezměněný řádek
+ */
+@SpringBootTest
+class KeycloakBulkSyncServiceIT extends AbstractIntegrationTest {
+
+  private static final String TENANT_KEY = "bulk-sync-it";
+  private static final UUID TENANT_ID = Tenant.generateUuidFromKey(TENANT_KEY);
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private TenantRepository tenantRepository;
+
+  @Autowired
+  private SyncExecutionRepository syncExecutionRepository;
+
+  @Autowired
+  private TenantService tenantService;
+
+  private UsersResource users;
+  private KeycloakBulkSyncService service;
+
+  @BeforeEach
+  void setUp() {
+    jdbcTemplate.update("INSERT INTO tenants (id, key) VALUES (?, ?) ON CONFLICT DO NOTHING",
+        TENANT_ID, TENANT_KEY);
+    SecurityContextHolder.getContext()
+        .setAuthentication(new TestingAuthenticationToken("it-admin", null));
+
+    Keycloak keycloak = mock(Keycloak.class);
+    RealmResource realm = mock(RealmResource.class);
+    users = mock(UsersResource.class);
+    when(keycloak.realm(TENANT_KEY)).thenReturn(realm);
+    when(realm.users()).thenReturn(users);
+
+    service = new KeycloakBulkSyncService(keycloak, tenantRepository,
+        mock(MetamodelCrudService.class), jdbcTemplate, mock(KeycloakSyncService.class),
+        syncExecutionRepository, tenantService);
+    ReflectionTestUtils.setField(service, "userSyncMode", "streaming");
+    ReflectionTestUtils.setField(service, "pageSize", 2);
+    ReflectionTestUtils.setField(service, "parallelism", 2);
+  }
+
+  @AfterEach
+  void clearAuthentication() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void secondSyncUpdatesChangedRowsOnly() {
+    keycloakUsers(user("kc-1", "alice", "alice@old.example"), user("kc-2", "bob", "bob@example"),
+        user("kc-3", "carol", "carol@example"));
+    service.syncUsersAsync(TENANT_KEY);
+
+    Map<String, Object> alice = row("kc-1");
+    Map<String, Object> bob = row("kc-2");
+    assertThat(alice).containsEntry("email", "alice@old.example").containsEntry("version", 0L);
+    assertThat(bob).containsEntry("version", 0L);
+    assertThat(row("kc-3")).containsEntry("username", "carol").containsEntry("version", 0L);
+
+    keycloakUsers(user("kc-1", "alice", "alice@new.example"), user("kc-2", "bob", "bob@example"),
+        user("kc-3", "carol", "carol@example"));
+    service.syncUsersAsync(TENANT_KEY);
+
+    Map<String, Object> changed = row("kc-1");
+    assertThat(changed).containsEntry("email", "alice@new.example").containsEntry("version", 1L);
+    assertThat((Timestamp) changed.get("updated_at"))
+        .isAfter((Timestamp) alice.get("updated_at"));
+
+    // Nezměněný řádek se nepřepíše - ani verze, ani updated_at
+    assertThat(row("kc-2")).isEqualTo(bob);
+    assertThat(row("kc-3")).containsEntry("version", 0L);
+    assertThat(count()).isEqualTo(3);
+  }
+
+  @Test
+  void linkingLocalUserBumpsVersion() {
+    jdbcTemplate.update("INSERT INTO users_directory (tenant_id, username, email, active) "
+        + "VALUES (?, 'dave', 'dave@example', true)", TENANT_ID);
+
+    // Napárování i následný upsert jsou dva zápisy
+    keycloakUsers(user("kc-4", "Dave", "dave@example"));
+    service.syncUsersAsync(TENANT_KEY);
+
+    assertThat(row("kc-4")).containsEntry("username", "Dave").containsEntry("version", 2L);
+    assertThat(count()).isEqualTo(1);
+  }
+
+  /**
+   * Stránky po pageSize (2) tak, jak je vrací Keycloak first/max
+   */
+  private void keycloakUsers(UserRepresentation... all) {
+    when(users.count()).thenReturn(all.length);
+    for (int first = 0; first <= all.length; first += 2) {
+      List<UserRepresentation> page = List.of(all)
+          .subList(Math.min(first, all.length), Math.min(first + 2, all.length));
+      when(users.list(first, 2)).thenReturn(page);
+    }
+  }
+
+  private static UserRepresentation user(String id, String username, String email) {
+    UserRepresentation user = new UserRepresentation();
+    user.setId(id);
+    user.setUsername(username);
+    user.setEmail(email);
+    user.setFirstName(username);
+    user.setLastName("Test");
+    user.setEnabled(true);
+    return user;
+  }
+
+  private Map<String, Object> row(String keycloakUserId) {
+    return jdbcTemplate.queryForMap("SELECT username, email, version, updated_at "
+        + "FROM users_directory WHERE tenant_id = ? AND keycloak_user_id = ?", TENANT_ID,
+        keycloakUserId);
+  }
+
+  private int count() {
+    return jdbcTemplate.queryForObject("SELECT count(*) FROM users_directory WHERE tenant_id = ?",
+        Integer.class, TENANT_ID);
+  }
+}
@@ -0,0 +1,139 @@
+package cz.muriel.core.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ✅ Materializovaná hierarchie - closure, inkrementální změny, invalidace,
+ * cykly
+ */
+class TenantHierarchyCacheTest {
+
+  private final UUID admin = UUID.randomUUID();
+  private final UUID manager = UUID.randomUUID();
+  private final UUID user = UUID.randomUUID();
+  private final UUID auditor = UUID.randomUUID();
+
+  private TenantHierarchyCache.Graph graph() {
+    TenantHierarchyCache.Graph graph = new TenantHierarchyCache.Graph();
+    graph.node(admin, "ADMIN");
+    graph.node(manager, "MANAGER");
+    graph.node(user, "USER");
+    graph.node(auditor, "AUDITOR");
+    graph.link(admin, manager);
+    graph.link(manager, user);
+    return graph;
+  }
+
+  @Test
+  void closureContainsAllDescendants() {
+    TenantHierarchyCache.Graph graph = graph();
+
+    assertThat(graph.closure(admin)).containsExactlyInAnyOrder(admin, manager, user);
+    assertThat(graph.ancestors(user)).containsExactlyInAnyOrder(admin, manager);
+    assertThat(graph.roots()).containsExactlyInAnyOrder(admin, auditor);
+  }
+
+  @Test
+  void replaceChildrenRefreshesAncestorClosures() {
+    TenantHierarchyCache.Graph graph = graph();
+    assertThat(graph.closure(admin)).doesNotContain(auditor);
+
+    graph.replaceChildren(manager, "MANAGER", Map.of(auditor, "AUDITOR"));
+
+    assertThat(graph.closure(admin)).containsExactlyInAnyOrder(admin, manager, auditor);
+    assertThat(graph.parents(user)).isEmpty();
+  }
+
+  @Test
+  void setParentMovesSubtree() {
+    TenantHierarchyCache.Graph graph = graph();
+    assertThat(graph.descendants(admin)).contains(user);
+
+    graph.setParent(manager, auditor, "MANAGER");
+
+    assertThat(graph.descendants(admin)).isEmpty();
+    assertThat(graph.descendants(auditor)).containsExactlyInAnyOrder(manager, user);
+  }
+
+  @Test
+  void detectsCycles() {
+    TenantHierarchyCache.Graph graph = graph();
+    assertThat(graph.hasCycleFrom(admin)).isFalse();
+
+    graph.link(user, admin);
+
+    assertThat(graph.hasCycleFrom(admin)).isTrue();
+  }
+
+  @Test
+  void tenantGraphIsLoadedOnceUntilInvalidated() {
+    AtomicInteger loads = new AtomicInteger();
+    TenantHierarchyCache cache = cache(loads);
+    UUID tenant = UUID.randomUUID();
+
+    assertThat(cache.get(tenant).closure(admin)).hasSize(3);
+    assertThat(cache.get(tenant).closure(admin)).hasSize(3);
+    assertThat(loads).hasValue(1);
+
+    cache.invalidate(tenant);
+
+    assertThat(cache.get(tenant).closure(admin)).hasSize(3);
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  void tenantGraphIsPatchedInPlace() {
+    AtomicInteger loads = new AtomicInteger();
+    TenantHierarchyCache cache = cache(loads);
+    UUID tenant = UUID.randomUUID();
+
+    assertThat(cache.get(tenant).closure(admin)).hasSize(3);
+    cache.update(tenant, graph -> graph.replaceChildren(admin, "ADMIN", Map.of()));
+
+    assertThat(cache.get(tenant).closure(admin)).containsExactly(admin);
+    assertThat(loads).hasValue(1);
+  }
+
+  @Test
+  void patchIsVisibleInsideTransactionAndDroppedOnRollback() {
+    AtomicInteger loads = new AtomicInteger();
+    TenantHierarchyCache cache = cache(loads);
+    UUID tenant = UUID.randomUUID();
+    cache.get(tenant);
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      cache.update(tenant, graph -> graph.setParent(manager, auditor, "MANAGER"));
+
+      // Stejná transakce čte přesunutý uzel bez reloadu
+      assertThat(cache.get(tenant).descendants(auditor)).containsExactlyInAnyOrder(manager, user);
+      assertThat(loads).hasValue(1);
+
+      TransactionSynchronizationManager.getSynchronizations()
+          .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    assertThat(cache.get(tenant).descendants(auditor)).isEmpty();
+    assertThat(loads).hasValue(2);
+  }
+
+  private TenantHierarchyCache cache(AtomicInteger loads) {
+    return new TenantHierarchyCache("test", new SimpleMeterRegistry(), Duration.ofMinutes(1), 10,
+        tenantId -> {
+          loads.incrementAndGet();
+          return graph();
+        });
+  }
+}
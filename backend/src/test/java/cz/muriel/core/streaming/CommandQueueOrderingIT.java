@@ -0,0 +1,123 @@
+package cz.muriel.core.streaming;
+
+import cz.muriel.core.streaming.entity.CommandQueue;
+import cz.muriel.core.streaming.repository.CommandQueueRepository;
+import cz.muriel.core.test.AbstractIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 🧪 Per-entity ordering of command_queue claims
+ *
+ * Only the head command of an entity may be claimed - also while the head is
+ * claimed by another, not yet committed transaction.
+ */
+@SpringBootTest
+class CommandQueueOrderingIT extends AbstractIntegrationTest {
+
+  private static final UUID TENANT_ID = UUID.randomUUID();
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private CommandQueueRepository commandQueueRepository;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private TransactionTemplate tx;
+
+  @BeforeEach
+  void setUp() {
+    tx = new TransactionTemplate(transactionManager);
+    jdbcTemplate.update("INSERT INTO tenants (id, key) VALUES (?, ?) ON CONFLICT DO NOTHING",
+        TENANT_ID, "ordering-" + TENANT_ID);
+  }
+
+  @Test
+  void onlyHeadOfEachEntityIsFetched() {
+    UUID entityA = UUID.randomUUID();
+    UUID entityB = UUID.randomUUID();
+    UUID a1 = insert(entityA, 0);
+    insert(entityA, 1);
+    UUID b1 = insert(entityB, 2);
+
+    List<UUID> fetched = tx.execute(status -> ids(fetch(10)));
+
+    assertThat(fetched).containsExactly(a1, b1);
+  }
+
+  @Test
+  void uncommittedClaimBlocksSuccessors() throws Exception {
+    UUID entityA = UUID.randomUUID();
+    UUID entityB = UUID.randomUUID();
+    UUID a1 = insert(entityA, 0);
+    UUID a2 = insert(entityA, 1);
+    UUID b1 = insert(entityB, 2);
+
+    CountDownLatch claimed = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    // Instance 1 claims the head of A and keeps its transaction open
+    CompletableFuture<List<UUID>> first = CompletableFuture.supplyAsync(() -> tx.execute(status -> {
+      List<CommandQueue> batch = fetch(1);
+      commandQueueRepository.markProcessing(ids(batch), Instant.now());
+      claimed.countDown();
+      try {
+        release.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return ids(batch);
+    }));
+
+    assertThat(claimed.await(10, TimeUnit.SECONDS)).isTrue();
+
+    // Instance 2 must not overtake the uncommitted claim with A's successor
+    List<UUID> second = tx.execute(status -> ids(fetch(10)));
+    release.countDown();
+
+    assertThat(first.get(10, TimeUnit.SECONDS)).containsExactly(a1);
+    assertThat(second).containsExactly(b1);
+
+    // After the committed claim A's successor still waits for the head
+    assertThat(tx.execute(status -> ids(fetch(10)))).doesNotContain(a2);
+
+    jdbcTemplate.update("UPDATE command_queue SET status = 'completed' WHERE id = ?", a1);
+    assertThat(tx.execute(status -> ids(fetch(10)))).contains(a2);
+  }
+
+  private List<CommandQueue> fetch(int batchSize) {
+    return commandQueueRepository.fetchPendingCommandsForLane(Instant.now(), "normal", 0, 1,
+        List.of(0), 1, batchSize);
+  }
+
+  private UUID insert(UUID entityId, int offsetMs) {
+    UUID id = UUID.randomUUID();
+    jdbcTemplate.update(
+        "INSERT INTO command_queue (id, tenant_id, entity, entity_id, operation, payload, priority, "
+            + "available_at, created_at) VALUES (?, ?, 'User', ?, 'UPDATE', '{}'::jsonb, 'normal', "
+            + "now() - interval '1 minute', now() - interval '1 minute' + make_interval(secs => ?))",
+        id, TENANT_ID, entityId, offsetMs / 1000.0);
+    return id;
+  }
+
+  private static List<UUID> ids(List<CommandQueue> commands) {
+    return commands.stream().map(CommandQueue::getId).toList();
+  }
+}
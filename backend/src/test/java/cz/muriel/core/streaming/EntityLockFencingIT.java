@@ -0,0 +1,75 @@
+package cz.muriel.core.streaming;
+
+import cz.muriel.core.streaming.service.EntityLockManager;
+import cz.muriel.core.streaming.service.EntityLockManager.EntityLock;
+import cz.muriel.core.test.AbstractIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 🧪 Partition lease fencing against work_partition_lease
+ */
+@SpringBootTest
+class EntityLockFencingIT extends AbstractIntegrationTest {
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private EntityLockManager manager;
+  private TransactionTemplate tx;
+
+  @BeforeEach
+  void setUp() {
+    tx = new TransactionTemplate(transactionManager);
+    manager = new EntityLockManager(jdbcTemplate, 1, 30_000L, 4);
+    manager.rebalance();
+  }
+
+  @AfterEach
+  void tearDown() {
+    manager.shutdown();
+  }
+
+  @Test
+  void leaseUntilFollowsDatabaseClock() {
+    Double seconds = jdbcTemplate.queryForObject(
+        "SELECT EXTRACT(EPOCH FROM lease_until - now()) FROM work_partition_lease "
+            + "WHERE partition_no = 0 AND owner = ?",
+        Double.class, manager.getInstanceId());
+
+    assertThat(seconds).isBetween(20.0, 30.0);
+  }
+
+  @Test
+  void lockIsValidWhileLeaseRowKeepsToken() {
+    EntityLock lock = manager.tryLock("User", UUID.randomUUID(), 7);
+    assertThat(lock).isNotNull();
+
+    assertThat(tx.execute(status -> manager.isValid(lock))).isTrue();
+  }
+
+  @Test
+  void takeoverInvalidatesLock() {
+    EntityLock lock = manager.tryLock("User", UUID.randomUUID(), 7);
+    assertThat(lock).isNotNull();
+
+    // Another instance took the partition over - only the database knows yet
+    jdbcTemplate.update("UPDATE work_partition_lease SET owner = 'worker-other', "
+        + "fencing_token = fencing_token + 1 WHERE partition_no = 0");
+
+    assertThat(tx.execute(status -> manager.isValid(lock))).isFalse();
+  }
+}
@@ -0,0 +1,90 @@
+package cz.muriel.core.streaming;
+
+import cz.muriel.core.streaming.entity.OutboxFinal;
+import cz.muriel.core.streaming.repository.OutboxFinalRepository;
+import cz.muriel.core.test.AbstractIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 🧪 Dispatcher fetch of outbox_final - backoff and per-entity head blocking
+ */
+@SpringBootTest
+class OutboxDispatchOrderingIT extends AbstractIntegrationTest {
+
+  private static final UUID TENANT_ID = UUID.randomUUID();
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private OutboxFinalRepository outboxFinalRepository;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private TransactionTemplate tx;
+
+  @BeforeEach
+  void setUp() {
+    tx = new TransactionTemplate(transactionManager);
+    jdbcTemplate.update("INSERT INTO tenants (id, key) VALUES (?, ?) ON CONFLICT DO NOTHING",
+        TENANT_ID, "outbox-" + TENANT_ID);
+  }
+
+  @Test
+  void onlyHeadOfEachEntityIsFetched() {
+    UUID entityA = UUID.randomUUID();
+    UUID entityB = UUID.randomUUID();
+    UUID a1 = insert(entityA, 0);
+    insert(entityA, 1);
+    UUID b1 = insert(entityB, 2);
+
+    assertThat(fetch()).containsExactly(a1, b1);
+  }
+
+  @Test
+  void failedHeadBlocksLaterEventsUntilDue() {
+    UUID entityA = UUID.randomUUID();
+    UUID a1 = insert(entityA, 0);
+    UUID a2 = insert(entityA, 1);
+
+    // Head failed and backs off - neither it nor its successor is due
+    jdbcTemplate.update("UPDATE outbox_final SET retry_count = 1, "
+        + "next_attempt_at = now() + interval '1 hour' WHERE id = ?", a1);
+    assertThat(fetch()).isEmpty();
+
+    // Backoff elapsed - the head is retried first
+    jdbcTemplate.update("UPDATE outbox_final SET next_attempt_at = now() WHERE id = ?", a1);
+    assertThat(fetch()).containsExactly(a1);
+
+    // Head sent (or handed to the DLQ) - the successor follows
+    jdbcTemplate.update("UPDATE outbox_final SET sent_at = now() WHERE id = ?", a1);
+    assertThat(fetch()).containsExactly(a2);
+  }
+
+  private List<UUID> fetch() {
+    return tx.execute(status -> outboxFinalRepository.fetchUnsentMessages(100).stream()
+        .map(OutboxFinal::getId).toList());
+  }
+
+  private UUID insert(UUID entityId, int offsetMs) {
+    UUID id = UUID.randomUUID();
+    jdbcTemplate.update(
+        "INSERT INTO outbox_final (id, tenant_id, entity, entity_id, operation, correlation_id, "
+            + "created_at) VALUES (?, ?, 'User', ?, 'UPDATED', ?, "
+            + "now() - interval '1 minute' + make_interval(secs => ?))",
+        id, TENANT_ID, entityId, UUID.randomUUID(), offsetMs / 1000.0);
+    return id;
+  }
+}
@@ -0,0 +1,111 @@
+package cz.muriel.core.streaming;
+
+import cz.muriel.core.test.AbstractIntegrationTest;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 🧪 V10 outbox_final partitioning on a database with the V1 layout - legacy
+ * rows are carried over (unsent) or archived (sent), index names are free
+ */
+@SpringBootTest
+class OutboxFinalMigrationIT extends AbstractIntegrationTest {
+
+  private static final String DATABASE = "outbox_migration_it";
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  private JdbcTemplate migrated;
+  private DriverManagerDataSource dataSource;
+
+  @BeforeEach
+  void createDatabase() {
+    jdbcTemplate.execute("DROP DATABASE IF EXISTS " + DATABASE);
+    jdbcTemplate.execute("CREATE DATABASE " + DATABASE);
+    dataSource = new DriverManagerDataSource(
+        postgresContainer.getJdbcUrl().replace("/" + postgresContainer.getDatabaseName(),
+            "/" + DATABASE),
+        postgresContainer.getUsername(), postgresContainer.getPassword());
+    migrated = new JdbcTemplate(dataSource);
+  }
+
+  @AfterEach
+  void dropDatabase() {
+    jdbcTemplate.execute("DROP DATABASE IF EXISTS " + DATABASE + " WITH (FORCE)");
+  }
+
+  @Test
+  void legacyRowsSurviveRepartitioning() {
+    flyway("9").migrate();
+
+    UUID tenantId = migrated.queryForObject("SELECT id FROM tenants LIMIT 1", UUID.class);
+    UUID unsentId = UUID.randomUUID();
+    UUID sentId = UUID.randomUUID();
+    UUID entityId = UUID.randomUUID();
+    migrated.update(
+        "INSERT INTO outbox_final (id, tenant_id, entity, entity_id, event_type, payload, "
+            + "partition_key, sent_at) "
+            + "VALUES (?, ?, 'User', ?, 'UserUpdated', '{\"name\":\"a\"}', ?, NULL)",
+        unsentId, tenantId, entityId, "User#" + entityId);
+    migrated.update(
+        "INSERT INTO outbox_final (id, tenant_id, entity, entity_id, event_type, payload, "
+            + "partition_key, sent_at) VALUES (?, ?, 'User', ?, 'UserCreated', '{}', ?, now())",
+        sentId, tenantId, entityId, "User#" + entityId);
+
+    flyway(null).migrate();
+
+    Map<String, Object> carried = migrated.queryForMap(
+        "SELECT operation, diff_json::text AS diff, headers_json->>'legacyEventType' AS legacy, "
+            + "correlation_id FROM outbox_final WHERE id = ?",
+        unsentId);
+    assertThat(carried.get("operation")).isEqualTo("UPDATE");
+    assertThat(carried.get("diff").toString()).contains("\"name\"");
+    assertThat(carried.get("legacy")).isEqualTo("UserUpdated");
+    assertThat(carried.get("correlation_id")).isNotNull();
+
+    Map<String, Object> archived = migrated
+        .queryForMap("SELECT operation, sent_at FROM outbox_final_archive WHERE id = ?", sentId);
+    assertThat(archived.get("operation")).isEqualTo("CREATE");
+    assertThat(archived.get("sent_at")).isNotNull();
+
+    assertThat(migrated.queryForObject("SELECT to_regclass('outbox_final_legacy') IS NULL",
+        Boolean.class)).isTrue();
+    List<String> indexes = migrated.queryForList(
+        "SELECT indexname FROM pg_indexes WHERE tablename = 'outbox_final'", String.class);
+    assertThat(indexes).contains("outbox_final_pkey", "idx_outbox_final_correlation_id",
+        "idx_outbox_final_unsent");
+  }
+
+  @Test
+  void notifyTriggerExistsOnPartitionedTable() {
+    flyway(null).migrate();
+
+    assertThat(migrated.queryForObject(
+        "SELECT COUNT(*) FROM pg_trigger WHERE tgname = 'notify_outbox_final_insert' "
+            + "AND tgrelid = 'outbox_final'::regclass",
+        Integer.class)).isEqualTo(1);
+  }
+
+  private Flyway flyway(String target) {
+    FluentConfiguration config = Flyway.configure().dataSource(dataSource)
+        .locations("classpath:db/migration");
+    if (target != null) {
+      config.target(target);
+    }
+    return config.load();
+  }
+}
@@ -0,0 +1,82 @@
+package cz.muriel.core.streaming;
+
+import cz.muriel.core.streaming.service.QueueNotifyListener;
+import cz.muriel.core.test.AbstractIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 🧪 LISTEN connection of QueueNotifyListener - wake-ups and reconnect after
+ * the backend is terminated
+ */
+@SpringBootTest
+class QueueNotifyListenerIT extends AbstractIntegrationTest {
+
+  @Autowired
+  private DataSourceProperties dataSourceProperties;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  private QueueNotifyListener listener;
+  private final Semaphore wakeUps = new Semaphore(0);
+
+  @BeforeEach
+  void startListener() {
+    listener = new QueueNotifyListener(dataSourceProperties, 100, 500);
+    listener.subscribe(QueueNotifyListener.COMMAND_QUEUE_CHANNEL, wakeUps::release);
+    listener.start();
+  }
+
+  @AfterEach
+  void stopListener() {
+    listener.stop();
+  }
+
+  @Test
+  void wakesSubscriberOnNotify() throws Exception {
+    awaitListening();
+    wakeUps.drainPermits();
+
+    jdbcTemplate.execute("NOTIFY " + QueueNotifyListener.COMMAND_QUEUE_CHANNEL);
+
+    assertThat(wakeUps.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  void reconnectsAfterBackendTermination() throws Exception {
+    awaitListening();
+    wakeUps.drainPermits();
+
+    jdbcTemplate.queryForList(
+        "SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE application_name = ?",
+        "stream-notify-listener");
+
+    // Reconnect wakes subscribers once for rows inserted while not listening
+    assertThat(wakeUps.tryAcquire(10, TimeUnit.SECONDS)).isTrue();
+    awaitListening();
+    wakeUps.drainPermits();
+
+    jdbcTemplate.execute("NOTIFY " + QueueNotifyListener.COMMAND_QUEUE_CHANNEL);
+
+    assertThat(wakeUps.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+  }
+
+  private void awaitListening() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (!listener.isListening() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50);
+    }
+    assertThat(listener.isListening()).isTrue();
+  }
+}
@@ -0,0 +1,76 @@
+package cz.muriel.core.streaming.consumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.muriel.core.streaming.metrics.StreamingMetrics;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * ✅ Batch event listeners - acknowledge the poll, redeliver from a failure
+ */
+class EventConsumerTest {
+
+  private final List<String> processed = new ArrayList<>();
+  private Acknowledgment ack;
+  private EventConsumer consumer;
+
+  @BeforeEach
+  void setUp() {
+    ack = mock(Acknowledgment.class);
+    consumer = new EventConsumer(new ObjectMapper(), mock(StreamingMetrics.class)) {
+      @Override
+      protected void applyBusinessLogic(String eventType, String entityId, String operation,
+          String payload) {
+        if ("boom".equals(entityId)) {
+          throw new IllegalStateException("processing failed");
+        }
+        processed.add(entityId);
+      }
+    };
+  }
+
+  @Test
+  void userEventsAcknowledgedAsWhole() {
+    consumer.consumeUserEvents(List.of(event(0, "a"), event(1, "b")), ack);
+
+    assertThat(processed).containsExactly("a", "b");
+    verify(ack).acknowledge();
+  }
+
+  @Test
+  void userEventFailureRedeliversFromFailingRecord() {
+    consumer.consumeUserEvents(List.of(event(0, "a"), event(1, "boom"), event(2, "c")), ack);
+
+    assertThat(processed).containsExactly("a");
+    verify(ack).nack(eq(1), any(Duration.class));
+    verify(ack, never()).acknowledge();
+  }
+
+  @Test
+  void malformedDlqEventsDoNotBlockPoll() {
+    consumer.consumeDLQEvents(List.of(record(0, "not json"),
+        record(1, "{\"commandId\":\"c1\",\"entityType\":\"User\"}")), ack);
+
+    verify(ack).acknowledge();
+  }
+
+  private static ConsumerRecord<String, String> event(long offset, String entityId) {
+    return record(offset, "{\"eventType\":\"User\",\"entityId\":\"" + entityId
+        + "\",\"operation\":\"UPDATE\"}");
+  }
+
+  private static ConsumerRecord<String, String> record(long offset, String value) {
+    return new ConsumerRecord<>("core.entity.events.user", 0, offset, "User#1", value);
+  }
+}
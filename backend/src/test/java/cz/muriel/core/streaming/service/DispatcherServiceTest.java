@@ -0,0 +1,56 @@
+package cz.muriel.core.streaming.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.muriel.core.streaming.entity.OutboxFinal;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ✅ Dispatcher retry backoff and DLQ payload
+ */
+class DispatcherServiceTest {
+
+  @Test
+  void backoffGrowsExponentially() {
+    assertThat(DispatcherService.backoffMs(1, 100, 2.0, 30_000)).isEqualTo(100);
+    assertThat(DispatcherService.backoffMs(2, 100, 2.0, 30_000)).isEqualTo(200);
+    assertThat(DispatcherService.backoffMs(4, 100, 2.0, 30_000)).isEqualTo(800);
+  }
+
+  @Test
+  void backoffIsCapped() {
+    assertThat(DispatcherService.backoffMs(20, 100, 2.0, 30_000)).isEqualTo(30_000);
+    assertThat(DispatcherService.backoffMs(10_000, 100, 2.0, 30_000)).isEqualTo(30_000);
+  }
+
+  @Test
+  void dlqPayloadEscapesErrorMessage() throws Exception {
+    ObjectMapper objectMapper = new ObjectMapper();
+    OutboxFinal message = new OutboxFinal();
+    message.setDiffJson("{\"status\":\"ACTIVE\"}");
+    message.setErrorMessage("Send failed: \"topic\" unknown\n\tat Producer.send\\");
+    message.setRetryCount(5);
+
+    JsonNode payload = objectMapper
+        .readTree(DispatcherService.dlqPayload(objectMapper, message));
+
+    assertThat(payload.get("original_message").get("status").asText()).isEqualTo("ACTIVE");
+    assertThat(payload.get("error").asText()).isEqualTo(message.getErrorMessage());
+    assertThat(payload.get("retry_count").asInt()).isEqualTo(5);
+  }
+
+  @Test
+  void dlqPayloadWithoutDiffOrError() throws Exception {
+    ObjectMapper objectMapper = new ObjectMapper();
+    OutboxFinal message = new OutboxFinal();
+
+    JsonNode payload = objectMapper
+        .readTree(DispatcherService.dlqPayload(objectMapper, message));
+
+    assertThat(payload.get("original_message").isNull()).isTrue();
+    assertThat(payload.get("error").isNull()).isTrue();
+    assertThat(payload.get("retry_count").asInt()).isZero();
+  }
+}
@@ -0,0 +1,60 @@
+package cz.muriel.core.streaming.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * ✅ Lock partition ring assignment
+ */
+class EntityLockManagerTest {
+
+  private static final int PARTITIONS = 64;
+
+  @Test
+  void membersSplitAllPartitionsWithoutOverlap() {
+    List<String> members = List.of("worker-a", "worker-b", "worker-c");
+
+    Set<Integer> all = new HashSet<>();
+    int total = 0;
+    for (String member : members) {
+      Set<Integer> owned = EntityLockManager.assign(members, PARTITIONS, member);
+      assertThat(owned).isNotEmpty();
+      all.addAll(owned);
+      total += owned.size();
+    }
+
+    assertThat(total).isEqualTo(PARTITIONS);
+    assertThat(all).hasSize(PARTITIONS);
+  }
+
+  @Test
+  void leavingMemberOnlyMovesItsOwnPartitions() {
+    Set<Integer> before = EntityLockManager.assign(List.of("worker-a", "worker-b", "worker-c"),
+        PARTITIONS, "worker-a");
+    Set<Integer> after = EntityLockManager.assign(List.of("worker-a", "worker-b"), PARTITIONS,
+        "worker-a");
+
+    assertThat(after).containsAll(before);
+  }
+
+  @Test
+  void selfIsAlwaysOnTheRing() {
+    assertThat(EntityLockManager.assign(List.of(), PARTITIONS, "worker-a")).hasSize(PARTITIONS);
+  }
+
+  @Test
+  void noLockWithoutPartitionLease() {
+    EntityLockManager manager = new EntityLockManager(mock(JdbcTemplate.class), PARTITIONS,
+        30000L, 16);
+
+    assertThat(manager.tryLock("User", UUID.randomUUID(), 42)).isNull();
+  }
+}
@@ -0,0 +1,74 @@
+package cz.muriel.core.streaming.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.muriel.core.config.StreamingConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * ✅ Coalesced inflight publishing
+ */
+class InflightPublisherTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private KafkaTemplate<String, String> kafkaTemplate;
+  private InflightPublisher publisher;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    kafkaTemplate = mock(KafkaTemplate.class);
+    when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(new CompletableFuture<>());
+    publisher = new InflightPublisher(kafkaTemplate, new StreamingConfig(), objectMapper,
+        "coalesced", 500);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void transitionsOfOneEntityCollapseToLatestState() throws Exception {
+    UUID entityId = UUID.randomUUID();
+    UUID otherId = UUID.randomUUID();
+
+    publisher.publishUpdating("User", entityId, UUID.randomUUID(), "UPDATE");
+    publisher.publishCompleted("User", entityId, UUID.randomUUID(), "UPDATE");
+    publisher.publishUpdating("User", otherId, UUID.randomUUID(), "CREATE");
+    verifyNoInteractions(kafkaTemplate);
+
+    publisher.flush();
+
+    ArgumentCaptor<ProducerRecord<String, String>> captor = ArgumentCaptor
+        .forClass(ProducerRecord.class);
+    verify(kafkaTemplate, times(1)).send(captor.capture());
+    ProducerRecord<String, String> record = captor.getValue();
+
+    assertThat(record.topic()).isEqualTo("core.entity.inflight.user");
+    assertThat(record.headers().lastHeader(InflightPublisher.FORMAT_HEADER)).isNotNull();
+
+    JsonNode payload = objectMapper.readTree(record.value());
+    assertThat(payload.path("entity").asText()).isEqualTo("User");
+    assertThat(payload.path("states")).hasSize(2);
+    for (JsonNode state : payload.path("states")) {
+      if (state.path("entityId").asText().equals(entityId.toString())) {
+        assertThat(state.path("status").asText()).isEqualTo("completed");
+      }
+    }
+  }
+
+  @Test
+  void flushWithoutStatesSendsNothing() {
+    publisher.flush();
+
+    verifyNoInteractions(kafkaTemplate);
+  }
+}
@@ -0,0 +1,179 @@
+package cz.muriel.core.streaming.service;
+
+import cz.muriel.core.metamodel.MetamodelLoader;
+import cz.muriel.core.test.AbstractIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 🧪 Outbox partition maintenance against the V10 outbox_final - retirement of
+ * daily partitions (detach + drop) and the default-partition swap
+ */
+@SpringBootTest
+class OutboxPartitionServiceIT extends AbstractIntegrationTest {
+
+  private static final UUID TENANT_ID = UUID.randomUUID();
+  private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  private MetamodelLoader metamodelLoader;
+
+  private final LocalDate today = LocalDate.now(ZoneOffset.UTC);
+  private OutboxPartitionService service;
+
+  @BeforeEach
+  void setUp() {
+    service = new OutboxPartitionService(jdbcTemplate, transactionManager, metamodelLoader, 7, 3,
+        true);
+    jdbcTemplate.update("INSERT INTO tenants (id, key) VALUES (?, ?) ON CONFLICT DO NOTHING",
+        TENANT_ID, "outbox-" + TENANT_ID);
+  }
+
+  @AfterEach
+  void dropOldPartitions() {
+    for (int days : new int[] { 30, 29 }) {
+      jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition(today.minusDays(days)));
+    }
+  }
+
+  @Test
+  void sentPartitionIsArchivedDetachedAndDropped() {
+    createPartition(today.minusDays(30));
+    createPartition(today.minusDays(29));
+    UUID sent = insert(at(today.minusDays(30)), true);
+    UUID unsent = insert(at(today.minusDays(29)), false);
+
+    service.maintainPartitions(today);
+
+    assertThat(exists(partition(today.minusDays(30)))).isFalse();
+    assertThat(archived(sent)).isTrue();
+    // Partition with an unsent row is kept attached
+    assertThat(exists(partition(today.minusDays(29)))).isTrue();
+    assertThat(attachedPartitions()).contains(partition(today.minusDays(29)))
+        .doesNotContain(partition(today.minusDays(30)));
+    assertThat(outboxIds()).contains(unsent).doesNotContain(sent);
+    // Today and the premade days exist
+    assertThat(attachedPartitions()).contains(partition(today), partition(today.plusDays(3)));
+  }
+
+  @Test
+  void defaultPartitionSwapKeepsUnsentAndRecentRows() {
+    UUID oldSent = insert(at(today.minusDays(60)), true);
+    UUID oldUnsent = insert(at(today.minusDays(60)), false);
+    // Beyond the premade partitions - lands in the default partition too
+    UUID future = insert(at(today.plusDays(30)), true);
+    jdbcTemplate.update("UPDATE outbox_final SET retry_count = 2, error_message = 'timeout', "
+        + "next_attempt_at = now() + interval '1 hour' WHERE id = ?", oldUnsent);
+    Map<String, Object> before = row(oldUnsent);
+
+    service.maintainPartitions(today);
+
+    assertThat(defaultIds()).containsExactlyInAnyOrder(oldUnsent, future);
+    assertThat(archived(oldSent)).isTrue();
+    assertThat(archived(oldUnsent)).isFalse();
+    assertThat(exists("outbox_final_default_retired")).isFalse();
+    assertThat(attachedPartitions()).contains("outbox_final_default");
+    // Every column survives the re-insert
+    assertThat(row(oldUnsent)).isEqualTo(before);
+  }
+
+  @Test
+  void defaultPartitionIsNotSwappedWithoutRetirableRows() {
+    UUID oldUnsent = insert(at(today.minusDays(60)), false);
+    Long relid = defaultRelid();
+
+    service.maintainPartitions(today);
+
+    assertThat(defaultRelid()).isEqualTo(relid);
+    assertThat(defaultIds()).containsExactly(oldUnsent);
+  }
+
+  private void createPartition(LocalDate day) {
+    jdbcTemplate.execute(String.format(
+        "CREATE TABLE IF NOT EXISTS %s PARTITION OF outbox_final FOR VALUES FROM ('%s') TO ('%s')",
+        partition(day), startOf(day), startOf(day.plusDays(1))));
+  }
+
+  private UUID insert(Timestamp createdAt, boolean sent) {
+    UUID id = UUID.randomUUID();
+    jdbcTemplate.update("INSERT INTO outbox_final (id, tenant_id, entity, entity_id, operation, "
+        + "diff_json, headers_json, correlation_id, created_at, sent_at) VALUES (?, ?, 'Order', "
+        + "?, 'UPDATE', '{\"status\":\"PAID\"}'::jsonb, '{\"source\":\"it\"}'::jsonb, ?, ?, ?)",
+        id, TENANT_ID, UUID.randomUUID(), UUID.randomUUID(), createdAt,
+        sent ? Timestamp.from(createdAt.toInstant().plus(1, ChronoUnit.MINUTES)) : null);
+    return id;
+  }
+
+  private static Instant startOf(LocalDate day) {
+    return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+  }
+
+  /** One hour into the UTC day */
+  private static Timestamp at(LocalDate day) {
+    return Timestamp.from(startOf(day).plus(1, ChronoUnit.HOURS));
+  }
+
+  private static String partition(LocalDate day) {
+    return "outbox_final_p" + day.format(SUFFIX);
+  }
+
+  private boolean exists(String table) {
+    return jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table);
+  }
+
+  private boolean archived(UUID id) {
+    return jdbcTemplate.queryForObject(
+        "SELECT EXISTS (SELECT 1 FROM outbox_final_archive WHERE id = ?)", Boolean.class, id);
+  }
+
+  private List<String> attachedPartitions() {
+    return jdbcTemplate.queryForList("""
+        SELECT c.relname FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        JOIN pg_class p ON p.oid = i.inhparent
+        WHERE p.relname = 'outbox_final'
+        """, String.class);
+  }
+
+  private List<UUID> outboxIds() {
+    return jdbcTemplate.queryForList("SELECT id FROM outbox_final WHERE tenant_id = ?",
+        UUID.class, TENANT_ID);
+  }
+
+  private List<UUID> defaultIds() {
+    return jdbcTemplate.queryForList("SELECT id FROM outbox_final_default WHERE tenant_id = ?",
+        UUID.class, TENANT_ID);
+  }
+
+  private Long defaultRelid() {
+    return jdbcTemplate.queryForObject("SELECT 'outbox_final_default'::regclass::oid::bigint",
+        Long.class);
+  }
+
+  private Map<String, Object> row(UUID id) {
+    return jdbcTemplate.queryForMap("SELECT * FROM outbox_final WHERE id = ?", id);
+  }
+}
@@ -0,0 +1,70 @@
+package cz.muriel.core.streaming.service;
+
+import cz.muriel.core.metamodel.schema.EntitySchema;
+import cz.muriel.core.metamodel.schema.StreamingEntityConfig;
+import cz.muriel.core.metamodel.schema.StreamingGlobalConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ✅ Priority lane shares and per-entity quotas
+ */
+class PriorityLaneSchedulerTest {
+
+  private StreamingGlobalConfig globalConfig;
+  private PriorityLaneScheduler scheduler;
+
+  @BeforeEach
+  void setUp() {
+    globalConfig = new StreamingGlobalConfig();
+    globalConfig.getDefaultPriorityQuotas().setBulk(2);
+
+    EntitySchema user = new EntitySchema();
+    user.setEntity("User");
+    StreamingEntityConfig streaming = new StreamingEntityConfig();
+    streaming.getPriorityQuotas().setBulk(0); // explicit unlimited
+    user.setStreaming(streaming);
+
+    scheduler = new PriorityLaneScheduler(globalConfig, Map.of("User", user)::get);
+  }
+
+  @Test
+  void sharesFollowWeights() {
+    assertThat(scheduler.share("critical", 100)).isEqualTo(40);
+    assertThat(scheduler.share("bulk", 100)).isEqualTo(10);
+    // Small batches still leave every weighted priority a slot
+    assertThat(scheduler.share("bulk", 2)).isEqualTo(1);
+  }
+
+  @Test
+  void zeroWeightGetsNoShare() {
+    globalConfig.getDefaultPriorityWeights().setBulk(0);
+
+    assertThat(scheduler.share("bulk", 100)).isZero();
+    assertThat(scheduler.share("critical", 100)).isEqualTo(44);
+  }
+
+  @Test
+  void globalQuotaThrottlesWithinWindow() {
+    long now = 10_000L;
+
+    assertThat(scheduler.tryAcquire("Group", "bulk", now)).isTrue();
+    assertThat(scheduler.tryAcquire("Group", "bulk", now + 10)).isTrue();
+    assertThat(scheduler.tryAcquire("Group", "bulk", now + 20)).isFalse();
+    // Other priorities are unlimited by default
+    assertThat(scheduler.tryAcquire("Group", "critical", now + 20)).isTrue();
+    // Next window resets the count
+    assertThat(scheduler.tryAcquire("Group", "bulk", scheduler.nextWindowStart(now))).isTrue();
+  }
+
+  @Test
+  void entityQuotaOverridesGlobal() {
+    for (int i = 0; i < 10; i++) {
+      assertThat(scheduler.tryAcquire("User", "bulk", 10_000L)).isTrue();
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package cz.muriel.core.test.config;
 
 import cz.muriel.core.reporting.service.QueryDeduplicator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
@@ -20,7 +21,7 @@ public class TestQueryConfig {
   @Primary
   public QueryDeduplicator testQueryDeduplicator() {
     // Stub implementation for tests - no deduplication logic
-    return new QueryDeduplicator() {
+    return new QueryDeduplicator(new SimpleMeterRegistry(), 30000) {
       @Override
       public Map<String, Object> executeWithDeduplication(Map<String, Object> query, String tenantId, 
           Supplier<Map<String, Object>> executor) {
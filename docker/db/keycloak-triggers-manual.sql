@@ -35,6 +35,8 @@ CREATE TABLE change_events (
 
 -- Indexy pro efektivní polling
 CREATE INDEX idx_change_events_unprocessed ON change_events(processed, created_at) WHERE NOT processed;
+-- Keyset drain (ChangeEventPollingService): id > kurzor jen mezi nezpracovanými
+CREATE INDEX idx_change_events_unprocessed_id ON change_events(id) WHERE NOT processed;
 CREATE INDEX idx_change_events_realm ON change_events(realm_id, processed);
 CREATE INDEX idx_change_events_entity ON change_events(entity_id, event_type);
 